@@ -188,6 +188,45 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
         trimEnd();
     }
 
+    /**
+     * Adds messages to bottom of list with one change notification and scroll if needed.
+     *
+     * @param messages messages in chronological order (the last one is the newest).
+     * @param scroll   {@code true} if need to scroll list to bottom when messages added.
+     */
+    public void addToStart(List<MESSAGE> messages, boolean scroll) {
+        if (messages == null || messages.isEmpty()) return;
+
+        if (isDateHeaderEnabled) {
+            for (MESSAGE message : messages) {
+                addToStart(message, scroll);
+            }
+            return;
+        }
+
+        removeLoadingMessageIfNeeded();
+
+        // Messages that don't fit anyway aren't added at all
+        int fromIndex = maxItemsCount > 0 ? Math.max(0, messages.size() - maxItemsCount) : 0;
+        int count = 0;
+        for (int i = fromIndex; i < messages.size(); i++) {
+            MESSAGE message = messages.get(i);
+            if (IMessage.checkMessage(message)) {
+                items.add(0, new Wrapper<>(message));
+                count++;
+            }
+        }
+
+        if (count == 0) return;
+
+        notifyItemRangeInserted(0, count);
+        if (layoutManager != null && scroll) {
+            layoutManager.scrollToPosition(0);
+        }
+
+        trimEnd();
+    }
+
     /**
      * Adds messages list in chronological order. Use this method to add history.
      *
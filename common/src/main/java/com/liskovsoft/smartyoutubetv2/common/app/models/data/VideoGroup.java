@@ -149,6 +149,16 @@ public class VideoGroup {
         return baseGroup;
     }
 
+    public static VideoGroup from(VideoGroup baseGroup, List<Video> videos) {
+        for (Video video : videos) {
+            baseGroup.add(video);
+        }
+
+        baseGroup.mAction = ACTION_APPEND;
+
+        return baseGroup;
+    }
+
     public static VideoGroup fromChapters(List<ChapterItem> chapters, String title) {
         VideoGroup videoGroup = new VideoGroup();
         videoGroup.mTitle = title;
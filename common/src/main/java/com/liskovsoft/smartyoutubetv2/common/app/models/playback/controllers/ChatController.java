@@ -13,6 +13,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.ChatReceiver
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.OptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
+import com.liskovsoft.smartyoutubetv2.common.utils.AhoCorasickMatcher;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 import io.reactivex.disposables.Disposable;
 
@@ -25,6 +26,7 @@ public class ChatController extends BasePlayerController {
      * NOTE: Don't remove duplicates! They contain different chars.
      */
     private static final String[] BLACK_LIST = {". XYZ", ". ХYZ", "⠄XYZ", "⠄ХYZ", "Ricardo Merlino", "⠄СОM", ".COM", ".СОM", ". COM"};
+    private static final AhoCorasickMatcher BLACK_LIST_MATCHER = new AhoCorasickMatcher(BLACK_LIST);
     private LiveChatService mChatService;
     private Disposable mChatAction;
     private String mLiveChatKey;
@@ -60,7 +62,6 @@ public class ChatController extends BasePlayerController {
         mChatAction = mChatService.openLiveChatObserve(mLiveChatKey)
                 .subscribe(
                         chatItem -> {
-                            Log.d(TAG, chatItem.getMessage());
                             if (checkItem(chatItem)) {
                                 chatReceiver.addChatItem(chatItem);
                             }
@@ -142,15 +143,7 @@ public class ChatController extends BasePlayerController {
             return false;
         }
 
-        String authorName = chatItem.getAuthorName();
-
-        for (String spammer : BLACK_LIST) {
-            if (authorName.toLowerCase().contains(spammer.toLowerCase())) {
-                return false;
-            }
-        }
-
-        return true;
+        return !BLACK_LIST_MATCHER.matches(chatItem.getAuthorName());
     }
 
     private void enableLiveChat(boolean enabled) {
@@ -2,17 +2,18 @@ package com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
-import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
-import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
-import com.liskovsoft.mediaserviceinterfaces.data.SponsorSegment;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv2.common.R;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.BasePlayerController;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.SegmentSkipPlan.Range;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerUI;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.SponsorSegmentCache;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.SponsorSegmentCache.Segment;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoBundleLoader;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.OptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.SeekBarSegment;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
@@ -22,26 +23,27 @@ import com.liskovsoft.smartyoutubetv2.common.prefs.ContentBlockData;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
-import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 
 public class ContentBlockController extends BasePlayerController {
     private static final String TAG = ContentBlockController.class.getSimpleName();
-    private static final long POLL_INTERVAL_MS = 1_000;
+    private static final long MIN_CHECK_DELAY_MS = 50;
     private static final int CONTENT_BLOCK_ID = 144;
-    private MediaItemService mMediaItemService;
-    private List<SponsorSegment> mOriginalSegments;
-    private List<SponsorSegment> mActiveSegments;
+    private SponsorSegmentCache mSegmentCache;
+    private List<Segment> mOriginalSegments;
+    private SegmentSkipPlan mSkipPlan;
     private long mLastSkipPosMs;
     private boolean mSkipExclude;
+    private boolean mIsPaused;
     private Disposable mSegmentsAction;
-    private Observable<List<SponsorSegment>> mCachedSegmentsAction;
+    private Observable<List<Segment>> mCachedSegmentsAction;
     private String mVideoId;
+    private final Runnable mCheckSegments = this::checkSegments;
 
     public static class SegmentAction {
         public String segmentCategory;
@@ -81,13 +83,13 @@ public class ContentBlockController extends BasePlayerController {
 
     @Override
     public void onInit() {
-        ServiceManager service = YouTubeServiceManager.instance();
-        mMediaItemService = service.getMediaItemService();
+        mSegmentCache = SponsorSegmentCache.instance(getContext());
     }
 
     @Override
     public void onNewVideo(Video item) {
         mSkipExclude = false;
+        mIsPaused = false;
         if (getPlayer() != null) {
             getPlayer().setSeekBarSegments(null); // reset colors
         }
@@ -126,14 +128,41 @@ public class ContentBlockController extends BasePlayerController {
         disposeActions();
     }
 
+    @Override
+    public void onPlay() {
+        mIsPaused = false;
+        checkSegments();
+    }
+
+    @Override
+    public void onPause() {
+        // Position doesn't change. Wait for the playback.
+        mIsPaused = true;
+        Utils.removeCallbacks(mCheckSegments);
+    }
+
+    @Override
+    public void onBuffering() {
+        Utils.removeCallbacks(mCheckSegments);
+    }
+
+    @Override
+    public void onSeekEnd() {
+        checkSegments();
+    }
+
+    @Override
+    public void onSpeedChanged(float speed) {
+        checkSegments();
+    }
+
     @Override
     public void onButtonClicked(int buttonId, int buttonState) {
         if (buttonId == R.id.action_content_block) {
-            List<SponsorSegment> foundSegments = findMatchedSegments(getPlayer().getPositionMs(), mOriginalSegments, true);
+            long endMs = SegmentSkipPlan.findChainEndMs(getPlayer().getPositionMs(), mOriginalSegments);
 
-            if (foundSegments != null) {
-                SponsorSegment lastSegment = foundSegments.get(foundSegments.size() - 1);
-                setPositionMs(lastSegment.getEndMs());
+            if (endMs != -1) {
+                setPositionMs(endMs);
                 return;
             }
         }
@@ -157,51 +186,64 @@ public class ContentBlockController extends BasePlayerController {
 
     private void updateSponsorSegmentsAndWatch(Video item) {
         if (item == null || item.videoId == null || item.isLive || getContentBlockData().getEnabledCategories().isEmpty()) {
-            mActiveSegments = mOriginalSegments = null;
+            mOriginalSegments = null;
+            mSkipPlan = null;
             mCachedSegmentsAction = null;
             return;
         }
 
         if (!Helpers.equals(mVideoId, item.videoId) || mCachedSegmentsAction == null) {
-            // NOTE: SponsorBlock (when happened java.net.SocketTimeoutException) could block whole application with Schedulers.io()
-            // Because Schedulers.io() reuses blocked threads in RxJava 2: https://github.com/ReactiveX/RxJava/issues/6542
-            mCachedSegmentsAction = mMediaItemService.getSponsorSegmentsObserve(item.videoId, getContentBlockData().getEnabledCategories())
+            mCachedSegmentsAction = getSegmentsObserve(item.videoId, getContentBlockData().getEnabledCategories())
                     .cache();
             mVideoId = item.videoId;
         }
 
         mSegmentsAction = mCachedSegmentsAction
-                .flatMap(this::startSponsorWatcher)
                 .subscribe(
-                        this::skipSegment,
+                        this::startSponsorWatcher,
                         error -> Log.d(TAG, "It's ok. Nothing to block in this video. Error msg: %s", error.getMessage())
                 );
     }
 
-    private Observable<Long> startSponsorWatcher(List<SponsorSegment> segments) {
+    private Observable<List<Segment>> getSegmentsObserve(String videoId, Set<String> categories) {
+        List<Segment> cachedSegments = mSegmentCache.get(videoId, categories);
+
+        if (cachedSegments != null) {
+            return Observable.just(cachedSegments);
+        }
+
+        // NOTE: SponsorBlock (when happened java.net.SocketTimeoutException) could block whole application with Schedulers.io()
+        // Because Schedulers.io() reuses blocked threads in RxJava 2: https://github.com/ReactiveX/RxJava/issues/6542
+        // Most likely already requested along with the format info
+        return VideoBundleLoader.instance(getContext()).getSponsorSegmentsObserve(videoId, categories)
+                .map(Segment::from)
+                .doOnNext(segments -> mSegmentCache.put(videoId, categories, segments));
+    }
+
+    private void startSponsorWatcher(List<Segment> segments) {
         if (segments == null || segments.isEmpty()) {
-            mActiveSegments = mOriginalSegments = null;
-            return Observable.empty();
+            mOriginalSegments = null;
+            mSkipPlan = null;
+            return;
         }
 
         mOriginalSegments = segments;
 
-        mActiveSegments = new ArrayList<>(segments);
-
         if (getContentBlockData().isColorMarkersEnabled()) {
             getPlayer().setSeekBarSegments(toSeekBarSegments(segments));
         }
         if (getContentBlockData().isActionsEnabled()) {
-            // Warn. Try to not access player object here.
-            // Or you'll get "Player is accessed on the wrong thread" error.
-            return RxHelper.interval(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            mSkipPlan = new SegmentSkipPlan(segments, getContentBlockData());
+            checkSegments();
         } else {
-            return Observable.empty();
+            mSkipPlan = null;
         }
     }
 
     private void disposeActions() {
         RxHelper.disposeActions(mSegmentsAction);
+        Utils.removeCallbacks(mCheckSegments);
+        mSkipPlan = null;
 
         // Note, removes all segments at once
         //getPlayer().setSeekBarSegments(null); // reset colors
@@ -210,39 +252,55 @@ public class ContentBlockController extends BasePlayerController {
         mLastSkipPosMs = 0;
     }
 
-    private void skipSegment(long interval) {
-        if (mActiveSegments == null || mActiveSegments.isEmpty() || getVideo() == null || !Helpers.equals(mVideoId, getVideo().videoId)) {
+    /**
+     * Applies the range at the current position and schedules the next check at the beginning of the next range.<br/>
+     * The delay is calculated from the position and the speed. Seek and speed change start the new plan.
+     */
+    private void checkSegments() {
+        Utils.removeCallbacks(mCheckSegments);
+
+        if (mSkipPlan == null || getPlayer() == null) {
+            return;
+        }
+
+        if (getVideo() == null || !Helpers.equals(mVideoId, getVideo().videoId)) {
             disposeActions();
             return;
         }
 
         // Fix looping messages at the end of the video (playback mode: pause at the end of the video)
-        if (!getPlayer().isPlaying()) {
+        // Seek while paused: the play event checks the new position.
+        if (mIsPaused || !getPlayer().isPlaying()) {
             return;
         }
 
+        if (!mSkipPlan.isActual(getContentBlockData())) {
+            mSkipPlan = getContentBlockData().isActionsEnabled() ? new SegmentSkipPlan(mOriginalSegments, getContentBlockData()) : null;
+
+            if (mSkipPlan == null) {
+                return;
+            }
+        }
+
         long positionMs = getPlayer().getPositionMs();
+        float speed = getPlayer().getSpeed() > 0 ? getPlayer().getSpeed() : 1.0f;
 
-        List<SponsorSegment> foundSegments = findMatchedSegments(positionMs, mActiveSegments, false);
+        // NOTE: in case of using Player.setSeekParameters (inaccurate seeking) increase sponsor segment window
+        long windowSizeMs = (long) (2_000 * speed);
+        Range range = mSkipPlan.findRange(positionMs, windowSizeMs);
 
-        applyActions(foundSegments);
+        applyActions(range);
 
         // Skip each segment only once
-        if (foundSegments != null && getContentBlockData().isDontSkipSegmentAgainEnabled()) {
-            mActiveSegments.removeAll(foundSegments);
+        if (range != null && getContentBlockData().isDontSkipSegmentAgainEnabled()) {
+            mSkipPlan.markSkipped(range);
         }
-    }
 
-    private boolean isPositionInsideSegment(long positionMs, SponsorSegment segment, boolean fullMatch) {
-        // NOTE: in case of using Player.setSeekParameters (inaccurate seeking) increase sponsor segment window
-        // int seekShift = 1_000;
-        // return positionMs >= (segment.getStartMs() - seekShift) && positionMs <= (segment.getEndMs() + seekShift);
+        long nextStartMs = mSkipPlan.getNextStartMs(positionMs);
 
-        if (fullMatch) {
-            return positionMs >= segment.getStartMs() && positionMs <= segment.getEndMs();
-        } else {
-            long windowSizeMs = (long) (2_000 * getPlayer().getSpeed());
-            return positionMs >= segment.getStartMs() && positionMs <= Math.min(segment.getStartMs() + windowSizeMs, segment.getEndMs());
+        if (nextStartMs != -1) {
+            long delayMs = (long) ((nextStartMs - positionMs) / speed);
+            Utils.postDelayed(mCheckSegments, Math.max(delayMs, MIN_CHECK_DELAY_MS));
         }
     }
 
@@ -299,24 +357,24 @@ public class ContentBlockController extends BasePlayerController {
         dialogPresenter.showDialog(getContext().getString(R.string.content_block_provider));
     }
 
-    private List<SeekBarSegment> toSeekBarSegments(List<SponsorSegment> segments) {
+    private List<SeekBarSegment> toSeekBarSegments(List<Segment> segments) {
         if (segments == null) {
             return null;
         }
 
         List<SeekBarSegment> result = new ArrayList<>();
 
-        for (SponsorSegment sponsorSegment : segments) {
-            if (!getContentBlockData().isColorMarkerEnabled(sponsorSegment.getCategory())) {
+        for (Segment sponsorSegment : segments) {
+            if (!getContentBlockData().isColorMarkerEnabled(sponsorSegment.category)) {
                 continue;
             }
 
             SeekBarSegment seekBarSegment = new SeekBarSegment();
-            float startRatio = (float) sponsorSegment.getStartMs() / getPlayer().getDurationMs(); // Range: [0, 1]
-            float endRatio = (float) sponsorSegment.getEndMs() / getPlayer().getDurationMs(); // Range: [0, 1]
+            float startRatio = (float) sponsorSegment.startMs / getPlayer().getDurationMs(); // Range: [0, 1]
+            float endRatio = (float) sponsorSegment.endMs / getPlayer().getDurationMs(); // Range: [0, 1]
             seekBarSegment.startProgress = startRatio;
             seekBarSegment.endProgress = endRatio;
-            seekBarSegment.color = ContextCompat.getColor(getContext(), getContentBlockData().getColorRes(sponsorSegment.getCategory()));
+            seekBarSegment.color = ContextCompat.getColor(getContext(), getContentBlockData().getColorRes(sponsorSegment.category));
             result.add(seekBarSegment);
         }
 
@@ -333,55 +391,19 @@ public class ContentBlockController extends BasePlayerController {
         getPlayer().setPositionMs(Math.min(positionMs, durationMs));
     }
 
-    /**
-     * @param fullMatch Match only the beginning or the full segment length
-     */
-    private List<SponsorSegment> findMatchedSegments(long positionMs, List<SponsorSegment> segments, boolean fullMatch) {
-        if (segments == null) {
-            return null;
-        }
-
-        List<SponsorSegment> foundSegment = null;
-
-        for (SponsorSegment segment : segments) {
-            int action = getContentBlockData().getAction(segment.getCategory());
-            boolean isSkipAction = action == ContentBlockData.ACTION_SKIP_ONLY ||
-                    action == ContentBlockData.ACTION_SKIP_WITH_TOAST;
-            if (foundSegment == null) {
-                if (isPositionInsideSegment(positionMs, segment, fullMatch)) {
-                    foundSegment = new ArrayList<>();
-                    foundSegment.add(segment);
-
-                    // Action grouping aren't supported for dialogs
-                    if (!isSkipAction) {
-                        break;
-                    }
-                }
-            } else {
-                SponsorSegment lastSegment = foundSegment.get(foundSegment.size() - 1);
-                if (isSkipAction && isPositionInsideSegment(lastSegment.getEndMs() + 3_000, segment, fullMatch)) {
-                    foundSegment.add(segment);
-                }
-            }
-        }
-
-        return foundSegment;
-    }
-
-    private void applyActions(List<SponsorSegment> foundSegments) {
-        if (foundSegments == null) {
+    private void applyActions(Range range) {
+        if (range == null) {
             mLastSkipPosMs = 0;
             return;
         }
 
-        SponsorSegment lastSegment = foundSegments.get(foundSegments.size() - 1);
-
-        Integer resId = getContentBlockData().getLocalizedRes(lastSegment.getCategory());
-        String skipMessage = resId != null ? getContext().getString(resId) : lastSegment.getCategory();
+        String category = range.lastSegment.category;
+        Integer resId = getContentBlockData().getLocalizedRes(category);
+        String skipMessage = resId != null ? getContext().getString(resId) : category;
 
-        int type = getContentBlockData().getAction(lastSegment.getCategory());
+        int type = range.action;
 
-        long skipPosMs = lastSegment.getEndMs();
+        long skipPosMs = range.endMs;
         // Fix infinite skip loop by ignoring short segments. TextureView has a seek bug.
         long skipDurationMs = Math.min(skipPosMs, getPlayer().getDurationMs()) - getPlayer().getPositionMs();
         boolean stayQuiet = skipDurationMs < 10_000 && PlayerTweaksData.instance(getContext()).isTextureViewEnabled();
@@ -18,6 +18,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.BasePlayerContr
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerConstants;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerUI;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem;
+import com.liskovsoft.smartyoutubetv2.common.misc.RemoteSession;
 import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataChangeBase.OnDataChange;
 import com.liskovsoft.smartyoutubetv2.common.prefs.RemoteControlData;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
@@ -32,10 +33,8 @@ public class RemoteController extends BasePlayerController implements OnDataChan
     private final Runnable mStartListeningInt = this::startListeningInt;
     private final RemoteControlService mRemoteControlService;
     private final RemoteControlData mRemoteControlData;
+    private final RemoteSession mRemoteSession;
     private Disposable mListeningAction;
-    private Disposable mPostStartPlayAction;
-    private Disposable mPostStateAction;
-    private Disposable mPostVolumeAction;
     private boolean mConnected;
     private long mNewVideoPositionMs;
     private Disposable mActionDown;
@@ -47,6 +46,7 @@ public class RemoteController extends BasePlayerController implements OnDataChan
         // Start receiving a commands as early as possible
         ServiceManager service = YouTubeServiceManager.instance();
         mRemoteControlService = service.getRemoteControlService();
+        mRemoteSession = new RemoteSession(mRemoteControlService, this::processCommand);
         mRemoteControlData = RemoteControlData.instance(context);
         mRemoteControlData.setOnChange(this);
         tryListening();
@@ -152,11 +152,7 @@ public class RemoteController extends BasePlayerController implements OnDataChan
             return;
         }
 
-        RxHelper.disposeActions(mPostStartPlayAction);
-
-        mPostStartPlayAction = RxHelper.execute(
-                mRemoteControlService.postStartPlayingObserve(videoId, positionMs, durationMs, isPlaying)
-        );
+        mRemoteSession.postStartPlaying(videoId, positionMs, durationMs, isPlaying);
     }
 
     private void postState(long positionMs, long durationMs, boolean isPlaying) {
@@ -164,11 +160,7 @@ public class RemoteController extends BasePlayerController implements OnDataChan
             return;
         }
 
-        RxHelper.disposeActions(mPostStateAction);
-
-        mPostStateAction = RxHelper.execute(
-                mRemoteControlService.postStateChangeObserve(positionMs, durationMs, isPlaying)
-        );
+        mRemoteSession.postState(positionMs, durationMs, isPlaying);
     }
 
     private void postVolumeChange(int volume) {
@@ -176,11 +168,7 @@ public class RemoteController extends BasePlayerController implements OnDataChan
             return;
         }
 
-        RxHelper.disposeActions(mPostVolumeAction);
-
-        mPostVolumeAction = RxHelper.execute(
-                mRemoteControlService.postVolumeChangeObserve(volume)
-        );
+        mRemoteSession.postVolume(volume);
     }
 
     private void postPlay(boolean isPlaying) {
@@ -222,7 +210,7 @@ public class RemoteController extends BasePlayerController implements OnDataChan
 
         mListeningAction = mRemoteControlService.getCommandObserve()
                 .subscribe(
-                        this::processCommand,
+                        mRemoteSession::onCommand,
                         error -> {
                             String msg = "startListening error: " + error.getMessage();
                             Log.e(TAG, msg);
@@ -238,7 +226,8 @@ public class RemoteController extends BasePlayerController implements OnDataChan
     }
 
     private void stopListening() {
-        RxHelper.disposeActions(mListeningAction, mPostStartPlayAction, mPostStateAction, mPostVolumeAction);
+        RxHelper.disposeActions(mListeningAction);
+        mRemoteSession.reset();
         unregisterVolumeObserver();
         Utils.removeCallbacks(mStartListeningInt);
     }
@@ -0,0 +1,177 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers;
+
+import androidx.annotation.Nullable;
+
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.ContentBlockController.SegmentAction;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.SponsorSegmentCache.Segment;
+import com.liskovsoft.smartyoutubetv2.common.prefs.ContentBlockData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Skip ranges of the video sorted by the start time.<br/>
+ * Adjacent skip segments are merged into one range, so the chain is skipped at once.
+ * Dialog segments always have their own range.<br/>
+ * Lookups are binary searches, the segment actions are resolved once. The plan is outdated when the actions are changed.
+ */
+final class SegmentSkipPlan {
+    private static final long MERGE_GAP_MS = 3_000;
+    private final List<Range> mRanges = new ArrayList<>();
+    private final long[] mStartsMs;
+    private final String mActionsKey;
+
+    static final class Range {
+        final long startMs;
+        long endMs;
+        // The action and the category of the range are taken from the last segment
+        Segment lastSegment;
+        int action;
+        boolean isSkipped;
+
+        private Range(Segment segment, int action) {
+            startMs = segment.startMs;
+            endMs = segment.endMs;
+            lastSegment = segment;
+            this.action = action;
+        }
+    }
+
+    SegmentSkipPlan(List<Segment> segments, ContentBlockData data) {
+        mActionsKey = getActionsKey(data);
+        Range current = null;
+
+        for (Segment segment : sortByStart(segments)) {
+            int action = data.getAction(segment.category);
+
+            if (action == ContentBlockData.ACTION_DO_NOTHING || action == ContentBlockData.ACTION_UNDEFINED) {
+                continue;
+            }
+
+            if (current != null && isSkipAction(current.action) && isSkipAction(action)
+                    && segment.startMs <= current.endMs + MERGE_GAP_MS) {
+                if (segment.endMs >= current.endMs) {
+                    current.endMs = segment.endMs;
+                    current.lastSegment = segment;
+                    current.action = action;
+                }
+                continue;
+            }
+
+            current = new Range(segment, action);
+            mRanges.add(current);
+        }
+
+        mStartsMs = new long[mRanges.size()];
+
+        for (int i = 0; i < mStartsMs.length; i++) {
+            mStartsMs[i] = mRanges.get(i).startMs;
+        }
+    }
+
+    /**
+     * Finds the range that begins near the position.
+     *
+     * @param windowMs Max distance from the beginning of the range
+     */
+    @Nullable
+    Range findRange(long positionMs, long windowMs) {
+        // Ranges are sorted by start. Check only the ones that begin inside the window.
+        for (int i = lastIndexAtOrBefore(positionMs); i >= 0 && mStartsMs[i] + windowMs >= positionMs; i--) {
+            Range range = mRanges.get(i);
+
+            if (!range.isSkipped && positionMs <= Math.min(range.startMs + windowMs, range.endMs)) {
+                return range;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the start of the first range after the position or -1.
+     */
+    long getNextStartMs(long positionMs) {
+        for (int i = lastIndexAtOrBefore(positionMs) + 1; i < mRanges.size(); i++) {
+            if (!mRanges.get(i).isSkipped) {
+                return mStartsMs[i];
+            }
+        }
+
+        return -1;
+    }
+
+    void markSkipped(Range range) {
+        range.isSkipped = true;
+    }
+
+    /**
+     * The actions might be changed in the settings while the video is playing.
+     */
+    boolean isActual(ContentBlockData data) {
+        return mActionsKey.equals(getActionsKey(data));
+    }
+
+    /**
+     * Finds the end of the segment chain that contains the position (any action) or -1.
+     */
+    static long findChainEndMs(long positionMs, List<Segment> segments) {
+        if (segments == null) {
+            return -1;
+        }
+
+        long endMs = -1;
+
+        for (Segment segment : sortByStart(segments)) {
+            if (endMs == -1) {
+                if (positionMs >= segment.startMs && positionMs <= segment.endMs) {
+                    endMs = segment.endMs;
+                }
+            } else if (segment.startMs <= endMs + MERGE_GAP_MS) {
+                endMs = Math.max(endMs, segment.endMs);
+            } else {
+                break;
+            }
+        }
+
+        return endMs;
+    }
+
+    private int lastIndexAtOrBefore(long positionMs) {
+        int low = 0;
+        int high = mStartsMs.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+
+            if (mStartsMs[mid] <= positionMs) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return high;
+    }
+
+    private static List<Segment> sortByStart(List<Segment> segments) {
+        List<Segment> result = new ArrayList<>(segments);
+        Collections.sort(result, (o1, o2) -> Long.compare(o1.startMs, o2.startMs));
+        return result;
+    }
+
+    private static String getActionsKey(ContentBlockData data) {
+        StringBuilder result = new StringBuilder();
+
+        for (SegmentAction action : data.getActions()) {
+            result.append(action).append(';');
+        }
+
+        return result.toString();
+    }
+
+    private static boolean isSkipAction(int action) {
+        return action == ContentBlockData.ACTION_SKIP_ONLY || action == ContentBlockData.ACTION_SKIP_WITH_TOAST;
+    }
+}
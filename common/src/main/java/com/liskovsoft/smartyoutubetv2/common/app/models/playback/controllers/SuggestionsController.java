@@ -21,6 +21,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.BasePlayerController;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerConstants;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoBundleLoader;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.OptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.SeekBarSegment;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
@@ -161,6 +162,8 @@ public class SuggestionsController extends BasePlayerController {
             return;
         }
 
+        // Fresh live description
+        VideoBundleLoader.instance(getContext()).invalidate(video.videoId);
         loadMetadata(video, metadata -> syncCurrentVideo(metadata, video));
     }
 
@@ -239,7 +242,10 @@ public class SuggestionsController extends BasePlayerController {
         }
 
         clearSuggestionsIfNeeded(video);
-        loadMetadata(video, metadata -> updateSuggestions(metadata, video));
+        loadMetadata(video, metadata -> {
+            updateSuggestions(metadata, video);
+            VideoBundleLoader.instance(getContext()).onSuggestions(video);
+        });
     }
 
     private void loadMetadata(Video video, OnMetadata callback) {
@@ -254,7 +260,8 @@ public class SuggestionsController extends BasePlayerController {
 
         // NOTE: Load suggestions from mediaItem isn't robust. Because playlistId may be initialized from RemoteControlManager.
         // Video might be loaded from Channels section (has playlistParams)
-        observable = mMediaItemService.getMetadataObserve(video.videoId, video.getPlaylistId(), video.playlistIndex, video.playlistParams);
+        // Most likely already loaded along with the format info
+        observable = VideoBundleLoader.instance(getContext()).getMetadataObserve(video);
 
         Disposable metadataAction = observable
                 .subscribe(
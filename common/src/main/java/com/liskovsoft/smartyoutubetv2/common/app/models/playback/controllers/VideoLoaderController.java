@@ -3,8 +3,6 @@ package com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers;
 import android.annotation.SuppressLint;
 import android.util.Pair;
 
-import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
-import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaFormat;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
@@ -20,6 +18,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.BasePlayerController;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerConstants;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoBundleLoader;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.VideoActionPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.views.PlaybackView;
@@ -42,6 +41,8 @@ public class VideoLoaderController extends BasePlayerController {
     private static final long BUFFERING_WINDOW_MS = 60_000;
     private static final long BUFFERING_RECURRENCE_COUNT = 5;
     private static final long BUFFERING_CONTINUATION_MS = 10_000;
+    // Tickle interval is one minute
+    private static final long PRELOAD_THRESHOLD_MS = 90_000;
     private final Playlist mPlaylist;
     private Video mPendingVideo;
     private int mLastErrorType = -1;
@@ -49,6 +50,8 @@ public class VideoLoaderController extends BasePlayerController {
     private long mSleepTimerStartMs;
     private Disposable mFormatInfoAction;
     private Disposable mMpdStreamAction;
+    private Disposable mMetadataSyncAction;
+    private String mPreloadedVideoId;
     private final Runnable mReloadVideo = () -> {
         getMainController().onNewVideo(getVideo());
     };
@@ -156,6 +159,7 @@ public class VideoLoaderController extends BasePlayerController {
     @Override
     public void onEngineReleased() {
         disposeActions();
+        mPreloadedVideoId = null;
     }
 
     @Override
@@ -173,6 +177,7 @@ public class VideoLoaderController extends BasePlayerController {
         }
 
         mLastErrorType = -1;
+        VideoBundleLoader.instance(getContext()).onFirstFrame(video);
         getPlayer().setButtonState(R.id.action_repeat, video.finishOnEnded ? PlayerConstants.PLAYBACK_MODE_CLOSE : getPlayerData().getPlaybackMode());
         // Can't set title at this point
         //checkSleepTimer();
@@ -270,6 +275,7 @@ public class VideoLoaderController extends BasePlayerController {
     @Override
     public void onTickle() {
         checkSleepTimer();
+        preloadNextVideoIfNeeded();
     }
 
     private void checkSleepTimer() {
@@ -323,7 +329,13 @@ public class VideoLoaderController extends BasePlayerController {
             // Short videos next fix (suggestions aren't loaded yet)
             boolean isEnded = getPlayer() != null && Math.abs(getPlayer().getDurationMs() - getPlayer().getPositionMs()) < 100;
             if (isEnded) {
-                Utils.postDelayed(mMetadataSync, 1_000);
+                // Continue as soon as the metadata arrives
+                RxHelper.disposeActions(mMetadataSyncAction);
+                mMetadataSyncAction = VideoBundleLoader.instance(getContext()).getMetadataObserve(current)
+                        .subscribe(metadata -> {
+                            current.sync(metadata);
+                            waitMetadataSync(current, false);
+                        }, error -> Utils.postDelayed(mMetadataSync, 1_000));
             }
         }
     }
@@ -336,9 +348,17 @@ public class VideoLoaderController extends BasePlayerController {
         getPlayer().showProgressBar(true);
         disposeActions();
 
-        ServiceManager service = YouTubeServiceManager.instance();
-        MediaItemService mediaItemManager = service.getMediaItemService();
-        mFormatInfoAction = mediaItemManager.getFormatInfoObserve(video.videoId)
+        // The preloaded video is opened or skipped. Allow to preload it again (e.g. repeat of the playlist).
+        mPreloadedVideoId = null;
+
+        // Suggestions, storyboard and segments are loaded along with the format info
+        VideoBundleLoader loader = VideoBundleLoader.instance(getContext());
+        loader.onOpen(video);
+        if (!isEmbedPlayer()) {
+            loader.prefetch(video);
+        }
+
+        mFormatInfoAction = loader.getFormatInfoObserve(video.videoId)
                 .subscribe(this::processFormatInfo,
                            error -> {
                                getPlayer().showProgressBar(false);
@@ -478,7 +498,7 @@ public class VideoLoaderController extends BasePlayerController {
     private void disposeActions() {
         mBufferingCount = null;
         MediaServiceManager.instance().disposeActions();
-        RxHelper.disposeActions(mFormatInfoAction, mMpdStreamAction);
+        RxHelper.disposeActions(mFormatInfoAction, mMpdStreamAction, mMetadataSyncAction);
         Utils.removeCallbacks(mReloadVideo, mLoadNext, mRestartEngine, mMetadataSync, mOnLongBuffering, mRebootApp);
     }
 
@@ -499,6 +519,10 @@ public class VideoLoaderController extends BasePlayerController {
             MessageHelpers.showLongMessage(getContext(), fullMsg);
         }
 
+        if (getVideo() != null) {
+            VideoBundleLoader.instance(getContext()).invalidate(getVideo().videoId);
+        }
+
         if (Helpers.containsAny(message, "Unexpected token", "Syntax error", "invalid argument") || // temporal fix
                 Helpers.equalsAny(className, "PoTokenException", "BadWebViewException")) {
             YouTubeServiceManager.instance().applyNoPlaybackFix();
@@ -991,8 +1015,22 @@ public class VideoLoaderController extends BasePlayerController {
             return;
         }
 
-        if (getPlayer().getDurationMs() - getPlayer().getPositionMs() < 50_000) {
-            MediaServiceManager.instance().loadFormatInfo(mSuggestionsController.getNext(), formatInfo -> {});
+        Video next = mSuggestionsController.getNext();
+
+        if (next == null || Helpers.equals(next.videoId, mPreloadedVideoId)) {
+            return;
+        }
+
+        long durationMs = getPlayer().getDurationMs();
+
+        if (durationMs > 0 && durationMs - getPlayer().getPositionMs() < PRELOAD_THRESHOLD_MS) {
+            mPreloadedVideoId = next.videoId;
+            // Format info is cached by the service. Prefetched segments go to the segment cache.
+            MediaServiceManager.instance().loadFormatInfo(next, formatInfo -> {
+                if (getPlayer() != null && acceptAdaptiveFormats(formatInfo)) {
+                    getPlayer().prefetch(formatInfo);
+                }
+            });
         }
     }
 
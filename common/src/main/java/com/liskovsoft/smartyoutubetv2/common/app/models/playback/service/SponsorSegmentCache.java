@@ -0,0 +1,115 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.service;
+
+import android.content.Context;
+import androidx.annotation.Nullable;
+
+import com.liskovsoft.mediaserviceinterfaces.data.SponsorSegment;
+import com.liskovsoft.smartyoutubetv2.common.misc.PersistentLruCache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the SponsorBlock segments of the recently watched videos, so replays don't query the server again.<br/>
+ * The segments are stored in the files dir and expire after the TTL.
+ */
+public class SponsorSegmentCache {
+    private static SponsorSegmentCache sInstance;
+    private static final String FILE_NAME = "sponsor_segments.bin";
+    private static final int VERSION = 1;
+    private static final int MAX_SIZE = 300;
+    private static final long TTL_MS = 24 * 60 * 60 * 1_000;
+    private final PersistentLruCache<List<Segment>> mEntries;
+
+    public static class Segment {
+        public final long startMs;
+        public final long endMs;
+        public final String category;
+
+        public Segment(long startMs, long endMs, String category) {
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.category = category;
+        }
+
+        public static List<Segment> from(List<SponsorSegment> segments) {
+            List<Segment> result = new ArrayList<>();
+
+            if (segments == null) {
+                return result;
+            }
+
+            for (SponsorSegment segment : segments) {
+                result.add(new Segment(segment.getStartMs(), segment.getEndMs(), segment.getCategory()));
+            }
+
+            return result;
+        }
+    }
+
+    private static final class SegmentsSerializer implements PersistentLruCache.Serializer<List<Segment>> {
+        @Override
+        public void write(DataOutputStream out, List<Segment> segments) throws IOException {
+            out.writeInt(segments.size());
+
+            for (Segment segment : segments) {
+                out.writeLong(segment.startMs);
+                out.writeLong(segment.endMs);
+                out.writeUTF(segment.category != null ? segment.category : "");
+            }
+        }
+
+        @Override
+        public List<Segment> read(DataInputStream in) throws IOException {
+            int segmentCount = in.readInt();
+            List<Segment> segments = new ArrayList<>(segmentCount);
+
+            for (int i = 0; i < segmentCount; i++) {
+                segments.add(new Segment(in.readLong(), in.readLong(), in.readUTF()));
+            }
+
+            return Collections.unmodifiableList(segments);
+        }
+    }
+
+    private SponsorSegmentCache(Context context) {
+        mEntries = new PersistentLruCache<>(new File(context.getFilesDir(), FILE_NAME), VERSION, MAX_SIZE, TTL_MS, new SegmentsSerializer());
+    }
+
+    public static SponsorSegmentCache instance(Context context) {
+        if (sInstance == null && context != null) {
+            sInstance = new SponsorSegmentCache(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    @Nullable
+    public List<Segment> get(String videoId, Set<String> categories) {
+        return mEntries.get(createKey(videoId, categories));
+    }
+
+    public void put(String videoId, Set<String> categories, List<Segment> segments) {
+        mEntries.put(createKey(videoId, categories), Collections.unmodifiableList(segments));
+    }
+
+    /**
+     * The result depends on the requested categories
+     */
+    private static String createKey(String videoId, Set<String> categories) {
+        StringBuilder key = new StringBuilder(videoId);
+
+        for (String category : new TreeSet<>(categories)) {
+            key.append(',').append(category);
+        }
+
+        return key.toString();
+    }
+}
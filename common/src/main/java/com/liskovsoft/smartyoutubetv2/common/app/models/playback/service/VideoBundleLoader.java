@@ -0,0 +1,200 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.service;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemStoryboard;
+import com.liskovsoft.mediaserviceinterfaces.data.SponsorSegment;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.prefs.ContentBlockData;
+import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+import io.reactivex.Observable;
+
+/**
+ * Everything the player needs to open the video: format info, metadata (suggestions), storyboard and SponsorBlock segments.<br/>
+ * The requests are started together when the video is opened. Controllers get the same in-flight request instead of the new one.
+ * Results are kept for a short time, errors aren't kept. Format info is already cached by the service, only the in-flight request is shared.
+ * Same for the metadata: it holds the like, subscribe and playlist state that the user changes.<br/>
+ * Also measures the time from the open to the first frame and to the suggestions.
+ */
+public class VideoBundleLoader {
+    private static final String TAG = VideoBundleLoader.class.getSimpleName();
+    @SuppressLint("StaticFieldLeak")
+    private static VideoBundleLoader sInstance;
+    private static final long CACHE_TTL_MS = 60_000;
+    private static final int MAX_CACHED_REQUESTS = 20;
+    private final Context mContext;
+    private final LruCache<String, Entry<?>> mRequests = new LruCache<>(MAX_CACHED_REQUESTS);
+    private String mOpenVideoId;
+    private long mOpenTimeMs;
+    private long mTimeToFirstFrameMs = -1;
+    private long mTimeToSuggestionsMs = -1;
+
+    private static final class Entry<T> {
+        final Observable<T> observable;
+        final long createdMs = SystemClock.elapsedRealtime();
+
+        Entry(Observable<T> observable) {
+            this.observable = observable;
+        }
+
+        boolean isFresh() {
+            return SystemClock.elapsedRealtime() - createdMs < CACHE_TTL_MS;
+        }
+    }
+
+    private VideoBundleLoader(Context context) {
+        mContext = context;
+    }
+
+    public static VideoBundleLoader instance(Context context) {
+        if (sInstance == null && context != null) {
+            sInstance = new VideoBundleLoader(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Starts all requests of the video in parallel. Format info is requested separately by the caller.
+     */
+    public void prefetch(Video video) {
+        if (video == null || video.videoId == null) {
+            return;
+        }
+
+        start(getMetadataObserve(video));
+
+        if (!video.isUpcoming) {
+            start(getStoryboardObserve(video));
+        }
+
+        Set<String> categories = ContentBlockData.instance(mContext).getEnabledCategories();
+
+        if (!video.isLive && !categories.isEmpty() && SponsorSegmentCache.instance(mContext).get(video.videoId, categories) == null) {
+            start(getSponsorSegmentsObserve(video.videoId, categories));
+        }
+    }
+
+    public Observable<MediaItemFormatInfo> getFormatInfoObserve(String videoId) {
+        return dedup("format:" + videoId, () -> getService().getFormatInfoObserve(videoId), false);
+    }
+
+    /**
+     * NOTE: Playlist params are a part of the key. The video might be opened from the Channels section.<br/>
+     * The result isn't kept. Otherwise the reopened video shows the old like and subscribe state.
+     */
+    public Observable<MediaItemMetadata> getMetadataObserve(Video video) {
+        String key = String.format("metadata:%s:%s:%s:%s", video.videoId, video.getPlaylistId(), video.playlistIndex, video.playlistParams);
+        return dedup(key, () -> getService().getMetadataObserve(video.videoId, video.getPlaylistId(), video.playlistIndex, video.playlistParams), false);
+    }
+
+    public Observable<MediaItemStoryboard> getStoryboardObserve(Video video) {
+        return dedup("storyboard:" + video.videoId, () -> video.mediaItem != null ?
+                getService().getStoryboardObserve(video.mediaItem) : getService().getStoryboardObserve(video.videoId), true);
+    }
+
+    public Observable<List<SponsorSegment>> getSponsorSegmentsObserve(String videoId, Set<String> categories) {
+        return dedup("segments:" + videoId + ":" + new TreeSet<>(categories), () -> getService().getSponsorSegmentsObserve(videoId, categories), true);
+    }
+
+    /**
+     * The data of the video is broken. E.g. expired urls.
+     */
+    public void invalidate(String videoId) {
+        for (String key : mRequests.snapshot().keySet()) {
+            if (Helpers.equals(key.split(":")[1], videoId)) {
+                mRequests.remove(key);
+            }
+        }
+    }
+
+    public void onOpen(Video video) {
+        mOpenVideoId = video != null ? video.videoId : null;
+        mOpenTimeMs = SystemClock.elapsedRealtime();
+        mTimeToFirstFrameMs = -1;
+        mTimeToSuggestionsMs = -1;
+    }
+
+    public void onFirstFrame(Video video) {
+        if (video != null && Helpers.equals(mOpenVideoId, video.videoId) && mTimeToFirstFrameMs == -1) {
+            mTimeToFirstFrameMs = SystemClock.elapsedRealtime() - mOpenTimeMs;
+            Log.d(TAG, "Time to first frame: %s ms", mTimeToFirstFrameMs);
+        }
+    }
+
+    public void onSuggestions(Video video) {
+        if (video != null && Helpers.equals(mOpenVideoId, video.videoId) && mTimeToSuggestionsMs == -1) {
+            mTimeToSuggestionsMs = SystemClock.elapsedRealtime() - mOpenTimeMs;
+            Log.d(TAG, "Time to suggestions: %s ms", mTimeToSuggestionsMs);
+        }
+    }
+
+    /**
+     * Of the last opened video or -1 if there's no frame yet.
+     */
+    public long getTimeToFirstFrameMs() {
+        return mTimeToFirstFrameMs;
+    }
+
+    /**
+     * Of the last opened video or -1 if there're no suggestions yet.
+     */
+    public long getTimeToSuggestionsMs() {
+        return mTimeToSuggestionsMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Observable<T> dedup(String key, Callable<Observable<T>> factory, boolean keepResult) {
+        Entry<T> entry = (Entry<T>) mRequests.get(key);
+
+        if (entry != null && entry.isFresh()) {
+            return entry.observable;
+        }
+
+        Observable<T> observable;
+
+        try {
+            observable = factory.call();
+        } catch (Exception e) {
+            return Observable.error(e);
+        }
+
+        // Don't keep the errors. Next call should repeat the request.
+        observable = observable.doOnError(error -> mRequests.remove(key));
+
+        if (!keepResult) {
+            observable = observable.doOnComplete(() -> mRequests.remove(key));
+        }
+
+        entry = new Entry<>(observable.cache());
+        mRequests.put(key, entry);
+
+        return entry.observable;
+    }
+
+    private static <T> void start(Observable<T> observable) {
+        // The request isn't canceled when the subscriber is gone
+        observable.subscribe(
+                result -> {},
+                error -> Log.d(TAG, "Prefetch error: %s", error.getMessage())
+        );
+    }
+
+    private static MediaItemService getService() {
+        return YouTubeServiceManager.instance().getMediaItemService();
+    }
+}
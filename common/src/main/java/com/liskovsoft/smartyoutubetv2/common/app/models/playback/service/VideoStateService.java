@@ -6,37 +6,62 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateStore.Record;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs.ProfileChangeListener;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class VideoStateService implements ProfileChangeListener {
+    private static final String TAG = VideoStateService.class.getSimpleName();
     @SuppressLint("StaticFieldLeak")
     private static VideoStateService sInstance;
-    private static final int MIN_PERSISTENT_STATE_SIZE = 50;
-    private static final int MAX_PERSISTENT_STATE_SIZE = 300;
+    private static final int MIN_PERSISTENT_STATE_SIZE = 300;
+    private static final int MAX_PERSISTENT_STATE_SIZE = 5_000;
     private static final long PERSIST_DELAY_MS = 10_000;
+    public static final String STORE_DIR_NAME = "video_states";
     // Don't store state inside Video object.
     // As one video might correspond to multiple Video objects.
-    //private final Map<String, State> mStates = Helpers.createLRUMap(MAX_PERSISTENT_STATE_SIZE);
-    private final List<State> mStates;
+    // Insertion order: the eldest state goes first.
+    private final Map<String, State> mStates = new LinkedHashMap<>();
+    // The newest state. The map has no cheap access to its tail.
+    private State mLastState;
+    // Changes that aren't written yet. Only the latest op per video is kept.
+    private final Map<String, Byte> mPendingOps = new LinkedHashMap<>();
+    private boolean mIsPendingClear;
+    // Single thread keeps the order of the journal writes
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Context mContext;
     private final AppPrefs mPrefs;
+    private final int mMaxSize;
     private static final String DELIM = "&si;";
+    private VideoStateStore mStore;
     private boolean mIsHistoryBroken;
     private final Runnable mPersistStateInt = this::persistStateInt;
 
     private VideoStateService(Context context) {
+        mContext = context;
         mPrefs = AppPrefs.instance(context);
-        mPrefs.addListener(this);
-        mStates = Helpers.createSafeLRUList(
-                Utils.isEnoughRam() ? MAX_PERSISTENT_STATE_SIZE : MIN_PERSISTENT_STATE_SIZE);
+        // The listeners are called on the main thread
+        Utils.sHandler.post(() -> mPrefs.addListener(this));
+        mMaxSize = Utils.isEnoughRam() ? MAX_PERSISTENT_STATE_SIZE : MIN_PERSISTENT_STATE_SIZE;
         restoreState();
     }
 
-    public static VideoStateService instance(Context context) {
+    /**
+     * NOTE: created on the background thread at the app start.
+     */
+    public static synchronized VideoStateService instance(Context context) {
         if (sInstance == null && context != null) {
             sInstance = new VideoStateService(context.getApplicationContext());
         }
@@ -44,44 +69,61 @@ public class VideoStateService implements ProfileChangeListener {
         return sInstance;
     }
 
-    public List<State> getStates() {
-        return mStates;
+    /**
+     * Snapshot of the states. The eldest state goes first.
+     */
+    public synchronized List<State> getStates() {
+        return new ArrayList<>(mStates.values());
     }
 
-    public @Nullable State getLastState() {
-        if (isEmpty()) {
-            return null;
-        }
+    public synchronized @Nullable State getLastState() {
+        return mLastState;
+    }
 
-        return mStates.get(mStates.size() - 1);
+    public synchronized State getByVideoId(String videoId) {
+        return videoId != null ? mStates.get(videoId) : null;
     }
 
-    public State getByVideoId(String videoId) {
-        for (State state : mStates) {
-            if (Helpers.equals(videoId, state.video.videoId)) {
-                return state;
-            }
+    public synchronized void removeByVideoId(String videoId) {
+        State removed = videoId != null ? mStates.remove(videoId) : null;
+
+        if (removed == null) {
+            return;
         }
 
-        return null;
-    }
+        if (removed == mLastState) {
+            updateLastState();
+        }
 
-    public void removeByVideoId(String videoId) {
-        Helpers.removeIf(mStates, state -> Helpers.equals(state.video.videoId, videoId));
+        addPendingOp(videoId, VideoStateStore.OP_REMOVE);
         persistState();
     }
 
-    public boolean isEmpty() {
+    public synchronized boolean isEmpty() {
         return mStates.isEmpty();
     }
 
-    public void save(State state) {
-        mStates.add(state);
+    public synchronized void save(State state) {
+        if (state == null || state.video == null || state.video.videoId == null) {
+            return;
+        }
+
+        String videoId = state.video.videoId;
+
+        mStates.remove(videoId); // move to the end
+        mStates.put(videoId, state);
+        mLastState = state;
+        trim();
+
+        addPendingOp(videoId, VideoStateStore.OP_PUT);
         persistState();
     }
 
-    public void clear() {
+    public synchronized void clear() {
         mStates.clear();
+        mLastState = null;
+        mPendingOps.clear();
+        mIsPendingClear = true;
         persistState();
     }
 
@@ -93,23 +135,110 @@ public class VideoStateService implements ProfileChangeListener {
         return mIsHistoryBroken;
     }
 
-    private void restoreState() {
+    /**
+     * The store is read in the background. The states appear later.
+     */
+    private synchronized void restoreState() {
+        // Write the changes of the previous profile
+        if (mStore != null) {
+            Utils.removeCallbacks(mPersistStateInt);
+            persistStateInt();
+        }
+
         mStates.clear();
+        mLastState = null;
         String data = mPrefs.getStateUpdaterData();
 
         String[] split = Helpers.splitData(data);
 
-        setStateData(Helpers.parseStr(split, 0));
+        String legacyData = Helpers.parseStr(split, 0);
         mIsHistoryBroken = Helpers.parseBoolean(split, 1);
+        mStore = new VideoStateStore(getStoreFile());
+
+        if (legacyData != null && !legacyData.isEmpty()) {
+            // The string data is present after the update or after restoring an old backup
+            migrateLegacyData(legacyData);
+        } else {
+            readStore();
+        }
+    }
+
+    private void migrateLegacyData(String legacyData) {
+        Log.d(TAG, "Migrating string data to the binary store...");
+
+        setStateDataSafe(legacyData);
+        trim();
+        updateLastState();
+
+        VideoStateStore store = mStore;
+        List<Record> records = toRecords(mStates.values());
+        mExecutor.execute(() -> store.compact(records));
+
+        persistHistoryBroken();
+    }
+
+    /**
+     * The read is queued after the pending writes of the same file.<br/>
+     * Don't block the caller (app start, profile change). The journal may hold thousands of records.
+     */
+    private void readStore() {
+        VideoStateStore store = mStore;
+        mExecutor.execute(() -> onStoreRead(store, store.read(mMaxSize)));
     }
 
-    private void persistStateInt() {
-        if (mIsHistoryBroken) {
-            mPrefs.setStateUpdaterData(Helpers.mergeData(getStateData(), mIsHistoryBroken));
+    /**
+     * The states that are changed during the read are newer than the stored ones.
+     */
+    private synchronized void onStoreRead(VideoStateStore store, LinkedHashMap<String, Record> records) {
+        if (store != mStore) {
+            // The profile is changed again
+            return;
+        }
+
+        Map<String, State> states = new LinkedHashMap<>();
+
+        if (!mIsPendingClear) {
+            for (Record record : records.values()) {
+                Byte op = mPendingOps.get(record.videoId);
+
+                if (op == null || op != VideoStateStore.OP_REMOVE) {
+                    State state = State.from(record);
+                    states.put(state.video.videoId, state);
+                }
+            }
+        }
+
+        for (State state : mStates.values()) {
+            String videoId = state.video.videoId;
+            states.remove(videoId); // move to the end
+            states.put(videoId, state);
+        }
+
+        mStates.clear();
+        mStates.putAll(states);
+        trim();
+        updateLastState();
+    }
+
+    private synchronized void persistStateInt() {
+        persistHistoryBroken();
+
+        if (!mIsPendingClear && mPendingOps.isEmpty()) {
+            return;
+        }
+
+        VideoStateStore store = mStore;
+
+        if (store.isCompactionNeeded(mStates.size(), mPendingOps.size() + (mIsPendingClear ? 1 : 0))) {
+            List<Record> records = toRecords(mStates.values());
+            mExecutor.execute(() -> store.compact(records));
         } else {
-            // Eliminate additional string creation with the merge
-            mPrefs.setStateUpdaterData(getStateData());
+            List<Record> records = getPendingRecords();
+            mExecutor.execute(() -> store.append(records));
         }
+
+        mPendingOps.clear();
+        mIsPendingClear = false;
     }
 
     private void persistState() {
@@ -117,13 +246,80 @@ public class VideoStateService implements ProfileChangeListener {
         Utils.postDelayed(mPersistStateInt, PERSIST_DELAY_MS);
     }
 
+    private void persistHistoryBroken() {
+        // The states are moved to the binary store. Only the flag is left.
+        mPrefs.setStateUpdaterData(mIsHistoryBroken ? Helpers.mergeData(null, true) : null);
+    }
+
+    private void addPendingOp(String videoId, byte op) {
+        mPendingOps.remove(videoId); // keep the order of the puts
+        mPendingOps.put(videoId, op);
+    }
+
+    /**
+     * The records are created from the latest state of the videos.
+     */
+    private List<Record> getPendingRecords() {
+        List<Record> result = new ArrayList<>();
+
+        if (mIsPendingClear) {
+            result.add(Record.clear());
+        }
+
+        for (Map.Entry<String, Byte> entry : mPendingOps.entrySet()) {
+            if (entry.getValue() == VideoStateStore.OP_REMOVE) {
+                result.add(Record.remove(entry.getKey()));
+            } else {
+                State state = mStates.get(entry.getKey());
+
+                if (state != null) {
+                    result.add(state.toRecord());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static List<Record> toRecords(Iterable<State> states) {
+        List<Record> result = new ArrayList<>();
+
+        for (State state : states) {
+            result.add(state.toRecord());
+        }
+
+        return result;
+    }
+
+    private void updateLastState() {
+        mLastState = null;
+
+        for (State state : mStates.values()) {
+            mLastState = state;
+        }
+    }
+
+    private void trim() {
+        Iterator<State> iterator = mStates.values().iterator();
+
+        while (mStates.size() > mMaxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private File getStoreFile() {
+        String name = mPrefs.getStateUpdaterDataKey().replaceAll("[^\\w.-]", "_");
+        return new File(new File(mContext.getFilesDir(), STORE_DIR_NAME), name + ".bin");
+    }
+
     public static class State {
         private static final String DELIM = "&sf;";
         public final Video video;
         public final long positionMs;
         public final long durationMs;
         public final float speed;
-        public final long timestamp = System.currentTimeMillis();
+        public final long timestamp;
 
         public State(Video video, long positionMs) {
             this(video, positionMs, -1);
@@ -134,10 +330,15 @@ public class VideoStateService implements ProfileChangeListener {
         }
 
         public State(Video video, long positionMs, long durationMs, float speed) {
+            this(video, positionMs, durationMs, speed, System.currentTimeMillis());
+        }
+
+        private State(Video video, long positionMs, long durationMs, float speed, long timestamp) {
             this.video = video;
             this.positionMs = positionMs;
             this.durationMs = durationMs;
             this.speed = speed;
+            this.timestamp = timestamp;
         }
 
         public static State from(String spec) {
@@ -152,7 +353,17 @@ public class VideoStateService implements ProfileChangeListener {
             long lengthMs = Helpers.parseLong(split, 2);
             float speed = Helpers.parseFloat(split, 3);
 
-            Video video = Video.fromString(videoId);
+            return new State(createVideo(videoId, videoId, positionMs, lengthMs), positionMs, lengthMs, speed);
+        }
+
+        private static State from(Record record) {
+            Video video = createVideo(record.videoId, record.videoSpec, record.positionMs, record.durationMs);
+
+            return new State(video, record.positionMs, record.durationMs, record.speed, record.timestamp);
+        }
+
+        private static Video createVideo(String videoId, String videoSpec, long positionMs, long lengthMs) {
+            Video video = Video.fromString(videoSpec);
 
             // backward compatibility
             if (video == null) {
@@ -162,7 +373,11 @@ public class VideoStateService implements ProfileChangeListener {
 
             video.percentWatched = (positionMs * 100f) / lengthMs;
 
-            return new State(video, positionMs, lengthMs, speed);
+            return video;
+        }
+
+        private Record toRecord() {
+            return Record.put(video.videoId, video.toString(), positionMs, durationMs, speed, timestamp);
         }
 
         @NonNull
@@ -201,24 +416,11 @@ public class VideoStateService implements ProfileChangeListener {
             for (String spec : split) {
                 State state = State.from(spec);
 
-                if (state != null) {
-                    mStates.add(state);
+                if (state != null && state.video.videoId != null) {
+                    mStates.remove(state.video.videoId);
+                    mStates.put(state.video.videoId, state);
                 }
             }
         }
     }
-
-    private String getStateData() {
-        StringBuilder sb = new StringBuilder();
-
-        for (State state : mStates) {
-            if (sb.length() != 0) {
-                sb.append(DELIM);
-            }
-
-            sb.append(state);
-        }
-
-        return sb.toString();
-    }
 }
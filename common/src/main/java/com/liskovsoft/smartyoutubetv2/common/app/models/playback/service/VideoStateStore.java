@@ -0,0 +1,294 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.service;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only binary journal of the watch states.<br/>
+ * Every save appends only the changed records. When the journal grows much bigger than the live data
+ * the file is rewritten from scratch (compaction).<br/>
+ * A record that was cut by a crash is dropped on the next read.
+ */
+final class VideoStateStore {
+    private static final String TAG = VideoStateStore.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x56535331; // VSS1
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MIN_COMPACT_RECORD_COUNT = 100;
+    private static final int MAX_STRING_LENGTH = 1024 * 1024;
+    static final byte OP_PUT = 1;
+    static final byte OP_REMOVE = 2;
+    static final byte OP_CLEAR = 3;
+    private final File mFile;
+    private int mRecordCount;
+    private boolean mIsCorrupted;
+
+    static final class Record {
+        final byte op;
+        final String videoId;
+        final String videoSpec;
+        final long positionMs;
+        final long durationMs;
+        final float speed;
+        final long timestamp;
+
+        private Record(byte op, String videoId, String videoSpec, long positionMs, long durationMs, float speed, long timestamp) {
+            this.op = op;
+            this.videoId = videoId;
+            this.videoSpec = videoSpec;
+            this.positionMs = positionMs;
+            this.durationMs = durationMs;
+            this.speed = speed;
+            this.timestamp = timestamp;
+        }
+
+        static Record put(@NonNull String videoId, @Nullable String videoSpec, long positionMs, long durationMs, float speed, long timestamp) {
+            return new Record(OP_PUT, videoId, videoSpec, positionMs, durationMs, speed, timestamp);
+        }
+
+        static Record remove(@NonNull String videoId) {
+            return new Record(OP_REMOVE, videoId, null, 0, 0, 0, 0);
+        }
+
+        static Record clear() {
+            return new Record(OP_CLEAR, null, null, 0, 0, 0, 0);
+        }
+    }
+
+    VideoStateStore(@NonNull File file) {
+        mFile = file;
+    }
+
+    synchronized boolean exists() {
+        return mFile.exists();
+    }
+
+    /**
+     * Replays the journal. The eldest records are evicted when the size exceeds the limit.
+     */
+    synchronized LinkedHashMap<String, Record> read(int maxSize) {
+        LinkedHashMap<String, Record> result = new LinkedHashMap<>();
+        mRecordCount = 0;
+        mIsCorrupted = false;
+
+        if (!mFile.exists()) {
+            return result;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                Log.e(TAG, "Unknown file format: %s", mFile);
+                mIsCorrupted = true;
+                return result;
+            }
+
+            while (true) {
+                byte op;
+
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break; // clean end of the journal
+                }
+
+                Record record = readRecord(in, op);
+                mRecordCount++;
+
+                switch (record.op) {
+                    case OP_PUT:
+                        result.remove(record.videoId); // move to the end
+                        result.put(record.videoId, record);
+                        trim(result, maxSize);
+                        break;
+                    case OP_REMOVE:
+                        result.remove(record.videoId);
+                        break;
+                    case OP_CLEAR:
+                        result.clear();
+                        break;
+                }
+            }
+        } catch (EOFException e) {
+            Log.e(TAG, "Journal is truncated. Dropping the last record...");
+            mIsCorrupted = true;
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "Journal read error: %s", e.getMessage());
+            mIsCorrupted = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns true when the file should be rewritten with the live records only.
+     */
+    synchronized boolean isCompactionNeeded(int liveCount, int pendingCount) {
+        return mIsCorrupted || mRecordCount + pendingCount > Math.max(liveCount * 2, MIN_COMPACT_RECORD_COUNT);
+    }
+
+    synchronized void append(@NonNull List<Record> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        if (!mFile.exists()) {
+            mRecordCount = 0;
+        }
+
+        boolean writeHeader = !mFile.exists() || mFile.length() == 0;
+
+        try (DataOutputStream out = openStream(mFile, true)) {
+            if (writeHeader) {
+                writeHeader(out);
+            }
+
+            for (Record record : records) {
+                writeRecord(out, record);
+            }
+
+            mRecordCount += records.size();
+        } catch (IOException e) {
+            Log.e(TAG, "Journal append error: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the file through a temp file, so the old journal survives a failed write.
+     */
+    synchronized void compact(@NonNull Collection<Record> records) {
+        File tempFile = new File(mFile.getPath() + ".tmp");
+
+        try (DataOutputStream out = openStream(tempFile, false)) {
+            writeHeader(out);
+
+            for (Record record : records) {
+                writeRecord(out, record);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Journal compaction error: %s", e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        // Rename replaces the old file atomically
+        if (!tempFile.renameTo(mFile)) {
+            Log.e(TAG, "Can't replace the journal: %s", mFile);
+            return;
+        }
+
+        mRecordCount = records.size();
+        mIsCorrupted = false;
+    }
+
+    private static DataOutputStream openStream(File file, boolean append) throws IOException {
+        File parent = file.getParentFile();
+
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create dir: " + parent);
+        }
+
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append), BUFFER_SIZE));
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    private static void writeRecord(DataOutputStream out, Record record) throws IOException {
+        out.writeByte(record.op);
+
+        switch (record.op) {
+            case OP_PUT:
+                writeString(out, record.videoId);
+                writeString(out, record.videoSpec);
+                out.writeLong(record.positionMs);
+                out.writeLong(record.durationMs);
+                out.writeFloat(record.speed);
+                out.writeLong(record.timestamp);
+                break;
+            case OP_REMOVE:
+                writeString(out, record.videoId);
+                break;
+        }
+    }
+
+    private static Record readRecord(DataInputStream in, byte op) throws IOException {
+        switch (op) {
+            case OP_PUT:
+                String videoId = readString(in);
+                String videoSpec = readString(in);
+                long positionMs = in.readLong();
+                long durationMs = in.readLong();
+                float speed = in.readFloat();
+                long timestamp = in.readLong();
+                return Record.put(videoId, videoSpec, positionMs, durationMs, speed, timestamp);
+            case OP_REMOVE:
+                return Record.remove(readString(in));
+            case OP_CLEAR:
+                return Record.clear();
+            default:
+                throw new IllegalStateException("Unknown record type: " + op);
+        }
+    }
+
+    /**
+     * Length prefixed UTF-8. Unlike writeUTF there's no 64KB limit. Null is stored as -1.
+     */
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        if (length > MAX_STRING_LENGTH) {
+            throw new IOException("Malformed string length: " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    private static void trim(LinkedHashMap<String, Record> records, int maxSize) {
+        Iterator<Map.Entry<String, Record>> iterator = records.entrySet().iterator();
+
+        while (records.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -1,19 +1,114 @@
 package com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui;
 
+import android.os.SystemClock;
+
 import com.liskovsoft.mediaserviceinterfaces.data.ChatItem;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Collects the incoming chat items and delivers them to the UI in batches.<br/>
+ * The items are kept in a fixed-size ring buffer, only the newest ones survive when the chat is faster than the UI.
+ * The batch interval grows with the chat rate: one frame for a calm chat, up to half a second for a flood.
+ */
 public class ChatReceiverImpl implements ChatReceiver {
+    private static final int CAPACITY = 50;
+    private static final long FRAME_MS = 16;
+    private static final long MAX_INTERVAL_MS = 500;
+    // Interval grows by this value for each item per second
+    private static final long INTERVAL_PER_RATE_MS = 2;
+    private static final long RATE_WINDOW_MS = 1_000;
+    private final ChatItem[] mBuffer = new ChatItem[CAPACITY];
+    private final List<ChatItem> mBatch = new ArrayList<>(CAPACITY);
+    private final Runnable mFlush = this::flush;
+    private int mHead;
+    private int mSize;
+    private long mWindowStartMs;
+    private int mWindowCount;
+    private int mRate;
+    private long mLastFlushMs;
     private Callback mCallback;
 
     @Override
     public void addChatItem(ChatItem chatItem) {
-        if (mCallback != null) {
-            mCallback.onChatItem(chatItem);
+        long delayMs;
+
+        synchronized (this) {
+            boolean isScheduled = mSize > 0;
+            long nowMs = SystemClock.uptimeMillis();
+
+            updateRate(nowMs);
+
+            if (mSize == CAPACITY) {
+                // Drop the oldest one
+                mBuffer[mHead] = chatItem;
+                mHead = (mHead + 1) % CAPACITY;
+            } else {
+                mBuffer[(mHead + mSize) % CAPACITY] = chatItem;
+                mSize++;
+            }
+
+            if (isScheduled) {
+                return;
+            }
+
+            long intervalMs = Math.min(MAX_INTERVAL_MS, Math.max(FRAME_MS, mRate * INTERVAL_PER_RATE_MS));
+            delayMs = Math.max(FRAME_MS, mLastFlushMs + intervalMs - nowMs);
         }
+
+        Utils.postDelayed(mFlush, delayMs);
     }
 
     @Override
     public void setCallback(Callback callback) {
         mCallback = callback;
+
+        if (callback == null) {
+            Utils.removeCallbacks(mFlush);
+
+            synchronized (this) {
+                clear();
+            }
+        }
+    }
+
+    private void flush() {
+        synchronized (this) {
+            for (int i = 0; i < mSize; i++) {
+                mBatch.add(mBuffer[(mHead + i) % CAPACITY]);
+            }
+
+            clear();
+            mLastFlushMs = SystemClock.uptimeMillis();
+        }
+
+        if (mCallback != null && !mBatch.isEmpty()) {
+            mCallback.onChatItems(mBatch);
+        }
+
+        mBatch.clear();
+    }
+
+    private void updateRate(long nowMs) {
+        mWindowCount++;
+
+        long elapsedMs = nowMs - mWindowStartMs;
+
+        if (elapsedMs >= RATE_WINDOW_MS) {
+            mRate = (int) (mWindowCount * 1_000 / elapsedMs);
+            mWindowCount = 0;
+            mWindowStartMs = nowMs;
+        }
+    }
+
+    private void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mBuffer[(mHead + i) % CAPACITY] = null;
+        }
+
+        mHead = 0;
+        mSize = 0;
     }
 }
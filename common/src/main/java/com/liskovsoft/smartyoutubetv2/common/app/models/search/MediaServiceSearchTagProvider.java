@@ -1,25 +1,47 @@
 package com.liskovsoft.smartyoutubetv2.common.app.models.search;
 
+import android.content.Context;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import com.liskovsoft.mediaserviceinterfaces.ContentService;
 import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv2.common.app.models.search.vineyard.Tag;
+import com.liskovsoft.smartyoutubetv2.common.prefs.SearchData;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local suggestions are shown at once, the server ones are merged when the typing pauses.<br/>
+ * Server responses are cached by the normalized query. The request of the previous query is canceled.
+ */
 public class MediaServiceSearchTagProvider implements SearchTagsProvider {
     private static final String TAG = MediaServiceSearchTagProvider.class.getSimpleName();
+    private static final int MAX_LOCAL_RESULTS = 5;
+    private static final long REMOTE_DELAY_MS = 300;
+    private static final LruCache<String, List<String>> sRemoteCache = new LruCache<>(100);
     private final ContentService mContentService;
+    private final SearchSuggestionIndex mIndex;
+    private final SearchData mSearchData;
     private final boolean mIgnoreEmptyQuery;
     private Disposable mTagsAction;
 
-    public MediaServiceSearchTagProvider(boolean ignoreEmptyQuery) {
+    public MediaServiceSearchTagProvider(Context context, boolean ignoreEmptyQuery) {
         mIgnoreEmptyQuery = ignoreEmptyQuery;
         ServiceManager service = YouTubeServiceManager.instance();
         mContentService = service.getContentService();
+        mIndex = SearchSuggestionIndex.instance(context);
+        mSearchData = SearchData.instance(context);
     }
 
     @Override
@@ -31,10 +53,62 @@ public class MediaServiceSearchTagProvider implements SearchTagsProvider {
             return;
         }
 
-        mTagsAction = mContentService.getSearchTagsObserve(query)
+        String key = SearchSuggestionIndex.normalize(query);
+        List<String> localTags = mIndex.search(key, MAX_LOCAL_RESULTS);
+        // Empty query shows the history. It changes after each search.
+        List<String> remoteTags = key.isEmpty() ? null : sRemoteCache.get(key);
+
+        if (remoteTags != null) {
+            callback.onResults(merge(localTags, remoteTags));
+            return;
+        }
+
+        if (!localTags.isEmpty()) {
+            callback.onResults(merge(localTags, null));
+        }
+
+        // Don't send the request on every key press
+        mTagsAction = Observable.timer(key.isEmpty() ? 0 : REMOTE_DELAY_MS, TimeUnit.MILLISECONDS)
+                .flatMap(time -> mContentService.getSearchTagsObserve(query))
+                .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        tags -> callback.onResults(Tag.from(tags)),
+                        tags -> {
+                            if (!key.isEmpty() && tags != null) {
+                                sRemoteCache.put(key, tags);
+                                // Same as the queries. Nothing is recorded without the history.
+                                if (!mSearchData.isSearchHistoryDisabled()) {
+                                    mIndex.addAll(tags, SearchSuggestionIndex.WEIGHT_TAG);
+                                }
+                            }
+                            callback.onResults(merge(localTags, tags));
+                        },
                         error -> Log.e(TAG, "Result is empty. Just ignore it. Error msg: %s", error.getMessage())
                 );
     }
+
+    /**
+     * Local first. The same phrases in a different case are shown once.
+     */
+    private static List<Tag> merge(List<String> localTags, List<String> remoteTags) {
+        Map<String, String> result = new LinkedHashMap<>();
+
+        append(result, localTags);
+        append(result, remoteTags);
+
+        return Tag.from(new ArrayList<>(result.values()));
+    }
+
+    private static void append(Map<String, String> result, List<String> tags) {
+        if (tags == null) {
+            return;
+        }
+
+        for (String tag : tags) {
+            String key = SearchSuggestionIndex.normalize(tag);
+
+            if (!key.isEmpty() && !result.containsKey(key)) {
+                result.put(key, tag);
+            }
+        }
+    }
 }
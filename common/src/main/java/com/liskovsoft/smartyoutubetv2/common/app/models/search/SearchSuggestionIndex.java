@@ -0,0 +1,357 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.search;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Local search suggestions: past searches, watched titles and the tags returned by the server.<br/>
+ * Phrases are kept in a prefix trie, so a lookup takes a fraction of the frame even on slow devices.<br/>
+ * Stored in the files dir, the writes are debounced.
+ */
+public class SearchSuggestionIndex {
+    private static final String TAG = SearchSuggestionIndex.class.getSimpleName();
+    @SuppressLint("StaticFieldLeak")
+    private static SearchSuggestionIndex sInstance;
+    private static final String FILE_NAME = "search_suggestions.bin";
+    private static final int VERSION = 1;
+    private static final int MAX_SIZE = 2_000;
+    private static final int MAX_WEIGHT = 1_000;
+    private static final int MAX_PHRASE_LENGTH = 100;
+    private static final long PERSIST_DELAY_MS = 10_000;
+    public static final int WEIGHT_SEARCH = 10;
+    public static final int WEIGHT_WATCHED = 5;
+    public static final int WEIGHT_TAG = 1;
+    private static final Comparator<Entry> BY_SCORE = (e1, e2) -> {
+        int result = Integer.compare(e1.weight, e2.weight);
+        return result != 0 ? result : Long.compare(e1.timestamp, e2.timestamp);
+    };
+    private final File mFile;
+    private final Runnable mPersist = this::persist;
+    private Node mRoot = new Node();
+    private int mSize;
+
+    private static class Entry {
+        final String phrase;
+        int weight;
+        long timestamp;
+
+        Entry(String phrase, int weight, long timestamp) {
+            this.phrase = phrase;
+            this.weight = weight;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Children are sorted by the char.
+     */
+    private static class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+        Entry entry;
+
+        Node getChild(char key) {
+            int index = indexOf(key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrCreateChild(char key) {
+            int index = indexOf(key);
+
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int position = -index - 1;
+
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                char[] newKeys = new char[capacity];
+                Node[] newChildren = new Node[capacity];
+                System.arraycopy(keys, 0, newKeys, 0, childCount);
+                System.arraycopy(children, 0, newChildren, 0, childCount);
+                keys = newKeys;
+                children = newChildren;
+            }
+
+            System.arraycopy(keys, position, keys, position + 1, childCount - position);
+            System.arraycopy(children, position, children, position + 1, childCount - position);
+
+            Node child = new Node();
+            keys[position] = key;
+            children[position] = child;
+            childCount++;
+
+            return child;
+        }
+
+        private int indexOf(char key) {
+            int low = 0;
+            int high = childCount - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+
+                if (keys[mid] < key) {
+                    low = mid + 1;
+                } else if (keys[mid] > key) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+
+            return -(low + 1);
+        }
+    }
+
+    private SearchSuggestionIndex(Context context) {
+        mFile = new File(context.getFilesDir(), FILE_NAME);
+        RxHelper.runAsync(this::restore);
+    }
+
+    public static SearchSuggestionIndex instance(Context context) {
+        if (sInstance == null && context != null) {
+            sInstance = new SearchSuggestionIndex(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Lower case with the single spaces. Used as the key of the trie and of the remote results.
+     */
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public void add(String phrase, int weight) {
+        if (addInt(phrase, weight, System.currentTimeMillis())) {
+            Utils.postDelayed(mPersist, PERSIST_DELAY_MS);
+        }
+    }
+
+    public void addAll(List<String> phrases, int weight) {
+        if (phrases == null) {
+            return;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        boolean changed = false;
+
+        for (String phrase : phrases) {
+            changed |= addInt(phrase, weight, timestamp);
+        }
+
+        if (changed) {
+            Utils.postDelayed(mPersist, PERSIST_DELAY_MS);
+        }
+    }
+
+    /**
+     * Best phrases that start with the prefix. Heavier and more recent first.
+     */
+    public synchronized List<String> search(String prefix, int maxCount) {
+        Node node = mRoot;
+        String key = normalize(prefix);
+
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.getChild(key.charAt(i));
+        }
+
+        if (node == null || maxCount <= 0) {
+            return Collections.emptyList();
+        }
+
+        PriorityQueue<Entry> best = new PriorityQueue<>(maxCount + 1, BY_SCORE);
+        collect(node, best, maxCount);
+
+        List<String> result = new ArrayList<>(best.size());
+
+        while (!best.isEmpty()) {
+            result.add(best.poll().phrase);
+        }
+
+        Collections.reverse(result);
+
+        return result;
+    }
+
+    public void clear() {
+        synchronized (this) {
+            mRoot = new Node();
+            mSize = 0;
+        }
+
+        Utils.removeCallbacks(mPersist);
+        persist();
+    }
+
+    private synchronized boolean addInt(String phrase, int weight, long timestamp) {
+        if (TextUtils.isEmpty(phrase)) {
+            return false;
+        }
+
+        phrase = phrase.trim();
+        String key = normalize(phrase);
+
+        if (key.isEmpty() || key.length() > MAX_PHRASE_LENGTH) {
+            return false;
+        }
+
+        Node node = mRoot;
+
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrCreateChild(key.charAt(i));
+        }
+
+        if (node.entry == null) {
+            node.entry = new Entry(phrase, weight, timestamp);
+            mSize++;
+            trim();
+        } else {
+            node.entry.weight = Math.min(node.entry.weight + weight, MAX_WEIGHT);
+            node.entry.timestamp = Math.max(node.entry.timestamp, timestamp);
+        }
+
+        return true;
+    }
+
+    private static void collect(Node node, PriorityQueue<Entry> best, int maxCount) {
+        if (node.entry != null) {
+            best.add(node.entry);
+
+            if (best.size() > maxCount) {
+                best.poll();
+            }
+        }
+
+        for (int i = 0; i < node.childCount; i++) {
+            collect(node.children[i], best, maxCount);
+        }
+    }
+
+    private static void collectAll(Node node, List<Entry> result) {
+        if (node.entry != null) {
+            result.add(node.entry);
+        }
+
+        for (int i = 0; i < node.childCount; i++) {
+            collectAll(node.children[i], result);
+        }
+    }
+
+    /**
+     * Rebuilds the trie without the lightest and oldest quarter. Rare, the trie doesn't support the removal.
+     */
+    private void trim() {
+        if (mSize <= MAX_SIZE) {
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>(mSize);
+        collectAll(mRoot, entries);
+        Collections.sort(entries, Collections.reverseOrder(BY_SCORE));
+
+        mRoot = new Node();
+        mSize = 0;
+
+        for (Entry entry : entries.subList(0, MAX_SIZE * 3 / 4)) {
+            addInt(entry.phrase, entry.weight, entry.timestamp);
+        }
+    }
+
+    private void persist() {
+        List<Entry> snapshot = new ArrayList<>();
+
+        synchronized (this) {
+            collectAll(mRoot, snapshot);
+        }
+
+        RxHelper.runAsync(() -> write(snapshot));
+    }
+
+    private void restore() {
+        if (!mFile.exists()) {
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (in.readInt() != VERSION) {
+                return;
+            }
+
+            int size = in.readInt();
+
+            for (int i = 0; i < size; i++) {
+                entries.add(new Entry(in.readUTF(), in.readInt(), in.readLong()));
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't read the suggestions: %s", e.getMessage());
+            return;
+        }
+
+        // Phrases added while reading are merged
+        for (Entry entry : entries) {
+            addInt(entry.phrase, entry.weight, entry.timestamp);
+        }
+    }
+
+    /**
+     * Rewrites the file through a temp file, so the old suggestions survive a failed write.
+     */
+    private void write(List<Entry> entries) {
+        synchronized (mFile) {
+            File tempFile = new File(mFile.getPath() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.phrase);
+                    out.writeInt(entry.weight);
+                    out.writeLong(entry.timestamp);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Can't write the suggestions: %s", e.getMessage());
+                tempFile.delete();
+                return;
+            }
+
+            // Rename replaces the old file atomically
+            if (!tempFile.renameTo(mFile)) {
+                Log.e(TAG, "Can't replace the suggestions file");
+            }
+        }
+    }
+}
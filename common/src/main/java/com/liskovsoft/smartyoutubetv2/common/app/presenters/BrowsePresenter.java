@@ -38,6 +38,8 @@ import com.liskovsoft.smartyoutubetv2.common.app.presenters.interfaces.VideoGrou
 import com.liskovsoft.smartyoutubetv2.common.app.views.BrowseView;
 import com.liskovsoft.smartyoutubetv2.common.misc.AppDataSourceManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.BrowseProcessorManager;
+import com.liskovsoft.smartyoutubetv2.common.misc.ChannelGroupFeedBuilder;
+import com.liskovsoft.smartyoutubetv2.common.misc.InitScheduler;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager.AccountChangeListener;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AccountsData;
@@ -66,6 +68,7 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
     private final Map<Integer, Observable<List<MediaGroup>>> mRowMapping;
     private final Map<Integer, Callable<List<SettingsItem>>> mSettingsGridMapping;
     private final Map<Integer, Callable<List<Video>>> mLocalGridMappings;
+    private final Map<Integer, Observable<List<Video>>> mFeedGridMappings;
     private final Map<Integer, BrowseSection> mSectionsMapping;
     private final AppDataSourceManager mDataSourcePresenter;
     private final BrowseProcessorManager mBrowseProcessor;
@@ -86,6 +89,7 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
         mRowMapping = new HashMap<>();
         mSettingsGridMapping = new HashMap<>();
         mLocalGridMappings = new HashMap<>();
+        mFeedGridMappings = new HashMap<>();
         mSectionsMapping = new HashMap<>();
         MediaServiceManager.instance().addAccountListener(this);
         ScreenHelper.updateScreenInfo(context);
@@ -127,6 +131,9 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
         int selectedSectionIndex = findSectionIndex(mCurrentSection != null ? mCurrentSection.getId() : mBootstrapSectionId);
         mBootstrapSectionId = -1;
         getView().selectSection(selectedSectionIndex != -1 ? selectedSectionIndex : mBootSectionIndex, true);
+
+        // Deferred app init could start now
+        InitScheduler.instance().onFirstFrame();
     }
 
     @Override
@@ -580,6 +587,7 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
         }
 
         mGridMapping.remove(item.getId());
+        mFeedGridMappings.remove(item.getId());
 
         if (getView() != null) {
             getView().removeSection(section);
@@ -622,6 +630,9 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
                 } else if (mLocalGridMappings.containsKey(section.getId())) {
                     Callable<List<Video>> localVideos = mLocalGridMappings.get(section.getId());
                     updateLocalGrid(section, localVideos);
+                } else if (mFeedGridMappings.containsKey(section.getId())) {
+                    Observable<List<Video>> feed = mFeedGridMappings.get(section.getId());
+                    updateFeedGrid(section, feed, section.isAuthOnly());
                 }
                 break;
             case BrowseSection.TYPE_ROW:
@@ -656,6 +667,55 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
         getView().showProgressBar(false);
     }
 
+    private void updateFeedGrid(BrowseSection section, Observable<List<Video>> feed, boolean authCheck) {
+        Log.d(TAG, "updateFeedGrid: Start loading section: " + section.getTitle());
+
+        authCheck(authCheck, () -> updateFeedGrid(section, feed));
+    }
+
+    /**
+     * The feed comes in chunks: the first screen, then the whole feed that replaces it.
+     */
+    private void updateFeedGrid(BrowseSection section, Observable<List<Video>> feed) {
+        disposeActions();
+
+        if (getView() == null) {
+            Log.e(TAG, "Browse view has been unloaded from the memory. Low RAM?");
+            getViewManager().startView(BrowseView.class);
+            return;
+        }
+
+        getView().showProgressBar(true);
+
+        VideoGroup firstGroup = VideoGroup.from(section);
+        firstGroup.setAction(VideoGroup.ACTION_REPLACE);
+        getView().updateSection(firstGroup);
+
+        Disposable updateAction = feed
+                .subscribe(
+                        videos -> {
+                            if (getView() == null) {
+                                Log.e(TAG, "Browse view has been unloaded from the memory. Low RAM?");
+                                return;
+                            }
+
+                            getView().showProgressBar(false);
+
+                            // Newer videos of the slow channels may go above the first screen
+                            VideoGroup videoGroup = VideoGroup.from(VideoGroup.from(section), videos);
+                            videoGroup.setAction(VideoGroup.ACTION_REPLACE);
+                            appendLocalHistory(videoGroup);
+                            getView().updateSection(videoGroup);
+                            mBrowseProcessor.process(videoGroup);
+                        },
+                        error -> {
+                            Log.e(TAG, "updateFeedGrid error: %s", error.getMessage());
+                            handleLoadError(error);
+                        }, () -> handleLoadError(null));
+
+        mActions.add(updateAction);
+    }
+
     private void updateVideoRows(BrowseSection section, Observable<List<MediaGroup>> groups, boolean authCheck) {
         Log.d(TAG, "loadRowsHeader: Start loading section: " + section.getTitle());
 
@@ -795,7 +855,8 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
             return;
         }
 
-        if (getCurrentSection() != null && mLocalGridMappings.containsKey(getCurrentSection().getId())) {
+        if (getCurrentSection() != null && (mLocalGridMappings.containsKey(getCurrentSection().getId()) ||
+                mFeedGridMappings.containsKey(getCurrentSection().getId()))) {
             Log.d(TAG, "Local grid section doesn't assume a continuation...");
             return;
         }
@@ -1013,13 +1074,13 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
     }
 
     private Observable<MediaGroup> createPinnedGridAction(Video item) {
-        if (item.channelGroupId != null) {
-            return getContentService().getSubscriptionsObserve(ChannelGroupServiceWrapper.instance(getContext()).findChannelIdsForGroup(item.channelGroupId));
-        }
-
         return ChannelUploadsPresenter.instance(getContext()).obtainUploadsObservable(item);
     }
 
+    private Observable<List<Video>> createPinnedFeedAction(Video item) {
+        return ChannelGroupFeedBuilder.instance().getFeedObserve(ChannelGroupServiceWrapper.instance(getContext()).findChannelIdsForGroup(item.channelGroupId));
+    }
+
     private Observable<List<MediaGroup>> createPinnedRowAction(Video item) {
         return ChannelPresenter.instance(getContext()).obtainChannelObservable(item.channelId);
     }
@@ -1123,6 +1184,8 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
     private void createPinnedMapping(Video item) {
         if (enableRows(item)) {
             mRowMapping.put(item.getId(), createPinnedRowAction(item));
+        } else if (item.channelGroupId != null) {
+            mFeedGridMappings.put(item.getId(), createPinnedFeedAction(item));
         } else {
             mGridMapping.put(item.getId(), createPinnedGridAction(item));
         }
@@ -114,6 +114,10 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
         }
 
         if (getView() != null && getView().isEmbed()) { // switching from the embed player to the fullscreen one
+            // Continue from the preview position
+            if (video.pendingPosMs <= 0 && !video.isLive && Video.equals(getView().getVideo(), video) && getView().isEngineInitialized() && getView().containsMedia()) {
+                video.pendingPosMs = getView().getPositionMs();
+            }
             // The embed player doesn't disposed properly
             // NOTE: don't release after init check because this depends on timings
             getView().finishReally();
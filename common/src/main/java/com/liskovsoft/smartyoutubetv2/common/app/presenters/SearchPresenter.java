@@ -13,6 +13,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.OptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.search.MediaServiceSearchTagProvider;
+import com.liskovsoft.smartyoutubetv2.common.app.models.search.SearchSuggestionIndex;
 import com.liskovsoft.smartyoutubetv2.common.app.models.search.vineyard.Tag;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.base.BasePresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.VideoActionPresenter;
@@ -66,7 +67,7 @@ public class SearchPresenter extends BasePresenter<SearchView> implements VideoG
             return;
         }
 
-        getView().setTagsProvider(new MediaServiceSearchTagProvider(getSearchData().isSearchHistoryDisabled()));
+        getView().setTagsProvider(new MediaServiceSearchTagProvider(getContext(), getSearchData().isSearchHistoryDisabled()));
 
         startSearchInt();
     }
@@ -123,6 +124,7 @@ public class SearchPresenter extends BasePresenter<SearchView> implements VideoG
                 getContext().getString(R.string.clear_search_history),
                 () -> {
                     MediaServiceManager.instance().clearSearchHistory();
+                    SearchSuggestionIndex.instance(getContext()).clear();
                     getView().clearSearchTags();
                 });
     }
@@ -148,6 +150,10 @@ public class SearchPresenter extends BasePresenter<SearchView> implements VideoG
     private void loadSearchResult(String searchText) {
         Log.d(TAG, "Start search for '%s'", searchText);
 
+        if (!getSearchData().isSearchHistoryDisabled()) {
+            SearchSuggestionIndex.instance(getContext()).add(searchText, SearchSuggestionIndex.WEIGHT_SEARCH);
+        }
+
         disposeActions();
         getView().showProgressBar(true);
 
@@ -20,6 +20,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.BootDialogPr
 import com.liskovsoft.smartyoutubetv2.common.app.views.SplashView;
 import com.liskovsoft.smartyoutubetv2.common.app.views.ViewManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.GDriveBackupWorker;
+import com.liskovsoft.smartyoutubetv2.common.misc.InitScheduler;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.StreamReminderService;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AccountsData;
@@ -31,12 +32,14 @@ import com.liskovsoft.smartyoutubetv2.common.utils.SimpleEditDialog;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
 public class SplashPresenter extends BasePresenter<SplashView> {
     private static final String TAG = SplashPresenter.class.getSimpleName();
     private static final long APP_INIT_DELAY_MS = 10_000;
+    private static final String STARTUP_TRACE_FILE_NAME = "startup_trace.txt";
     @SuppressLint("StaticFieldLeak")
     private static SplashPresenter sInstance;
     private static boolean sRunOnce;
@@ -90,16 +93,23 @@ public class SplashPresenter extends BasePresenter<SplashView> {
         checkAccountPassword();
     }
 
+    /**
+     * Main thread tasks run right here, in the order of the declaration.
+     */
     private void applyRunOnceTasks() {
         if (!sRunOnce) {
             sRunOnce = true;
-            RxHelper.setupGlobalErrorHandler();
-            initGlobalPrefs();
-            initProxy();
-            initVideoStateService();
-            initStreamReminderService();
+            InitScheduler scheduler = InitScheduler.instance();
+            scheduler.add("errorHandler", false, RxHelper::setupGlobalErrorHandler);
+            scheduler.add("globalPrefs", false, this::initGlobalPrefs);
+            scheduler.add("proxy", false, this::initProxy, "globalPrefs");
+            // Reads the history store. Browse waits for it only if it needs it earlier.
+            // NOTE: AppPrefs is already created on the main thread by the tasks above.
+            scheduler.add("videoStates", true, this::initVideoStateService);
             //Utils.initVolume(getContext());
-            CustomInit.init(getContext());
+            scheduler.add("customInit", false, () -> CustomInit.init(getContext()), "globalPrefs");
+            scheduler.addIdle("streamReminders", false, this::initStreamReminderService, "globalPrefs");
+            exportStartupTrace();
         }
     }
 
@@ -161,6 +171,12 @@ public class SplashPresenter extends BasePresenter<SplashView> {
         }
     }
 
+    private void exportStartupTrace() {
+        if (getContext() != null) {
+            InitScheduler.instance().exportTraceWhenIdle(new File(getContext().getFilesDir(), STARTUP_TRACE_FILE_NAME));
+        }
+    }
+
     /**
      * Need to be the first line and executed on earliest stage once.<br/>
      * Inits media service language and context.<br/>
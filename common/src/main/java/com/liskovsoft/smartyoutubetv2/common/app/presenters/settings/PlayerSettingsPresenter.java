@@ -243,6 +243,11 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
                 option -> mPlayerTweaksData.setNetworkErrorFixingDisabled(option.isSelected()),
                 mPlayerTweaksData.isNetworkErrorFixingDisabled()));
 
+        options.add(UiOptionItem.from(getContext().getString(R.string.enable_segment_cache),
+                getContext().getString(R.string.enable_segment_cache_desc),
+                option -> mPlayerTweaksData.setSegmentCacheEnabled(option.isSelected()),
+                mPlayerTweaksData.isSegmentCacheEnabled()));
+
         // Oculus Quest fix: back button not closing the activity
         options.add(UiOptionItem.from(getContext().getString(R.string.oculus_quest_fix),
                 option -> {
@@ -10,6 +10,7 @@ import android.content.Intent;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.Lifecycle;
 
+import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser2;
 import com.liskovsoft.sharedutils.helpers.FileHelpers;
 import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.locale.LocaleUpdater;
@@ -25,6 +26,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.presenters.SearchPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.SplashPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.base.BasePresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.AppUpdatePresenter;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.PersistentBandwidthMeter;
 import com.liskovsoft.smartyoutubetv2.common.misc.MotherActivity;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
@@ -300,6 +302,7 @@ public class ViewManager {
         // Note, deletes cached apks (external cache)
         FileHelpers.deleteCache(mContext);
         LocaleUpdater.clearCache();
+        DashManifestParser2.clearCache();
     }
 
     /**
@@ -330,6 +333,7 @@ public class ViewManager {
                 SplashPresenter.unhold();
                 BrowsePresenter.unhold();
                 AppUpdatePresenter.unhold();
+                PersistentBandwidthMeter.unhold();
                 MotherActivity.invalidate();
                 runOnFinish();
                 mIsMoveToBackEnabled = false;
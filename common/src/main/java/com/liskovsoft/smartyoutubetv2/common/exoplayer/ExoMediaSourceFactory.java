@@ -5,7 +5,9 @@ import android.content.Context;
 import android.net.Uri;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.ext.cronet.CronetDataSourceFactory;
 import com.google.android.exoplayer2.ext.cronet.CronetEngineWrapper;
 import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
@@ -23,7 +25,6 @@ import com.google.android.exoplayer2.source.dash.manifest.ProgramInformation;
 import com.google.android.exoplayer2.source.dash.manifest.UtcTimingElement;
 import com.google.android.exoplayer2.source.hls.HlsMediaSource;
 import com.google.android.exoplayer2.source.sabr.DefaultSabrChunkSource;
-import com.google.android.exoplayer2.source.sabr.SabrChunkSource;
 import com.google.android.exoplayer2.source.sabr.SabrMediaSource;
 import com.google.android.exoplayer2.source.sabr.manifest.SabrManifest;
 import com.google.android.exoplayer2.source.sabr.manifest.SabrManifestParser;
@@ -31,11 +32,11 @@ import com.google.android.exoplayer2.source.smoothstreaming.DefaultSsChunkSource
 import com.google.android.exoplayer2.source.smoothstreaming.SsMediaSource;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DataSource.Factory;
-import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
 import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
 import com.google.android.exoplayer2.upstream.HttpDataSource.BaseFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
 import com.google.android.exoplayer2.util.Util;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
 import com.liskovsoft.sharedutils.cronet.CronetManager;
@@ -44,6 +45,9 @@ import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.okhttp.OkHttpManager;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.DashDefaultLoadErrorHandlingPolicy;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.TrackErrorFixer;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.PersistentBandwidthMeter;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.SegmentCacheManager;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.SegmentPrefetcher;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.googlecommon.common.helpers.DefaultHeaders;
@@ -59,15 +63,15 @@ public class ExoMediaSourceFactory {
     //private static ExoMediaSourceFactory sInstance;
     private static final int MAX_SEGMENTS_PER_LOAD = 1;
     private static final String USER_AGENT = DefaultHeaders.APP_USER_AGENT;
-    @SuppressLint("StaticFieldLeak")
-    private static final DefaultBandwidthMeter BANDWIDTH_METER = new DefaultBandwidthMeter();
     private final Context mContext;
     private static final Uri DASH_MANIFEST_URI = Uri.parse("https://example.com/test.mpd");
     private static final String DASH_MANIFEST_EXTENSION = "mpd";
     private static final String HLS_PLAYLIST_EXTENSION = "m3u8";
-    private static final boolean USE_BANDWIDTH_METER = false;
+    private static final boolean USE_BANDWIDTH_METER = true;
     private TrackErrorFixer mTrackErrorFixer;
     private Factory mMediaDataSourceFactory;
+    private Factory mCacheDataSourceFactory;
+    private SegmentPrefetcher mSegmentPrefetcher;
 
     public ExoMediaSourceFactory(Context context) {
         mContext = context;
@@ -104,29 +108,53 @@ public class ExoMediaSourceFactory {
         return mediaSources[0]; // item with max resolution
     }
 
+    /**
+     * Downloads the first seconds of the upcoming video into the segment cache (if enabled).
+     *
+     * @param videoFormat The format of the current video track. Used to guess the track that will be selected.
+     * @param audioFormat The format of the current audio track.
+     */
+    public void prefetch(MediaItemFormatInfo formatInfo, @Nullable Format videoFormat, @Nullable Format audioFormat) {
+        if (formatInfo == null || formatInfo.isLive() || !PlayerTweaksData.instance(mContext).isSegmentCacheEnabled()) {
+            return;
+        }
+
+        if (mSegmentPrefetcher == null) {
+            SegmentCacheManager cacheManager = SegmentCacheManager.instance(mContext);
+
+            if (cacheManager == null) {
+                return;
+            }
+
+            mSegmentPrefetcher = new SegmentPrefetcher(cacheManager, getMediaDataSourceFactory());
+        }
+
+        mSegmentPrefetcher.prefetch(formatInfo, videoFormat, audioFormat);
+    }
+
     /**
      * Returns a new DataSource factory.
      *
-     * @param useBandwidthMeter Whether to set {@link #BANDWIDTH_METER} as a listener to the new
+     * @param useBandwidthMeter Whether to set {@link PersistentBandwidthMeter} as a listener to the new
      *                          DataSource factory.
      * @return A new DataSource factory.
      */
     private DataSource.Factory buildDataSourceFactory(boolean useBandwidthMeter) {
-        DefaultBandwidthMeter bandwidthMeter = useBandwidthMeter ? BANDWIDTH_METER : null;
+        PersistentBandwidthMeter bandwidthMeter = useBandwidthMeter ? PersistentBandwidthMeter.instance(mContext) : null;
         return new DefaultDataSourceFactory(mContext, bandwidthMeter, buildHttpDataSourceFactory(useBandwidthMeter));
     }
 
     /**
      * Returns a new HttpDataSource factory.
      *
-     * @param useBandwidthMeter Whether to set {@link #BANDWIDTH_METER} as a listener to the new
+     * @param useBandwidthMeter Whether to set {@link PersistentBandwidthMeter} as a listener to the new
      *                          DataSource factory.
      * @return A new HttpDataSource factory.
      */
     private HttpDataSource.Factory buildHttpDataSourceFactory(boolean useBandwidthMeter) {
         PlayerTweaksData tweaksData = PlayerTweaksData.instance(mContext);
         int source = tweaksData.getPlayerDataSource();
-        DefaultBandwidthMeter bandwidthMeter = useBandwidthMeter ? BANDWIDTH_METER : null;
+        PersistentBandwidthMeter bandwidthMeter = useBandwidthMeter ? PersistentBandwidthMeter.instance(mContext) : null;
         return source == PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP ? buildOkHttpDataSourceFactory(bandwidthMeter) :
                         source == PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET && CronetManager.getEngine(mContext) != null ? buildCronetDataSourceFactory(bandwidthMeter) :
                                 buildDefaultHttpDataSourceFactory(bandwidthMeter);
@@ -183,7 +211,7 @@ public class ExoMediaSourceFactory {
     private MediaSource buildSabrMediaSource(MediaItemFormatInfo formatInfo) {
         // Are you using FrameworkSampleSource or ExtractorSampleSource when you build your player?
         SabrMediaSource sabrSource = new SabrMediaSource.Factory(
-                getSabrChunkSourceFactory(),
+                new DefaultSabrChunkSource.Factory(getSegmentDataSourceFactory(formatInfo), MAX_SEGMENTS_PER_LOAD),
                 null
         )
                 .setLoadErrorHandlingPolicy(new DashDefaultLoadErrorHandlingPolicy())
@@ -197,7 +225,7 @@ public class ExoMediaSourceFactory {
     private MediaSource buildDashMediaSource(MediaItemFormatInfo formatInfo) {
         // Are you using FrameworkSampleSource or ExtractorSampleSource when you build your player?
         DashMediaSource dashSource = new DashMediaSource.Factory(
-                getDashChunkSourceFactory(),
+                new DefaultDashChunkSource.Factory(getSegmentDataSourceFactory(formatInfo), MAX_SEGMENTS_PER_LOAD),
                 null
         )
                 .setLoadErrorHandlingPolicy(new DashDefaultLoadErrorHandlingPolicy())
@@ -275,14 +303,14 @@ public class ExoMediaSourceFactory {
     /**
      * Use OkHttp for networking
      */
-    private HttpDataSource.Factory buildOkHttpDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
+    private HttpDataSource.Factory buildOkHttpDataSourceFactory(TransferListener bandwidthMeter) {
         OkHttpDataSourceFactory dataSourceFactory = new OkHttpDataSourceFactory(OkHttpManager.instance().getClient(), USER_AGENT,
                 bandwidthMeter);
         addCommonHeaders(dataSourceFactory);
         return dataSourceFactory;
     }
 
-    private HttpDataSource.Factory buildCronetDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
+    private HttpDataSource.Factory buildCronetDataSourceFactory(TransferListener bandwidthMeter) {
         CronetDataSourceFactory dataSourceFactory =
                 new CronetDataSourceFactory(
                         new CronetEngineWrapper(CronetManager.getEngine(mContext)),
@@ -300,7 +328,7 @@ public class ExoMediaSourceFactory {
     /**
      * Use built-in component for networking
      */
-    private HttpDataSource.Factory buildDefaultHttpDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
+    private HttpDataSource.Factory buildDefaultHttpDataSourceFactory(TransferListener bandwidthMeter) {
         DefaultHttpDataSourceFactory dataSourceFactory = new DefaultHttpDataSourceFactory(
                 USER_AGENT, bandwidthMeter, (int) OkHttpManager.getConnectTimeoutMs(),
                 (int) OkHttpManager.getReadTimeoutMs(), true); // allowCrossProtocolRedirects = true
@@ -353,6 +381,12 @@ public class ExoMediaSourceFactory {
 
     public void release() {
         mMediaDataSourceFactory = null;
+        mCacheDataSourceFactory = null;
+
+        if (mSegmentPrefetcher != null) {
+            mSegmentPrefetcher.cancel();
+            mSegmentPrefetcher = null;
+        }
     }
 
     @NonNull
@@ -360,11 +394,6 @@ public class ExoMediaSourceFactory {
         return new DefaultSsChunkSource.Factory(getMediaDataSourceFactory());
     }
 
-    @NonNull
-    private SabrChunkSource.Factory getSabrChunkSourceFactory() {
-        return new DefaultSabrChunkSource.Factory(getMediaDataSourceFactory(), MAX_SEGMENTS_PER_LOAD);
-    }
-
     @NonNull
     private DashChunkSource.Factory getDashChunkSourceFactory() {
         return new DefaultDashChunkSource.Factory(getMediaDataSourceFactory(), MAX_SEGMENTS_PER_LOAD);
@@ -378,6 +407,24 @@ public class ExoMediaSourceFactory {
         return mMediaDataSourceFactory;
     }
 
+    /**
+     * Segments of the regular videos are cached on disk (if enabled).<br/>
+     * Live segments are addressed by the expiring urls and aren't worth caching.
+     */
+    private Factory getSegmentDataSourceFactory(MediaItemFormatInfo formatInfo) {
+        if (formatInfo.isLive() || !PlayerTweaksData.instance(mContext).isSegmentCacheEnabled()) {
+            return getMediaDataSourceFactory();
+        }
+
+        if (mCacheDataSourceFactory == null) {
+            SegmentCacheManager cacheManager = SegmentCacheManager.instance(mContext);
+            mCacheDataSourceFactory = cacheManager != null ?
+                    cacheManager.createDataSourceFactory(getMediaDataSourceFactory()) : getMediaDataSourceFactory();
+        }
+
+        return mCacheDataSourceFactory;
+    }
+
     // EXO: 2.10 - 2.12
     private static class StaticDashManifestParser extends DashManifestParser {
         @Override
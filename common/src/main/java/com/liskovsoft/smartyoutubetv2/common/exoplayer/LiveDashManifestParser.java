@@ -3,6 +3,7 @@ package com.liskovsoft.smartyoutubetv2.common.exoplayer;
 import android.net.Uri;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.drm.DrmInitData.SchemeData;
 import com.google.android.exoplayer2.source.dash.DashSegmentIndex;
 import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
 import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
@@ -12,33 +13,41 @@ import com.google.android.exoplayer2.source.dash.manifest.Period;
 import com.google.android.exoplayer2.source.dash.manifest.RangedUri;
 import com.google.android.exoplayer2.source.dash.manifest.Representation;
 import com.google.android.exoplayer2.source.dash.manifest.Representation.MultiSegmentRepresentation;
-import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.MultiSegmentBase;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase;
 import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentList;
-import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentTimelineElement;
+import com.google.android.exoplayer2.util.LongArray;
+import com.google.android.exoplayer2.util.Util;
+import com.google.android.exoplayer2.util.XmlPullParserUtil;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
-import com.liskovsoft.sharedutils.querystringparser.UrlQueryString;
-import com.liskovsoft.sharedutils.querystringparser.UrlQueryStringFactory;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Supported ExoPlayer versions: 2.10.6
+ * Supported ExoPlayer versions: 2.10.6<br/>
+ * Live manifest is refreshed every few seconds and contains the whole DVR window (up to 12 hrs).<br/>
+ * Only the segments that are newer than the last refresh are kept while parsing.
+ * They are appended to the primitive arrays of the representations from the first manifest,
+ * so the player always sees the same representation objects.
+ * The top-level attributes (type, DVR window, publish time) are taken from the latest manifest.
  */
-@SuppressWarnings("unchecked")
 public class LiveDashManifestParser extends DashManifestParser {
     private static final String TAG = LiveDashManifestParser.class.getSimpleName();
-    // Should be close to zero but not zero to increase buffer size to 30 sec (Radio Record).
-    // Higher values may produce 'url not working' error.
-    private static final long MAX_LIVE_STREAM_LENGTH_MS = 30 * 1_000;
     // Usually gaming streams. 10 hrs max.
     private static final long MAX_PAST_STREAM_LENGTH_MS = 12 * 60 * 60 * 1_000;
-    private static final long MAX_NEW_STREAM_LENGTH_MS = 30 * 1_000;
     private DashManifest mOldManifest;
-    private long mOldSegmentNum;
+    // Representations may lag behind each other. Key is the representation id.
+    private final Map<String, Long> mLastSegmentNums = new HashMap<>();
+    // Null while parsing the adaptation set
+    private String mRepresentationId;
 
     @Override
     public DashManifest parse(Uri uri, InputStream inputStream) throws IOException {
@@ -53,338 +62,579 @@ public class LiveDashManifestParser extends DashManifestParser {
         return mOldManifest;
     }
 
+    /**
+     * Same as the super but the segments are kept in the compact form. Already known segments are skipped.
+     */
+    @Override
+    protected SegmentList parseSegmentList(XmlPullParser xpp, SegmentList parent) throws XmlPullParserException, IOException {
+        LiveSegmentList liveParent = parent instanceof LiveSegmentList ? (LiveSegmentList) parent : null;
+
+        long timescale = parseLong(xpp, "timescale", liveParent != null ? liveParent.mTimescale : 1);
+        long presentationTimeOffset = parseLong(xpp, "presentationTimeOffset",
+                liveParent != null ? liveParent.mPresentationTimeOffset : 0);
+        long duration = parseLong(xpp, "duration", liveParent != null ? liveParent.mDuration : C.TIME_UNSET);
+        long startNumber = parseLong(xpp, "startNumber", liveParent != null ? liveParent.mStartNumber : 1);
+        // Segments with lower numbers are in the index already.
+        // Own list should match the timeline of the parent one.
+        long firstSegmentNum = liveParent != null ? liveParent.mFirstSegmentNum : getFirstNewSegmentNum(startNumber);
+
+        RangedUri initialization = null;
+        LongArray times = null;
+        LongArray durations = null;
+        List<String> urls = null;
+        long segmentNum = startNumber;
+
+        do {
+            xpp.next();
+            if (XmlPullParserUtil.isStartTag(xpp, "Initialization")) {
+                initialization = parseInitialization(xpp);
+            } else if (XmlPullParserUtil.isStartTag(xpp, "SegmentTimeline")) {
+                times = new LongArray();
+                durations = new LongArray();
+                parseSegmentTimeline(xpp, startNumber, firstSegmentNum, times, durations);
+            } else if (XmlPullParserUtil.isStartTag(xpp, "SegmentURL")) {
+                if (urls == null) {
+                    urls = new ArrayList<>();
+                }
+                if (segmentNum++ >= firstSegmentNum) {
+                    urls.add(xpp.getAttributeValue(null, "media"));
+                }
+            } else {
+                maybeSkipTag(xpp);
+            }
+        } while (!XmlPullParserUtil.isEndTag(xpp, "SegmentList"));
+
+        if (liveParent != null) {
+            initialization = initialization != null ? initialization : liveParent.getInitialization();
+            times = times != null ? times : liveParent.mTimes;
+            durations = durations != null ? durations : liveParent.mDurations;
+            urls = urls != null ? urls : liveParent.mUrls;
+        }
+
+        return new LiveSegmentList(initialization, timescale, presentationTimeOffset, startNumber, firstSegmentNum,
+                duration, times, durations, urls);
+    }
+
+    @Override
+    protected RepresentationInfo parseRepresentation(
+            XmlPullParser xpp,
+            String baseUrl,
+            String adaptationSetMimeType,
+            String adaptationSetCodecs,
+            int adaptationSetWidth,
+            int adaptationSetHeight,
+            float adaptationSetFrameRate,
+            int adaptationSetAudioChannels,
+            int adaptationSetAudioSamplingRate,
+            String adaptationSetLanguage,
+            List<Descriptor> adaptationSetRoleDescriptors,
+            List<Descriptor> adaptationSetAccessibilityDescriptors,
+            List<Descriptor> adaptationSetSupplementalProperties,
+            SegmentBase segmentBase) throws XmlPullParserException, IOException {
+        mRepresentationId = xpp.getAttributeValue(null, "id");
+
+        RepresentationInfo representationInfo = super.parseRepresentation(xpp, baseUrl, adaptationSetMimeType, adaptationSetCodecs,
+                adaptationSetWidth, adaptationSetHeight, adaptationSetFrameRate, adaptationSetAudioChannels, adaptationSetAudioSamplingRate,
+                adaptationSetLanguage, adaptationSetRoleDescriptors, adaptationSetAccessibilityDescriptors, adaptationSetSupplementalProperties,
+                segmentBase);
+
+        mRepresentationId = null;
+
+        // No own SegmentList. The list of the adaptation set is used by the other representations too.
+        if (representationInfo.segmentBase == segmentBase && segmentBase instanceof LiveSegmentList) {
+            ((LiveSegmentList) segmentBase).mIsShared = true;
+        }
+
+        return representationInfo;
+    }
+
+    @Override
+    protected Representation buildRepresentation(
+            RepresentationInfo representationInfo,
+            String label,
+            String extraDrmSchemeType,
+            ArrayList<SchemeData> extraDrmSchemeDatas,
+            ArrayList<Descriptor> extraInbandEventStreams) {
+        Representation representation =
+                super.buildRepresentation(representationInfo, label, extraDrmSchemeType, extraDrmSchemeDatas, extraInbandEventStreams);
+
+        if (!(representationInfo.segmentBase instanceof LiveSegmentList)) {
+            return representation;
+        }
+
+        return new LiveRepresentation(representation.revisionId, representation.format, representation.baseUrl,
+                (LiveSegmentList) representationInfo.segmentBase, representation.inbandEventStreams);
+    }
+
+    private void parseSegmentTimeline(XmlPullParser xpp, long startNumber, long firstSegmentNum,
+                                      LongArray times, LongArray durations) throws XmlPullParserException, IOException {
+        long elapsedTime = 0;
+        long segmentNum = startNumber;
+
+        do {
+            xpp.next();
+            if (XmlPullParserUtil.isStartTag(xpp, "S")) {
+                elapsedTime = parseLong(xpp, "t", elapsedTime);
+                long duration = parseLong(xpp, "d", C.TIME_UNSET);
+                int count = 1 + parseInt(xpp, "r", 0);
+                for (int i = 0; i < count; i++) {
+                    if (segmentNum >= firstSegmentNum) {
+                        times.add(elapsedTime);
+                        durations.add(duration);
+                    }
+                    elapsedTime += duration;
+                    segmentNum++;
+                }
+            } else {
+                maybeSkipTag(xpp);
+            }
+        } while (!XmlPullParserUtil.isEndTag(xpp, "SegmentTimeline"));
+    }
+
+    /**
+     * The list of the adaptation set is shared by its representations. Keep the segments that are new to any of them.
+     */
+    private long getFirstNewSegmentNum(long startNumber) {
+        Long lastSegmentNum = null;
+
+        if (mRepresentationId != null) {
+            lastSegmentNum = mLastSegmentNums.get(mRepresentationId);
+        } else if (!mLastSegmentNums.isEmpty()) {
+            lastSegmentNum = Collections.min(mLastSegmentNums.values());
+        }
+
+        return lastSegmentNum != null ? Math.max(startNumber, lastSegmentNum + 1) : startNumber;
+    }
+
     private void appendManifest(DashManifest newManifest) {
         if (newManifest == null) {
             return;
         }
 
-        // Optimize ram usage on short streams (< 2 hours)
-        if (getFirstSegmentNum(newManifest) == 0) { // Short stream. No need to do something special.
+        if (!(getFirstRepresentation(newManifest) instanceof LiveRepresentation)) { // not a SegmentList manifest
             mOldManifest = newManifest;
-            // Below line will be needed later (> 2 hours), when the stream no longer starts from 0 segment
-            mOldSegmentNum = getLastSegmentNum(newManifest);
             return;
         }
 
-        // Even 4+ hours streams could have different length.
-        // So, we should take into account last segment num instead of first one.
-        long newSegmentNum = getLastSegmentNum(newManifest);
-
         if (mOldManifest == null) {
-            //recreateMissingSegments(newManifest);
-
-            //newManifest.availabilityStartTimeMs = -1;
             Period newPeriod = newManifest.getPeriod(0);
-            // TODO: modified
-            //newPeriod.startMs = 0;
-            Helpers.setField(newPeriod, "startMs", 0);
-            mOldSegmentNum = newSegmentNum;
-
-            for (int i = 0; i < newPeriod.adaptationSets.size(); i++) {
-                for (int j = 0; j < newPeriod.adaptationSets.get(i).representations.size(); j++) {
-                    MultiSegmentRepresentation representation = (MultiSegmentRepresentation) newPeriod.adaptationSets.get(i).representations.get(j);
-                    //representation.presentationTimeOffsetUs = 0;
-
-                    // TODO: modified
-                    //SegmentList newSegmentList = (SegmentList) representation.segmentBase;
-                    SegmentList newSegmentList = (SegmentList) Helpers.getField(representation, "segmentBase");
-                    // TODO: modified
-                    //newSegmentList.presentationTimeOffset = 0;
-                    Helpers.setField(newSegmentList, "presentationTimeOffset", 0);
-                    // TODO: modified
-                    //newSegmentList.startNumber = 0;
-                    Helpers.setField(newSegmentList, "startNumber", 0);
+
+            // The stream that is longer than the DVR window doesn't start from 0 segment.
+            // Number the segments from 0 to match the period start.
+            if (getFirstSegmentNum(newManifest) != 0) {
+                // TODO: modified
+                //newPeriod.startMs = 0;
+                Helpers.setField(newPeriod, "startMs", 0);
+
+                for (int i = 0; i < newPeriod.adaptationSets.size(); i++) {
+                    for (Representation representation : newPeriod.adaptationSets.get(i).representations) {
+                        ((LiveRepresentation) representation).mIndex.rebase();
+                    }
                 }
             }
 
             mOldManifest = newManifest;
+            updateLastSegmentNums();
 
             return;
         }
 
-        //long oldSegmentNum = getFirstSegmentNum(mManifest);
-
         Period oldPeriod = mOldManifest.getPeriod(0);
         Period newPeriod = newManifest.getPeriod(0);
 
-        for (int i = 0; i < oldPeriod.adaptationSets.size(); i++) {
-            for (int j = 0; j < oldPeriod.adaptationSets.get(i).representations.size(); j++) {
-                appendRepresentation(
-                        oldPeriod.adaptationSets.get(i).representations.get(j),
-                        newPeriod.adaptationSets.get(i).representations.get(j),
-                        newSegmentNum - mOldSegmentNum
-                );
+        for (int i = 0; i < Math.min(oldPeriod.adaptationSets.size(), newPeriod.adaptationSets.size()); i++) {
+            AdaptationSet oldAdaptationSet = oldPeriod.adaptationSets.get(i);
+            AdaptationSet newAdaptationSet = newPeriod.adaptationSets.get(i);
+
+            for (int j = 0; j < Math.min(oldAdaptationSet.representations.size(), newAdaptationSet.representations.size()); j++) {
+                appendRepresentation(oldAdaptationSet.representations.get(j), newAdaptationSet.representations.get(j));
             }
         }
 
-        mOldSegmentNum = newSegmentNum;
-
-        //mManifest.timeShiftBufferDepthMs += (newSegmentNum - oldSegmentNum) * 5_000;
+        mOldManifest = copyAttributes(newManifest, mOldManifest);
+        updateLastSegmentNums();
     }
 
-    private static void appendRepresentation(Representation oldRepresentation, Representation newRepresentation, long segmentNumShift) {
-        if (segmentNumShift <= 0) {
-            return;
-        }
+    /**
+     * Segment nums as in the manifest, before the rebase.
+     */
+    private void updateLastSegmentNums() {
+        Period period = mOldManifest.getPeriod(0);
 
-        MultiSegmentRepresentation oldMultiRepresentation = (MultiSegmentRepresentation) oldRepresentation;
-        MultiSegmentRepresentation newMultiRepresentation = (MultiSegmentRepresentation) newRepresentation;
-
-        // TODO: modified
-        //SegmentList oldSegmentList = (SegmentList) oldRepresentation.segmentBase;
-        SegmentList oldSegmentList = (SegmentList) Helpers.getField(oldMultiRepresentation, "segmentBase");
-        // TODO: modified
-        //SegmentList newSegmentList = (SegmentList) newRepresentation.segmentBase;
-        SegmentList newSegmentList = (SegmentList) Helpers.getField(newMultiRepresentation, "segmentBase");
-
-        // TODO: modified
-        //List<RangedUri> oldMediaSegments = oldSegmentList.mediaSegments;
-        List<RangedUri> oldMediaSegments = (List<RangedUri>) Helpers.getField(oldSegmentList, "mediaSegments");
-        // TODO: modified
-        //List<RangedUri> newMediaSegments = newSegmentList.mediaSegments;
-        List<RangedUri> newMediaSegments = (List<RangedUri>) Helpers.getField(newSegmentList, "mediaSegments");
-
-        oldMediaSegments.addAll(
-                newMediaSegments.subList(newMediaSegments.size() - (int) segmentNumShift, newMediaSegments.size()));
-
-        // TODO: modified
-        //List<SegmentTimelineElement> oldSegmentTimeline = oldSegmentList.segmentTimeline;
-        List<SegmentTimelineElement> oldSegmentTimeline = (List<SegmentTimelineElement>) Helpers.getField(oldSegmentList, "segmentTimeline");
-
-        // segmentTimeline is the same for all segments
-        if (oldMediaSegments.size() != oldSegmentTimeline.size()) {
-            SegmentTimelineElement lastTimeline = oldSegmentTimeline.get(oldSegmentTimeline.size() - 1);
-            // TODO: modified
-            //long lastTimelineDuration = lastTimeline.duration;
-            long lastTimelineDuration = (Long) Helpers.getField(lastTimeline, "duration");
-            // TODO: modified
-            //long lastTimelineStartTime = lastTimeline.startTime;
-            long lastTimelineStartTime = (Long) Helpers.getField(lastTimeline, "startTime");
-
-            for (int i = 1; i <= segmentNumShift; i++) {
-                oldSegmentTimeline.add(new SegmentTimelineElement(lastTimelineStartTime + (lastTimelineDuration * i), lastTimelineDuration));
+        for (AdaptationSet adaptationSet : period.adaptationSets) {
+            for (Representation representation : adaptationSet.representations) {
+                if (representation instanceof LiveRepresentation && representation.format.id != null) {
+                    mLastSegmentNums.put(representation.format.id, ((LiveRepresentation) representation).mIndex.getLastStreamSegmentNum());
+                }
             }
-
-            //oldSegmentTimeline.addAll(
-            //        newSegmentList.segmentTimeline.subList(newSegmentList.segmentTimeline.size() - (int) segmentNumShift - 1, newSegmentList.segmentTimeline.size()));
         }
     }
 
-    private static void recreateMissingSegments(DashManifest manifest) {
-        if (manifest == null) {
-            return;
-        }
+    /**
+     * Latest top-level attributes (e.g. dynamic to static at the stream end) with the accumulated periods.
+     */
+    private static DashManifest copyAttributes(DashManifest newManifest, DashManifest oldManifest) {
+        List<Period> periods = new ArrayList<>();
 
-        long minUpdatePeriodMs = (long) Helpers.getField(manifest, "minUpdatePeriodMs");
-        long timeShiftBufferDepthMs = (long) Helpers.getField(manifest, "timeShiftBufferDepthMs"); // active live stream
-        long durationMs = (long) Helpers.getField(manifest, "durationMs"); // past live stream
-        long firstSegmentNum = getFirstSegmentNum(manifest);
-        long firstSegmentDurationMs = getFirstSegmentDurationMs(manifest);
-        long currentSegmentCount = getSegmentCount(manifest);
-        if (minUpdatePeriodMs <= 0) { // past live stream
-            // May has different length 5_000 (4hrs) or 2_000 (2hrs)
-            minUpdatePeriodMs = durationMs / (currentSegmentCount - 1) / 10 * 10; // Round ending digits
+        for (int i = 0; i < oldManifest.getPeriodCount(); i++) {
+            periods.add(oldManifest.getPeriod(i));
         }
 
-        if (minUpdatePeriodMs != firstSegmentDurationMs) { // variable segment timeline (unpredictable)
+        return new DashManifest(newManifest.availabilityStartTimeMs, newManifest.durationMs, newManifest.minBufferTimeMs,
+                newManifest.dynamic, newManifest.minUpdatePeriodMs, newManifest.timeShiftBufferDepthMs,
+                newManifest.suggestedPresentationDelayMs, newManifest.publishTimeMs, newManifest.programInformation,
+                newManifest.utcTiming, newManifest.location, periods);
+    }
+
+    private static void appendRepresentation(Representation oldRepresentation, Representation newRepresentation) {
+        if (!(oldRepresentation instanceof LiveRepresentation) || !(newRepresentation instanceof LiveRepresentation)) {
             return;
         }
 
-        boolean isNewStream = firstSegmentNum < 10_000 && currentSegmentCount > 3;
-        boolean isPastStream = durationMs > 0 && currentSegmentCount > 3;
-        long maxSegmentsCount = (isPastStream ? MAX_PAST_STREAM_LENGTH_MS :
-                                    isNewStream ? MAX_NEW_STREAM_LENGTH_MS : MAX_LIVE_STREAM_LENGTH_MS) / minUpdatePeriodMs;
-        long recreateSegmentCount = Math.min(firstSegmentNum, maxSegmentsCount - currentSegmentCount);
+        LiveSegmentIndex index = ((LiveRepresentation) oldRepresentation).mIndex;
+        index.append(((LiveRepresentation) newRepresentation).mIndex);
+        index.trim(MAX_PAST_STREAM_LENGTH_MS);
+    }
 
-        if (recreateSegmentCount <= 0) {
-            return;
-        }
+    private static Representation getFirstRepresentation(DashManifest manifest) {
+        return manifest.getPeriod(0).adaptationSets.get(0).representations.get(0);
+    }
 
-        // 2_000 Ms streams has variable limit values in url (that is unpredictable)
-        if (minUpdatePeriodMs <= 2_000) {
-            return; // url won't work on small (2_000Ms) segments
-        }
+    private static long getFirstSegmentNum(DashManifest manifest) {
+        DashSegmentIndex dashSegmentIndex = getFirstRepresentation(manifest).getIndex();
+        return dashSegmentIndex.getFirstSegmentNum();
+    }
 
-        // Skip past streams that are truncated (truncated streams have a problems)
-        if ((isNewStream || isPastStream) && firstSegmentNum > recreateSegmentCount) {
-            return;
+    /**
+     * Parsed segments of the single manifest. Segments start from the {@link #mFirstSegmentNum}.<br/>
+     * Used by the {@link LiveSegmentIndex} only, the super lists are empty.
+     */
+    private static class LiveSegmentList extends SegmentList {
+        private final long mTimescale;
+        private final long mPresentationTimeOffset;
+        private final long mStartNumber;
+        private final long mFirstSegmentNum;
+        private final long mDuration;
+        private LongArray mTimes;
+        private LongArray mDurations;
+        private List<String> mUrls;
+        // Adaptation set level list without the representation level override
+        private boolean mIsShared;
+
+        public LiveSegmentList(
+                RangedUri initialization,
+                long timescale,
+                long presentationTimeOffset,
+                long startNumber,
+                long firstSegmentNum,
+                long duration,
+                LongArray times,
+                LongArray durations,
+                List<String> urls) {
+            super(initialization, timescale, presentationTimeOffset, startNumber, duration, null, Collections.emptyList());
+            mTimescale = timescale;
+            mPresentationTimeOffset = presentationTimeOffset;
+            mStartNumber = startNumber;
+            mFirstSegmentNum = firstSegmentNum;
+            mDuration = duration;
+            mTimes = times;
+            mDurations = durations;
+            mUrls = urls != null ? urls : Collections.emptyList();
         }
 
-        if (timeShiftBufferDepthMs > 0) { // active live stream
-            Helpers.setField(manifest, "timeShiftBufferDepthMs", timeShiftBufferDepthMs + (recreateSegmentCount * minUpdatePeriodMs));
-        } else { // past live stream
-            Helpers.setField(manifest, "durationMs", durationMs + (recreateSegmentCount * minUpdatePeriodMs));
+        private RangedUri getInitialization() {
+            return getInitialization(null);
         }
 
-        Period oldPeriod = manifest.getPeriod(0);
+        /**
+         * The representation holds the list till the end of the stream. Keep the segments in the index only.<br/>
+         * The shared list is still needed by the other representations.
+         */
+        private void release() {
+            if (mIsShared) {
+                return;
+            }
 
-        for (int i = 0; i < oldPeriod.adaptationSets.size(); i++) {
-            AdaptationSet adaptationSet = oldPeriod.adaptationSets.get(i);
-            lazyRecreateRepresentations(adaptationSet, recreateSegmentCount, minUpdatePeriodMs);
-            //List<Representation> representations = adaptationSet.representations;
-            //for (int j = 0; j < representations.size(); j++) {
-            //    Representation oldRepresentation = representations.get(j);
-            //    recreateRepresentation(oldRepresentation, recreateSegmentCount, minUpdatePeriodMs);
-            //}
+            mTimes = null;
+            mDurations = null;
+            mUrls = Collections.emptyList();
         }
     }
 
-    private static void recreateRepresentation(Representation oldRepresentation, long segmentCount, long minUpdatePeriodMs) {
-        MultiSegmentRepresentation oldMultiRepresentation = (MultiSegmentRepresentation) oldRepresentation;
+    /**
+     * Segments in the primitive arrays. Appended on each refresh, the oldest are dropped when out of the DVR window.<br/>
+     * Accessed from the loader and the playback threads.
+     */
+    private static class LiveSegmentIndex {
+        private static final int INITIAL_CAPACITY = 16;
+        private final long mTimescale;
+        private final boolean mIsExplicit;
+        private long mPresentationTimeOffset;
+        // The player's numbering may differ from the manifest after the rebase
+        private long mFirstSegmentNum;
+        private long mSegmentNumShift;
+        private long[] mTimes;
+        private long[] mDurations;
+        private String[] mUrls;
+        private int mOffset;
+        private int mSize;
+
+        public LiveSegmentIndex(LiveSegmentList segmentList) {
+            mTimescale = segmentList.mTimescale;
+            mIsExplicit = segmentList.mTimes != null;
+            mPresentationTimeOffset = segmentList.mPresentationTimeOffset;
+            mFirstSegmentNum = segmentList.mFirstSegmentNum;
+
+            int capacity = Math.max(segmentList.mUrls.size(), INITIAL_CAPACITY);
+            mTimes = new long[capacity];
+            mDurations = new long[capacity];
+            mUrls = new String[capacity];
+
+            List<String> urls = segmentList.mUrls;
+
+            for (int i = 0; i < urls.size(); i++) {
+                if (segmentList.mTimes != null && i < segmentList.mTimes.size()) {
+                    add(segmentList.mTimes.get(i), segmentList.mDurations.get(i), urls.get(i));
+                } else if (mIsExplicit) {
+                    // segmentTimeline is the same for all segments.
+                    // No timeline entries at all (all are known already): the duration of the old index is used on append.
+                    addNext(urls.get(i));
+                } else {
+                    long segmentNum = segmentList.mFirstSegmentNum + i;
+                    add((segmentNum - segmentList.mStartNumber) * segmentList.mDuration + mPresentationTimeOffset,
+                            segmentList.mDuration, urls.get(i));
+                }
+            }
 
-        SegmentList oldSegmentList = (SegmentList) Helpers.getField(oldMultiRepresentation, "segmentBase");
+            segmentList.release();
+        }
 
-        List<RangedUri> oldMediaSegments = (List<RangedUri>) Helpers.getField(oldSegmentList, "mediaSegments");
+        /**
+         * Segments are numbered from zero. The times are the same as in the manifest.
+         */
+        public synchronized void rebase() {
+            if (!mIsExplicit) {
+                for (int i = mOffset; i < mOffset + mSize; i++) {
+                    mTimes[i] -= mPresentationTimeOffset;
+                }
+            }
 
-        RangedUri firstSegment = oldMediaSegments.get(0);
-        RangedUri secondSegment = oldMediaSegments.get(1);
-        long start = firstSegment.start;
-        long length = firstSegment.length;
-        String firstSegmentUri = (String) Helpers.getField(firstSegment, "referenceUri");
-        String secondSegmentUri = (String) Helpers.getField(secondSegment, "referenceUri");
+            mPresentationTimeOffset = 0;
+            mSegmentNumShift += mFirstSegmentNum;
+            mFirstSegmentNum = 0;
+        }
 
-        UrlQueryString firstSegmentQuery = UrlQueryStringFactory.parse("/" + firstSegmentUri);
-        UrlQueryString secondSegmentQuery = UrlQueryStringFactory.parse("/" + secondSegmentUri);
-        long firstSegmentNum = Helpers.parseLong(firstSegmentQuery.get("sq"));
-        long firstSegmentLimit = Helpers.parseLong(firstSegmentQuery.get("lmt"));
-        long secondSegmentLimit = Helpers.parseLong(secondSegmentQuery.get("lmt"));
-        long limitDiff = secondSegmentLimit - firstSegmentLimit;
+        /**
+         * Appends the segments that are newer than the last one.
+         */
+        public synchronized void append(LiveSegmentIndex other) {
+            long lastSegmentNum = getLastStreamSegmentNum();
+            long otherFirstSegmentNum = other.getLastStreamSegmentNum() - other.mSize + 1;
 
-        // Skip variable segment limit (huge limit diff values)
-        if (firstSegmentNum <= 0 || limitDiff > 100) {
-            return;
+            if (mSize > 0 && other.mSize > 0 && otherFirstSegmentNum > lastSegmentNum + 1) {
+                Log.e(TAG, "Missing %s segments after %s", otherFirstSegmentNum - lastSegmentNum - 1, lastSegmentNum);
+            }
+
+            for (int i = 0; i < other.mSize; i++) {
+                if (mSize > 0 && otherFirstSegmentNum + i <= lastSegmentNum) {
+                    continue;
+                }
+
+                int position = other.mOffset + i;
+
+                if (mSize > 0 && other.mTimes[position] == C.TIME_UNSET) {
+                    // The time of the previous segment isn't known to the other index
+                    addNext(other.mUrls[position]);
+                } else if (mIsExplicit || mSize == 0) {
+                    add(other.mTimes[position], other.mDurations[position], other.mUrls[position]);
+                } else {
+                    // Fixed duration. Numbering of the manifests might differ.
+                    addNext(other.mUrls[position]);
+                }
+            }
         }
 
-        long presentationTimeOffsetUs = oldRepresentation.presentationTimeOffsetUs;
-        Helpers.setField(oldRepresentation, "presentationTimeOffsetUs", presentationTimeOffsetUs - (segmentCount * minUpdatePeriodMs * 1_000));
+        /**
+         * Drops the oldest segments until the index fits into the window.
+         */
+        public synchronized void trim(long maxLengthMs) {
+            if (mSize == 0) {
+                return;
+            }
 
-        long currentSegmentNum = firstSegmentNum - 1;
-        long currentSegmentLimit = firstSegmentLimit - limitDiff;
+            int last = mOffset + mSize - 1;
+            long endTime = mTimes[last] + mDurations[last];
+            long maxLength = maxLengthMs * mTimescale / 1_000;
 
-        for (int i = 1; i <= segmentCount; i++) {
-            oldMediaSegments.add(0, new RangedUri(String.format("sq/%s/lmt/%s", currentSegmentNum, currentSegmentLimit), start, length));
-            currentSegmentNum--;
-            currentSegmentLimit -= limitDiff;
+            while (mSize > 1 && endTime - mTimes[mOffset] > maxLength) {
+                mUrls[mOffset] = null;
+                mOffset++;
+                mSize--;
+                mFirstSegmentNum++;
+            }
         }
 
-        List<SegmentTimelineElement> oldSegmentTimeline = (List<SegmentTimelineElement>) Helpers.getField(oldSegmentList, "segmentTimeline");
+        public synchronized long getLastStreamSegmentNum() {
+            return mFirstSegmentNum + mSegmentNumShift + mSize - 1;
+        }
 
-        // segmentTimeline is the same for all segments
-        if (oldMediaSegments.size() != oldSegmentTimeline.size()) {
-            SegmentTimelineElement lastTimeline = oldSegmentTimeline.get(oldSegmentTimeline.size() - 1);
-            long lastTimelineDuration = (Long) Helpers.getField(lastTimeline, "duration");
-            long lastTimelineStartTime = (Long) Helpers.getField(lastTimeline, "startTime");
+        public synchronized RangedUri getSegmentUrl(long segmentNum) {
+            return new RangedUri(mUrls[getPosition(segmentNum)], 0, C.LENGTH_UNSET);
+        }
 
-            for (int i = 1; i <= segmentCount; i++) {
-                oldSegmentTimeline.add(new SegmentTimelineElement(lastTimelineStartTime + (lastTimelineDuration * i), lastTimelineDuration));
+        public synchronized long getSegmentNum(long timeUs) {
+            if (mSize == 0) {
+                return mFirstSegmentNum;
             }
+
+            // Identify the segment using binary search.
+            long lowIndex = mFirstSegmentNum;
+            long highIndex = mFirstSegmentNum + mSize - 1;
+            while (lowIndex <= highIndex) {
+                long midIndex = lowIndex + (highIndex - lowIndex) / 2;
+                long midTimeUs = getTimeUs(midIndex);
+                if (midTimeUs < timeUs) {
+                    lowIndex = midIndex + 1;
+                } else if (midTimeUs > timeUs) {
+                    highIndex = midIndex - 1;
+                } else {
+                    return midIndex;
+                }
+            }
+            return lowIndex == mFirstSegmentNum ? lowIndex : highIndex;
         }
 
-        Log.d(TAG, "Recreate representation: done");
-    }
+        public synchronized long getTimeUs(long segmentNum) {
+            return Util.scaleLargeTimestamp(mTimes[getPosition(segmentNum)] - mPresentationTimeOffset, C.MICROS_PER_SECOND, mTimescale);
+        }
 
-    private static void lazyRecreateRepresentations(AdaptationSet adaptationSet, long segmentCount, long minUpdatePeriodMs) {
-        List<Representation> representations = adaptationSet.representations;
-        List<Representation> newRepresentations = new ArrayList<>();
-        for (int j = 0; j < representations.size(); j++) {
-            Representation oldRepresentation = representations.get(j);
-            newRepresentations.add(new MultiSegmentRepresentationWrapper((MultiSegmentRepresentation) oldRepresentation, segmentCount, minUpdatePeriodMs));
+        public synchronized long getDurationUs(long segmentNum) {
+            return (mDurations[getPosition(segmentNum)] * C.MICROS_PER_SECOND) / mTimescale;
         }
 
-        Helpers.setField(adaptationSet, "representations", newRepresentations);
-    }
+        public synchronized long getFirstSegmentNum() {
+            return mFirstSegmentNum;
+        }
 
-    private static long getFirstSegmentNum(DashManifest manifest) {
-        DashSegmentIndex dashSegmentIndex = manifest.getPeriod(0).adaptationSets.get(0).representations.get(0).getIndex();
-        return dashSegmentIndex.getFirstSegmentNum();
-    }
+        public synchronized int getSegmentCount() {
+            return mSize;
+        }
 
-    private static long getLastSegmentNum(DashManifest manifest) {
-        DashSegmentIndex dashSegmentIndex = manifest.getPeriod(0).adaptationSets.get(0).representations.get(0).getIndex();
-        return dashSegmentIndex.getFirstSegmentNum() + dashSegmentIndex.getSegmentCount(DashSegmentIndex.INDEX_UNBOUNDED) - 1;
-    }
+        public boolean isExplicit() {
+            return mIsExplicit;
+        }
 
-    private static long getSegmentCount(DashManifest manifest) {
-        return manifest.getPeriod(0).adaptationSets.get(0).representations.get(0).getIndex().getSegmentCount(C.TIME_UNSET);
-    }
+        private int getPosition(long segmentNum) {
+            long index = segmentNum - mFirstSegmentNum;
 
-    private static long getFirstSegmentDurationMs(DashManifest manifest) {
-        DashSegmentIndex dashSegmentIndex = manifest.getPeriod(0).adaptationSets.get(0).representations.get(0).getIndex();
-        return dashSegmentIndex.getDurationUs(getFirstSegmentNum(manifest), C.TIME_UNSET) / 1_000;
-    }
+            if (index < 0 || index >= mSize) {
+                throw new IndexOutOfBoundsException("Segment " + segmentNum + " is out of " + mFirstSegmentNum + "-" + (mFirstSegmentNum + mSize - 1));
+            }
 
-    private static class MultiSegmentRepresentationWrapper extends MultiSegmentRepresentation {
-        private long mSegmentCount;
-        private long mMinUpdatePeriodMs;
-        private boolean mInitDone;
+            return mOffset + (int) index;
+        }
+
+        /**
+         * Same duration as the last segment. Unknown when the index is empty.
+         */
+        private void addNext(String url) {
+            if (mSize == 0) {
+                add(C.TIME_UNSET, C.TIME_UNSET, url);
+                return;
+            }
 
-        public MultiSegmentRepresentationWrapper(MultiSegmentRepresentation origin, long segmentCount, long minUpdatePeriodMs) {
-            this(origin.revisionId, origin.format, origin.baseUrl, (SegmentList) Helpers.getField(origin, "segmentBase"), origin.inbandEventStreams);
-            mSegmentCount = segmentCount;
-            mMinUpdatePeriodMs = minUpdatePeriodMs;
+            int last = mOffset + mSize - 1;
+
+            if (mTimes[last] == C.TIME_UNSET) {
+                add(C.TIME_UNSET, C.TIME_UNSET, url);
+            } else {
+                add(mTimes[last] + mDurations[last], mDurations[last], url);
+            }
         }
 
-        public MultiSegmentRepresentationWrapper(
+        private void add(long time, long duration, String url) {
+            if (mOffset + mSize == mTimes.length) {
+                ensureCapacity();
+            }
+
+            int position = mOffset + mSize;
+            mTimes[position] = time;
+            mDurations[position] = duration;
+            mUrls[position] = url;
+            mSize++;
+        }
+
+        /**
+         * Reclaims the space of the dropped segments first, grows only when the window is full.
+         */
+        private void ensureCapacity() {
+            int capacity = mOffset >= mSize ? mTimes.length : mTimes.length * 3 / 2 + 1;
+
+            long[] times = new long[capacity];
+            long[] durations = new long[capacity];
+            String[] urls = new String[capacity];
+            System.arraycopy(mTimes, mOffset, times, 0, mSize);
+            System.arraycopy(mDurations, mOffset, durations, 0, mSize);
+            System.arraycopy(mUrls, mOffset, urls, 0, mSize);
+
+            mTimes = times;
+            mDurations = durations;
+            mUrls = urls;
+            mOffset = 0;
+        }
+    }
+
+    /**
+     * Shared across the refreshes. All index calls go to the {@link LiveSegmentIndex}.
+     */
+    private static class LiveRepresentation extends MultiSegmentRepresentation {
+        private final LiveSegmentIndex mIndex;
+
+        public LiveRepresentation(
                 long revisionId,
                 Format format,
                 String baseUrl,
-                MultiSegmentBase segmentBase,
+                LiveSegmentList segmentList,
                 List<Descriptor> inbandEventStreams) {
-            super(revisionId, format, baseUrl, segmentBase, inbandEventStreams);
+            super(revisionId, format, baseUrl, segmentList, inbandEventStreams);
+            mIndex = new LiveSegmentIndex(segmentList);
         }
 
         // DashSegmentIndex implementation.
 
         @Override
         public RangedUri getSegmentUrl(long segmentIndex) {
-            init();
-            return super.getSegmentUrl(segmentIndex);
+            return mIndex.getSegmentUrl(segmentIndex);
         }
 
         @Override
         public long getSegmentNum(long timeUs, long periodDurationUs) {
-            init();
-            return super.getSegmentNum(timeUs, periodDurationUs);
+            return mIndex.getSegmentNum(timeUs);
         }
 
         @Override
         public long getTimeUs(long segmentIndex) {
-            init();
-            return super.getTimeUs(segmentIndex);
+            return mIndex.getTimeUs(segmentIndex);
         }
 
         @Override
         public long getDurationUs(long segmentIndex, long periodDurationUs) {
-            init();
-            return super.getDurationUs(segmentIndex, periodDurationUs);
+            return mIndex.getDurationUs(segmentIndex);
         }
 
         @Override
         public long getFirstSegmentNum() {
-            init();
-            return super.getFirstSegmentNum();
+            return mIndex.getFirstSegmentNum();
         }
 
         @Override
         public int getSegmentCount(long periodDurationUs) {
-            init();
-            return super.getSegmentCount(periodDurationUs);
+            return mIndex.getSegmentCount();
         }
 
         @Override
         public boolean isExplicit() {
-            init();
-            return super.isExplicit();
-        }
-
-        private void init() {
-            if (mInitDone) {
-                return;
-            }
-
-            recreateRepresentation(this, mSegmentCount, mMinUpdatePeriodMs);
-
-            mInitDone = true;
+            return mIndex.isExplicit();
         }
     }
 }
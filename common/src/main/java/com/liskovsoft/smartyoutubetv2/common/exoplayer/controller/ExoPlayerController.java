@@ -24,6 +24,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.ExoMediaSourceFactory;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.TrackErrorFixer;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.AdaptiveLoadControl;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.VolumeBooster;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.ExoFormatItem;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem;
@@ -51,6 +52,7 @@ public class ExoPlayerController implements Player.EventListener {
     private WeakReference<Video> mVideo;
     private final PlayerEventListener mEventListener;
     private SimpleExoPlayer mPlayer;
+    private AdaptiveLoadControl mLoadControl;
     private PlayerView mPlayerView;
     private VolumeBooster mVolumeBooster;
     private boolean mIsEnded;
@@ -122,6 +124,17 @@ public class ExoPlayerController implements Player.EventListener {
         openMediaSource(new MergingMediaSource(dashMediaSource, hlsMediaSource));
     }
 
+    /**
+     * Prefetch the beginning of the next video using the tracks that are selected now.
+     */
+    public void prefetch(MediaItemFormatInfo formatInfo) {
+        MediaTrack videoTrack = mTrackSelectorManager.getVideoTrack();
+        MediaTrack audioTrack = mTrackSelectorManager.getAudioTrack();
+        mMediaSourceFactory.prefetch(formatInfo,
+                videoTrack != null ? videoTrack.format : null,
+                audioTrack != null ? audioTrack.format : null);
+    }
+
     private void openMediaSource(MediaSource mediaSource) {
         resetPlayerState(); // fixes occasional video artifacts and problems with quality switching
         setQualityInfo("");
@@ -130,6 +143,7 @@ public class ExoPlayerController implements Player.EventListener {
         mTrackSelectorManager.invalidate();
         mOnSourceChanged = true;
         mEventListener.onSourceChanged(getVideo());
+        updateContentType();
         mPlayer.prepare(mediaSource);
     }
 
@@ -205,6 +219,21 @@ public class ExoPlayerController implements Player.EventListener {
         player.addListener(this);
     }
 
+    public void setLoadControl(AdaptiveLoadControl loadControl) {
+        mLoadControl = loadControl;
+    }
+
+    private void updateContentType() {
+        Video video = getVideo();
+
+        if (mLoadControl == null || video == null) {
+            return;
+        }
+
+        mLoadControl.setContentType(video.isLive ? AdaptiveLoadControl.CONTENT_TYPE_LIVE :
+                video.isShorts ? AdaptiveLoadControl.CONTENT_TYPE_SHORTS : AdaptiveLoadControl.CONTENT_TYPE_VOD);
+    }
+
     //@Override
     //public void setEventListener(PlayerEventListener eventListener) {
     //    mEventListener = eventListener;
@@ -0,0 +1,313 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Util;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load control that sizes the buffers by the memory that is actually available.<br/>
+ * The buffer type from the settings gives the desired durations. On every track selection they are capped
+ * so that the selected bitrate fits into the byte budget (free heap, device ram) and the content type (live, shorts).<br/>
+ * The free allocations are released when the app goes to the background or the system is low on memory.
+ */
+public class AdaptiveLoadControl implements LoadControl, ComponentCallbacks2 {
+    private static final String TAG = AdaptiveLoadControl.class.getSimpleName();
+    public static final int CONTENT_TYPE_VOD = 0;
+    public static final int CONTENT_TYPE_LIVE = 1;
+    public static final int CONTENT_TYPE_SHORTS = 2;
+    private static final int BUFFER_FOR_PLAYBACK_MS = 2_500;
+    private static final int BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS = 5_000;
+    private static final int MAX_LIVE_BUFFER_MS = 30_000; // deep buffers stutter on live streams
+    private static final int MAX_SHORTS_BUFFER_MS = 15_000; // shorts are swiped away quickly
+    private static final int BACK_BUFFER_MS = 50_000;
+    private static final int BACK_BUFFER_LOW_RAM_MS = 15_000;
+    private static final int MIN_BUFFER_BYTES = 64 * C.DEFAULT_BUFFER_SEGMENT_SIZE; // 4MB
+    private static final int HEAP_DIVIDER = 2; // leave the half of the free heap to the app
+    private final Context mContext;
+    private final PlayerData mPlayerData;
+    private final DefaultAllocator mAllocator;
+    private final int mMaxBufferBytes;
+    private final long mBackBufferUs;
+    private final AtomicInteger mTrimCount = new AtomicInteger();
+    private volatile int mContentType = CONTENT_TYPE_VOD;
+    private volatile long mMinBufferUs;
+    private volatile long mMaxBufferUs;
+    private volatile int mTargetBufferBytes;
+    private volatile boolean mIsLowMemory;
+    private boolean mIsBuffering;
+
+    /**
+     * @param maxBufferBytes the upper limit of the budget, derived from the device ram
+     */
+    public AdaptiveLoadControl(Context context, int maxBufferBytes) {
+        mContext = context.getApplicationContext();
+        mPlayerData = PlayerData.instance(context);
+        mAllocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+        mMaxBufferBytes = maxBufferBytes;
+
+        int bufferType = mPlayerData.getVideoBufferType();
+        boolean backBufferEnabled = bufferType == PlayerData.BUFFER_HIGHEST || bufferType == PlayerData.BUFFER_HIGH;
+        // NOTE: the player reads the back buffer once, so it can't follow the budget
+        mBackBufferUs = backBufferEnabled ? C.msToUs(Utils.isEnoughRam() ? BACK_BUFFER_MS : BACK_BUFFER_LOW_RAM_MS) : 0;
+
+        applyBudget(C.LENGTH_UNSET, C.LENGTH_UNSET);
+
+        mContext.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Call before the source is prepared. Takes effect on the next track selection.
+     */
+    public void setContentType(int contentType) {
+        mContentType = contentType;
+    }
+
+    public int getTargetBufferBytes() {
+        return mTargetBufferBytes;
+    }
+
+    public int getAllocatedBytes() {
+        return mAllocator.getTotalBytesAllocated();
+    }
+
+    public int getAllocationCount() {
+        return mAllocator.getTotalBytesAllocated() / mAllocator.getIndividualAllocationLength();
+    }
+
+    public int getTrimCount() {
+        return mTrimCount.get();
+    }
+
+    public int getMaxBufferMs() {
+        return (int) C.usToMs(mMaxBufferUs);
+    }
+
+    @Override
+    public void onPrepared() {
+        mIsLowMemory = false; // the heap is measured again on the track selection
+        reset(false);
+    }
+
+    @Override
+    public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
+        int bitrate = 0;
+        int defaultBufferBytes = 0;
+
+        for (int i = 0; i < renderers.length; i++) {
+            TrackSelection selection = trackSelections.get(i);
+
+            if (selection == null) {
+                continue;
+            }
+
+            defaultBufferBytes += getDefaultBufferSize(renderers[i].getTrackType());
+
+            // Adaptive selection may switch up, so take the best format of the group
+            int maxBitrate = Format.NO_VALUE;
+            for (int j = 0; j < selection.length(); j++) {
+                maxBitrate = Math.max(maxBitrate, selection.getFormat(j).bitrate);
+            }
+
+            if (maxBitrate > 0) {
+                bitrate += maxBitrate;
+            }
+        }
+
+        applyBudget(bitrate > 0 ? bitrate : C.LENGTH_UNSET, defaultBufferBytes);
+        mAllocator.setTargetBufferSize(mTargetBufferBytes);
+    }
+
+    @Override
+    public void onStopped() {
+        reset(true);
+    }
+
+    @Override
+    public void onReleased() {
+        reset(true);
+        mContext.unregisterComponentCallbacks(this);
+    }
+
+    @Override
+    public Allocator getAllocator() {
+        return mAllocator;
+    }
+
+    @Override
+    public long getBackBufferDurationUs() {
+        return mBackBufferUs;
+    }
+
+    @Override
+    public boolean retainBackBufferFromKeyframe() {
+        return true;
+    }
+
+    @Override
+    public boolean shouldContinueLoading(long bufferedDurationUs, float playbackSpeed) {
+        boolean targetBufferSizeReached = mAllocator.getTotalBytesAllocated() >= mTargetBufferBytes;
+        long minBufferUs = mMinBufferUs;
+        long maxBufferUs = mMaxBufferUs;
+
+        if (playbackSpeed > 1) {
+            // Keep enough media buffered for a playout duration of minBufferUs
+            minBufferUs = Math.min(Util.getMediaDurationForPlayoutDuration(minBufferUs, playbackSpeed), maxBufferUs);
+        }
+
+        // The durations are already fitted into the budget, so the time goes first (same as the DefaultLoadControl)
+        if (bufferedDurationUs < minBufferUs) {
+            mIsBuffering = true;
+        } else if (bufferedDurationUs >= maxBufferUs || targetBufferSizeReached) {
+            mIsBuffering = false;
+        }
+
+        return mIsBuffering;
+    }
+
+    @Override
+    public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed, boolean rebuffering) {
+        bufferedDurationUs = Util.getPlayoutDurationForMediaDuration(bufferedDurationUs, playbackSpeed);
+        long minBufferDurationUs = C.msToUs(rebuffering ? BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS : BUFFER_FOR_PLAYBACK_MS);
+        return bufferedDurationUs >= minBufferDurationUs;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            // Applied to the next track selection
+            mIsLowMemory = true;
+        }
+
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trim();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        mIsLowMemory = true;
+        trim();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // NOP
+    }
+
+    /**
+     * Drop the free allocations. The buffered media stays.
+     */
+    private void trim() {
+        int allocatedBytes = mAllocator.getTotalBytesAllocated();
+        mAllocator.setTargetBufferSize(0); // trims the whole pool of the free allocations
+        mAllocator.setTargetBufferSize(mTargetBufferBytes);
+        mTrimCount.incrementAndGet();
+        Log.d(TAG, "Allocator trimmed. Buffered bytes: %s", allocatedBytes);
+    }
+
+    /**
+     * @param bitrate bits per second of all selected tracks or {@link C#LENGTH_UNSET}
+     * @param defaultBufferBytes track based buffer size or {@link C#LENGTH_UNSET}
+     */
+    private void applyBudget(int bitrate, int defaultBufferBytes) {
+        int minBufferMs = 30_000;
+        int maxBufferMs = 30_000;
+        boolean useWholeBudget = false;
+
+        switch (mPlayerData.getVideoBufferType()) {
+            case PlayerData.BUFFER_HIGHEST:
+                minBufferMs = 50_000;
+                maxBufferMs = 100_000;
+                useWholeBudget = true;
+                break;
+            case PlayerData.BUFFER_HIGH:
+                minBufferMs = 50_000;
+                maxBufferMs = 50_000;
+                break;
+            case PlayerData.BUFFER_MEDIUM:
+                break;
+            case PlayerData.BUFFER_LOW:
+                minBufferMs = 5_000; // LIVE fix
+                maxBufferMs = 5_000; // LIVE fix
+                break;
+        }
+
+        if (mContentType == CONTENT_TYPE_LIVE) {
+            maxBufferMs = Math.min(maxBufferMs, MAX_LIVE_BUFFER_MS);
+        } else if (mContentType == CONTENT_TYPE_SHORTS) {
+            maxBufferMs = Math.min(maxBufferMs, MAX_SHORTS_BUFFER_MS);
+        }
+
+        int budgetBytes = getBudgetBytes();
+
+        if (bitrate > 0) {
+            long bytesPerSecond = Math.max(bitrate / 8, 1);
+            // The back buffer takes its part of the same budget
+            long fitMs = budgetBytes * 1_000L / bytesPerSecond - C.usToMs(mBackBufferUs);
+            maxBufferMs = (int) Math.max(Math.min(maxBufferMs, fitMs), BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS);
+        }
+
+        minBufferMs = Math.max(Math.min(minBufferMs, maxBufferMs), BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS);
+
+        mMinBufferUs = C.msToUs(minBufferMs);
+        mMaxBufferUs = C.msToUs(maxBufferMs);
+        mTargetBufferBytes = useWholeBudget || defaultBufferBytes <= 0 ? budgetBytes : Math.min(defaultBufferBytes, budgetBytes);
+
+        Log.d(TAG, "Buffer: min %s ms, max %s ms, %s bytes, bitrate %s", minBufferMs, maxBufferMs, mTargetBufferBytes, bitrate);
+    }
+
+    private int getBudgetBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        // Our own buffer is part of the used heap
+        long available = (freeHeap + mAllocator.getTotalBytesAllocated()) / HEAP_DIVIDER;
+
+        if (mIsLowMemory) {
+            available /= 2;
+        }
+
+        return (int) Math.max(Math.min(available, mMaxBufferBytes), MIN_BUFFER_BYTES);
+    }
+
+    private static int getDefaultBufferSize(int trackType) {
+        switch (trackType) {
+            case C.TRACK_TYPE_DEFAULT:
+                return DefaultLoadControl.DEFAULT_MUXED_BUFFER_SIZE;
+            case C.TRACK_TYPE_AUDIO:
+                return DefaultLoadControl.DEFAULT_AUDIO_BUFFER_SIZE;
+            case C.TRACK_TYPE_VIDEO:
+                return DefaultLoadControl.DEFAULT_VIDEO_BUFFER_SIZE;
+            case C.TRACK_TYPE_TEXT:
+                return DefaultLoadControl.DEFAULT_TEXT_BUFFER_SIZE;
+            case C.TRACK_TYPE_METADATA:
+                return DefaultLoadControl.DEFAULT_METADATA_BUFFER_SIZE;
+            case C.TRACK_TYPE_CAMERA_MOTION:
+                return DefaultLoadControl.DEFAULT_CAMERA_MOTION_BUFFER_SIZE;
+            default:
+                return 0;
+        }
+    }
+
+    private void reset(boolean resetAllocator) {
+        mIsBuffering = false;
+        if (resetAllocator) {
+            mAllocator.reset();
+        }
+    }
+}
@@ -60,6 +60,7 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
     private final float mTextSize;
 
     private final SimpleExoPlayer mPlayer;
+    private final AdaptiveLoadControl mLoadControl;
     private final ViewGroup mDebugViewGroup;
     private final Activity mContext;
 
@@ -75,10 +76,12 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
     /**
      * @param activity context
      * @param player   The {@link SimpleExoPlayer} from which debug information should be obtained.
+     * @param loadControl The load control of the player (optional).
      * @param resLayoutId The {@link TextView} that should be updated to display the information.
      */
-    public DebugInfoManager(Activity activity, SimpleExoPlayer player, int resLayoutId) {
+    public DebugInfoManager(Activity activity, SimpleExoPlayer player, AdaptiveLoadControl loadControl, int resLayoutId) {
         mPlayer = player;
+        mLoadControl = loadControl;
         mDebugViewGroup = activity.findViewById(resLayoutId);
         mContext = activity;
         mTextSize = activity.getResources().getDimension(R.dimen.debug_text_size);
@@ -205,6 +208,9 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
         appendVersion();
         appendDeviceNameSDKCache();
         appendMemoryInfo();
+        appendBufferInfo();
+        appendBandwidthInfo();
+        appendSegmentCacheInfo();
         appendWebViewInfo();
         appendVideoInfoType();
         appendVideoInfoVersion();
@@ -363,6 +369,41 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
         appendRow("Allocated memory (MB)", (int)(allocatedMemory / (1024 * 1024)));
     }
 
+    private void appendBufferInfo() {
+        if (mLoadControl == null) {
+            return;
+        }
+
+        appendRow("Buffer size/target (MB)", String.format(Locale.ENGLISH, "%d/%d",
+                mLoadControl.getAllocatedBytes() / 1024 / 1024, mLoadControl.getTargetBufferBytes() / 1024 / 1024));
+        appendRow("Buffer max (seconds)", mLoadControl.getMaxBufferMs() / 1_000);
+        appendRow("Buffer allocations/trims", mLoadControl.getAllocationCount() + "/" + mLoadControl.getTrimCount());
+    }
+
+    private void appendBandwidthInfo() {
+        PersistentBandwidthMeter bandwidthMeter = PersistentBandwidthMeter.peekInstance();
+
+        if (bandwidthMeter == null) {
+            return;
+        }
+
+        appendRow("Bandwidth estimate", toHumanReadable((int) Math.min(bandwidthMeter.getBitrateEstimate(), Integer.MAX_VALUE)));
+        appendRow("Bandwidth network/samples", bandwidthMeter.getNetworkKey() + "/" + bandwidthMeter.getSampleCount());
+    }
+
+    private void appendSegmentCacheInfo() {
+        SegmentCacheManager cacheManager = SegmentCacheManager.peekInstance();
+
+        if (cacheManager == null) {
+            return;
+        }
+
+        appendRow("Segment cache hits/misses", cacheManager.getHitCount() + "/" + cacheManager.getMissCount());
+        appendRow("Segment cache saved (MB)", (int)(cacheManager.getBytesSaved() / (1024 * 1024)));
+        appendRow("Segment cache size (MB)", String.format(Locale.ENGLISH, "%d/%d",
+                cacheManager.getCacheSizeBytes() / 1024 / 1024, cacheManager.getMaxSizeBytes() / 1024 / 1024));
+    }
+
     private void appendWebViewInfo() {
         appendRow("Pot supported", MediaServiceData.instance().isPotSupported());
     }
@@ -5,7 +5,6 @@ import android.os.Build;
 import android.os.Handler;
 import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
-import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.ExoPlayerFactory;
 import com.google.android.exoplayer2.SeekParameters;
@@ -31,6 +30,7 @@ public class ExoPlayerInitializer {
     private final int mMaxBufferBytes;
     private final PlayerData mPlayerData;
     private final PlayerTweaksData mPlayerTweaksData;
+    private AdaptiveLoadControl mLoadControl;
     private static AudioAttributes sAudioAttributes;
 
     public ExoPlayerInitializer(Context context) {
@@ -46,13 +46,20 @@ public class ExoPlayerInitializer {
     }
 
     public SimpleExoPlayer createPlayer(Context context, DefaultRenderersFactory renderersFactory, DefaultTrackSelector trackSelector) {
-        DefaultLoadControl loadControl = createLoadControl();
+        AdaptiveLoadControl loadControl = createLoadControl(context);
+        mLoadControl = loadControl;
 
         // HDR fix?
         //trackSelector.setParameters(trackSelector.buildUponParameters().setTunnelingAudioSessionId(C.generateAudioSessionIdV21(context)));
 
         // Old initializer
-        SimpleExoPlayer player = ExoPlayerFactory.newSimpleInstance(context, renderersFactory, trackSelector, loadControl);
+        //SimpleExoPlayer player = ExoPlayerFactory.newSimpleInstance(context, renderersFactory, trackSelector, loadControl);
+
+        // Track selection starts from the throughput measured on this network last time
+        SimpleExoPlayer player = ExoPlayerFactory.newSimpleInstance(
+                context, renderersFactory, trackSelector, loadControl,
+                null, PersistentBandwidthMeter.instance(context)
+        );
 
         // New initializer
         //SimpleExoPlayer player = ExoPlayerFactory.newSimpleInstance(
@@ -89,55 +96,24 @@ public class ExoPlayerInitializer {
     }
 
     /**
-     * Increase player's min/max buffer size to 60 secs
+     * Buffer durations are picked by the buffer type and fitted into the available memory on every track selection.
      * @return load control
      */
-    private DefaultLoadControl createLoadControl() {
-        DefaultLoadControl.Builder baseBuilder = new DefaultLoadControl.Builder();
-
+    private AdaptiveLoadControl createLoadControl(Context context) {
         // Default values
         //DefaultLoadControl.DEFAULT_MIN_BUFFER_MS // 15_000
         //DefaultLoadControl.DEFAULT_MAX_BUFFER_MS // 50_000
         //DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS // 2_500
         //DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS // 5_000
 
-        // Default values
-        int minBufferMs = 30_000;
-        int maxBufferMs = 30_000;
-        int bufferForPlaybackMs = 2_500;
-        int bufferForPlaybackAfterRebufferMs = 5_000;
-
-        switch (mPlayerData.getVideoBufferType()) {
-            case PlayerData.BUFFER_HIGHEST:
-                minBufferMs = 50_000;
-                maxBufferMs = 100_000;
-                // Infinite buffer works awfully on live streams. Constant stuttering.
-                //maxBufferMs = 36_000_000; // technical infinity, recommended here a very high number, the max will be based on setTargetBufferBytes() value
-                baseBuilder
-                        .setTargetBufferBytes(mMaxBufferBytes);
-                baseBuilder.setBackBuffer(minBufferMs, true);
-                break;
-            case PlayerData.BUFFER_HIGH:
-                minBufferMs = 50_000;
-                maxBufferMs = 50_000;
-                baseBuilder.setBackBuffer(minBufferMs, true);
-                break;
-            case PlayerData.BUFFER_MEDIUM:
-                //minBufferMs = 30_000;
-                //maxBufferMs = 30_000;
-                break;
-            case PlayerData.BUFFER_LOW:
-                minBufferMs = 5_000; // LIVE fix
-                maxBufferMs = 5_000; // LIVE fix
-                //bufferForPlaybackMs = 1_000;
-                //bufferForPlaybackAfterRebufferMs = 1_000;
-                break;
-        }
-
-        baseBuilder
-                .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs);
+        return new AdaptiveLoadControl(context, mMaxBufferBytes);
+    }
 
-        return baseBuilder.createDefaultLoadControl();
+    /**
+     * Load control of the last created player.
+     */
+    public AdaptiveLoadControl getLoadControl() {
+        return mLoadControl;
     }
 
     private void setupVolumeBoost(SimpleExoPlayer player) {
@@ -0,0 +1,323 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.annotation.SuppressLint;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.util.EventDispatcher;
+import com.google.android.exoplayer2.util.SlidingPercentile;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bandwidth meter that remembers the measured throughput of every network (wifi by SSID, ethernet, mobile).<br/>
+ * The last samples of the network are restored at startup, so the first segment is already selected
+ * by the real link capacity instead of the default country based estimate.<br/>
+ * Same sliding median as the {@link DefaultBandwidthMeter}.
+ */
+public class PersistentBandwidthMeter implements BandwidthMeter, TransferListener {
+    private static final String TAG = PersistentBandwidthMeter.class.getSimpleName();
+    private static final String DATA_KEY_PREFIX = "BandwidthHistory_";
+    private static final int SLIDING_WINDOW_MAX_WEIGHT = DefaultBandwidthMeter.DEFAULT_SLIDING_WINDOW_MAX_WEIGHT;
+    private static final int MAX_PERSISTED_SAMPLES = 20;
+    private static final int MIN_SAMPLE_BYTES = 64 * 1024; // small transfers measure latency, not the throughput
+    private static final long PERSIST_DELAY_MS = 10_000;
+    private static final String UNKNOWN_SSID = "<unknown ssid>";
+    @SuppressLint("StaticFieldLeak")
+    private static PersistentBandwidthMeter sInstance;
+    private final Context mContext;
+    private final AppPrefs mAppPrefs;
+    private final long mDefaultEstimate;
+    private final EventDispatcher<EventListener> mEventDispatcher = new EventDispatcher<>();
+    private final SlidingPercentile mSlidingPercentile = new SlidingPercentile(SLIDING_WINDOW_MAX_WEIGHT);
+    // weight, bitrate pairs of the current network
+    private final Deque<float[]> mRecentSamples = new ArrayDeque<>();
+    private final Runnable mPersistState = this::persistState;
+    private final BroadcastReceiver mNetworkReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onNetworkChanged();
+        }
+    };
+    private String mNetworkKey;
+    private int mStreamCount;
+    private long mSampleStartTimeMs;
+    private long mSampleBytesTransferred;
+    private long mBitrateEstimate;
+    private boolean mIsPersistPending;
+
+    private PersistentBandwidthMeter(Context context) {
+        mContext = context.getApplicationContext();
+        mAppPrefs = AppPrefs.instance(mContext);
+        // Country and network type based
+        mDefaultEstimate = new DefaultBandwidthMeter.Builder(mContext).build().getBitrateEstimate();
+
+        onNetworkChanged();
+
+        // The app context outlives the activities. The receiver is removed in unhold().
+        mContext.registerReceiver(mNetworkReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    public static synchronized PersistentBandwidthMeter instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PersistentBandwidthMeter(context);
+        }
+
+        return sInstance;
+    }
+
+    @Nullable
+    public static synchronized PersistentBandwidthMeter peekInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Saves the samples and stops listening to the network changes.
+     */
+    public static synchronized void unhold() {
+        if (sInstance != null) {
+            sInstance.release();
+            sInstance = null;
+        }
+    }
+
+    @Override
+    public synchronized long getBitrateEstimate() {
+        return mBitrateEstimate;
+    }
+
+    public synchronized String getNetworkKey() {
+        return mNetworkKey;
+    }
+
+    public synchronized int getSampleCount() {
+        return mRecentSamples.size();
+    }
+
+    @Nullable
+    @Override
+    public TransferListener getTransferListener() {
+        return this;
+    }
+
+    @Override
+    public void addEventListener(Handler eventHandler, EventListener eventListener) {
+        mEventDispatcher.addListener(eventHandler, eventListener);
+    }
+
+    @Override
+    public void removeEventListener(EventListener eventListener) {
+        mEventDispatcher.removeListener(eventListener);
+    }
+
+    @Override
+    public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        // NOP
+    }
+
+    @Override
+    public synchronized void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        if (!isNetwork) {
+            return;
+        }
+
+        if (mStreamCount == 0) {
+            mSampleStartTimeMs = SystemClock.elapsedRealtime();
+        }
+
+        mStreamCount++;
+    }
+
+    @Override
+    public synchronized void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+        if (!isNetwork) {
+            return;
+        }
+
+        mSampleBytesTransferred += bytesTransferred;
+    }
+
+    @Override
+    public synchronized void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        if (!isNetwork || mStreamCount == 0) {
+            return;
+        }
+
+        mStreamCount--;
+
+        long nowMs = SystemClock.elapsedRealtime();
+        int elapsedMs = (int) (nowMs - mSampleStartTimeMs);
+
+        // Otherwise the bytes are carried forward into the next sample
+        if (elapsedMs > 0 && mSampleBytesTransferred >= MIN_SAMPLE_BYTES) {
+            long sampleBytes = mSampleBytesTransferred;
+            float bitsPerSecond = sampleBytes * 8000f / elapsedMs;
+            addSample((int) Math.sqrt(sampleBytes), bitsPerSecond);
+
+            long estimate = mBitrateEstimate;
+            mEventDispatcher.dispatch(listener -> listener.onBandwidthSample(elapsedMs, sampleBytes, estimate));
+
+            mSampleStartTimeMs = nowMs;
+            mSampleBytesTransferred = 0;
+
+            // Not pushed back by the next samples. Otherwise the continuous playback never persists.
+            if (!mIsPersistPending) {
+                mIsPersistPending = true;
+                Utils.postDelayed(mPersistState, PERSIST_DELAY_MS);
+            }
+        }
+    }
+
+    private void release() {
+        try {
+            mContext.unregisterReceiver(mNetworkReceiver);
+        } catch (IllegalArgumentException e) {
+            // Receiver not registered
+        }
+
+        Utils.removeCallbacks(mPersistState);
+        persistState();
+    }
+
+    private void addSample(int weight, float bitsPerSecond) {
+        mSlidingPercentile.addSample(weight, bitsPerSecond);
+        mBitrateEstimate = (long) mSlidingPercentile.getPercentile(0.5f);
+
+        mRecentSamples.addLast(new float[] {weight, bitsPerSecond});
+        if (mRecentSamples.size() > MAX_PERSISTED_SAMPLES) {
+            mRecentSamples.removeFirst();
+        }
+    }
+
+    private synchronized void onNetworkChanged() {
+        String networkKey = createNetworkKey();
+
+        if (Helpers.equals(networkKey, mNetworkKey)) {
+            return;
+        }
+
+        if (mNetworkKey != null) {
+            Utils.removeCallbacks(mPersistState);
+            persistState();
+        }
+
+        mNetworkKey = networkKey;
+        mSlidingPercentile.reset();
+        mRecentSamples.clear();
+        mBitrateEstimate = mDefaultEstimate;
+
+        restoreState();
+
+        Log.d(TAG, "Network %s, estimate %s, samples %s", mNetworkKey, mBitrateEstimate, mRecentSamples.size());
+    }
+
+    private void restoreState() {
+        if (mNetworkKey == null) {
+            return;
+        }
+
+        String[] split = Helpers.splitData(mAppPrefs.getData(DATA_KEY_PREFIX + mNetworkKey));
+
+        if (split == null) {
+            return;
+        }
+
+        for (int i = 0; i + 1 < split.length; i += 2) {
+            int weight = Helpers.parseInt(split[i]);
+            float bitsPerSecond = Helpers.parseFloat(split[i + 1]);
+
+            if (weight > 0 && bitsPerSecond > 0) {
+                addSample(weight, bitsPerSecond);
+            }
+        }
+    }
+
+    private synchronized void persistState() {
+        mIsPersistPending = false;
+
+        if (mNetworkKey == null || mRecentSamples.isEmpty()) {
+            return;
+        }
+
+        List<Object> values = new ArrayList<>();
+
+        for (float[] sample : mRecentSamples) {
+            values.add((int) sample[0]);
+            values.add((int) sample[1]);
+        }
+
+        mAppPrefs.setData(DATA_KEY_PREFIX + mNetworkKey, Helpers.mergeData(values.toArray()));
+    }
+
+    /**
+     * Null when offline. The SSID is hashed, it's not needed in the prefs as is.
+     */
+    @Nullable
+    @SuppressLint("MissingPermission")
+    private String createNetworkKey() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        if (connectivityManager == null) {
+            return null;
+        }
+
+        NetworkInfo networkInfo;
+
+        try {
+            networkInfo = connectivityManager.getActiveNetworkInfo();
+        } catch (SecurityException e) {
+            return null;
+        }
+
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return null;
+        }
+
+        switch (networkInfo.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+                return "wifi" + getSsidHash();
+            case ConnectivityManager.TYPE_ETHERNET:
+                return "ethernet";
+            default:
+                return "mobile" + networkInfo.getSubtype();
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private String getSsidHash() {
+        try {
+            WifiManager wifiManager = (WifiManager) mContext.getSystemService(Context.WIFI_SERVICE);
+            WifiInfo wifiInfo = wifiManager != null ? wifiManager.getConnectionInfo() : null;
+            String ssid = wifiInfo != null ? wifiInfo.getSSID() : null;
+
+            // Hidden when the location permission isn't granted (Android 8.1 and up)
+            if (ssid == null || UNKNOWN_SSID.equals(ssid)) {
+                return "";
+            }
+
+            return Integer.toHexString(ssid.hashCode());
+        } catch (SecurityException e) {
+            return "";
+        }
+    }
+}
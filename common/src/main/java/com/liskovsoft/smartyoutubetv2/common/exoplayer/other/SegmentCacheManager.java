@@ -0,0 +1,177 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.content.Context;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSink;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSinkFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheUtil;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent on-disk cache of the media segments.<br/>
+ * Segments are keyed by the representation cache key (video id + itag) and the byte range, not by the url that expires.<br/>
+ * NOTE: only one {@link SimpleCache} instance per folder is allowed, so the cache lives as long as the app.<br/>
+ * NOTE: the folder is in the files dir. The cache dir is cleared on exit underneath the opened cache.
+ */
+public class SegmentCacheManager {
+    private static final String TAG = SegmentCacheManager.class.getSimpleName();
+    private static final String CACHE_DIR_NAME = "exo_segments";
+    private static final long MB = 1024 * 1024;
+    private static final long MAX_CACHE_SIZE_BYTES = 512 * MB;
+    private static final long MAX_CACHE_SIZE_LOW_RAM_BYTES = 128 * MB;
+    private static final long MIN_CACHE_SIZE_BYTES = 32 * MB;
+    private static final int FREE_SPACE_DIVIDER = 10; // use no more than 10% of the free space
+    private static SegmentCacheManager sInstance;
+    private final SimpleCache mCache;
+    private final long mMaxSizeBytes;
+    private final AtomicInteger mHitCount = new AtomicInteger();
+    private final AtomicInteger mMissCount = new AtomicInteger();
+    private final AtomicLong mBytesSaved = new AtomicLong();
+    private final TransferListener mHitListener = new TransferCounter(mHitCount);
+    private final TransferListener mMissListener = new TransferCounter(mMissCount);
+    private final CacheDataSource.EventListener mEventListener = new CacheDataSource.EventListener() {
+        @Override
+        public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+            mBytesSaved.addAndGet(cachedBytesRead);
+        }
+
+        @Override
+        public void onCacheIgnored(int reason) {
+            Log.d(TAG, "Cache ignored. Reason: %s", reason);
+        }
+    };
+
+    private SegmentCacheManager(File cacheDir, long maxSizeBytes, Context context) {
+        mMaxSizeBytes = maxSizeBytes;
+        mCache = new SimpleCache(cacheDir, new LeastRecentlyUsedCacheEvictor(maxSizeBytes), new ExoDatabaseProvider(context));
+    }
+
+    /**
+     * Returns null when there's not enough space to hold the cache.
+     */
+    @Nullable
+    public static SegmentCacheManager instance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            File cacheDir = new File(appContext.getFilesDir(), CACHE_DIR_NAME);
+            long maxSizeBytes = getMaxSizeBytes(cacheDir);
+
+            if (maxSizeBytes < MIN_CACHE_SIZE_BYTES) {
+                Log.e(TAG, "Not enough free space to enable the cache");
+                return null;
+            }
+
+            sInstance = new SegmentCacheManager(cacheDir, maxSizeBytes, appContext);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Returns the instance only when it has been created before.
+     */
+    @Nullable
+    public static SegmentCacheManager peekInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Wraps the network factory. Cache errors are not fatal, the data is read from the network in that case.
+     */
+    public DataSource.Factory createDataSourceFactory(DataSource.Factory upstreamFactory) {
+        return new CacheDataSourceFactory(
+                mCache,
+                () -> {
+                    DataSource dataSource = upstreamFactory.createDataSource();
+                    dataSource.addTransferListener(mMissListener);
+                    return dataSource;
+                },
+                new FileDataSourceFactory(mHitListener),
+                new CacheDataSinkFactory(mCache, CacheDataSink.DEFAULT_FRAGMENT_SIZE),
+                CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR,
+                mEventListener);
+    }
+
+    /**
+     * Downloads the range into the cache. Blocks until done. Already cached parts are skipped.
+     */
+    public void prefetch(DataSpec dataSpec, DataSource.Factory upstreamFactory, AtomicBoolean isCanceled)
+            throws IOException, InterruptedException {
+        CacheUtil.cache(dataSpec, mCache, null, upstreamFactory.createDataSource(), null, isCanceled);
+    }
+
+    public int getHitCount() {
+        return mHitCount.get();
+    }
+
+    public int getMissCount() {
+        return mMissCount.get();
+    }
+
+    public long getBytesSaved() {
+        return mBytesSaved.get();
+    }
+
+    public long getCacheSizeBytes() {
+        return mCache.getCacheSpace();
+    }
+
+    public long getMaxSizeBytes() {
+        return mMaxSizeBytes;
+    }
+
+    private static long getMaxSizeBytes(File cacheDir) {
+        long maxSizeBytes = Utils.isEnoughRam() ? MAX_CACHE_SIZE_BYTES : MAX_CACHE_SIZE_LOW_RAM_BYTES;
+        File parentDir = cacheDir.getParentFile();
+        long freeSpaceBytes = parentDir != null ? parentDir.getUsableSpace() : 0;
+
+        return Math.min(maxSizeBytes, freeSpaceBytes / FREE_SPACE_DIVIDER);
+    }
+
+    /**
+     * Counts the opened spans. Cache reads and network reads are counted by separate instances.
+     */
+    private static class TransferCounter implements TransferListener {
+        private final AtomicInteger mCounter;
+
+        public TransferCounter(AtomicInteger counter) {
+            mCounter = counter;
+        }
+
+        @Override
+        public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            // NOP
+        }
+
+        @Override
+        public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            mCounter.incrementAndGet();
+        }
+
+        @Override
+        public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+            // NOP
+        }
+
+        @Override
+        public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            // NOP
+        }
+    }
+}
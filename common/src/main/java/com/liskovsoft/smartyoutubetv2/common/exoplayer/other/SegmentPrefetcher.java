@@ -0,0 +1,210 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser2;
+import com.google.android.exoplayer2.source.dash.manifest.RangedUri;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.source.sabr.manifest.SabrManifest;
+import com.google.android.exoplayer2.source.sabr.manifest.SabrManifestParser;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
+import io.reactivex.disposables.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Downloads the init data and the first seconds of the next video into the segment cache,
+ * so the next media source starts without waiting for the network.<br/>
+ * Only the tracks that the track selector most likely picks are prefetched (same itag or the nearest quality).
+ */
+public class SegmentPrefetcher {
+    private static final String TAG = SegmentPrefetcher.class.getSimpleName();
+    private static final int PREFETCH_DURATION_SEC = 5;
+    private static final long MAX_PREFETCH_BYTES = 8 * 1024 * 1024; // per track
+    private final SegmentCacheManager mCacheManager;
+    private final DataSource.Factory mUpstreamFactory;
+    private Disposable mPrefetchAction;
+    private AtomicBoolean mIsCanceled;
+    private String mVideoId;
+
+    private static class Candidate {
+        public final Format format;
+        public final DataSpec dataSpec;
+
+        public Candidate(Format format, DataSpec dataSpec) {
+            this.format = format;
+            this.dataSpec = dataSpec;
+        }
+    }
+
+    public SegmentPrefetcher(SegmentCacheManager cacheManager, DataSource.Factory upstreamFactory) {
+        mCacheManager = cacheManager;
+        mUpstreamFactory = upstreamFactory;
+    }
+
+    /**
+     * Cancels the previous prefetch. Manifest parsing and the download happen on a background thread.
+     */
+    public void prefetch(MediaItemFormatInfo formatInfo, @Nullable Format videoFormat, @Nullable Format audioFormat) {
+        if (formatInfo == null || formatInfo.isLive() || Helpers.equals(formatInfo.getVideoId(), mVideoId)) {
+            return;
+        }
+
+        cancel();
+
+        mVideoId = formatInfo.getVideoId();
+        AtomicBoolean isCanceled = new AtomicBoolean();
+        mIsCanceled = isCanceled;
+        mPrefetchAction = RxHelper.runAsync(() -> prefetchInt(formatInfo, videoFormat, audioFormat, isCanceled));
+    }
+
+    public void cancel() {
+        if (mIsCanceled != null) {
+            mIsCanceled.set(true);
+            mIsCanceled = null;
+        }
+
+        RxHelper.disposeActions(mPrefetchAction);
+        mVideoId = null;
+    }
+
+    private void prefetchInt(MediaItemFormatInfo formatInfo, Format videoFormat, Format audioFormat, AtomicBoolean isCanceled) {
+        List<Candidate> videos = new ArrayList<>();
+        List<Candidate> audios = new ArrayList<>();
+
+        if (formatInfo.containsDashFormats()) {
+            collectCandidates(new DashManifestParser2().parse(formatInfo), videos, audios);
+        } else if (formatInfo.containsSabrFormats()) {
+            collectCandidates(new SabrManifestParser().parse(formatInfo), videos, audios);
+        }
+
+        prefetch(formatInfo.getVideoId(), selectCandidate(videos, videoFormat), isCanceled);
+        prefetch(formatInfo.getVideoId(), selectCandidate(audios, audioFormat), isCanceled);
+    }
+
+    private void prefetch(String videoId, @Nullable Candidate candidate, AtomicBoolean isCanceled) {
+        if (candidate == null || isCanceled.get()) {
+            return;
+        }
+
+        try {
+            mCacheManager.prefetch(candidate.dataSpec, mUpstreamFactory, isCanceled);
+            Log.d(TAG, "Prefetched format %s of the video %s", candidate.format.id, videoId);
+        } catch (Exception e) {
+            // The player will download the data by itself
+            Log.e(TAG, "Prefetch error: %s", e.getMessage());
+        }
+    }
+
+    private static void collectCandidates(DashManifest manifest, List<Candidate> videos, List<Candidate> audios) {
+        if (manifest.getPeriodCount() == 0) {
+            return;
+        }
+
+        for (AdaptationSet adaptationSet : manifest.getPeriod(0).adaptationSets) {
+            List<Candidate> candidates = getCandidates(adaptationSet.type, videos, audios);
+
+            if (candidates == null) {
+                continue;
+            }
+
+            for (Representation representation : adaptationSet.representations) {
+                RangedUri initUri = representation.getInitializationUri();
+                RangedUri indexUri = representation.getIndexUri();
+
+                if (initUri == null || indexUri == null || representation.getCacheKey() == null) {
+                    continue;
+                }
+
+                long length = getPrefetchLength(initUri.start, indexUri.start + indexUri.length, representation.format);
+                candidates.add(new Candidate(representation.format,
+                        new DataSpec(initUri.resolveUri(representation.baseUrl), initUri.start, length, representation.getCacheKey())));
+            }
+        }
+    }
+
+    private static void collectCandidates(SabrManifest manifest, List<Candidate> videos, List<Candidate> audios) {
+        if (manifest.getPeriodCount() == 0) {
+            return;
+        }
+
+        for (com.google.android.exoplayer2.source.sabr.manifest.AdaptationSet adaptationSet : manifest.getPeriod(0).adaptationSets) {
+            List<Candidate> candidates = getCandidates(adaptationSet.type, videos, audios);
+
+            if (candidates == null) {
+                continue;
+            }
+
+            for (com.google.android.exoplayer2.source.sabr.manifest.Representation representation : adaptationSet.representations) {
+                com.google.android.exoplayer2.source.sabr.manifest.RangedUri initUri = representation.getInitializationUri();
+                com.google.android.exoplayer2.source.sabr.manifest.RangedUri indexUri = representation.getIndexUri();
+
+                if (initUri == null || indexUri == null || representation.getCacheKey() == null) {
+                    continue;
+                }
+
+                long length = getPrefetchLength(initUri.start, indexUri.start + indexUri.length, representation.format);
+                candidates.add(new Candidate(representation.format,
+                        new DataSpec(initUri.resolveUri(representation.baseUrl), initUri.start, length, representation.getCacheKey())));
+            }
+        }
+    }
+
+    @Nullable
+    private static List<Candidate> getCandidates(int trackType, List<Candidate> videos, List<Candidate> audios) {
+        return trackType == C.TRACK_TYPE_VIDEO ? videos : trackType == C.TRACK_TYPE_AUDIO ? audios : null;
+    }
+
+    /**
+     * Init and index data plus the first seconds of the media.
+     */
+    private static long getPrefetchLength(long start, long indexEnd, Format format) {
+        long mediaLength = format.bitrate > 0 ? (long) format.bitrate * PREFETCH_DURATION_SEC / 8 : 0;
+
+        return Math.min(indexEnd - start + mediaLength, MAX_PREFETCH_BYTES);
+    }
+
+    /**
+     * Same format if present. Otherwise the best format that doesn't exceed the current one.
+     */
+    @Nullable
+    private static Candidate selectCandidate(List<Candidate> candidates, @Nullable Format current) {
+        if (current == null) {
+            return null;
+        }
+
+        Candidate result = null;
+
+        for (Candidate candidate : candidates) {
+            Format format = candidate.format;
+
+            if (Helpers.equals(format.id, current.id)) {
+                return candidate;
+            }
+
+            if (!Helpers.equals(format.sampleMimeType, current.sampleMimeType) || getQuality(format) > getQuality(current)) {
+                continue;
+            }
+
+            if (result == null || getQuality(format) > getQuality(result.format)) {
+                result = candidate;
+            }
+        }
+
+        return result;
+    }
+
+    private static int getQuality(Format format) {
+        return format.height != Format.NO_VALUE ? format.height : format.bitrate;
+    }
+}
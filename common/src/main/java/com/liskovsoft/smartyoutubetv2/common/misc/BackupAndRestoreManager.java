@@ -9,8 +9,10 @@ import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.helpers.PermissionHelpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv2.common.R;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService;
 import com.liskovsoft.smartyoutubetv2.common.app.views.ViewManager;
 import com.liskovsoft.smartyoutubetv2.common.prefs.HiddenPrefs;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.BinaryPrefsStore;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
 import java.io.File;
@@ -37,6 +39,8 @@ public class BackupAndRestoreManager implements MotherActivity.OnPermissions {
         mContext = context;
         mDataDirs = new ArrayList<>();
         mDataDirs.add(new File(mContext.getApplicationInfo().dataDir, SHARED_PREFS_SUBDIR));
+        mDataDirs.add(new File(mContext.getFilesDir(), VideoStateService.STORE_DIR_NAME));
+        mDataDirs.add(new File(mContext.getFilesDir(), BinaryPrefsStore.DIR_NAME));
 
         mBackupDirs = new ArrayList<>();
         mBackupDirs.add(new File(FileHelpers.getBackupDir(mContext), BACKUP_DIR_NAME));
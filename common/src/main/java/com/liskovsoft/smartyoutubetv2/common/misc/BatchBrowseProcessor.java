@@ -0,0 +1,164 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.util.Pair;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import com.liskovsoft.smartyoutubetv2.common.misc.BrowseProcessorCache.Entry;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Collects the videos of all rows loaded within a short window and processes them in one go.<br/>
+ * Cached videos are applied at once. Videos that are already being loaded aren't requested twice.
+ */
+abstract class BatchBrowseProcessor implements BrowseProcessor {
+    private static final String TAG = BatchBrowseProcessor.class.getSimpleName();
+    private static final long BATCH_WINDOW_MS = 150;
+    private final OnItemReady mOnItemReady;
+    private final BrowseProcessorCache mCache;
+    // Same video might be present in multiple rows as different objects
+    private final Map<String, List<Video>> mPending = new LinkedHashMap<>();
+    private final Map<String, List<Video>> mInFlight = new HashMap<>();
+    private final List<Disposable> mActions = new ArrayList<>();
+    private final Runnable mFlush = this::flush;
+
+    BatchBrowseProcessor(OnItemReady onItemReady, BrowseProcessorCache cache) {
+        mOnItemReady = onItemReady;
+        mCache = cache;
+    }
+
+    protected abstract boolean isEnabled();
+
+    /**
+     * Emits the processed data of the videos. Missing videos are cached as empty ones.
+     */
+    protected abstract Observable<Pair<String, Entry>> load(List<String> videoIds);
+
+    /**
+     * Returns true when the video has been changed.
+     */
+    protected abstract boolean apply(Video video, Entry entry);
+
+    @Override
+    public void process(VideoGroup videoGroup) {
+        if (!isEnabled() || videoGroup == null || videoGroup.isEmpty()) {
+            return;
+        }
+
+        boolean isScheduled = !mPending.isEmpty();
+
+        for (Video video : videoGroup.getVideos()) {
+            if (video.deArrowProcessed || video.videoId == null) {
+                continue;
+            }
+            video.deArrowProcessed = true;
+
+            Entry entry = mCache.get(video.videoId);
+
+            if (entry != null) {
+                if (apply(video, entry)) {
+                    mOnItemReady.onItemReady(video);
+                }
+                continue;
+            }
+
+            List<Video> inFlight = mInFlight.get(video.videoId);
+
+            if (inFlight != null) {
+                inFlight.add(video);
+                continue;
+            }
+
+            List<Video> pending = mPending.get(video.videoId);
+
+            if (pending == null) {
+                pending = new ArrayList<>();
+                mPending.put(video.videoId, pending);
+            }
+
+            pending.add(video);
+        }
+
+        if (!isScheduled && !mPending.isEmpty()) {
+            Utils.postDelayed(mFlush, BATCH_WINDOW_MS);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        Utils.removeCallbacks(mFlush);
+        RxHelper.disposeActions(mActions);
+        mActions.clear();
+        mPending.clear();
+        mInFlight.clear();
+    }
+
+    private void flush() {
+        if (mPending.isEmpty()) {
+            return;
+        }
+
+        List<String> videoIds = new ArrayList<>(mPending.keySet());
+        mInFlight.putAll(mPending);
+        mPending.clear();
+
+        removeFinishedActions();
+
+        mActions.add(load(videoIds)
+                .subscribe(
+                        result -> onResult(result.first, result.second),
+                        error -> {
+                            Log.d(TAG, "%s: cannot process the videos: %s", getClass().getSimpleName(), error.getMessage());
+                            onFinish(videoIds, false);
+                        },
+                        () -> onFinish(videoIds, true)
+                ));
+    }
+
+    private void onResult(String videoId, Entry entry) {
+        mCache.put(videoId, entry);
+
+        List<Video> videos = mInFlight.remove(videoId);
+
+        if (videos == null) {
+            return;
+        }
+
+        for (Video video : videos) {
+            if (apply(video, entry)) {
+                mOnItemReady.onItemReady(video);
+            }
+        }
+    }
+
+    private void onFinish(List<String> videoIds, boolean isCompleted) {
+        for (String videoId : videoIds) {
+            // Don't request the videos without the data again
+            if (mInFlight.remove(videoId) != null && isCompleted) {
+                mCache.put(videoId, new Entry(null, null));
+            }
+        }
+    }
+
+    private void removeFinishedActions() {
+        Iterator<Disposable> iterator = mActions.iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().isDisposed()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.content.Context;
+import androidx.annotation.Nullable;
+
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of the processed videos (titles and thumbnails), shared between the screens.<br/>
+ * The entries are stored in the files dir and expire after the TTL.
+ */
+final class BrowseProcessorCache {
+    private static final int VERSION = 1;
+    private static final int MAX_SIZE = 3_000;
+    private static final int MAX_SIZE_LOW_RAM = 500;
+    private static final Map<String, BrowseProcessorCache> sInstances = new HashMap<>();
+    private final PersistentLruCache<Entry> mEntries;
+
+    static final class Entry {
+        @Nullable final String title;
+        @Nullable final String thumbnailUrl;
+
+        Entry(@Nullable String title, @Nullable String thumbnailUrl) {
+            this.title = title;
+            this.thumbnailUrl = thumbnailUrl;
+        }
+    }
+
+    private static final class EntrySerializer implements PersistentLruCache.Serializer<Entry> {
+        @Override
+        public void write(DataOutputStream out, Entry entry) throws IOException {
+            writeString(out, entry.title);
+            writeString(out, entry.thumbnailUrl);
+        }
+
+        @Override
+        public Entry read(DataInputStream in) throws IOException {
+            return new Entry(readString(in), readString(in));
+        }
+    }
+
+    private BrowseProcessorCache(File file, long ttlMs) {
+        mEntries = new PersistentLruCache<>(file, VERSION, Utils.isEnoughRam() ? MAX_SIZE : MAX_SIZE_LOW_RAM, ttlMs, new EntrySerializer());
+    }
+
+    static BrowseProcessorCache instance(Context context, String name, long ttlMs) {
+        BrowseProcessorCache cache = sInstances.get(name);
+
+        if (cache == null) {
+            cache = new BrowseProcessorCache(new File(context.getApplicationContext().getFilesDir(), name + ".bin"), ttlMs);
+            sInstances.put(name, cache);
+        }
+
+        return cache;
+    }
+
+    @Nullable
+    Entry get(String videoId) {
+        return mEntries.get(videoId);
+    }
+
+    void put(String videoId, Entry entry) {
+        mEntries.put(videoId, entry);
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -2,17 +2,28 @@ package com.liskovsoft.smartyoutubetv2.common.misc;
 
 import android.content.Context;
 
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class BrowseProcessorManager implements BrowseProcessor {
+    private static final long FRAME_MS = 16;
     private final ArrayList<BrowseProcessor> mProcessors;
+    private final OnItemsReady mOnItemsReady;
+    // Ready items are passed to the view once per frame. One update per row.
+    private final Map<VideoGroup, List<Video>> mReadyItems = new LinkedHashMap<>();
+    private final Runnable mSyncItems = this::syncItems;
 
-    public BrowseProcessorManager(Context context, OnItemReady onItemReady) {
+    public BrowseProcessorManager(Context context, OnItemsReady onItemsReady) {
+        mOnItemsReady = onItemsReady;
         mProcessors = new ArrayList<>();
-        mProcessors.add(new DeArrowProcessor(context, onItemReady));
-        mProcessors.add(new UnlocalizedTitleProcessor(context, onItemReady));
+        mProcessors.add(new DeArrowProcessor(context, this::onItemReady));
+        mProcessors.add(new UnlocalizedTitleProcessor(context, this::onItemReady));
     }
 
     @Override
@@ -27,5 +38,37 @@ public class BrowseProcessorManager implements BrowseProcessor {
         for (BrowseProcessor processor : mProcessors) {
             processor.dispose();
         }
+
+        Utils.removeCallbacks(mSyncItems);
+        mReadyItems.clear();
+    }
+
+    private void onItemReady(Video video) {
+        if (mReadyItems.isEmpty()) {
+            Utils.postDelayed(mSyncItems, FRAME_MS);
+        }
+
+        VideoGroup group = video.getGroup();
+        List<Video> items = mReadyItems.get(group);
+
+        if (items == null) {
+            items = new ArrayList<>();
+            mReadyItems.put(group, items);
+        }
+
+        items.add(video);
+    }
+
+    private void syncItems() {
+        if (mReadyItems.isEmpty()) {
+            return;
+        }
+
+        List<List<Video>> rows = new ArrayList<>(mReadyItems.values());
+        mReadyItems.clear();
+
+        for (List<Video> items : rows) {
+            mOnItemsReady.onItemsReady(items);
+        }
     }
 }
@@ -0,0 +1,272 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import com.liskovsoft.mediaserviceinterfaces.ContentService;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItem;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.SimpleMediaItem;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Subscriptions feed of the channel group, built from the uploads of every channel.<br/>
+ * Channels are fetched in parallel (bounded), the results are merged by the publish time.<br/>
+ * The first screen is emitted as soon as the fastest channels respond. The whole feed is emitted when all channels are done.
+ * It replaces the first screen, slow channels may have newer videos.<br/>
+ * Uploads of every channel are cached. Fresh entries skip the request, stale ones are used when the request fails.
+ */
+public class ChannelGroupFeedBuilder {
+    private static final String TAG = ChannelGroupFeedBuilder.class.getSimpleName();
+    private static final int MAX_PARALLEL_REQUESTS = 8;
+    private static final long CACHE_TTL_MS = 15 * 60 * 1_000;
+    private static final int MAX_CACHED_CHANNELS = 500;
+    private static final int MAX_CACHED_CHANNELS_LOW_RAM = 100;
+    private static final int MAX_ITEMS_PER_CHANNEL = 30;
+    private static final int MAX_FEED_SIZE = 300;
+    private static final int FIRST_SCREEN_SIZE = 24;
+    private static final long FIRST_SCREEN_TIMEOUT_MS = 1_500;
+    private static ChannelGroupFeedBuilder sInstance;
+    private final LruCache<String, Entry> mCache = new LruCache<>(Utils.isEnoughRam() ? MAX_CACHED_CHANNELS : MAX_CACHED_CHANNELS_LOW_RAM);
+    private final UploadsSource mSource;
+
+    /**
+     * Latest uploads of the channel, newest first.
+     */
+    interface UploadsSource {
+        Observable<List<MediaItem>> getUploadsObserve(String channelId);
+    }
+
+    private static final class Entry {
+        final List<MediaItem> items;
+        final long timestampMs;
+
+        Entry(List<MediaItem> items) {
+            this.items = items;
+            this.timestampMs = SystemClock.elapsedRealtime();
+        }
+
+        boolean isFresh() {
+            return SystemClock.elapsedRealtime() - timestampMs < CACHE_TTL_MS;
+        }
+
+        long getNewestPublishedDate() {
+            return items.isEmpty() ? 0 : items.get(0).getPublishedDate();
+        }
+    }
+
+    private ChannelGroupFeedBuilder() {
+        this(ChannelGroupFeedBuilder::getUploadsObserve);
+    }
+
+    ChannelGroupFeedBuilder(UploadsSource source) {
+        mSource = source;
+    }
+
+    public static ChannelGroupFeedBuilder instance() {
+        if (sInstance == null) {
+            sInstance = new ChannelGroupFeedBuilder();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Emits the first screen, then the whole feed. Every emission replaces the previous one. Called back on the main thread.
+     */
+    public Observable<List<Video>> getFeedObserve(String[] channelIds) {
+        return Observable.<List<Video>>create(emitter -> new FeedTask(channelIds, emitter.serialize()).start())
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    private Observable<List<MediaItem>> fetchUploads(String channelId) {
+        return mSource.getUploadsObserve(channelId)
+                .take(1)
+                .map(items -> {
+                    List<MediaItem> result = new ArrayList<>(items.subList(0, Math.min(items.size(), MAX_ITEMS_PER_CHANNEL)));
+                    mCache.put(channelId, new Entry(result));
+                    return result;
+                })
+                .defaultIfEmpty(Collections.emptyList());
+    }
+
+    private static Observable<List<MediaItem>> getUploadsObserve(String channelId) {
+        Video channel = new Video();
+        channel.channelId = channelId;
+
+        return getContentService().getGroupObserve(SimpleMediaItem.from(channel))
+                .map(group -> group.getMediaItems() != null ? group.getMediaItems() : Collections.<MediaItem>emptyList());
+    }
+
+    private static ContentService getContentService() {
+        return YouTubeServiceManager.instance().getContentService();
+    }
+
+    /**
+     * Newest first. Unknown publish time goes last.
+     */
+    private static List<MediaItem> merge(List<List<MediaItem>> channels, int maxSize) {
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(channels.size(), 1), (c1, c2) -> Long.compare(
+                channels.get(c2[0]).get(c2[1]).getPublishedDate(), channels.get(c1[0]).get(c1[1]).getPublishedDate()));
+
+        for (int i = 0; i < channels.size(); i++) {
+            if (!channels.get(i).isEmpty()) {
+                cursors.add(new int[] {i, 0}); // channel, position
+            }
+        }
+
+        List<MediaItem> result = new ArrayList<>();
+        Set<String> videoIds = new HashSet<>();
+
+        while (!cursors.isEmpty() && result.size() < maxSize) {
+            int[] cursor = cursors.poll();
+            List<MediaItem> items = channels.get(cursor[0]);
+            MediaItem item = items.get(cursor[1]);
+
+            // Same video may be uploaded by multiple channels (collaborations)
+            if (item.getVideoId() == null || videoIds.add(item.getVideoId())) {
+                result.add(item);
+            }
+
+            if (++cursor[1] < items.size()) {
+                cursors.add(cursor);
+            }
+        }
+
+        return result;
+    }
+
+    private final class FeedTask {
+        private final String[] mChannelIds;
+        private final ObservableEmitter<List<Video>> mEmitter;
+        private final List<List<MediaItem>> mLoaded = new ArrayList<>();
+        private final CompositeDisposable mActions = new CompositeDisposable();
+        private final long mStartMs = SystemClock.elapsedRealtime();
+        private int mPendingCount;
+        private boolean mFirstScreenTimeout;
+        private boolean mFirstScreenEmitted;
+
+        FeedTask(String[] channelIds, ObservableEmitter<List<Video>> emitter) {
+            mChannelIds = channelIds != null ? channelIds : new String[0];
+            mEmitter = emitter;
+            mEmitter.setDisposable(mActions);
+        }
+
+        void start() {
+            List<String> pending = new ArrayList<>();
+
+            for (String channelId : mChannelIds) {
+                Entry entry = mCache.get(channelId);
+
+                if (entry != null && entry.isFresh()) {
+                    mLoaded.add(entry.items);
+                } else {
+                    pending.add(channelId);
+                }
+            }
+
+            // Channels that uploaded recently are likely at the top of the feed. Ask them first.
+            Collections.sort(pending, (id1, id2) -> Long.compare(getNewestPublishedDate(id2), getNewestPublishedDate(id1)));
+
+            synchronized (this) {
+                mPendingCount = pending.size();
+            }
+
+            if (pending.isEmpty()) {
+                finish();
+                return;
+            }
+
+            mActions.add(Observable.timer(FIRST_SCREEN_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    .subscribe(time -> onTimeout(), error -> { /* NOP */ }));
+
+            mActions.add(Observable.fromIterable(pending)
+                    .flatMap(channelId -> fetchUploads(channelId)
+                            .subscribeOn(Schedulers.io())
+                            .onErrorReturn(error -> {
+                                Log.e(TAG, "Can't load channel %s: %s", channelId, error.getMessage());
+                                Entry entry = mCache.get(channelId);
+                                return entry != null ? entry.items : Collections.emptyList();
+                            }), MAX_PARALLEL_REQUESTS)
+                    .subscribe(this::onChannelLoaded, mEmitter::tryOnError));
+        }
+
+        private long getNewestPublishedDate(String channelId) {
+            Entry entry = mCache.get(channelId);
+            return entry != null ? entry.getNewestPublishedDate() : 0;
+        }
+
+        private synchronized void onChannelLoaded(List<MediaItem> items) {
+            mLoaded.add(items);
+            mPendingCount--;
+
+            if (mPendingCount == 0) {
+                finish();
+            } else if (mFirstScreenTimeout) {
+                emitFirstScreen();
+            }
+        }
+
+        private synchronized void onTimeout() {
+            mFirstScreenTimeout = true;
+
+            if (mPendingCount > 0) {
+                emitFirstScreen();
+            }
+        }
+
+        private void emitFirstScreen() {
+            if (mFirstScreenEmitted) {
+                return;
+            }
+
+            List<MediaItem> firstScreen = merge(mLoaded, FIRST_SCREEN_SIZE);
+
+            // Too few items. Wait for the next channels.
+            if (firstScreen.size() < FIRST_SCREEN_SIZE) {
+                return;
+            }
+
+            mFirstScreenEmitted = true;
+            emit(firstScreen);
+            Log.d(TAG, "First screen: %s ms, %s channels pending", SystemClock.elapsedRealtime() - mStartMs, mPendingCount);
+        }
+
+        private synchronized void finish() {
+            emit(merge(mLoaded, MAX_FEED_SIZE));
+            Log.d(TAG, "Feed of %s channels: %s ms", mChannelIds.length, SystemClock.elapsedRealtime() - mStartMs);
+            mEmitter.onComplete();
+        }
+
+        private void emit(List<MediaItem> items) {
+            List<Video> result = new ArrayList<>();
+
+            for (MediaItem item : items) {
+                result.add(Video.from(item));
+            }
+
+            mEmitter.onNext(result);
+        }
+    }
+}
@@ -1,33 +1,33 @@
 package com.liskovsoft.smartyoutubetv2.common.misc;
 
 import android.content.Context;
+import android.util.Pair;
 
 import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
-import com.liskovsoft.sharedutils.mylogger.Log;
-import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
-import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import com.liskovsoft.smartyoutubetv2.common.misc.BrowseProcessorCache.Entry;
 import com.liskovsoft.smartyoutubetv2.common.prefs.DeArrowData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataChangeBase.OnDataChange;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import io.reactivex.disposables.Disposable;
+import io.reactivex.Observable;
 
-public class DeArrowProcessor implements OnDataChange, BrowseProcessor {
+public class DeArrowProcessor extends BatchBrowseProcessor implements OnDataChange {
     private static final String TAG = DeArrowProcessor.class.getSimpleName();
-    private final OnItemReady mOnItemReady;
+    private static final String CACHE_NAME = "dearrow_cache";
+    private static final long CACHE_TTL_MS = 24 * 60 * 60 * 1_000;
+    private static final int BATCH_SIZE = 20;
+    private static final int MAX_CONCURRENCY = 2;
     private final MediaItemService mItemService;
     private final DeArrowData mDeArrowData;
     private boolean mIsReplaceTitlesEnabled;
     private boolean mIsReplaceThumbnailsEnabled;
-    private Disposable mResult;
 
     public DeArrowProcessor(Context context, OnItemReady onItemReady) {
-        mOnItemReady = onItemReady;
+        super(onItemReady, BrowseProcessorCache.instance(context, CACHE_NAME, CACHE_TTL_MS));
         ServiceManager service = YouTubeServiceManager.instance();
         mItemService = service.getMediaItemService();
         mDeArrowData = DeArrowData.instance(context);
@@ -46,44 +46,31 @@ public class DeArrowProcessor implements OnDataChange, BrowseProcessor {
     }
 
     @Override
-    public void process(VideoGroup videoGroup) {
-        if ((!mIsReplaceTitlesEnabled && !mIsReplaceThumbnailsEnabled) || videoGroup == null || videoGroup.isEmpty()) {
-            return;
-        }
-
-        List<String> videoIds = getVideoIds(videoGroup);
-        mResult = mItemService.getDeArrowDataObserve(videoIds)
-                .subscribe(deArrowData -> {
-                    Video video = videoGroup.findVideoById(deArrowData.getVideoId());
-                    if (mIsReplaceTitlesEnabled) {
-                        video.deArrowTitle = deArrowData.getTitle();
-                    }
-                    if (mIsReplaceThumbnailsEnabled) {
-                        video.altCardImageUrl = deArrowData.getThumbnailUrl();
-                    }
-                    mOnItemReady.onItemReady(video);
-                },
-                error -> {
-                    Log.d(TAG, "DeArrow cannot process the video");
-                });
+    protected boolean isEnabled() {
+        return mIsReplaceTitlesEnabled || mIsReplaceThumbnailsEnabled;
     }
 
     @Override
-    public void dispose() {
-        RxHelper.disposeActions(mResult);
+    protected Observable<Pair<String, Entry>> load(List<String> videoIds) {
+        return Observable.range(0, (videoIds.size() + BATCH_SIZE - 1) / BATCH_SIZE)
+                .map(index -> videoIds.subList(index * BATCH_SIZE, Math.min((index + 1) * BATCH_SIZE, videoIds.size())))
+                .flatMap(batch -> mItemService.getDeArrowDataObserve(batch), true, MAX_CONCURRENCY)
+                .map(deArrowData -> new Pair<>(deArrowData.getVideoId(), new Entry(deArrowData.getTitle(), deArrowData.getThumbnailUrl())));
     }
 
-    private List<String> getVideoIds(VideoGroup videoGroup) {
-        List<String> result = new ArrayList<>();
+    @Override
+    protected boolean apply(Video video, Entry entry) {
+        boolean changed = false;
 
-        for (Video video : videoGroup.getVideos()) {
-            if (video.deArrowProcessed) {
-                continue;
-            }
-            video.deArrowProcessed = true;
-            result.add(video.videoId);
+        if (mIsReplaceTitlesEnabled && entry.title != null) {
+            video.deArrowTitle = entry.title;
+            changed = true;
+        }
+        if (mIsReplaceThumbnailsEnabled && entry.thumbnailUrl != null) {
+            video.altCardImageUrl = entry.thumbnailUrl;
+            changed = true;
         }
 
-        return result;
+        return changed;
     }
 }
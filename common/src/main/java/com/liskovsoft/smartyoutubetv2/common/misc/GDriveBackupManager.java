@@ -10,15 +10,21 @@ import com.liskovsoft.googleapi.oauth2.impl.GoogleSignInService;
 import com.liskovsoft.sharedutils.helpers.FileHelpers;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.helpers.MessageHelpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.R;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.GoogleSignInPresenter;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.BinaryPrefsStore;
 import com.liskovsoft.smartyoutubetv2.common.utils.AppDialogUtil;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
 import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -27,6 +33,7 @@ import io.reactivex.functions.Consumer;
 import io.reactivex.schedulers.Schedulers;
 
 public class GDriveBackupManager {
+    private static final String TAG = GDriveBackupManager.class.getSimpleName();
     @SuppressLint("StaticFieldLeak")
     private static GDriveBackupManager sInstance;
     private final Context mContext;
@@ -34,6 +41,8 @@ public class GDriveBackupManager {
     private static final String BACKUP_NAME = "backup.zip";
     private final GoogleSignInService mSignInService;
     private final String mDataDir;
+    private final String mVideoStatesDir;
+    private final String mBinaryPrefsDir;
     private final String mBackupDir;
     private final GeneralData mGeneralData;
     private Disposable mBackupAction;
@@ -45,6 +54,8 @@ public class GDriveBackupManager {
         mContext = context;
         mGeneralData = GeneralData.instance(context);
         mDataDir = String.format("%s/%s", mContext.getApplicationInfo().dataDir, SHARED_PREFS_SUBDIR);
+        mVideoStatesDir = new File(mContext.getFilesDir(), VideoStateService.STORE_DIR_NAME).getAbsolutePath();
+        mBinaryPrefsDir = new File(mContext.getFilesDir(), BinaryPrefsStore.DIR_NAME).getAbsolutePath();
         mBackupDir = String.format("SmartTubeBackup/%s", context.getPackageName());
         mSignInService = GoogleSignInService.instance();
         mBackupNames = new String[] {
@@ -118,7 +129,7 @@ public class GDriveBackupManager {
 
     private void startBackup() {
         String backupDir = getBackupDir();
-        startBackup2(backupDir, mDataDir);
+        startBackup3(backupDir);
     }
 
     private void startBackup(String backupDir, String dataDir) {
@@ -167,15 +178,84 @@ public class GDriveBackupManager {
         }
     }
 
+    /**
+     * Incremental backup. Only the changed files are uploaded.
+     */
+    private void startBackup3(String backupDir) {
+        Observable<Void> backup = createIncrementalBackup(backupDir).backupObserve(getBackupRoots());
+
+        if (mIsBlocking) {
+            try {
+                backup.ignoreElements().blockingAwait();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Backup error: %s", e.getMessage());
+            }
+        } else {
+            MessageHelpers.showLongMessage(mContext, mContext.getString(R.string.app_backup));
+            mBackupAction = backup
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(
+                            unused -> {},
+                            error -> MessageHelpers.showLongMessage(mContext, error.getMessage()),
+                            () -> MessageHelpers.showMessage(mContext, R.string.msg_done)
+                    );
+        }
+    }
+
     private void startRestoreConfirm() {
         AppDialogUtil.showConfirmationDialog(mContext, mContext.getString(R.string.app_restore), this::startRestore);
     }
 
     private void startRestore() {
-        startRestore2(getBackupDir(), mDataDir,
-                () -> startRestore2(getAltBackupDir(), mDataDir,
-                        () -> startRestore(getBackupDir(), mDataDir,
-                                () -> startRestore(getAltBackupDir(), mDataDir, null))));
+        startRestore3(getBackupDir(),
+                () -> startRestore3(getAltBackupDir(),
+                        () -> startRestore2(getBackupDir(), mDataDir,
+                                () -> startRestore2(getAltBackupDir(), mDataDir,
+                                        () -> startRestore(getBackupDir(), mDataDir,
+                                                () -> startRestore(getAltBackupDir(), mDataDir, null))))));
+    }
+
+    /**
+     * Incremental backup. Files are streamed right into the data dirs.
+     */
+    private void startRestore3(String backupDir, Runnable onError) {
+        MessageHelpers.showLongMessage(mContext, mContext.getString(R.string.app_restore));
+        mRestoreAction = createIncrementalBackup(backupDir).restoreObserve(getBackupRoots())
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(count -> {
+                    fixFileNames(new File(mDataDir));
+
+                    Utils.restartTheApp(mContext);
+                }, error -> {
+                    Log.e(TAG, "Restore error: %s", error.getMessage());
+                    if (onError != null)
+                        onError.run();
+                    else MessageHelpers.showLongMessage(mContext, R.string.nothing_found);
+                });
+    }
+
+    private IncrementalBackup createIncrementalBackup(String backupDir) {
+        return new IncrementalBackup(new IncrementalBackup.Storage() {
+            @Override
+            public Observable<Void> upload(File file, String name) {
+                return DriveService.uploadFile(file, Uri.parse(String.format("%s/%s", backupDir, name)));
+            }
+
+            @Override
+            public Observable<InputStream> download(String name) {
+                return DriveService.getFile(Uri.parse(String.format("%s/%s", backupDir, name)));
+            }
+        }, mContext.getCacheDir());
+    }
+
+    private List<IncrementalBackup.Root> getBackupRoots() {
+        return Arrays.asList(
+                new IncrementalBackup.Root(SHARED_PREFS_SUBDIR, new File(mDataDir), mBackupNames),
+                new IncrementalBackup.Root(VideoStateService.STORE_DIR_NAME, new File(mVideoStatesDir), null),
+                new IncrementalBackup.Root(BinaryPrefsStore.DIR_NAME, new File(mBinaryPrefsDir), null)
+        );
     }
 
     private void startRestore(String backupDir, String dataDir, Runnable onError) {
@@ -0,0 +1,454 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.liskovsoft.sharedutils.helpers.FileHelpers;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Backup that uploads only the changed files.<br/>
+ * Every file is stored compressed under the name of its content hash, the manifest maps the paths to the hashes.
+ * Unchanged files are already in the storage, so only the new hashes are compressed (in parallel) and uploaded.
+ * The name of the uploaded file is hashed along with the compression, so a file changed in the meantime doesn't break it.
+ * The manifest is uploaded last, so the interrupted backup leaves the previous one intact.<br/>
+ * Restore streams every file from the storage right next to its target and swaps them when all are downloaded.<br/>
+ * Files of the old manifests aren't removed from the storage. They're small and the next backups likely reuse them.
+ */
+public class IncrementalBackup {
+    private static final String TAG = IncrementalBackup.class.getSimpleName();
+    private static final String MANIFEST_NAME = "manifest.txt";
+    private static final String FILES_DIR_NAME = "files";
+    private static final String MANIFEST_HEADER = "v1";
+    private static final String RESTORE_SUFFIX = ".restore";
+    private static final int MAX_PARALLEL_TASKS = 4;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private final Storage mStorage;
+    private final File mCacheDir;
+
+    /**
+     * Where the backup lives, e.g. Google Drive or the local folder.
+     */
+    public interface Storage {
+        Observable<Void> upload(File file, String name);
+        Observable<InputStream> download(String name);
+    }
+
+    /**
+     * Directory to backup. The name is a prefix of the file paths in the manifest.
+     */
+    public static final class Root {
+        private final String mName;
+        private final File mDir;
+        private final String[] mPatterns;
+
+        /**
+         * @param patterns name endings of the files to backup, null for all files
+         */
+        public Root(String name, File dir, String[] patterns) {
+            mName = name;
+            mDir = dir;
+            mPatterns = patterns;
+        }
+
+        private boolean accept(File file) {
+            return file.isFile() && !file.getName().endsWith(RESTORE_SUFFIX) && (mPatterns == null || Helpers.endsWithAny(file.getName(), mPatterns));
+        }
+    }
+
+    /**
+     * The folder that stands in for the remote storage.
+     */
+    public static final class LocalStorage implements Storage {
+        private final File mDir;
+
+        public LocalStorage(File dir) {
+            mDir = dir;
+        }
+
+        @Override
+        public Observable<Void> upload(File file, String name) {
+            return Observable.create(emitter -> {
+                File target = new File(mDir, name);
+                target.getParentFile().mkdirs();
+                FileHelpers.copy(file, target);
+                emitter.onComplete();
+            });
+        }
+
+        @Override
+        public Observable<InputStream> download(String name) {
+            return Observable.fromCallable(() -> new FileInputStream(new File(mDir, name)));
+        }
+    }
+
+    private static final class Entry {
+        final String hash;
+        final String path;
+
+        Entry(String hash, String path) {
+            this.hash = hash;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Local file and its path in the manifest (backup) or its hash (restore).
+     */
+    private static final class Task {
+        final File file;
+        final String key;
+
+        Task(File file, String key) {
+            this.file = file;
+            this.key = key;
+        }
+    }
+
+    public IncrementalBackup(Storage storage, File cacheDir) {
+        mStorage = storage;
+        mCacheDir = new File(cacheDir, "incremental_backup");
+    }
+
+    public Observable<Void> backupObserve(List<Root> roots) {
+        return Observable.create(emitter -> {
+            backup(roots);
+            emitter.onComplete();
+        });
+    }
+
+    /**
+     * Emits the number of the restored files.
+     */
+    public Observable<Integer> restoreObserve(List<Root> roots) {
+        return Observable.fromCallable(() -> restore(roots));
+    }
+
+    private void backup(List<Root> roots) throws IOException {
+        List<Entry> oldEntries = readRemoteManifest();
+        // Shared by the parallel tasks. Files with the same content are uploaded once.
+        Set<String> uploaded = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        for (Entry entry : oldEntries) {
+            uploaded.add(entry.hash);
+        }
+
+        List<Task> tasks = new ArrayList<>();
+
+        for (Root root : roots) {
+            Collection<File> tree = FileHelpers.listFileTree(root.mDir);
+
+            if (tree == null) {
+                continue;
+            }
+
+            for (File file : tree) {
+                if (root.accept(file)) {
+                    tasks.add(new Task(file, root.mName + "/" + getRelativePath(root.mDir, file)));
+                }
+            }
+        }
+
+        long startMs = System.currentTimeMillis();
+        AtomicInteger uploadedCount = new AtomicInteger();
+
+        // Hash and compress in parallel. The result keeps the order of the files.
+        List<Entry> entries = Observable.fromIterable(tasks)
+                .concatMapEager(task -> Observable.fromCallable(() -> {
+                    String hash = hash(task.file);
+
+                    if (!uploaded.contains(hash)) {
+                        hash = uploadBlob(task.file, uploaded, uploadedCount);
+                    }
+
+                    return new Entry(hash, task.key);
+                }).subscribeOn(Schedulers.io()), MAX_PARALLEL_TASKS, 1)
+                .toList()
+                .blockingGet();
+
+        if (uploadedCount.get() == 0 && sameEntries(oldEntries, entries)) {
+            Log.d(TAG, "Backup is up to date");
+            return;
+        }
+
+        File manifest = new File(mCacheDir, MANIFEST_NAME);
+        writeManifest(manifest, entries);
+        mStorage.upload(manifest, MANIFEST_NAME).ignoreElements().blockingAwait();
+        FileHelpers.delete(mCacheDir);
+
+        Log.d(TAG, "Backup done: %s files, %s uploaded, %s ms", entries.size(), uploadedCount.get(), System.currentTimeMillis() - startMs);
+    }
+
+    private int restore(List<Root> roots) throws IOException {
+        List<Entry> entries;
+
+        try (InputStream in = mStorage.download(MANIFEST_NAME).blockingFirst()) {
+            entries = readManifest(in);
+        }
+
+        List<Task> tasks = new ArrayList<>();
+
+        for (Entry entry : entries) {
+            int separator = entry.path.indexOf('/');
+            Root root = separator != -1 ? findRoot(roots, entry.path.substring(0, separator)) : null;
+
+            if (root == null) {
+                Log.e(TAG, "Unknown path in the manifest: %s", entry.path);
+                continue;
+            }
+
+            File target = getTarget(root, entry.path.substring(separator + 1));
+
+            if (target == null) {
+                Log.e(TAG, "Path is outside of the root: %s", entry.path);
+                continue;
+            }
+
+            tasks.add(new Task(target, entry.hash));
+        }
+
+        try {
+            Observable.fromIterable(tasks)
+                    .flatMap(task -> Observable.fromCallable(() -> {
+                        downloadBlob(task.key, getRestoreFile(task.file));
+                        return task;
+                    }).subscribeOn(Schedulers.io()), MAX_PARALLEL_TASKS)
+                    .ignoreElements()
+                    .blockingAwait();
+        } catch (RuntimeException e) {
+            for (Task task : tasks) {
+                FileHelpers.delete(getRestoreFile(task.file));
+            }
+            throw e;
+        }
+
+        // Everything is downloaded. Replace the old data.
+        for (Root root : roots) {
+            Collection<File> tree = FileHelpers.listFileTree(root.mDir);
+
+            if (tree == null) {
+                continue;
+            }
+
+            for (File file : tree) {
+                if (root.accept(file)) {
+                    FileHelpers.delete(file);
+                }
+            }
+        }
+
+        for (Task task : tasks) {
+            if (!getRestoreFile(task.file).renameTo(task.file)) {
+                Log.e(TAG, "Can't restore %s", task.file);
+            }
+        }
+
+        return tasks.size();
+    }
+
+    /**
+     * The manifest comes from the storage. Its paths shouldn't escape the root (e.g. with "..").
+     */
+    private static File getTarget(Root root, String relativePath) throws IOException {
+        File dir = root.mDir.getCanonicalFile();
+        File target = new File(dir, relativePath).getCanonicalFile();
+
+        return target.getPath().startsWith(dir.getPath() + File.separator) ? target : null;
+    }
+
+    private static File getRestoreFile(File target) {
+        return new File(target.getPath() + RESTORE_SUFFIX);
+    }
+
+    /**
+     * Compresses the file into own temp file. Uploads it when no other task has the same content.<br/>
+     * Returns the hash of the compressed content.
+     */
+    private String uploadBlob(File file, Set<String> uploaded, AtomicInteger uploadedCount) throws IOException {
+        mCacheDir.mkdirs();
+        File blob = File.createTempFile("blob", null, mCacheDir);
+        MessageDigest digest = newDigest();
+
+        try {
+            try (InputStream in = new DigestInputStream(new FileInputStream(file), digest);
+                 OutputStream out = new GZIPOutputStream(new FileOutputStream(blob), BUFFER_SIZE)) {
+                copy(in, out);
+            }
+
+            String hash = toHex(digest.digest());
+
+            if (uploaded.add(hash)) {
+                mStorage.upload(blob, FILES_DIR_NAME + "/" + hash).ignoreElements().blockingAwait();
+                uploadedCount.incrementAndGet();
+            }
+
+            return hash;
+        } finally {
+            FileHelpers.delete(blob);
+        }
+    }
+
+    /**
+     * Checks the content against its hash, so the broken download doesn't replace the data.
+     */
+    private void downloadBlob(String hash, File target) throws IOException {
+        MessageDigest digest = newDigest();
+        target.getParentFile().mkdirs();
+
+        try (InputStream in = new DigestInputStream(new GZIPInputStream(mStorage.download(FILES_DIR_NAME + "/" + hash).blockingFirst(), BUFFER_SIZE), digest);
+             OutputStream out = new FileOutputStream(target)) {
+            copy(in, out);
+        }
+
+        if (!hash.equals(toHex(digest.digest()))) {
+            throw new IOException("Hash mismatch: " + target.getName());
+        }
+    }
+
+    private List<Entry> readRemoteManifest() {
+        try (InputStream in = mStorage.download(MANIFEST_NAME).blockingFirst()) {
+            return readManifest(in);
+        } catch (Exception e) {
+            // First backup
+            Log.d(TAG, "No remote manifest: %s", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Line per file: hash, tab, path.
+     */
+    private static List<Entry> readManifest(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        if (!MANIFEST_HEADER.equals(reader.readLine())) {
+            throw new IOException("Unsupported manifest");
+        }
+
+        List<Entry> result = new ArrayList<>();
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            int separator = line.indexOf('\t');
+
+            if (separator != -1) {
+                result.add(new Entry(line.substring(0, separator), line.substring(separator + 1)));
+            }
+        }
+
+        return result;
+    }
+
+    private void writeManifest(File manifest, List<Entry> entries) throws IOException {
+        mCacheDir.mkdirs();
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifest), StandardCharsets.UTF_8))) {
+            writer.write(MANIFEST_HEADER);
+            writer.newLine();
+
+            for (Entry entry : entries) {
+                writer.write(entry.hash);
+                writer.write('\t');
+                writer.write(entry.path);
+                writer.newLine();
+            }
+        }
+    }
+
+    private static boolean sameEntries(List<Entry> oldEntries, List<Entry> entries) {
+        if (oldEntries.size() != entries.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < entries.size(); i++) {
+            Entry oldEntry = oldEntries.get(i);
+            Entry entry = entries.get(i);
+
+            if (!oldEntry.hash.equals(entry.hash) || !oldEntry.path.equals(entry.path)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Root findRoot(List<Root> roots, String name) {
+        for (Root root : roots) {
+            if (root.mName.equals(name)) {
+                return root;
+            }
+        }
+
+        return null;
+    }
+
+    private static String getRelativePath(File dir, File file) {
+        return dir.toURI().relativize(file.toURI()).getPath();
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest = newDigest();
+
+        try (InputStream in = new DigestInputStream(new FileInputStream(file), digest)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // NOP
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16));
+            result.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return result.toString();
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.os.Looper;
+import android.os.MessageQueue.IdleHandler;
+import android.os.SystemClock;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * App start tasks with the dependencies between them.<br/>
+ * A task runs when its dependencies are done: main thread tasks right away, background tasks on a small pool, in parallel.
+ * Idle tasks aren't needed for the first screen. They wait for the first Browse frame, then run when the main thread is idle.<br/>
+ * Wall time of every task is recorded. The trace could be exported to the file to compare the starts.<br/>
+ * Dependencies should be added before the tasks that depend on them.
+ * A failed main thread task crashes its dependents, as if they were called one after another.
+ */
+public class InitScheduler {
+    private static final String TAG = InitScheduler.class.getSimpleName();
+    private static InitScheduler sInstance;
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    // Player only start (e.g. the link from other app) never shows Browse
+    private static final long IDLE_TIMEOUT_MS = 10_000;
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_DONE = 2;
+    private final long mOriginMs = SystemClock.elapsedRealtime();
+    private final ThreadPoolExecutor mExecutor;
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+    private final ArrayDeque<Task> mIdleTasks = new ArrayDeque<>();
+    private final IdleHandler mIdleHandler = this::runIdleTask;
+    private final Runnable mAllowIdleTasks = this::onFirstFrame;
+    private boolean mIsIdleAllowed;
+    private boolean mIsIdleHandlerAdded;
+    private File mTraceFile;
+    private int mExportedTaskCount;
+
+    private static final class Task {
+        final String name;
+        final boolean isBackground;
+        final boolean isIdle;
+        final Runnable action;
+        final String[] dependencies;
+        int state = STATE_PENDING;
+        long startMs;
+        long durationMs;
+        String threadName;
+        Exception error;
+
+        Task(String name, boolean isBackground, boolean isIdle, Runnable action, String[] dependencies) {
+            this.name = name;
+            this.isBackground = isBackground;
+            this.isIdle = isIdle;
+            this.action = action;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private InitScheduler() {
+        mExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        mExecutor.allowCoreThreadTimeOut(true);
+        Utils.postDelayed(mAllowIdleTasks, IDLE_TIMEOUT_MS);
+    }
+
+    public static synchronized InitScheduler instance() {
+        if (sInstance == null) {
+            sInstance = new InitScheduler();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Needed for the first screen.
+     */
+    public void add(String name, boolean isBackground, Runnable action, String... dependencies) {
+        add(new Task(name, isBackground, false, action, dependencies));
+    }
+
+    /**
+     * Could wait until the first screen is shown.
+     */
+    public void addIdle(String name, boolean isBackground, Runnable action, String... dependencies) {
+        add(new Task(name, isBackground, true, action, dependencies));
+    }
+
+    /**
+     * Idle tasks are allowed from now on.
+     */
+    public void onFirstFrame() {
+        if (mIsIdleAllowed) {
+            return;
+        }
+
+        Log.d(TAG, "First frame after %s ms", SystemClock.elapsedRealtime() - mOriginMs);
+
+        mIsIdleAllowed = true;
+        Utils.removeCallbacks(mAllowIdleTasks);
+        scheduleIdleTasks();
+        maybeExportTrace();
+    }
+
+    /**
+     * One line per task: name, thread, start and wall time (ms from the start of the scheduler).
+     */
+    public String getTrace() {
+        StringBuilder result = new StringBuilder();
+
+        for (Task task : mTasks.values()) {
+            if (task.state != STATE_DONE) {
+                continue;
+            }
+
+            result.append(task.name).append('\t')
+                    .append(task.threadName).append('\t')
+                    .append(task.startMs - mOriginMs).append('\t')
+                    .append(task.durationMs).append('\n');
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * The trace is exported when all the tasks are done, including the idle ones.
+     * Tasks that are added later (e.g. by the lazy components) update the file when they're done.<br/>
+     * Should be called on the main thread.
+     */
+    public void exportTraceWhenIdle(File file) {
+        mTraceFile = file;
+        maybeExportTrace();
+    }
+
+    /**
+     * Should be called on the main thread. The file is written in the background.
+     */
+    public void exportTrace(File file) {
+        String trace = getTrace();
+        Log.d(TAG, "Startup trace:\n%s", trace);
+
+        RxHelper.runAsync(() -> {
+            try (Writer writer = new FileWriter(file)) {
+                writer.write(trace);
+            } catch (IOException e) {
+                Log.e(TAG, "Can't export the trace: %s", e.getMessage());
+            }
+        });
+    }
+
+    private void add(Task task) {
+        // State is changed on the main thread only
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            Utils.sHandler.post(() -> add(task));
+            return;
+        }
+
+        if (mTasks.containsKey(task.name)) {
+            Log.e(TAG, "Task %s is already added", task.name);
+            return;
+        }
+
+        mTasks.put(task.name, task);
+        runIfReady(task);
+    }
+
+    private void runIfReady(Task task) {
+        if (task.state != STATE_PENDING) {
+            return;
+        }
+
+        for (String dependency : task.dependencies) {
+            Task other = mTasks.get(dependency);
+
+            if (other == null) {
+                Log.e(TAG, "Task %s depends on unknown task %s", task.name, dependency);
+            } else if (other.state != STATE_DONE) {
+                return;
+            } else if (other.error != null && !other.isBackground) {
+                throw new IllegalStateException("Task " + task.name + " depends on failed task " + other.name, other.error);
+            }
+        }
+
+        if (task.isIdle) {
+            task.state = STATE_RUNNING;
+            mIdleTasks.add(task);
+            scheduleIdleTasks();
+        } else {
+            run(task);
+        }
+    }
+
+    private void run(Task task) {
+        task.state = STATE_RUNNING;
+
+        if (task.isBackground) {
+            mExecutor.execute(() -> {
+                execute(task);
+                Utils.sHandler.post(() -> onDone(task));
+            });
+        } else {
+            execute(task);
+            onDone(task);
+        }
+    }
+
+    private static void execute(Task task) {
+        task.threadName = Thread.currentThread().getName();
+        task.startMs = SystemClock.elapsedRealtime();
+
+        try {
+            task.action.run();
+        } catch (Exception e) {
+            // The rest of the app shouldn't depend on a single task. The dependents decide.
+            task.error = e;
+            Log.e(TAG, "Task " + task.name + " error", e);
+        }
+
+        task.durationMs = SystemClock.elapsedRealtime() - task.startMs;
+    }
+
+    private void onDone(Task task) {
+        task.state = STATE_DONE;
+
+        Log.d(TAG, "Task %s is done in %s ms", task.name, task.durationMs);
+
+        for (Task other : new ArrayList<>(mTasks.values())) {
+            runIfReady(other);
+        }
+
+        maybeExportTrace();
+    }
+
+    private void maybeExportTrace() {
+        // The idle tasks are added before the first frame
+        if (mTraceFile == null || !mIsIdleAllowed || mExportedTaskCount == mTasks.size()) {
+            return;
+        }
+
+        for (Task task : mTasks.values()) {
+            if (task.state != STATE_DONE) {
+                return;
+            }
+        }
+
+        mExportedTaskCount = mTasks.size();
+        exportTrace(mTraceFile);
+    }
+
+    private void scheduleIdleTasks() {
+        if (!mIsIdleAllowed || mIsIdleHandlerAdded || mIdleTasks.isEmpty()) {
+            return;
+        }
+
+        mIsIdleHandlerAdded = true;
+        Looper.myQueue().addIdleHandler(mIdleHandler);
+    }
+
+    /**
+     * One task per idle call, so the ui isn't blocked by the long chain.
+     */
+    private boolean runIdleTask() {
+        Task task = mIdleTasks.poll();
+
+        if (task != null) {
+            run(task);
+        }
+
+        mIsIdleHandlerAdded = !mIdleTasks.isEmpty();
+
+        return mIsIdleHandlerAdded;
+    }
+}
@@ -0,0 +1,174 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import androidx.annotation.Nullable;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU map with the TTL that survives the restarts. Keep the file out of the cache dir, it's cleared on exit.<br/>
+ * The entries are restored in the background and saved with a delay after the changes.
+ */
+public final class PersistentLruCache<V> {
+    private static final String TAG = PersistentLruCache.class.getSimpleName();
+    private static final long PERSIST_DELAY_MS = 10_000;
+    private final File mFile;
+    private final int mVersion;
+    private final int mMaxSize;
+    private final long mTtlMs;
+    private final Serializer<V> mSerializer;
+    private final LinkedHashMap<String, Entry<V>> mEntries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private final Runnable mPersist = this::persist;
+
+    public interface Serializer<V> {
+        void write(DataOutputStream out, V value) throws IOException;
+        V read(DataInputStream in) throws IOException;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long timestamp;
+
+        Entry(V value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public PersistentLruCache(File file, int version, int maxSize, long ttlMs, Serializer<V> serializer) {
+        mFile = file;
+        mVersion = version;
+        mMaxSize = maxSize;
+        mTtlMs = ttlMs;
+        mSerializer = serializer;
+        RxHelper.runAsync(this::restore);
+    }
+
+    @Nullable
+    public synchronized V get(String key) {
+        Entry<V> entry = mEntries.get(key);
+
+        if (entry != null && isExpired(entry)) {
+            mEntries.remove(key);
+            return null;
+        }
+
+        return entry != null ? entry.value : null;
+    }
+
+    public synchronized void put(String key, V value) {
+        mEntries.put(key, new Entry<>(value, System.currentTimeMillis()));
+        trim();
+        Utils.postDelayed(mPersist, PERSIST_DELAY_MS);
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return System.currentTimeMillis() - entry.timestamp > mTtlMs;
+    }
+
+    private void trim() {
+        Iterator<Entry<V>> iterator = mEntries.values().iterator();
+
+        while (mEntries.size() > mMaxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private void persist() {
+        Map<String, Entry<V>> snapshot;
+
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(mEntries);
+        }
+
+        RxHelper.runAsync(() -> write(snapshot));
+    }
+
+    private void restore() {
+        if (!mFile.exists()) {
+            return;
+        }
+
+        // Least recently used first
+        LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (in.readInt() != mVersion) {
+                return;
+            }
+
+            int size = in.readInt();
+
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                long timestamp = in.readLong();
+                Entry<V> entry = new Entry<>(mSerializer.read(in), timestamp);
+
+                if (!isExpired(entry)) {
+                    entries.put(key, entry);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't read the cache %s: %s", mFile.getName(), e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            // The entries added while reading are newer. They go after the stored ones.
+            Map<String, Entry<V>> added = new LinkedHashMap<>(mEntries);
+            mEntries.clear();
+
+            for (Map.Entry<String, Entry<V>> entry : entries.entrySet()) {
+                if (!added.containsKey(entry.getKey())) {
+                    mEntries.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            mEntries.putAll(added);
+            trim();
+        }
+    }
+
+    /**
+     * Rewrites the file through a temp file, so the old cache survives a failed write.
+     */
+    private void write(Map<String, Entry<V>> entries) {
+        synchronized (mFile) {
+            File tempFile = new File(mFile.getPath() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(mVersion);
+                out.writeInt(entries.size());
+
+                for (Map.Entry<String, Entry<V>> entry : entries.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().timestamp);
+                    mSerializer.write(out, entry.getValue().value);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Can't write the cache %s: %s", mFile.getName(), e.getMessage());
+                tempFile.delete();
+                return;
+            }
+
+            // Rename replaces the old file atomically
+            if (!tempFile.renameTo(mFile)) {
+                Log.e(TAG, "Can't replace the cache %s", mFile.getName());
+            }
+        }
+    }
+}
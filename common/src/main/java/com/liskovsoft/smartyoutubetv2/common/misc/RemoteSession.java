@@ -0,0 +1,242 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.os.SystemClock;
+
+import com.liskovsoft.mediaserviceinterfaces.RemoteControlService;
+import com.liskovsoft.mediaserviceinterfaces.data.Command;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.util.ArrayDeque;
+
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Traffic of the remote (lounge) session.<br/>
+ * Outgoing: the player state and the volume are coalesced, latest wins. One post at a time, at most one per interval.
+ * The interval follows the round trip time of the posts.<br/>
+ * Incoming: the commands are handled one by one on the main thread, in order.
+ * Repeated seeks and absolute volume changes that are still in the queue are replaced by the latest one.<br/>
+ * Outgoing methods should be called on the main thread.
+ */
+public class RemoteSession {
+    private static final String TAG = RemoteSession.class.getSimpleName();
+    private static final long MIN_POST_INTERVAL_MS = 300;
+    private static final long MAX_POST_INTERVAL_MS = 2_000;
+    private final RemoteControlService mService;
+    private final CommandHandler mCommandHandler;
+    private final ArrayDeque<Command> mCommands = new ArrayDeque<>();
+    private final Runnable mFlush = this::flush;
+    private final Runnable mDrain = this::drain;
+    private State mPendingState;
+    private int mPendingVolume = -1;
+    private Disposable mPostAction;
+    private long mLastPostMs;
+    private long mRoundTripMs = -1;
+
+    public interface CommandHandler {
+        void onCommand(Command command);
+    }
+
+    private static final class State {
+        final boolean isStart;
+        final String videoId;
+        long positionMs;
+        long durationMs;
+        boolean isPlaying;
+        long createdMs;
+
+        State(boolean isStart, String videoId, long positionMs, long durationMs, boolean isPlaying) {
+            this.isStart = isStart;
+            this.videoId = videoId;
+            update(positionMs, durationMs, isPlaying);
+        }
+
+        void update(long positionMs, long durationMs, boolean isPlaying) {
+            this.positionMs = positionMs;
+            this.durationMs = durationMs;
+            this.isPlaying = isPlaying;
+            this.createdMs = SystemClock.elapsedRealtime();
+        }
+
+        /**
+         * The post may be delayed. Playing video moved forward meanwhile.
+         */
+        long getActualPositionMs() {
+            if (!isPlaying || positionMs < 0) {
+                return positionMs;
+            }
+
+            long actualPositionMs = positionMs + SystemClock.elapsedRealtime() - createdMs;
+
+            return durationMs > 0 ? Math.min(actualPositionMs, durationMs) : actualPositionMs;
+        }
+    }
+
+    public RemoteSession(RemoteControlService service, CommandHandler commandHandler) {
+        mService = service;
+        mCommandHandler = commandHandler;
+    }
+
+    public void postStartPlaying(String videoId, long positionMs, long durationMs, boolean isPlaying) {
+        mPendingState = new State(true, videoId, positionMs, durationMs, isPlaying);
+        flush();
+    }
+
+    public void postState(long positionMs, long durationMs, boolean isPlaying) {
+        if (mPendingState != null && mPendingState.isStart) {
+            // Keep the video, the remote doesn't know it yet
+            mPendingState.update(positionMs, durationMs, isPlaying);
+        } else {
+            mPendingState = new State(false, null, positionMs, durationMs, isPlaying);
+        }
+
+        flush();
+    }
+
+    public void postVolume(int volume) {
+        mPendingVolume = volume;
+        flush();
+    }
+
+    /**
+     * Could be called on any thread.
+     */
+    public void onCommand(Command command) {
+        if (command == null) {
+            return;
+        }
+
+        synchronized (mCommands) {
+            Command last = mCommands.peekLast();
+
+            if (last != null && isReplaceable(last, command)) {
+                mCommands.pollLast();
+            }
+
+            mCommands.add(command);
+        }
+
+        Utils.post(mDrain);
+    }
+
+    /**
+     * Average round trip time of the posts or -1 if there were none.
+     */
+    public long getRoundTripMs() {
+        return mRoundTripMs;
+    }
+
+    /**
+     * Drops everything that isn't sent or handled yet.
+     */
+    public void reset() {
+        RxHelper.disposeActions(mPostAction);
+        Utils.removeCallbacks(mFlush, mDrain);
+        mPostAction = null;
+        mPendingState = null;
+        mPendingVolume = -1;
+
+        synchronized (mCommands) {
+            mCommands.clear();
+        }
+    }
+
+    private void flush() {
+        if (mPendingState == null && mPendingVolume == -1) {
+            return;
+        }
+
+        // The next post is sent when the current one is done
+        if (mPostAction != null && !mPostAction.isDisposed()) {
+            return;
+        }
+
+        long delayMs = mLastPostMs + getPostIntervalMs() - SystemClock.elapsedRealtime();
+
+        if (delayMs > 0) {
+            Utils.postDelayed(mFlush, delayMs);
+            return;
+        }
+
+        Observable<Void> post;
+
+        if (mPendingState != null) {
+            State state = mPendingState;
+            mPendingState = null;
+            post = state.isStart ?
+                    mService.postStartPlayingObserve(state.videoId, state.getActualPositionMs(), state.durationMs, state.isPlaying) :
+                    mService.postStateChangeObserve(state.getActualPositionMs(), state.durationMs, state.isPlaying);
+        } else {
+            int volume = mPendingVolume;
+            mPendingVolume = -1;
+            post = mService.postVolumeChangeObserve(volume);
+        }
+
+        long startMs = SystemClock.elapsedRealtime();
+        mLastPostMs = startMs;
+        mPostAction = RxHelper.execute(post,
+                error -> {
+                    Log.e(TAG, "Post error: %s", error.getMessage());
+                    Utils.sHandler.post(() -> onPostDone(null));
+                },
+                () -> Utils.sHandler.post(() -> onPostDone(SystemClock.elapsedRealtime() - startMs))
+        );
+    }
+
+    private void onPostDone(Long roundTripMs) {
+        mPostAction = null;
+
+        if (roundTripMs != null) {
+            mRoundTripMs = mRoundTripMs == -1 ? roundTripMs : (mRoundTripMs * 3 + roundTripMs) / 4;
+            Log.d(TAG, "Post round trip: %s ms, average: %s ms", roundTripMs, mRoundTripMs);
+        }
+
+        flush();
+    }
+
+    private long getPostIntervalMs() {
+        return Math.max(MIN_POST_INTERVAL_MS, Math.min(mRoundTripMs, MAX_POST_INTERVAL_MS));
+    }
+
+    /**
+     * One command per message, so the ui isn't blocked by the long queue.
+     */
+    private void drain() {
+        Command command;
+        boolean hasMore;
+
+        synchronized (mCommands) {
+            command = mCommands.poll();
+            hasMore = !mCommands.isEmpty();
+        }
+
+        if (hasMore) {
+            Utils.post(mDrain);
+        }
+
+        if (command != null) {
+            mCommandHandler.onCommand(command);
+        }
+    }
+
+    /**
+     * Only the final value matters. Relative volume changes (phone sliders) add up, so they're kept.
+     */
+    private static boolean isReplaceable(Command last, Command command) {
+        if (last.getType() != command.getType()) {
+            return false;
+        }
+
+        switch (command.getType()) {
+            case Command.TYPE_SEEK:
+                return true;
+            case Command.TYPE_VOLUME:
+                return last.getDelta() == -1 && command.getDelta() == -1;
+            default:
+                return false;
+        }
+    }
+}
@@ -6,30 +6,27 @@ import android.util.Pair;
 import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
 import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.sharedutils.helpers.Helpers;
-import com.liskovsoft.sharedutils.mylogger.Log;
-import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
-import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import com.liskovsoft.smartyoutubetv2.common.misc.BrowseProcessorCache.Entry;
 import com.liskovsoft.smartyoutubetv2.common.prefs.MainUIData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataChangeBase.OnDataChange;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import io.reactivex.Observable;
-import io.reactivex.disposables.Disposable;
 
-public class UnlocalizedTitleProcessor implements OnDataChange, BrowseProcessor {
+public class UnlocalizedTitleProcessor extends BatchBrowseProcessor implements OnDataChange {
     private static final String TAG = UnlocalizedTitleProcessor.class.getSimpleName();
-    private final OnItemReady mOnItemReady;
+    private static final String CACHE_NAME = "unlocalized_title_cache";
+    private static final long CACHE_TTL_MS = 7 * 24 * 60 * 60 * 1_000L;
+    private static final int MAX_CONCURRENCY = 4;
     private final MediaItemService mItemService;
     private final MainUIData mMainUIData;
     private boolean mIsUnlocalizedTitlesEnabled;
-    private Disposable mResult;
 
     public UnlocalizedTitleProcessor(Context context, OnItemReady onItemReady) {
-        mOnItemReady = onItemReady;
+        super(onItemReady, BrowseProcessorCache.instance(context, CACHE_NAME, CACHE_TTL_MS));
         ServiceManager service = YouTubeServiceManager.instance();
         mItemService = service.getMediaItemService();
         mMainUIData = MainUIData.instance(context);
@@ -47,44 +44,26 @@ public class UnlocalizedTitleProcessor implements OnDataChange, BrowseProcessor
     }
 
     @Override
-    public void process(VideoGroup videoGroup) {
-        if (!mIsUnlocalizedTitlesEnabled || videoGroup == null || videoGroup.isEmpty()) {
-            return;
-        }
-
-        List<String> videoIds = getVideoIds(videoGroup);
-        mResult = Observable.fromIterable(videoIds)
-                .flatMap(videoId -> mItemService.getUnlocalizedTitleObserve(videoId)
-                        .map(newTitle -> new Pair<>(videoId, newTitle)))
-                .subscribe(title -> {
-                    Video video = videoGroup.findVideoById(title.first);
-                    if (video == null || Helpers.equals(video.title, title.second)) {
-                        return;
-                    }
-                    video.deArrowTitle = title.second;
-                    mOnItemReady.onItemReady(video);
-                },
-                error -> {
-                    Log.d(TAG, "Unlocalized title: Cannot process the video");
-                });
+    protected boolean isEnabled() {
+        return mIsUnlocalizedTitlesEnabled;
     }
 
     @Override
-    public void dispose() {
-        RxHelper.disposeActions(mResult);
+    protected Observable<Pair<String, Entry>> load(List<String> videoIds) {
+        // One request per video. Delay errors, so a single failure doesn't cancel the rest.
+        return Observable.fromIterable(videoIds)
+                .flatMap(videoId -> mItemService.getUnlocalizedTitleObserve(videoId)
+                        .map(newTitle -> new Pair<>(videoId, new Entry(newTitle, null))), true, MAX_CONCURRENCY);
     }
 
-    private List<String> getVideoIds(VideoGroup videoGroup) {
-        List<String> result = new ArrayList<>();
-
-        for (Video video : videoGroup.getVideos()) {
-            if (video.deArrowProcessed) {
-                continue;
-            }
-            video.deArrowProcessed = true;
-            result.add(video.videoId);
+    @Override
+    protected boolean apply(Video video, Entry entry) {
+        if (entry.title == null || Helpers.equals(video.title, entry.title)) {
+            return false;
         }
 
-        return result;
+        video.deArrowTitle = entry.title;
+
+        return true;
     }
 }
@@ -91,6 +91,13 @@ public class AppPrefs extends SharedPreferencesBase implements AccountChangeList
         setData(getProfileKey(STATE_UPDATER_DATA, true), data);
     }
 
+    /**
+     * Profile specific name of the history storage
+     */
+    public String getStateUpdaterDataKey() {
+        return getProfileKey(STATE_UPDATER_DATA, true);
+    }
+
     public String getChannelGroupData() {
         // Always use multiple profiles
         return getData(getProfileKey(CHANNEL_GROUP_DATA, true));
@@ -0,0 +1,252 @@
+package com.liskovsoft.smartyoutubetv2.common.prefs.common;
+
+import android.content.Context;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Typed values addressed by the slot index. Stored in a small file, one file per namespace.<br/>
+ * The file is read with a single call on the start, nothing is parsed. Values are read by the slot offset.
+ * Flush writes only the changed bytes.<br/>
+ * Layout: magic, version, source hash, slot count, then the slots of the fixed size (type byte + long value).
+ */
+public class BinaryPrefsStore {
+    private static final String TAG = BinaryPrefsStore.class.getSimpleName();
+    public static final String DIR_NAME = "prefs";
+    private static final int MAGIC = 0x53505246; // SPRF
+    private static final int VERSION = 2;
+    private static final int SOURCE_HASH_OFFSET = 8;
+    private static final int SLOT_COUNT_OFFSET = 12;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 9;
+    private static final int SLOT_CAPACITY_STEP = 16;
+    private static final byte TYPE_UNSET = 0;
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_INT = 2;
+    private final File mFile;
+    // Keeps the order of the writes
+    private final Object mFlushLock = new Object();
+    private ByteBuffer mBuffer;
+    private boolean mIsCreated;
+    // Changed bytes that aren't written yet
+    private int mDirtyStart = -1;
+    private int mDirtyEnd = -1;
+
+    private BinaryPrefsStore(File file) {
+        mFile = file;
+        open();
+    }
+
+    /**
+     * @param namespace file name. Profile specific data should include the profile name.
+     */
+    public static BinaryPrefsStore open(Context context, String namespace) {
+        // The dir is created on the first flush
+        return new BinaryPrefsStore(new File(new File(context.getFilesDir(), DIR_NAME), namespace + ".bin"));
+    }
+
+    /**
+     * The file didn't exist (or was broken) and the store is empty. Old data could be migrated.
+     */
+    public boolean isCreated() {
+        return mIsCreated;
+    }
+
+    /**
+     * Hash of the data the values were migrated from. Used to find out that the old data was restored from a backup.
+     */
+    public synchronized int getSourceHash() {
+        return mBuffer.getInt(SOURCE_HASH_OFFSET);
+    }
+
+    public synchronized void setSourceHash(int hash) {
+        mBuffer.putInt(SOURCE_HASH_OFFSET, hash);
+        markDirty(SOURCE_HASH_OFFSET, SOURCE_HASH_OFFSET + 4);
+    }
+
+    /**
+     * Removes all the values.
+     */
+    public synchronized void clear() {
+        Arrays.fill(mBuffer.array(), (byte) 0);
+
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        markDirty(0, mBuffer.capacity());
+    }
+
+    public synchronized boolean contains(int slot) {
+        return getType(slot) != TYPE_UNSET;
+    }
+
+    public synchronized boolean getBoolean(int slot, boolean defaultValue) {
+        byte type = getType(slot);
+
+        if (type != TYPE_BOOLEAN && type != TYPE_INT) {
+            return defaultValue;
+        }
+
+        return mBuffer.getLong(getOffset(slot) + 1) != 0;
+    }
+
+    public synchronized int getInt(int slot, int defaultValue) {
+        byte type = getType(slot);
+
+        if (type != TYPE_BOOLEAN && type != TYPE_INT) {
+            return defaultValue;
+        }
+
+        return (int) mBuffer.getLong(getOffset(slot) + 1);
+    }
+
+    public synchronized void putBoolean(int slot, boolean value) {
+        put(slot, TYPE_BOOLEAN, value ? 1 : 0);
+    }
+
+    public synchronized void putInt(int slot, int value) {
+        put(slot, TYPE_INT, value);
+    }
+
+    /**
+     * Writes the changed bytes to the disk. Could be slow, call on the background thread.
+     */
+    public void flush() {
+        synchronized (mFlushLock) {
+            int start;
+            byte[] data;
+
+            synchronized (this) {
+                if (mDirtyStart == -1) {
+                    return;
+                }
+
+                start = mDirtyStart;
+                data = Arrays.copyOfRange(mBuffer.array(), mDirtyStart, mDirtyEnd);
+                mDirtyStart = -1;
+                mDirtyEnd = -1;
+            }
+
+            File dir = mFile.getParentFile();
+
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                Log.e(TAG, "Can't create the prefs dir");
+            }
+
+            try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+                file.seek(start);
+                file.write(data);
+            } catch (IOException e) {
+                Log.e(TAG, "Can't write %s: %s", mFile.getName(), e.getMessage());
+
+                synchronized (this) {
+                    markDirty(start, start + data.length);
+                }
+            }
+        }
+    }
+
+    private void put(int slot, byte type, long value) {
+        if (slot < 0) {
+            return;
+        }
+
+        if (slot >= getCapacity()) {
+            grow(slot + 1);
+        }
+
+        int offset = getOffset(slot);
+        mBuffer.put(offset, type);
+        mBuffer.putLong(offset + 1, value);
+        markDirty(offset, offset + SLOT_SIZE);
+
+        if (slot >= getSlotCount()) {
+            mBuffer.putInt(SLOT_COUNT_OFFSET, slot + 1);
+            markDirty(SLOT_COUNT_OFFSET, SLOT_COUNT_OFFSET + 4);
+        }
+    }
+
+    private byte getType(int slot) {
+        if (slot < 0 || slot >= getSlotCount()) {
+            return TYPE_UNSET;
+        }
+
+        return mBuffer.get(getOffset(slot));
+    }
+
+    private int getSlotCount() {
+        return mBuffer.getInt(SLOT_COUNT_OFFSET);
+    }
+
+    private int getCapacity() {
+        return (mBuffer.capacity() - HEADER_SIZE) / SLOT_SIZE;
+    }
+
+    private static int getOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * The dirty range is small. The whole file is a few hundred bytes.
+     */
+    private void markDirty(int start, int end) {
+        mDirtyStart = mDirtyStart == -1 ? start : Math.min(mDirtyStart, start);
+        mDirtyEnd = Math.max(mDirtyEnd, end);
+    }
+
+    private void open() {
+        byte[] data = read();
+
+        mBuffer = ByteBuffer.wrap(data != null ? data : new byte[getSize(SLOT_CAPACITY_STEP)]);
+
+        if (data == null || mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION || getSlotCount() < 0 || getSlotCount() > getCapacity()) {
+            clear();
+            mIsCreated = true;
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = (minCapacity + SLOT_CAPACITY_STEP - 1) / SLOT_CAPACITY_STEP * SLOT_CAPACITY_STEP;
+        byte[] data = Arrays.copyOf(mBuffer.array(), getSize(capacity));
+        mBuffer = ByteBuffer.wrap(data);
+        markDirty(0, data.length);
+    }
+
+    /**
+     * Returns null when there's no valid file.
+     */
+    private byte[] read() {
+        long length = mFile.length(); // zero when the file doesn't exist
+
+        if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        byte[] data = new byte[(int) length];
+
+        try (InputStream in = new FileInputStream(mFile)) {
+            int offset = 0;
+            int count;
+
+            while (offset < data.length && (count = in.read(data, offset, data.length - offset)) != -1) {
+                offset += count;
+            }
+
+            return offset == data.length ? data : null;
+        } catch (IOException e) {
+            Log.e(TAG, "Can't read %s: %s", mFile.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static int getSize(int capacity) {
+        return HEADER_SIZE + capacity * SLOT_SIZE;
+    }
+}
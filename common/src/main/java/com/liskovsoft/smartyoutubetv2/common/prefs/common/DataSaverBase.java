@@ -3,27 +3,22 @@ package com.liskovsoft.smartyoutubetv2.common.prefs.common;
 import android.content.Context;
 
 import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
 public abstract class DataSaverBase extends DataChangeBase {
+    private static final String TAG = DataSaverBase.class.getSimpleName();
     private final AppPrefs mAppPrefs;
     private final String mDataKey;
-    private final List<Object> mValues;
+    private final BinaryPrefsStore mStore;
     private final Runnable mPersistStateInt = this::persistStateInt;
 
-    private interface Converter {
-        Object convert(String input);
-    }
-
     public DataSaverBase(Context context) {
         mAppPrefs = AppPrefs.instance(context.getApplicationContext());
         mDataKey = this.getClass().getSimpleName();
-        mValues = new ArrayList<>();
+        mStore = BinaryPrefsStore.open(context.getApplicationContext(), mDataKey);
         restoreState();
     }
 
@@ -32,11 +27,12 @@ public abstract class DataSaverBase extends DataChangeBase {
     }
 
     protected boolean getBoolean(int index, boolean defaultValue) {
-        return getValue(index, defaultValue, Helpers::parseBoolean);
+        return mStore.getBoolean(index, defaultValue);
     }
 
     protected void setBoolean(int index, boolean value) {
-        setValue(index, value);
+        mStore.putBoolean(index, value);
+        persistState();
     }
 
     protected int getInt(int index) {
@@ -44,52 +40,62 @@ public abstract class DataSaverBase extends DataChangeBase {
     }
 
     protected int getInt(int index, int defaultValue) {
-        return getValue(index, defaultValue, Helpers::parseInt);
+        return mStore.getInt(index, defaultValue);
     }
 
     protected void setInt(int index, int value) {
-        setValue(index, value);
+        mStore.putInt(index, value);
+        persistState();
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T getValue(int index, T defaultValue, Converter converter) {
-        if (index >= mValues.size() || mValues.get(index) == null) {
-            return defaultValue;
-        }
+    /**
+     * The old string is kept as is after the migration. Other string means that an old backup has been restored.
+     */
+    private void restoreState() {
+        String data = mAppPrefs.getData(mDataKey);
+        int hash = data != null ? data.hashCode() : 0;
 
-        Object rawValue = mValues.get(index);
-        if (rawValue instanceof String) {
-            Object value = converter.convert((String) rawValue);
-            mValues.set(index, value);
-            return (T) value;
-        } else {
-            return (T) rawValue;
+        if (mStore.isCreated() || (data != null && hash != mStore.getSourceHash())) {
+            mStore.clear();
+            migrateState(data);
+            mStore.setSourceHash(hash);
+            RxHelper.runAsync(mStore::flush);
         }
     }
 
-    private <T> void setValue(int index, T value) {
-        checkCapacity(index);
-        mValues.set(index, value);
-        persistState();
-    }
+    /**
+     * The old data is a delimited string inside the app prefs. Types aren't stored, so they're guessed from the values.<br/>
+     * The string is kept to be able to roll back the app.<br/>
+     * Only booleans and ints could be stored. Other values are skipped and logged, the defaults are used instead.
+     */
+    private void migrateState(String data) {
+        String[] split = Helpers.splitData(data);
 
-    private void checkCapacity(int index) {
-        int size = mValues.size();
-        if (size <= index) { // fill with nulls
-            for (int i = size; i <= index; i++) {
-                mValues.add(null);
-            }
+        if (split == null) {
+            return;
         }
-    }
 
-    private void restoreState() {
-        String data = mAppPrefs.getData(mDataKey);
+        int migrated = 0;
 
-        String[] split = Helpers.splitData(data);
+        for (int i = 0; i < split.length; i++) {
+            String value = split[i];
+
+            if (value == null) {
+                continue;
+            }
 
-        if (split != null) {
-            mValues.addAll(Arrays.asList(split));
+            if ("true".equals(value) || "false".equals(value)) {
+                mStore.putBoolean(i, Helpers.parseBoolean(value));
+                migrated++;
+            } else if (Helpers.isInteger(value)) {
+                mStore.putInt(i, Helpers.parseInt(value));
+                migrated++;
+            } else {
+                Log.e(TAG, "Skip unsupported value of %s at %s: %s", mDataKey, i, value);
+            }
         }
+
+        Log.d(TAG, "Migrated %s of %s values of %s", migrated, split.length, mDataKey);
     }
 
     private void persistState() {
@@ -98,8 +104,7 @@ public abstract class DataSaverBase extends DataChangeBase {
     }
 
     private void persistStateInt() {
-        mAppPrefs.setData(mDataKey, Helpers.mergeData(
-                mValues.toArray()
-        ));
+        // Only the changed slots are written
+        RxHelper.runAsync(mStore::flush);
     }
 }
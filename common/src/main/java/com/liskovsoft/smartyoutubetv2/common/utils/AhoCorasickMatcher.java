@@ -0,0 +1,117 @@
+package com.liskovsoft.smartyoutubetv2.common.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds any of the patterns in the text in one pass (Aho-Corasick automaton).<br/>
+ * Case insensitive. Build once, match many times.
+ */
+public final class AhoCorasickMatcher {
+    private final List<Map<Character, Integer>> mTransitions = new ArrayList<>();
+    private final List<Integer> mFailLinks = new ArrayList<>();
+    private final List<Boolean> mIsTerminal = new ArrayList<>();
+
+    public AhoCorasickMatcher(String... patterns) {
+        addNode();
+
+        for (String pattern : patterns) {
+            if (pattern != null && !pattern.isEmpty()) {
+                addPattern(pattern);
+            }
+        }
+
+        buildFailLinks();
+    }
+
+    /**
+     * Returns true if the text contains at least one of the patterns.
+     */
+    public boolean matches(String text) {
+        if (text == null) {
+            return false;
+        }
+
+        int state = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+
+            Integer next = mTransitions.get(state).get(c);
+
+            while (next == null && state != 0) {
+                state = mFailLinks.get(state);
+                next = mTransitions.get(state).get(c);
+            }
+
+            state = next != null ? next : 0;
+
+            if (mIsTerminal.get(state)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addPattern(String pattern) {
+        int state = 0;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = Character.toLowerCase(pattern.charAt(i));
+            Integer next = mTransitions.get(state).get(c);
+
+            if (next == null) {
+                next = addNode();
+                mTransitions.get(state).put(c, next);
+            }
+
+            state = next;
+        }
+
+        mIsTerminal.set(state, true);
+    }
+
+    private void buildFailLinks() {
+        Queue<Integer> queue = new ArrayDeque<>();
+
+        for (int child : mTransitions.get(0).values()) {
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+
+            for (Map.Entry<Character, Integer> transition : mTransitions.get(state).entrySet()) {
+                char c = transition.getKey();
+                int child = transition.getValue();
+
+                int fail = mFailLinks.get(state);
+                Integer failNext = mTransitions.get(fail).get(c);
+
+                while (failNext == null && fail != 0) {
+                    fail = mFailLinks.get(fail);
+                    failNext = mTransitions.get(fail).get(c);
+                }
+
+                int failLink = failNext != null ? failNext : 0;
+                mFailLinks.set(child, failLink);
+                // A pattern that ends inside the longer one
+                mIsTerminal.set(child, mIsTerminal.get(child) || mIsTerminal.get(failLink));
+
+                queue.add(child);
+            }
+        }
+    }
+
+    private int addNode() {
+        mTransitions.add(new HashMap<>());
+        mFailLinks.add(0);
+        mIsTerminal.add(false);
+        return mTransitions.size() - 1;
+    }
+}
@@ -0,0 +1,184 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.service;
+
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.State;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateStore.Record;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class VideoStateStoreTest {
+    private static final String LEGACY_DELIM = "&si;";
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+
+    @Test
+    public void testJournalReplayKeepsLatestRecords() throws IOException {
+        File file = mTempFolder.newFile("states.bin");
+        VideoStateStore store = new VideoStateStore(file);
+        store.compact(Arrays.asList(createRecord(1, 1_000), createRecord(2, 2_000), createRecord(3, 3_000)));
+
+        store.append(Arrays.asList(createRecord(1, 5_000), Record.remove("video2")));
+        store.append(Arrays.asList(createRecord(4, 4_000)));
+
+        LinkedHashMap<String, Record> records = new VideoStateStore(file).read(10);
+
+        // Updated record moves to the end
+        assertEquals(Arrays.asList("video3", "video1", "video4"), new ArrayList<>(records.keySet()));
+        assertEquals(5_000, records.get("video1").positionMs);
+
+        store.append(Arrays.asList(Record.clear(), createRecord(5, 500)));
+
+        records = new VideoStateStore(file).read(10);
+        assertEquals(Arrays.asList("video5"), new ArrayList<>(records.keySet()));
+    }
+
+    @Test
+    public void testTruncatedRecordIsDropped() throws IOException {
+        File file = mTempFolder.newFile("states.bin");
+        VideoStateStore store = new VideoStateStore(file);
+        store.compact(Arrays.asList(createRecord(1, 1_000), createRecord(2, 2_000)));
+        long length = file.length();
+        store.append(Arrays.asList(createRecord(3, 3_000)));
+
+        // Crash in the middle of the write
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length + 10);
+        }
+
+        VideoStateStore restarted = new VideoStateStore(file);
+        LinkedHashMap<String, Record> records = restarted.read(10);
+
+        assertEquals(Arrays.asList("video1", "video2"), new ArrayList<>(records.keySet()));
+        assertTrue(restarted.isCompactionNeeded(records.size(), 0));
+    }
+
+    @Test
+    public void testEldestRecordsAreEvicted() throws IOException {
+        VideoStateStore store = new VideoStateStore(mTempFolder.newFile("states.bin"));
+        store.compact(createRecords(10));
+
+        LinkedHashMap<String, Record> records = store.read(3);
+
+        assertEquals(Arrays.asList("video7", "video8", "video9"), new ArrayList<>(records.keySet()));
+        assertFalse(store.isCompactionNeeded(records.size(), 1));
+    }
+
+    @Test
+    public void testBenchmarkRestoreAgainstLegacyString() throws IOException {
+        // Warm up
+        restoreLegacy(createLegacyData(300));
+        restoreJournal(createStore(300), 300);
+
+        for (int size : new int[] {300, 5_000, 50_000}) {
+            String legacyData = createLegacyData(size);
+            VideoStateStore store = createStore(size);
+
+            long startNs = System.nanoTime();
+            int legacyCount = restoreLegacy(legacyData);
+            long legacyNs = System.nanoTime() - startNs;
+
+            startNs = System.nanoTime();
+            int journalCount = restoreJournal(store, size);
+            long journalNs = System.nanoTime() - startNs;
+
+            assertEquals(size, legacyCount);
+            assertEquals(size, journalCount);
+            // Both create the same videos. The journal skips splitting of the huge string.
+            assertTrue(String.format("%s states. Journal %s ms, legacy %s ms", size, journalNs / 1_000_000, legacyNs / 1_000_000),
+                    journalNs < legacyNs * 5 / 4);
+        }
+    }
+
+    /**
+     * Same as {@link VideoStateService} does on the profile load
+     */
+    private static int restoreJournal(VideoStateStore store, int maxSize) {
+        int count = 0;
+
+        for (Record record : store.read(maxSize).values()) {
+            if (Video.fromString(record.videoSpec) != null) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Same as {@link VideoStateService} did with the StateUpdaterData string
+     */
+    private static int restoreLegacy(String data) {
+        int count = 0;
+
+        for (String spec : Helpers.split(data, LEGACY_DELIM)) {
+            State state = State.from(spec);
+
+            if (state != null && state.video.videoId != null) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private VideoStateStore createStore(int size) throws IOException {
+        VideoStateStore store = new VideoStateStore(mTempFolder.newFile());
+        store.compact(createRecords(size));
+        return store;
+    }
+
+    private static String createLegacyData(int size) {
+        StringBuilder data = new StringBuilder();
+
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                data.append(LEGACY_DELIM);
+            }
+
+            data.append(new State(createVideo(i), i * 1_000L, 600_000, 1.0f));
+        }
+
+        return data.toString();
+    }
+
+    private static List<Record> createRecords(int size) {
+        List<Record> result = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            result.add(createRecord(i, i * 1_000L));
+        }
+
+        return result;
+    }
+
+    private static Record createRecord(int num, long positionMs) {
+        Video video = createVideo(num);
+        return Record.put(video.videoId, video.toString(), positionMs, 600_000, 1.0f, System.currentTimeMillis());
+    }
+
+    private static Video createVideo(int num) {
+        Video video = new Video();
+        video.videoId = "video" + num;
+        video.title = "Title " + num;
+        video.channelId = "channel" + num % 100;
+        video.cardImageUrl = "https://i.ytimg.com/vi/video" + num + "/hqdefault.jpg";
+        return video;
+    }
+}
@@ -0,0 +1,186 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui;
+
+import com.liskovsoft.mediaserviceinterfaces.data.ChatItem;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ChatReceiverImplTest {
+    private static final int CAPACITY = 50;
+    private static final int FLOOD_SECONDS = 5;
+    private static final long WARM_UP_US = 2_000_000;
+    private ChatReceiverImpl mReceiver;
+    private final List<ChatItem> mReceived = new ArrayList<>();
+    private int mBatchCount;
+
+    @Before
+    public void setUp() {
+        mReceiver = new ChatReceiverImpl();
+        mReceiver.setCallback(chatItems -> {
+            mReceived.addAll(chatItems);
+            mBatchCount++;
+        });
+    }
+
+    @Test
+    public void testItemsAreDeliveredInOrderInOneBatch() {
+        List<ChatItem> items = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            ChatItem item = createItem(i);
+            items.add(item);
+            mReceiver.addChatItem(item);
+        }
+
+        idle(20);
+
+        assertEquals(items, mReceived);
+        assertEquals(1, mBatchCount);
+    }
+
+    @Test
+    public void testOnlyNewestItemsAreKept() {
+        List<ChatItem> items = new ArrayList<>();
+
+        for (int i = 0; i < CAPACITY * 3; i++) {
+            ChatItem item = createItem(i);
+            items.add(item);
+            mReceiver.addChatItem(item);
+        }
+
+        idle(20);
+
+        assertEquals(items.subList(CAPACITY * 2, CAPACITY * 3), mReceived);
+    }
+
+    @Test
+    public void testNothingIsDeliveredAfterCallbackRemoved() {
+        mReceiver.addChatItem(createItem(0));
+        mReceiver.setCallback(null);
+
+        idle(1_000);
+
+        assertTrue(mReceived.isEmpty());
+    }
+
+    /**
+     * The old receiver did a UI update for every message. Now the updates per second are bounded whatever the chat rate.
+     */
+    @Test
+    public void testBenchmarkChatFlood() {
+        // Calm chat: every message is shown right away
+        Flood calm = flood(10);
+        assertEquals(10, calm.updatesPerSecond, 1);
+        assertEquals(10, calm.itemsPerSecond, 1);
+
+        // Busy chat: a few updates per second, every message is shown
+        Flood busy = flood(100);
+        assertTrue(busy.toString(), busy.updatesPerSecond <= 6);
+        assertEquals(100, busy.itemsPerSecond, 5);
+
+        // Flood: two updates per second, no more items than the buffer holds
+        Flood flood = flood(1_000);
+        assertTrue(flood.toString(), flood.updatesPerSecond <= 3);
+        assertTrue(flood.toString(), flood.itemsPerSecond <= CAPACITY * 3);
+    }
+
+    private Flood flood(int messagesPerSecond) {
+        mReceived.clear();
+        mBatchCount = 0;
+        long intervalUs = 1_000_000 / messagesPerSecond;
+        long elapsedUs = 0;
+        int num = 0;
+
+        // The rate is measured first
+        for (long timeUs = 0; timeUs < WARM_UP_US; timeUs += intervalUs) {
+            mReceiver.addChatItem(createItem(num++));
+            elapsedUs = idleUs(elapsedUs, timeUs + intervalUs);
+        }
+
+        mReceived.clear();
+        mBatchCount = 0;
+        long mainThreadNs = 0;
+
+        for (long timeUs = WARM_UP_US; timeUs < WARM_UP_US + FLOOD_SECONDS * 1_000_000L; timeUs += intervalUs) {
+            mReceiver.addChatItem(createItem(num++));
+
+            long startNs = System.nanoTime();
+            elapsedUs = idleUs(elapsedUs, timeUs + intervalUs);
+            mainThreadNs += System.nanoTime() - startNs;
+        }
+
+        idle(1_000);
+
+        return new Flood(messagesPerSecond, (float) mBatchCount / FLOOD_SECONDS, (float) mReceived.size() / FLOOD_SECONDS,
+                mainThreadNs / FLOOD_SECONDS);
+    }
+
+    /**
+     * Runs the main thread up to the time. Returns the new elapsed time.
+     */
+    private static long idleUs(long elapsedUs, long timeUs) {
+        long deltaMs = timeUs / 1_000 - elapsedUs / 1_000;
+
+        if (deltaMs > 0) {
+            ShadowLooper.idleMainLooper(deltaMs, TimeUnit.MILLISECONDS);
+        }
+
+        return timeUs;
+    }
+
+    private static void idle(long timeMs) {
+        ShadowLooper.idleMainLooper(timeMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static ChatItem createItem(int num) {
+        String id = "message" + num;
+
+        return (ChatItem) Proxy.newProxyInstance(ChatItem.class.getClassLoader(), new Class[] {ChatItem.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return id;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return id;
+                    }
+
+                    return method.getReturnType() == long.class ? 0L : method.getReturnType() == int.class ? 0 : null;
+                });
+    }
+
+    private static final class Flood {
+        final int messagesPerSecond;
+        final float updatesPerSecond;
+        final float itemsPerSecond;
+        // Main looper time that includes the receiver and the callback
+        final long mainThreadNsPerSecond;
+
+        Flood(int messagesPerSecond, float updatesPerSecond, float itemsPerSecond, long mainThreadNsPerSecond) {
+            this.messagesPerSecond = messagesPerSecond;
+            this.updatesPerSecond = updatesPerSecond;
+            this.itemsPerSecond = itemsPerSecond;
+            this.mainThreadNsPerSecond = mainThreadNsPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s msgs/s: %s updates/s, %s items/s, main thread %s us/s",
+                    messagesPerSecond, updatesPerSecond, itemsPerSecond, mainThreadNsPerSecond / 1_000);
+        }
+    }
+}
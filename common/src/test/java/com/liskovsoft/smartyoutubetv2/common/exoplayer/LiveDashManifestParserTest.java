@@ -0,0 +1,205 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.source.dash.DashSegmentIndex;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class LiveDashManifestParserTest {
+    private static final Uri MANIFEST_URI = Uri.parse("https://example.com/manifest.mpd");
+    private static final String[] ITAGS = {"137", "136", "135"};
+    private static final long SEGMENT_DURATION_MS = 5_000;
+    // 12 hrs DVR window
+    private static final int WINDOW_SEGMENT_COUNT = 12 * 60 * 60 / 5;
+    private final LiveDashManifestParser mParser = new LiveDashManifestParser();
+
+    @Test
+    public void testRefreshAppendsNewSegments() throws IOException {
+        DashManifest first = parse(createManifest(true, "2020-01-01T00:01:00", 0, 9));
+        Representation representation = getRepresentation(first, 0);
+
+        DashManifest second = parse(createManifest(true, "2020-01-01T00:01:25", 0, 14));
+
+        // Same object is updated
+        assertSame(representation, getRepresentation(second, 0));
+
+        DashSegmentIndex index = representation.getIndex();
+        assertEquals(0, index.getFirstSegmentNum());
+        assertEquals(15, index.getSegmentCount(0));
+        assertSegment(representation, 14, 14);
+    }
+
+    @Test
+    public void testTopLevelAttributesAreRefreshed() throws IOException {
+        DashManifest first = parse(createManifest(true, "2020-01-01T00:01:00", 0, 9));
+        assertTrue(first.dynamic);
+
+        // Stream is ended
+        DashManifest second = parse(createManifest(false, "2020-01-01T00:01:10", 0, 11));
+
+        assertFalse(second.dynamic);
+        assertEquals(60_000, second.durationMs);
+        assertEquals(first.availabilityStartTimeMs + 70_000, second.publishTimeMs);
+        assertSame(getRepresentation(first, 0), getRepresentation(second, 0));
+        assertEquals(12, getRepresentation(second, 0).getIndex().getSegmentCount(0));
+    }
+
+    @Test
+    public void testLaggingRepresentationKeepsItsSegments() throws IOException {
+        DashManifest first = parse(createManifest(true, "2020-01-01T00:01:00", 0, 9, 7));
+        Representation lagging = getRepresentation(first, 1);
+
+        parse(createManifest(true, "2020-01-01T00:01:05", 0, 12, 12));
+
+        DashSegmentIndex index = lagging.getIndex();
+        assertEquals(13, index.getSegmentCount(0));
+
+        for (int segmentNum = 0; segmentNum <= 12; segmentNum++) {
+            assertSegment(lagging, segmentNum, segmentNum);
+        }
+
+        assertSegment(getRepresentation(first, 0), 12, 12);
+    }
+
+    @Test
+    public void testLongStreamIsRebasedAndTrimmed() throws IOException {
+        DashManifest first = parse(createManifest(true, "2020-01-01T12:30:00", 100, 100 + WINDOW_SEGMENT_COUNT - 1));
+        Representation representation = getRepresentation(first, 0);
+
+        // Numbered from zero
+        assertEquals(0, first.getPeriod(0).startMs);
+        assertEquals(0, representation.getIndex().getFirstSegmentNum());
+        assertSegment(representation, 0, 100);
+
+        DashManifest second = parse(createManifest(true, "2020-01-01T12:31:00", 110, 110 + WINDOW_SEGMENT_COUNT - 1));
+
+        // Ten segments are out of the window
+        DashSegmentIndex index = getRepresentation(second, 0).getIndex();
+        assertEquals(10, index.getFirstSegmentNum());
+        assertEquals(WINDOW_SEGMENT_COUNT, index.getSegmentCount(0));
+        assertSegment(representation, 10, 110);
+        assertSegment(representation, WINDOW_SEGMENT_COUNT + 9, 110 + WINDOW_SEGMENT_COUNT - 1);
+    }
+
+    @Test
+    public void testBenchmarkRefreshOf12HoursManifest() throws IOException {
+        int refreshCount = 10;
+        List<byte[]> refreshes = new ArrayList<>();
+
+        for (int i = 0; i <= refreshCount; i++) {
+            refreshes.add(createManifest(true, "2020-01-01T13:00:00", 100 + i, 100 + i + WINDOW_SEGMENT_COUNT - 1,
+                    100 + i + WINDOW_SEGMENT_COUNT - 1, 100 + i + WINDOW_SEGMENT_COUNT - 1));
+        }
+
+        DashManifestParser fullParser = new DashManifestParser();
+
+        // Warm up
+        fullParser.parse(MANIFEST_URI, new ByteArrayInputStream(refreshes.get(0)));
+        DashManifest first = parse(refreshes.get(0));
+
+        long fullNs = 0;
+        long liveNs = 0;
+
+        for (int i = 1; i <= refreshCount; i++) {
+            long startNs = System.nanoTime();
+            fullParser.parse(MANIFEST_URI, new ByteArrayInputStream(refreshes.get(i)));
+            fullNs += System.nanoTime() - startNs;
+
+            startNs = System.nanoTime();
+            parse(refreshes.get(i));
+            liveNs += System.nanoTime() - startNs;
+        }
+
+        for (int i = 0; i < ITAGS.length; i++) {
+            DashSegmentIndex index = getRepresentation(first, i).getIndex();
+            assertEquals(WINDOW_SEGMENT_COUNT, index.getSegmentCount(0));
+            assertEquals(refreshCount, index.getFirstSegmentNum());
+        }
+
+        // Same XML is read by both. The live parser skips the known segments.
+        assertTrue(String.format("Live refresh %s ms, full parse %s ms", liveNs / 1_000_000, fullNs / 1_000_000),
+                liveNs < fullNs * 5 / 4);
+    }
+
+    private DashManifest parse(byte[] manifest) throws IOException {
+        return mParser.parse(MANIFEST_URI, new ByteArrayInputStream(manifest));
+    }
+
+    private static Representation getRepresentation(DashManifest manifest, int index) {
+        return manifest.getPeriod(0).adaptationSets.get(0).representations.get(index);
+    }
+
+    private static void assertSegment(Representation representation, long segmentNum, long streamSegmentNum) {
+        DashSegmentIndex index = representation.getIndex();
+        assertEquals(representation.baseUrl + "sq/" + streamSegmentNum,
+                index.getSegmentUrl(segmentNum).resolveUriString(representation.baseUrl));
+        assertEquals(streamSegmentNum * SEGMENT_DURATION_MS * 1_000, index.getTimeUs(segmentNum));
+    }
+
+    /**
+     * YouTube-like live manifest with the explicit timeline. Each representation has own segments.
+     */
+    private static byte[] createManifest(boolean dynamic, String publishTime, long firstSegmentNum, long... lastSegmentNums) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<MPD xmlns=\"urn:mpeg:DASH:schema:MPD:2011\" type=\"").append(dynamic ? "dynamic" : "static").append("\"")
+                .append(" availabilityStartTime=\"2020-01-01T00:00:00\" publishTime=\"").append(publishTime).append("\"")
+                .append(" timeShiftBufferDepth=\"PT43200.000S\" minimumUpdatePeriod=\"PT5.000S\"");
+
+        if (!dynamic) {
+            builder.append(" mediaPresentationDuration=\"PT").append((lastSegmentNums[0] + 1) * SEGMENT_DURATION_MS / 1_000).append(".000S\"");
+        }
+
+        builder.append(">\n")
+                .append(" <Period start=\"PT").append(firstSegmentNum * SEGMENT_DURATION_MS / 1_000).append(".000S\">\n")
+                .append("  <AdaptationSet id=\"0\" mimeType=\"video/mp4\">\n");
+
+        for (int i = 0; i < lastSegmentNums.length; i++) {
+            builder.append("   <Representation id=\"").append(ITAGS[i]).append("\" codecs=\"avc1.4d401f\" width=\"1280\" height=\"720\" bandwidth=\"2326000\">\n")
+                    .append("    <BaseURL>https://example.com/videoplayback/itag/").append(ITAGS[i]).append("/</BaseURL>\n")
+                    .append("    <SegmentList timescale=\"1000\" startNumber=\"").append(firstSegmentNum).append("\">\n")
+                    .append("     <SegmentTimeline>\n");
+
+            for (long segmentNum = firstSegmentNum; segmentNum <= lastSegmentNums[i]; segmentNum++) {
+                builder.append("      <S ");
+                if (segmentNum == firstSegmentNum) {
+                    builder.append("t=\"").append(segmentNum * SEGMENT_DURATION_MS).append("\" ");
+                }
+                builder.append("d=\"").append(SEGMENT_DURATION_MS).append("\"/>\n");
+            }
+
+            builder.append("     </SegmentTimeline>\n");
+
+            for (long segmentNum = firstSegmentNum; segmentNum <= lastSegmentNums[i]; segmentNum++) {
+                builder.append("     <SegmentURL media=\"sq/").append(segmentNum).append("\"/>\n");
+            }
+
+            builder.append("    </SegmentList>\n")
+                    .append("   </Representation>\n");
+        }
+
+        builder.append("  </AdaptationSet>\n")
+                .append(" </Period>\n")
+                .append("</MPD>\n");
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
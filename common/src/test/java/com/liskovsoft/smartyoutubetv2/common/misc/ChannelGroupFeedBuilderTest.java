@@ -0,0 +1,187 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItem;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ChannelGroupFeedBuilderTest {
+    private static final int CHANNEL_COUNT = 200;
+    private static final int UPLOADS_PER_CHANNEL = 5;
+    private static final long FAST_CHANNEL_DELAY_MS = 10;
+    private static final long SLOW_CHANNEL_DELAY_MS = 3_000;
+    private static final long FIRST_SCREEN_TIMEOUT_MS = 1_500;
+    private TestScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        // Requests, delays and timeouts run on the virtual time
+        mScheduler = new TestScheduler();
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> mScheduler);
+        RxJavaPlugins.setComputationSchedulerHandler(scheduler -> mScheduler);
+    }
+
+    @After
+    public void tearDown() {
+        RxAndroidPlugins.reset();
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void testFirstScreenThenWholeFeedOf200Channels() {
+        ChannelGroupFeedBuilder builder = new ChannelGroupFeedBuilder(ChannelGroupFeedBuilderTest::getUploadsObserve);
+        String[] channelIds = new String[CHANNEL_COUNT];
+
+        for (int i = 0; i < CHANNEL_COUNT; i++) {
+            channelIds[i] = "channel" + i;
+        }
+
+        List<Long> chunkTimesMs = new ArrayList<>();
+
+        TestObserver<List<Video>> observer = builder.getFeedObserve(channelIds)
+                .doOnNext(videos -> chunkTimesMs.add(mScheduler.now(TimeUnit.MILLISECONDS)))
+                .test();
+
+        // Fast channels are loaded. The slow ones get a chance to make it into the first screen.
+        mScheduler.advanceTimeBy(FIRST_SCREEN_TIMEOUT_MS - 1, TimeUnit.MILLISECONDS);
+        observer.assertValueCount(0);
+
+        // The first screen doesn't wait for the slow channels
+        mScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        observer.assertValueCount(1);
+        observer.assertNotComplete();
+
+        mScheduler.advanceTimeBy(SLOW_CHANNEL_DELAY_MS, TimeUnit.MILLISECONDS);
+        observer.assertComplete();
+        observer.assertValueCount(2);
+
+        assertEquals(FIRST_SCREEN_TIMEOUT_MS, (long) chunkTimesMs.get(0));
+        // Slow channels are requested in parallel, the feed waits for one slow request only
+        long feedTimeMs = chunkTimesMs.get(1);
+        assertTrue(chunkTimesMs.toString(), feedTimeMs >= SLOW_CHANNEL_DELAY_MS && feedTimeMs < SLOW_CHANNEL_DELAY_MS + FIRST_SCREEN_TIMEOUT_MS);
+
+        List<Video> firstScreen = observer.values().get(0);
+        assertEquals(24, firstScreen.size());
+
+        for (Video video : firstScreen) {
+            assertTrue(!isSlowChannel(video.mediaItem));
+        }
+
+        // The whole feed is in the publish time order, the newer videos of the slow channels go first
+        List<Video> feed = observer.values().get(1);
+        assertEquals(300, feed.size());
+        assertTrue(isSlowChannel(feed.get(0).mediaItem));
+
+        for (int i = 1; i < feed.size(); i++) {
+            assertTrue(feed.get(i - 1).mediaItem.getPublishedDate() >= feed.get(i).mediaItem.getPublishedDate());
+        }
+    }
+
+    @Test
+    public void testCachedChannelsSkipRequest() {
+        int[] requestCount = new int[1];
+        ChannelGroupFeedBuilder builder = new ChannelGroupFeedBuilder(channelId -> {
+            requestCount[0]++;
+            return Observable.just(createUploads(0));
+        });
+        String[] channelIds = {"channel1"};
+
+        TestObserver<List<Video>> observer = builder.getFeedObserve(channelIds).test();
+        mScheduler.triggerActions();
+        observer.assertComplete();
+
+        observer = builder.getFeedObserve(channelIds).test();
+        mScheduler.triggerActions();
+        observer.assertComplete();
+        observer.assertValue(videos -> videos.size() == UPLOADS_PER_CHANNEL);
+
+        assertEquals(1, requestCount[0]);
+    }
+
+    private static Observable<List<MediaItem>> getUploadsObserve(String channelId) {
+        int index = Integer.parseInt(channelId.substring("channel".length()));
+
+        return Observable.just(createUploads(index))
+                .delay(isSlowChannel(index) ? SLOW_CHANNEL_DELAY_MS : FAST_CHANNEL_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fewer slow channels than parallel requests. Fast channels are never blocked.
+     */
+    private static boolean isSlowChannel(int index) {
+        return index % 40 == 0;
+    }
+
+    private static boolean isSlowChannel(MediaItem item) {
+        return isSlowChannel(Integer.parseInt(item.getChannelId().substring("channel".length())));
+    }
+
+    /**
+     * Newest first. Slow channels uploaded the newest videos.
+     */
+    private static List<MediaItem> createUploads(int channelIndex) {
+        List<MediaItem> result = new ArrayList<>();
+        long newestDate = isSlowChannel(channelIndex) ? 10_000_000 : 1_000_000;
+
+        for (int i = 0; i < UPLOADS_PER_CHANNEL; i++) {
+            result.add(createItem("channel" + channelIndex, "video" + channelIndex + "_" + i, newestDate - i * 1_000L - channelIndex));
+        }
+
+        return result;
+    }
+
+    private static MediaItem createItem(String channelId, String videoId, long publishedDate) {
+        return (MediaItem) Proxy.newProxyInstance(MediaItem.class.getClassLoader(), new Class[] {MediaItem.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getChannelId":
+                    return channelId;
+                case "getVideoId":
+                    return videoId;
+                case "getPublishedDate":
+                    return publishedDate;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return videoId;
+            }
+
+            Class<?> type = method.getReturnType();
+
+            if (type == boolean.class) {
+                return false;
+            } else if (type == int.class) {
+                return 0;
+            } else if (type == long.class) {
+                return 0L;
+            } else if (type == float.class) {
+                return 0f;
+            } else if (type == double.class) {
+                return 0d;
+            }
+
+            return null;
+        });
+    }
+}
@@ -0,0 +1,172 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.Observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class IncrementalBackupTest {
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+    private File mDataDir;
+    private File mStorageDir;
+    private List<String> mUploads;
+    private IncrementalBackup mBackup;
+    private List<IncrementalBackup.Root> mRoots;
+
+    @Before
+    public void setUp() throws IOException {
+        mDataDir = mTempFolder.newFolder("data");
+        mStorageDir = mTempFolder.newFolder("storage");
+        mUploads = new ArrayList<>();
+
+        IncrementalBackup.LocalStorage localStorage = new IncrementalBackup.LocalStorage(mStorageDir);
+
+        // Records the uploads
+        IncrementalBackup.Storage storage = new IncrementalBackup.Storage() {
+            @Override
+            public Observable<Void> upload(File file, String name) {
+                mUploads.add(name);
+                return localStorage.upload(file, name);
+            }
+
+            @Override
+            public Observable<InputStream> download(String name) {
+                return localStorage.download(name);
+            }
+        };
+
+        mBackup = new IncrementalBackup(storage, mTempFolder.newFolder("cache"));
+        mRoots = Collections.singletonList(new IncrementalBackup.Root("data", mDataDir, null));
+    }
+
+    @Test
+    public void testBackupUploadsOnlyChangedFilesThenRestore() throws IOException {
+        write("a.txt", "first");
+        write("b.txt", "second");
+        write("sub/c.txt", "third");
+
+        backup();
+
+        // Three blobs and the manifest
+        assertEquals(4, mUploads.size());
+        assertEquals(3, getBlobCount());
+
+        write("b.txt", "second changed");
+        mUploads.clear();
+
+        backup();
+
+        // The changed blob and the manifest
+        assertEquals(2, mUploads.size());
+        assertTrue(mUploads.get(0).startsWith("files/"));
+        assertEquals("manifest.txt", mUploads.get(1));
+        assertEquals(4, getBlobCount());
+
+        // Nothing is changed. Nothing is uploaded.
+        mUploads.clear();
+        backup();
+        assertEquals(0, mUploads.size());
+
+        // Local changes after the backup
+        write("a.txt", "lost");
+        write("extra.txt", "not in the backup");
+        new File(mDataDir, "sub/c.txt").delete();
+
+        int restored = mBackup.restoreObserve(mRoots).blockingFirst();
+
+        assertEquals(3, restored);
+        assertEquals("first", read("a.txt"));
+        assertEquals("second changed", read("b.txt"));
+        assertEquals("third", read("sub/c.txt"));
+        assertFalse(new File(mDataDir, "extra.txt").exists());
+    }
+
+    @Test
+    public void testSameContentIsUploadedOnce() throws IOException {
+        for (int i = 0; i < 8; i++) {
+            write("copy" + i + ".txt", "same");
+        }
+        write("other.txt", "other");
+
+        backup();
+
+        // Two blobs and the manifest
+        assertEquals(3, mUploads.size());
+        assertEquals(2, getBlobCount());
+        // No temp files left
+        String[] tempFiles = new File(mTempFolder.getRoot(), "cache/incremental_backup").list();
+        assertTrue(tempFiles == null || tempFiles.length == 0);
+
+        for (int i = 0; i < 8; i++) {
+            write("copy" + i + ".txt", "changed");
+        }
+
+        int restored = mBackup.restoreObserve(mRoots).blockingFirst();
+
+        assertEquals(9, restored);
+        assertEquals("same", read("copy7.txt"));
+        assertEquals("other", read("other.txt"));
+    }
+
+    @Test
+    public void testRestoreSkipsPathsOutsideOfRoot() throws IOException {
+        write("a.txt", "first");
+        backup();
+
+        File manifest = new File(mStorageDir, "manifest.txt");
+        String content = new String(Files.readAllBytes(manifest.toPath()), StandardCharsets.UTF_8);
+        String hash = content.split("\n")[1].split("\t")[0];
+        writeFile(manifest, content + hash + "\tdata/../evil.txt\n");
+
+        int restored = mBackup.restoreObserve(mRoots).blockingFirst();
+
+        assertEquals(1, restored);
+        assertFalse(new File(mTempFolder.getRoot(), "evil.txt").exists());
+    }
+
+    private void backup() {
+        mBackup.backupObserve(mRoots).blockingSubscribe();
+    }
+
+    private int getBlobCount() {
+        String[] blobs = new File(mStorageDir, "files").list();
+        return blobs != null ? blobs.length : 0;
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(mDataDir, path);
+        file.getParentFile().mkdirs();
+        writeFile(file, content);
+    }
+
+    private String read(String path) throws IOException {
+        return new String(Files.readAllBytes(new File(mDataDir, path).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.liskovsoft.mediaserviceinterfaces.RemoteControlService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class RemoteSessionTest {
+    private final List<String> mPosts = new ArrayList<>();
+    // Responses of the next posts. Completed right away when empty.
+    private final Deque<Observable<Void>> mResponses = new ArrayDeque<>();
+    private RemoteSession mSession;
+
+    @Before
+    public void setUp() {
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+        mSession = new RemoteSession(createService(), command -> {});
+    }
+
+    @After
+    public void tearDown() {
+        RxAndroidPlugins.reset();
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void testPostsResumeAfterError() {
+        mResponses.add(Observable.error(new IOException("Connection lost")));
+
+        mSession.postState(1_000, 60_000, false);
+        idle();
+
+        mSession.postState(2_000, 60_000, false);
+        idle();
+
+        assertEquals(Arrays.asList("state 1000", "state 2000"), mPosts);
+        // The failed post isn't counted
+        assertTrue(mSession.getRoundTripMs() >= 0);
+    }
+
+    @Test
+    public void testStatesAreCoalescedWhilePostIsRunning() {
+        PublishSubject<Void> response = PublishSubject.create();
+        mResponses.add(response);
+
+        mSession.postStartPlaying("video1", 0, 60_000, false);
+        idle();
+
+        mSession.postState(1_000, 60_000, false);
+        mSession.postState(2_000, 60_000, false);
+        mSession.postVolume(50);
+        mSession.postState(3_000, 60_000, false);
+        idle();
+
+        assertEquals(Arrays.asList("start video1 0"), mPosts);
+
+        response.onComplete();
+        idle();
+
+        // Latest state wins. The volume goes after it.
+        assertEquals(Arrays.asList("start video1 0", "state 3000", "volume 50"), mPosts);
+    }
+
+    @Test
+    public void testResetDropsPendingPostsAndSessionIsReused() {
+        PublishSubject<Void> response = PublishSubject.create();
+        mResponses.add(response);
+
+        mSession.postState(1_000, 60_000, false);
+        idle();
+        mSession.postState(2_000, 60_000, false);
+
+        // Disconnect
+        mSession.reset();
+        idle();
+
+        assertFalse(response.hasObservers());
+        assertEquals(Arrays.asList("state 1000"), mPosts);
+
+        // Reconnect
+        mSession.postStartPlaying("video2", 5_000, 60_000, false);
+        idle();
+        mSession.postState(6_000, 60_000, false);
+        idle();
+
+        assertEquals(Arrays.asList("state 1000", "start video2 5000", "state 6000"), mPosts);
+    }
+
+    private static void idle() {
+        ShadowLooper.idleMainLooper(5, TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RemoteControlService createService() {
+        return (RemoteControlService) Proxy.newProxyInstance(RemoteControlService.class.getClassLoader(), new Class[] {RemoteControlService.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "postStartPlayingObserve":
+                            return respond("start " + args[0] + " " + args[1]);
+                        case "postStateChangeObserve":
+                            return respond("state " + args[0]);
+                        case "postVolumeChangeObserve":
+                            return respond("volume " + args[0]);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                    }
+
+                    return method.getReturnType() == Observable.class ? Observable.empty() : null;
+                });
+    }
+
+    private Observable<Void> respond(String post) {
+        mPosts.add(post);
+        Observable<Void> response = mResponses.poll();
+        return response != null ? response : Observable.empty();
+    }
+}
@@ -0,0 +1,167 @@
+package com.liskovsoft.smartyoutubetv2.common.prefs.common;
+
+import android.content.Context;
+
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DataSaverBaseTest {
+    private Context mContext;
+
+    public static class TestData extends DataSaverBase {
+        public TestData(Context context) {
+            super(context);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        RxAndroidPlugins.reset();
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void testMigrateLegacyString() {
+        setLegacyData(Helpers.mergeData(true, 5, "text", null, false, -3));
+
+        TestData data = new TestData(mContext);
+
+        assertTrue(data.getBoolean(0));
+        assertEquals(5, data.getInt(1));
+        // Unsupported and empty values fall back to the defaults
+        assertEquals(7, data.getInt(2, 7));
+        assertTrue(data.getBoolean(3, true));
+        assertFalse(data.getBoolean(4, true));
+        assertEquals(-3, data.getInt(5));
+    }
+
+    @Test
+    public void testValuesSurviveRestart() {
+        setLegacyData(Helpers.mergeData(false, 1));
+
+        TestData data = new TestData(mContext);
+        data.setBoolean(0, true);
+        data.setInt(1, 42);
+        // Delayed flush
+        ShadowLooper.idleMainLooper(10, TimeUnit.SECONDS);
+
+        TestData restarted = new TestData(mContext);
+
+        // Read from the binary file, the legacy string is untouched
+        assertTrue(restarted.getBoolean(0));
+        assertEquals(42, restarted.getInt(1));
+    }
+
+    @Test
+    public void testRestoredLegacyStringReplacesBinaryValues() {
+        setLegacyData(Helpers.mergeData(false, 2));
+
+        TestData data = new TestData(mContext);
+        data.setInt(1, 100);
+
+        // Same as an old backup being restored
+        setLegacyData(Helpers.mergeData(true, 3));
+
+        TestData restored = new TestData(mContext);
+
+        assertTrue(restored.getBoolean(0));
+        assertEquals(3, restored.getInt(1));
+    }
+
+    @Test
+    public void testBenchmarkStartupAgainstLegacyString() {
+        int valueCount = 50;
+        Object[] values = new Object[valueCount];
+
+        for (int i = 0; i < valueCount; i++) {
+            values[i] = i % 2 == 0 ? (Object) (i % 4 == 0) : (Object) (i * 1_000);
+        }
+
+        String legacyData = Helpers.mergeData(values);
+        setLegacyData(legacyData);
+        // Migration
+        new TestData(mContext);
+
+        int iterations = 200;
+        long legacySum = 0;
+        long binarySum = 0;
+
+        // Warm up
+        for (int i = 0; i < 20; i++) {
+            legacySum += readLegacy(valueCount);
+            binarySum += readBinary(valueCount);
+        }
+
+        long legacyNs = 0;
+        long binaryNs = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            long startNs = System.nanoTime();
+            legacySum += readLegacy(valueCount);
+            legacyNs += System.nanoTime() - startNs;
+
+            startNs = System.nanoTime();
+            binarySum += readBinary(valueCount);
+            binaryNs += System.nanoTime() - startNs;
+        }
+
+        assertEquals(legacySum, binarySum);
+        // The file read replaces the string split. Leave room for the disk noise.
+        assertTrue(String.format("Binary %s us, legacy %s us", binaryNs / iterations / 1_000, legacyNs / iterations / 1_000),
+                binaryNs < legacyNs * 2);
+    }
+
+    /**
+     * Same as the old DataSaverBase did on the start and on the first access of every value
+     */
+    private long readLegacy(int valueCount) {
+        String[] split = Helpers.splitData(AppPrefs.instance(mContext).getData(TestData.class.getSimpleName()));
+        long sum = 0;
+
+        for (int i = 0; i < valueCount; i++) {
+            sum += i % 2 == 0 ? (Helpers.parseBoolean(split, i) ? 1 : 0) : Helpers.parseInt(split, i);
+        }
+
+        return sum;
+    }
+
+    private long readBinary(int valueCount) {
+        TestData data = new TestData(mContext);
+        long sum = 0;
+
+        for (int i = 0; i < valueCount; i++) {
+            sum += i % 2 == 0 ? (data.getBoolean(i) ? 1 : 0) : data.getInt(i);
+        }
+
+        return sum;
+    }
+
+    private void setLegacyData(String data) {
+        AppPrefs.instance(mContext).setData(TestData.class.getSimpleName(), data);
+    }
+}
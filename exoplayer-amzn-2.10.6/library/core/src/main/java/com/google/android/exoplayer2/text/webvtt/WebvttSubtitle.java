@@ -28,6 +28,10 @@ import java.util.List;
 
 /**
  * A representation of a WebVTT subtitle.
+ *
+ * <p>The active cues change only at the event times. The cues of each interval between two adjacent
+ * event times are resolved on first use and then returned as is, so long subtitles (auto-generated
+ * captions of multi-hour videos) don't scan all the cues on every render.
  */
 /* package */ final class WebvttSubtitle implements Subtitle {
 
@@ -36,10 +40,18 @@ import java.util.List;
   private final int numCues;
   private final long[] cueTimesUs;
   private final long[] sortedCueTimesUs;
+  /** Distinct event times. Interval {@code i} starts at {@code intervalStartTimesUs[i]}. */
+  private final long[] intervalStartTimesUs;
+  /** Cues of each interval or null if not resolved yet. */
+  private final List<Cue>[] intervalCues;
+  /** Cue indices sorted by the start time. */
+  private final int[] sortedCueIndices;
+  private final long[] sortedCueStartTimesUs;
 
   /**
    * @param cues A list of the cues in this subtitle.
    */
+  @SuppressWarnings("unchecked")
   public WebvttSubtitle(List<WebvttCue> cues) {
     this.cues = cues;
     numCues = cues.size();
@@ -57,6 +69,29 @@ import java.util.List;
     }
     sortedCueTimesUs = Arrays.copyOf(cueTimesUs, cueTimesUs.length);
     Arrays.sort(sortedCueTimesUs);
+
+    int numIntervals = 0;
+    long[] intervalStartTimesUs = new long[sortedCueTimesUs.length];
+    for (long timeUs : sortedCueTimesUs) {
+      if (numIntervals == 0 || intervalStartTimesUs[numIntervals - 1] != timeUs) {
+        intervalStartTimesUs[numIntervals++] = timeUs;
+      }
+    }
+    this.intervalStartTimesUs = Arrays.copyOf(intervalStartTimesUs, numIntervals);
+    intervalCues = new List[numIntervals];
+
+    Integer[] cueIndices = new Integer[numCues];
+    for (int cueIndex = 0; cueIndex < numCues; cueIndex++) {
+      cueIndices[cueIndex] = cueIndex;
+    }
+    // Stable, the cues are usually sorted already
+    Arrays.sort(cueIndices, (i1, i2) -> Long.compare(cueTimesUs[i1 * 2], cueTimesUs[i2 * 2]));
+    sortedCueIndices = new int[numCues];
+    sortedCueStartTimesUs = new long[numCues];
+    for (int i = 0; i < numCues; i++) {
+      sortedCueIndices[i] = cueIndices[i];
+      sortedCueStartTimesUs[i] = cueTimesUs[cueIndices[i] * 2];
+    }
   }
 
   @Override
@@ -79,31 +114,71 @@ import java.util.List;
 
   @Override
   public List<Cue> getCues(long timeUs) {
-    ArrayList<Cue> list = null;
+    int intervalIndex =
+        Util.binarySearchFloor(
+            intervalStartTimesUs, timeUs, /* inclusive= */ true, /* stayInBounds= */ false);
+    if (intervalIndex < 0) {
+      return Collections.emptyList();
+    }
+    List<Cue> result = intervalCues[intervalIndex];
+    if (result == null) {
+      // Same result for any time of the interval
+      result = resolveCues(intervalStartTimesUs[intervalIndex]);
+      intervalCues[intervalIndex] = result;
+    }
+    return result;
+  }
+
+  private List<Cue> resolveCues(long timeUs) {
+    // An active cue started within the max cue length before the time
+    int last =
+        Util.binarySearchFloor(
+            sortedCueStartTimesUs, timeUs, /* inclusive= */ true, /* stayInBounds= */ false);
+    if (last >= 0) {
+      // The last of the equal start times
+      while (last + 1 < numCues && sortedCueStartTimesUs[last + 1] == timeUs) {
+        last++;
+      }
+    }
+    int[] activeCueIndices = null;
+    int numActiveCues = 0;
+    for (int i = last; i >= 0 && sortedCueStartTimesUs[i] > timeUs - MAX_CUE_LENGTH_US; i--) {
+      int cueIndex = sortedCueIndices[i];
+      if (timeUs < cueTimesUs[cueIndex * 2 + 1]) {
+        if (activeCueIndices == null) {
+          activeCueIndices = new int[Math.min(last + 1, 16)];
+        } else if (numActiveCues == activeCueIndices.length) {
+          activeCueIndices = Arrays.copyOf(activeCueIndices, numActiveCues * 2);
+        }
+        activeCueIndices[numActiveCues++] = cueIndex;
+      }
+    }
+    if (activeCueIndices == null) {
+      return Collections.emptyList();
+    }
+    // Keep the order of the cues in the file
+    Arrays.sort(activeCueIndices, 0, numActiveCues);
+
+    ArrayList<Cue> list = new ArrayList<>();
     WebvttCue firstNormalCue = null;
     SpannableStringBuilder normalCueTextBuilder = null;
 
-    for (int i = 0; i < numCues; i++) {
-      if ((cueTimesUs[i * 2] <= timeUs) && (timeUs < cueTimesUs[i * 2 + 1])) {
-        if (list == null) {
-          list = new ArrayList<>();
-        }
-        WebvttCue cue = cues.get(i);
-        if (cue.isNormalCue()) {
-          // we want to merge all of the normal cues into a single cue to ensure they are drawn
-          // correctly (i.e. don't overlap) and to emulate roll-up, but only if there are multiple
-          // normal cues, otherwise we can just append the single normal cue
-          if (firstNormalCue == null) {
-            firstNormalCue = cue;
-          } else if (normalCueTextBuilder == null) {
-            normalCueTextBuilder = new SpannableStringBuilder();
-            normalCueTextBuilder.append(firstNormalCue.text).append("\n").append(cue.text);
-          } else {
-            normalCueTextBuilder.append("\n").append(cue.text);
-          }
+    for (int i = 0; i < numActiveCues; i++) {
+      WebvttCue cue = cues.get(activeCueIndices[i]);
+      if (cue.isNormalCue()) {
+        // we want to merge all of the normal cues into a single cue to ensure they are drawn
+        // correctly (i.e. don't overlap) and to emulate roll-up, but only if there are multiple
+        // normal cues, otherwise we can just append the single normal cue
+        if (firstNormalCue == null) {
+          firstNormalCue = cue;
+        } else if (normalCueTextBuilder == null) {
+          normalCueTextBuilder = new SpannableStringBuilder();
+          normalCueTextBuilder.append(firstNormalCue.text).append("\n").append(cue.text);
         } else {
-          list.add(cue);
+          normalCueTextBuilder.append("\n").append(cue.text);
         }
+      } else {
+        list.add(cue);
       }
     }
     if (normalCueTextBuilder != null) {
@@ -114,11 +189,8 @@ import java.util.List;
       list.add(firstNormalCue);
     }
 
-    if (list != null) {
-      return list;
-    } else {
-      return Collections.emptyList();
-    }
+    // Shared by all the calls within the interval
+    return Collections.unmodifiableList(list);
   }
 
 }
@@ -193,6 +193,61 @@ public class WebvttSubtitleTest {
     assertSingleCueEmpty(nestedSubtitle.getCues(Long.MAX_VALUE));
   }
 
+  @Test
+  public void testSameCuesReturnedWithinInterval() {
+    List<Cue> cues = overlappingSubtitle.getCues(2000000);
+    assertThat(overlappingSubtitle.getCues(2500000)).isSameAs(cues);
+    assertThat(overlappingSubtitle.getCues(2999999)).isSameAs(cues);
+    assertThat(overlappingSubtitle.getCues(3000000)).isNotSameAs(cues);
+  }
+
+  @Test
+  public void testLongCueIsCapped() {
+    ArrayList<WebvttCue> cues = new ArrayList<>();
+    cues.add(new WebvttCue(1000000, 60000000, FIRST_SUBTITLE_STRING));
+    WebvttSubtitle subtitle = new WebvttSubtitle(cues);
+
+    assertSingleCueTextEquals(FIRST_SUBTITLE_STRING, subtitle.getCues(10999999));
+    assertSingleCueEmpty(subtitle.getCues(11000000));
+  }
+
+  @Test
+  public void testLargeSubtitleText() {
+    testLargeSubtitleTextHelper(1_000);
+    testLargeSubtitleTextHelper(50_000);
+  }
+
+  private void testLargeSubtitleTextHelper(int numCues) {
+    // Roll-up captions: a cue every second, visible for 2.5 seconds. Every 100th cue is too long.
+    ArrayList<WebvttCue> cues = new ArrayList<>(numCues);
+    for (int i = 0; i < numCues; i++) {
+      long startTimeUs = i * 1000000L;
+      long endTimeUs = startTimeUs + (i % 100 == 0 ? 30000000L : 2500000L);
+      cues.add(new WebvttCue(startTimeUs, endTimeUs, "Cue " + i));
+    }
+    WebvttSubtitle subtitle = new WebvttSubtitle(cues);
+
+    for (long timeUs = 0; timeUs < (numCues + 12) * 1000000L; timeUs += 250000L) {
+      List<Cue> actual = subtitle.getCues(timeUs);
+      StringBuilder expected = new StringBuilder();
+      // Cues are at most 10 seconds long, the older ones can't be active
+      int firstCandidate = (int) Math.max(0, timeUs / 1000000L - 11);
+      int lastCandidate = (int) Math.min(numCues - 1, timeUs / 1000000L);
+      for (int i = firstCandidate; i <= lastCandidate; i++) {
+        WebvttCue cue = cues.get(i);
+        long endTimeUs = Math.min(cue.endTime, cue.startTime + 10000000L);
+        if (cue.startTime <= timeUs && timeUs < endTimeUs) {
+          expected.append(expected.length() > 0 ? "\n" : "").append(cue.text);
+        }
+      }
+      if (expected.length() == 0) {
+        assertSingleCueEmpty(actual);
+      } else {
+        assertSingleCueTextEquals(expected.toString(), actual);
+      }
+    }
+  }
+
   private void testSubtitleEventTimesHelper(WebvttSubtitle subtitle) {
     assertThat(subtitle.getEventTime(0)).isEqualTo(1000000);
     assertThat(subtitle.getEventTime(1)).isEqualTo(2000000);
@@ -1,6 +1,7 @@
 package com.google.android.exoplayer2.source.dash.manifest;
 
 import android.text.TextUtils;
+import android.util.LruCache;
 import android.util.Pair;
 
 import androidx.annotation.NonNull;
@@ -23,6 +24,7 @@ import com.liskovsoft.youtubeapi.formatbuilders.mpdbuilder.MediaFormatComparator
 import com.liskovsoft.youtubeapi.formatbuilders.utils.ITagUtils;
 import com.liskovsoft.youtubeapi.formatbuilders.utils.MediaFormatUtils;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,12 +33,19 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+/**
+ * Builds the manifest from the format info without the xml step.<br/>
+ * Segment timelines and urls are kept in the primitives and turned into objects on access, see {@link SegmentLists}.<br/>
+ * The result is cached per video, so the prefetcher and the player (or a re-open) parse the same format info once.
+ */
 public class DashManifestParser2 {
     private static final String TAG = DashManifestParser2.class.getSimpleName();
     private int mId;
     private static final String NULL_INDEX_RANGE = "0-0";
     private static final String NULL_CONTENT_LENGTH = "0";
     private static final int MAX_DURATION_SEC = 48 * 60 * 60;
+    private static final int MAX_CACHED_MANIFESTS = 5;
+    private static final LruCache<String, CachedManifest> sCache = new LruCache<>(MAX_CACHED_MANIFESTS);
     private MediaItemFormatInfo mFormatInfo;
     private Set<MediaFormat> mMP4Videos;
     private Set<MediaFormat> mWEBMVideos;
@@ -44,7 +53,32 @@ public class DashManifestParser2 {
     private Map<String, Set<MediaFormat>> mWEBMAudios;
     private List<MediaSubtitle> mSubs;
 
+    /**
+     * The format info is held by the player or the prefetcher. The entry is useless without it.
+     */
+    private static final class CachedManifest {
+        final WeakReference<MediaItemFormatInfo> formatInfo;
+        final DashManifest manifest;
+
+        CachedManifest(MediaItemFormatInfo formatInfo, DashManifest manifest) {
+            this.formatInfo = new WeakReference<>(formatInfo);
+            this.manifest = manifest;
+        }
+    }
+
     public DashManifest parse(@NonNull MediaItemFormatInfo formatInfo) {
+        String videoId = formatInfo.getVideoId();
+        CachedManifest cached = videoId != null ? sCache.get(videoId) : null;
+
+        // The urls expire. Only the manifest of the same format info could be reused.
+        if (cached != null && cached.formatInfo.get() == formatInfo) {
+            return cached.manifest;
+        }
+
+        if (cached != null && cached.formatInfo.get() == null) {
+            sCache.remove(videoId);
+        }
+
         mFormatInfo = formatInfo;
         MediaFormatComparator comp = new MediaFormatComparator();
         mMP4Videos = new TreeSet<>(comp);
@@ -52,7 +86,21 @@ public class DashManifestParser2 {
         mMP4Audios = new HashMap<>();
         mWEBMAudios = new HashMap<>();
         mSubs = new ArrayList<>();
-        return parseDashManifest(formatInfo);
+        DashManifest manifest = parseDashManifest(formatInfo);
+
+        // Live window depends on the current time
+        if (videoId != null && !formatInfo.isLive()) {
+            sCache.put(videoId, new CachedManifest(formatInfo, manifest));
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Called along with the other app caches.
+     */
+    public static void clearCache() {
+        sCache.evictAll();
     }
 
     private DashManifest parseDashManifest(MediaItemFormatInfo formatInfo) {
@@ -265,65 +313,43 @@ public class DashManifestParser2 {
         long rangeStart = 0;
         long rangeLength = C.LENGTH_UNSET;
         if (rangeText != null) {
-            String[] rangeTextArray = rangeText.split("-");
-            rangeStart = Long.parseLong(rangeTextArray[0]);
-            if (rangeTextArray.length == 2) {
-                rangeLength = Long.parseLong(rangeTextArray[1]) - rangeStart + 1;
-            }
+            long[] range = SegmentLists.parseRange(rangeText);
+            rangeStart = range[0];
+            rangeLength = range[1];
         }
 
         return new RangedUri(urlText, rangeStart, rangeLength);
     }
 
     private List<SegmentTimelineElement> parseSegmentTimeline(MediaFormat format) {
-        List<SegmentTimelineElement> timeline = new ArrayList<>();
-
         if (format.getGlobalSegmentList() == null) {
-            return timeline;
+            return new ArrayList<>();
         }
 
         // From writeGlobalSegmentList
-        long elapsedTime = 0;
+        List<String> segments = format.getGlobalSegmentList();
+        long[] durations = new long[segments.size()];
 
         // SegmentURL tag
-        for (String segment : format.getGlobalSegmentList()) {
-            long duration = Helpers.parseLong(segment, C.TIME_UNSET);
-            int count = 1;
-            for (int i = 0; i < count; i++) {
-                timeline.add(new SegmentTimelineElement(elapsedTime, duration));
-                elapsedTime += duration;
-            }
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = Helpers.parseLong(segments.get(i), C.TIME_UNSET);
         }
 
-        return timeline;
+        return SegmentLists.timeline(durations);
     }
 
     private List<SegmentTimelineElement> parseSegmentTimeline(long elapsedTime, long duration, int segmentCount) {
-        List<SegmentTimelineElement> timeline = new ArrayList<>();
-
         // From writeLiveMediaSegmentList
-        int count = 1 + segmentCount;
-        for (int i = 0; i < count; i++) {
-            timeline.add(new SegmentTimelineElement(elapsedTime, duration));
-            elapsedTime += duration;
-        }
-
-        return timeline;
+        return SegmentLists.uniformTimeline(elapsedTime, duration, 1 + segmentCount);
     }
 
     private List<RangedUri> parseSegmentUrl(MediaFormat format) {
-        List<RangedUri> segments = new ArrayList<>();
-
         if (format.getSegmentUrlList() == null) {
-            return segments;
+            return new ArrayList<>();
         }
 
         // SegmentURL tag
-        for (String url : format.getSegmentUrlList()) {
-            segments.add(parseRangedUrl(url, null));
-        }
-
-        return segments;
+        return SegmentLists.segmentUrls(format.getSegmentUrlList());
     }
 
     private SingleSegmentBase parseSegmentBase(MediaFormat format) {
@@ -334,9 +360,9 @@ public class DashManifestParser2 {
         long indexLength = 0;
         String indexRangeText = format.getIndex();
         if (indexRangeText != null) {
-            String[] indexRange = indexRangeText.split("-");
-            indexStart = Long.parseLong(indexRange[0]);
-            indexLength = Long.parseLong(indexRange[1]) - indexStart + 1;
+            long[] indexRange = SegmentLists.parseRange(indexRangeText);
+            indexStart = indexRange[0];
+            indexLength = indexRange[1];
         }
 
         RangedUri initialization = parseRangedUrl(format.getSourceUrl(), format.getInit());
@@ -456,7 +482,22 @@ public class DashManifestParser2 {
                 format,
                 representationInfo.baseUrl,
                 representationInfo.segmentBase,
-                new ArrayList<>());
+                new ArrayList<>(),
+                buildCacheKey(format));
+    }
+
+    /**
+     * Stable key of the single segment representation. Googlevideo urls expire so they can't be used as cache keys.<br/>
+     * The byte range of a segment is added by the cache itself.
+     */
+    private String buildCacheKey(Format format) {
+        if (mFormatInfo.isLive() || format.id == null || MimeTypes.isText(format.containerMimeType)) {
+            return null;
+        }
+
+        String cacheKey = mFormatInfo.getVideoId() + "/" + format.id;
+
+        return format.language != null ? cacheKey + "/" + format.language : cacheKey;
     }
 
     protected Format buildFormat(
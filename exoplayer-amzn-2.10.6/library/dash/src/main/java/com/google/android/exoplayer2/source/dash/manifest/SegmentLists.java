@@ -0,0 +1,126 @@
+package com.google.android.exoplayer2.source.dash.manifest;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentTimelineElement;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Segment lists of the {@link DashManifestParser2} that are backed by the primitives.<br/>
+ * Elements are created on access, so the formats that the player never selects cost almost nothing.
+ */
+final class SegmentLists {
+    private SegmentLists() {
+    }
+
+    /**
+     * Segments of the same duration, e.g. live stream of 48 hrs.
+     */
+    static List<SegmentTimelineElement> uniformTimeline(long startTime, long duration, int count) {
+        return new UniformTimeline(startTime, duration, count);
+    }
+
+    /**
+     * Segments one after another.
+     */
+    static List<SegmentTimelineElement> timeline(long[] durations) {
+        long[] startTimes = new long[durations.length];
+        long elapsedTime = 0;
+
+        for (int i = 0; i < durations.length; i++) {
+            startTimes[i] = elapsedTime;
+            elapsedTime += durations[i];
+        }
+
+        return new Timeline(startTimes, durations);
+    }
+
+    static List<RangedUri> segmentUrls(List<String> urls) {
+        return new SegmentUrls(urls);
+    }
+
+    /**
+     * Parses "start-end" range. Returns {start, length}. Length is {@link C#LENGTH_UNSET} when there is no end.
+     */
+    static long[] parseRange(String rangeText) {
+        int separator = rangeText.indexOf('-');
+
+        if (separator == -1) {
+            return new long[] {Long.parseLong(rangeText), C.LENGTH_UNSET};
+        }
+
+        long start = Long.parseLong(rangeText.substring(0, separator));
+        long end = Long.parseLong(rangeText.substring(separator + 1));
+
+        return new long[] {start, end - start + 1};
+    }
+
+    private static final class UniformTimeline extends AbstractList<SegmentTimelineElement> implements RandomAccess {
+        private final long mStartTime;
+        private final long mDuration;
+        private final int mCount;
+
+        UniformTimeline(long startTime, long duration, int count) {
+            mStartTime = startTime;
+            mDuration = duration;
+            mCount = count;
+        }
+
+        @Override
+        public SegmentTimelineElement get(int index) {
+            checkIndex(index, mCount);
+            return new SegmentTimelineElement(mStartTime + mDuration * index, mDuration);
+        }
+
+        @Override
+        public int size() {
+            return mCount;
+        }
+    }
+
+    private static final class Timeline extends AbstractList<SegmentTimelineElement> implements RandomAccess {
+        private final long[] mStartTimes;
+        private final long[] mDurations;
+
+        Timeline(long[] startTimes, long[] durations) {
+            mStartTimes = startTimes;
+            mDurations = durations;
+        }
+
+        @Override
+        public SegmentTimelineElement get(int index) {
+            return new SegmentTimelineElement(mStartTimes[index], mDurations[index]);
+        }
+
+        @Override
+        public int size() {
+            return mDurations.length;
+        }
+    }
+
+    private static final class SegmentUrls extends AbstractList<RangedUri> implements RandomAccess {
+        private final List<String> mUrls;
+
+        SegmentUrls(List<String> urls) {
+            mUrls = urls;
+        }
+
+        @Override
+        public RangedUri get(int index) {
+            return new RangedUri(mUrls.get(index), 0, C.LENGTH_UNSET);
+        }
+
+        @Override
+        public int size() {
+            return mUrls.size();
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
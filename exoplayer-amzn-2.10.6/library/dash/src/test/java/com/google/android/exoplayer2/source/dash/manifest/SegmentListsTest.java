@@ -0,0 +1,64 @@
+package com.google.android.exoplayer2.source.dash.manifest;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentTimelineElement;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Unit tests for {@link SegmentLists}. */
+@RunWith(AndroidJUnit4.class)
+public final class SegmentListsTest {
+    @Test
+    public void testUniformTimeline() {
+        List<SegmentTimelineElement> timeline = SegmentLists.uniformTimeline(10_000, 5_000, 34_561);
+
+        assertThat(timeline).hasSize(34_561);
+        assertElement(timeline.get(0), 10_000, 5_000);
+        assertElement(timeline.get(34_560), 10_000 + 5_000L * 34_560, 5_000);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testUniformTimelineOutOfBounds() {
+        SegmentLists.uniformTimeline(0, 5_000, 3).get(3);
+    }
+
+    @Test
+    public void testTimeline() {
+        List<SegmentTimelineElement> timeline = SegmentLists.timeline(new long[] {2_000, 3_000, 1_500});
+
+        assertThat(timeline).hasSize(3);
+        assertElement(timeline.get(0), 0, 2_000);
+        assertElement(timeline.get(1), 2_000, 3_000);
+        assertElement(timeline.get(2), 5_000, 1_500);
+    }
+
+    @Test
+    public void testSegmentUrls() {
+        List<RangedUri> segments = SegmentLists.segmentUrls(Arrays.asList("sq/0", "sq/1"));
+
+        assertThat(segments).hasSize(2);
+        assertThat(segments.get(1).resolveUriString("http://www.test.com/")).isEqualTo("http://www.test.com/sq/1");
+        assertThat(segments.get(1).start).isEqualTo(0);
+        assertThat(segments.get(1).length).isEqualTo(C.LENGTH_UNSET);
+    }
+
+    @Test
+    public void testParseRange() {
+        assertThat(SegmentLists.parseRange("0-740")).asList().containsExactly(0L, 741L).inOrder();
+        assertThat(SegmentLists.parseRange("741-1234")).asList().containsExactly(741L, 494L).inOrder();
+        assertThat(SegmentLists.parseRange("100")).asList().containsExactly(100L, (long) C.LENGTH_UNSET).inOrder();
+    }
+
+    private static void assertElement(SegmentTimelineElement element, long startTime, long duration) {
+        assertThat(element.startTime).isEqualTo(startTime);
+        assertThat(element.duration).isEqualTo(duration);
+    }
+}
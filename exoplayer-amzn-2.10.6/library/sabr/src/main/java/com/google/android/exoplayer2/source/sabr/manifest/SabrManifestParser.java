@@ -37,6 +37,7 @@ public class SabrManifestParser {
     private static final String NULL_INDEX_RANGE = "0-0";
     private static final String NULL_CONTENT_LENGTH = "0";
     private static final int MAX_DURATION_SEC = 48 * 60 * 60;
+    private static final String CACHE_KEY_PREFIX = "sabr/";
     private MediaItemFormatInfo mFormatInfo;
     private Set<MediaFormat> mMP4Videos;
     private Set<MediaFormat> mWEBMVideos;
@@ -452,7 +453,22 @@ public class SabrManifestParser {
                 representationInfo.revisionId,
                 format,
                 representationInfo.baseUrl,
-                representationInfo.segmentBase);
+                representationInfo.segmentBase,
+                buildCacheKey(format));
+    }
+
+    /**
+     * Stable key of the single segment representation. Googlevideo urls expire so they can't be used as cache keys.<br/>
+     * The byte range of a segment is added by the cache itself. The prefix separates UMP responses from the plain DASH data.
+     */
+    private String buildCacheKey(Format format) {
+        if (mFormatInfo.isLive() || format.id == null || MimeTypes.isText(format.containerMimeType)) {
+            return null;
+        }
+
+        String cacheKey = CACHE_KEY_PREFIX + mFormatInfo.getVideoId() + "/" + format.id;
+
+        return format.language != null ? cacheKey + "/" + format.language : cacheKey;
     }
 
     protected Format buildFormat(
@@ -1,338 +1,117 @@
 package com.google.android.exoplayer2.source.sabr.parser;
 
-import android.util.SparseArray;
-
-import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
-import com.google.android.exoplayer2.drm.DrmInitData;
 import com.google.android.exoplayer2.extractor.Extractor;
 import com.google.android.exoplayer2.extractor.ExtractorInput;
 import com.google.android.exoplayer2.extractor.ExtractorOutput;
 import com.google.android.exoplayer2.extractor.PositionHolder;
 import com.google.android.exoplayer2.extractor.TrackOutput;
-import com.google.android.exoplayer2.source.sabr.parser.parts.FormatInitializedSabrPart;
-import com.google.android.exoplayer2.source.sabr.parser.parts.MediaSegmentDataSabrPart;
-import com.google.android.exoplayer2.source.sabr.parser.parts.MediaSegmentEndSabrPart;
-import com.google.android.exoplayer2.source.sabr.parser.parts.MediaSegmentInitSabrPart;
-import com.google.android.exoplayer2.source.sabr.parser.parts.SabrPart;
-import com.google.android.exoplayer2.util.LongArray;
-import com.google.android.exoplayer2.util.NalUnitUtil;
-import com.google.android.exoplayer2.util.ParsableByteArray;
+import com.google.android.exoplayer2.extractor.mkv.MatroskaExtractor;
+import com.google.android.exoplayer2.extractor.mp4.FragmentedMp4Extractor;
+import com.google.android.exoplayer2.source.sabr.parser.models.AudioSelector;
+import com.google.android.exoplayer2.source.sabr.parser.models.VideoSelector;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.liskovsoft.sharedutils.helpers.Helpers;
 
 import java.io.IOException;
-import java.lang.annotation.Documented;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.nio.ByteBuffer;
-
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts the media of a single SABR format from the UMP response.<br/>
+ * The segment payload is routed straight into the wrapped fMP4/WebM extractor, which writes the samples to the track outputs.
+ * No segment is buffered as a whole.
+ */
 public class SabrExtractor implements Extractor {
-    /**
-     * Flags controlling the behavior of the extractor. Possible flag value is {@link
-     * #FLAG_DISABLE_SEEK_FOR_CUES}.
-     */
-    @Documented
-    @Retention(RetentionPolicy.SOURCE)
-    @IntDef(
-            flag = true,
-            value = {FLAG_DISABLE_SEEK_FOR_CUES})
-    public @interface Flags {}
-    /**
-     * Flag to disable seeking for cues.
-     * <p>
-     * Normally (i.e. when this flag is not set) the extractor will seek to the cues element if its
-     * position is specified in the seek head and if it's after the first cluster. Setting this flag
-     * disables seeking to the cues element. If the cues element is after the first cluster then the
-     * media is treated as being unseekable.
-     */
-    public static final int FLAG_DISABLE_SEEK_FOR_CUES = 1;
-
-    private static final int VORBIS_MAX_INPUT_SIZE = 8192;
-    private static final int OPUS_MAX_INPUT_SIZE = 5760;
-    private static final int ENCRYPTION_IV_SIZE = 8;
-    private static final int TRACK_TYPE_AUDIO = 2;
-
-    private static final int BLOCK_STATE_START = 0;
-    private static final int BLOCK_STATE_HEADER = 1;
-    private static final int BLOCK_STATE_DATA = 2;
-
-    //private final EbmlReader reader;
-    //private final VarintReader varintReader;
+    private static final String DRC_SUFFIX = "-drc";
     private final SabrStream sabrStream;
-    private final SparseArray<Track> tracks;
-    private final boolean seekForCuesEnabled;
-
-    // Temporary arrays.
-    private final ParsableByteArray nalStartCode;
-    private final ParsableByteArray nalLength;
-    private final ParsableByteArray scratch;
-    private final ParsableByteArray vorbisNumPageSamples;
-    private final ParsableByteArray seekEntryIdBytes;
-    private final ParsableByteArray sampleStrippedBytes;
-    private final ParsableByteArray subtitleSample;
-    private final ParsableByteArray encryptionInitializationVector;
-    private final ParsableByteArray encryptionSubsampleData;
-    private ByteBuffer encryptionSubsampleDataBuffer;
+    private final SabrExtractorInput sabrInput;
+    private final Extractor extractor;
 
-    private long segmentContentSize;
-    private long segmentContentPosition = C.POSITION_UNSET;
-    private long timecodeScale = C.TIME_UNSET;
-    private long durationTimecode = C.TIME_UNSET;
-    private long durationUs = C.TIME_UNSET;
-
-    // The track corresponding to the current TrackEntry element, or null.
-    private Track currentTrack;
-
-    // Whether a seek map has been sent to the output.
-    private boolean sentSeekMap;
-
-    // Master seek entry related elements.
-    private int seekEntryId;
-    private long seekEntryPosition;
-
-    // Cue related elements.
-    private boolean seekForCues;
-    private long cuesContentPosition = C.POSITION_UNSET;
-    private long seekPositionAfterBuildingCues = C.POSITION_UNSET;
-    private long clusterTimecodeUs = C.TIME_UNSET;
-    private LongArray cueTimesUs;
-    private LongArray cueClusterPositions;
-    private boolean seenClusterPositionForCurrentCuePoint;
-
-    // Block reading state.
-    private int blockState;
-    private long blockTimeUs;
-    private long blockDurationUs;
-    private int blockLacingSampleIndex;
-    private int blockLacingSampleCount;
-    private int[] blockLacingSampleSizes;
-    private int blockTrackNumber;
-    private int blockTrackNumberLength;
-    @C.BufferFlags
-    private int blockFlags;
-
-    // Sample reading state.
-    private int sampleBytesRead;
-    private boolean sampleEncodingHandled;
-    private boolean sampleSignalByteRead;
-    private boolean sampleInitializationVectorRead;
-    private boolean samplePartitionCountRead;
-    private byte sampleSignalByte;
-    private int samplePartitionCount;
-    private int sampleCurrentNalBytesRemaining;
-    private int sampleBytesWritten;
-    private boolean sampleRead;
-    private boolean sampleSeenReferenceBlock;
-
-    // Extractor outputs.
-    private ExtractorOutput extractorOutput;
-
-    public SabrExtractor() {
-        this(0);
+    public SabrExtractor(int trackType, @NonNull Format format) {
+        this(trackType, format, false, Collections.emptyList(), null);
     }
 
-    private SabrExtractor(@Flags int flags) {
-        // TODO: replace nulls with the actual values
+    /**
+     * @param trackType The type of the track. Media of other types is discarded.
+     * @param format The format from the manifest. Its id is the itag of the format.
+     * @param enableEventMessageTrack Whether to output an event message track (fMP4 only).
+     * @param closedCaptionFormats The {@link Format Formats} of closed caption tracks to be output (fMP4 only).
+     * @param playerEmsgTrackOutput The track output for emsg messages targeting the player (fMP4 only).
+     */
+    public SabrExtractor(
+            int trackType,
+            @NonNull Format format,
+            boolean enableEventMessageTrack,
+            List<Format> closedCaptionFormats,
+            @Nullable TrackOutput playerEmsgTrackOutput) {
         sabrStream = new SabrStream(
-                null,
-                null,
-                null,
-                null,
-                null,
-                null,
-                -1,
-                -1,
-                -1,
-                null,
-                false,
+                trackType == C.TRACK_TYPE_AUDIO ? new AudioSelector("audio", false) : null,
+                trackType == C.TRACK_TYPE_VIDEO ? new VideoSelector("video", false) : null,
                 null
         );
-        seekForCuesEnabled = (flags & FLAG_DISABLE_SEEK_FOR_CUES) == 0;
-        tracks = new SparseArray<>();
-        scratch = new ParsableByteArray(4);
-        vorbisNumPageSamples = new ParsableByteArray(ByteBuffer.allocate(4).putInt(-1).array());
-        seekEntryIdBytes = new ParsableByteArray(4);
-        nalStartCode = new ParsableByteArray(NalUnitUtil.NAL_START_CODE);
-        nalLength = new ParsableByteArray(4);
-        sampleStrippedBytes = new ParsableByteArray();
-        subtitleSample = new ParsableByteArray();
-        encryptionInitializationVector = new ParsableByteArray(ENCRYPTION_IV_SIZE);
-        encryptionSubsampleData = new ParsableByteArray();
+        sabrInput = new SabrExtractorInput(sabrStream, parseItag(format.id));
+
+        if (isWebm(format.containerMimeType)) {
+            extractor = new MatroskaExtractor(MatroskaExtractor.FLAG_DISABLE_SEEK_FOR_CUES);
+        } else {
+            int flags = 0;
+            if (enableEventMessageTrack) {
+                flags |= FragmentedMp4Extractor.FLAG_ENABLE_EMSG_TRACK;
+            }
+            extractor = new FragmentedMp4Extractor(flags, null, null, null, closedCaptionFormats, playerEmsgTrackOutput);
+        }
     }
 
     @Override
     public boolean sniff(ExtractorInput input) throws IOException, InterruptedException {
-        // TODO: not implemented
+        // UMP has no signature
         return true;
     }
 
     @Override
     public void init(ExtractorOutput output) {
-        extractorOutput = output;
+        extractor.init(output);
     }
 
     @Override
     public int read(ExtractorInput input, PositionHolder seekPosition)
             throws IOException, InterruptedException {
-        sampleRead = false;
-        boolean continueReading = true;
-        while (continueReading && !sampleRead) {
-            SabrPart sabrPart = sabrStream.parse(input);
-            continueReading = sabrPart != null;
-
-            if (sabrPart instanceof FormatInitializedSabrPart) {
-                // TODO: not initialized
-            } else if (sabrPart instanceof MediaSegmentInitSabrPart) {
-                // TODO: not initialized
-            } else if (sabrPart instanceof MediaSegmentDataSabrPart) {
-                // TODO: not initialized
-            } else if (sabrPart instanceof MediaSegmentEndSabrPart) {
-                // TODO: not initialized
-            }
-
-            if (continueReading && maybeSeekForCues(seekPosition, input.getPosition())) {
-                return Extractor.RESULT_SEEK;
-            }
-        }
-        if (!continueReading) {
-            return Extractor.RESULT_END_OF_INPUT;
-        }
-        return Extractor.RESULT_CONTINUE;
+        sabrInput.setInput(input);
+        return extractor.read(sabrInput, seekPosition);
     }
 
     @Override
     public void seek(long position, long timeUs) {
-        // TODO: not implemented
-        //clusterTimecodeUs = C.TIME_UNSET;
-        //blockState = BLOCK_STATE_START;
-        //reader.reset();
-        //varintReader.reset();
-        //resetSample();
-        //for (int i = 0; i < tracks.size(); i++) {
-        //    tracks.valueAt(i).reset();
-        //}
+        // Each load is a new server response
+        sabrStream.reset();
+        sabrInput.reset(position);
+        extractor.seek(position, timeUs);
     }
 
     @Override
     public void release() {
-        // TODO: not implemented
-    }
-
-    private void resetSample() {
-        sampleBytesRead = 0;
-        sampleBytesWritten = 0;
-        sampleCurrentNalBytesRemaining = 0;
-        sampleEncodingHandled = false;
-        sampleSignalByteRead = false;
-        samplePartitionCountRead = false;
-        samplePartitionCount = 0;
-        sampleSignalByte = (byte) 0;
-        sampleInitializationVectorRead = false;
-        sampleStrippedBytes.reset();
+        extractor.release();
     }
 
-    /**
-     * Updates the position of the holder to Cues element's position if the extractor configuration
-     * permits use of master seek entry. After building Cues sets the holder's position back to where
-     * it was before.
-     *
-     * @param seekPosition The holder whose position will be updated.
-     * @param currentPosition Current position of the input.
-     * @return Whether the seek position was updated.
-     */
-    private boolean maybeSeekForCues(PositionHolder seekPosition, long currentPosition) {
-        if (seekForCues) {
-            seekPositionAfterBuildingCues = currentPosition;
-            seekPosition.position = cuesContentPosition;
-            seekForCues = false;
-            return true;
+    private static int parseItag(String formatId) {
+        if (formatId == null) {
+            return C.INDEX_UNSET;
         }
-        // After parsing Cues, seek back to original position if available. We will not do this unless
-        // we seeked to get to the Cues in the first place.
-        if (sentSeekMap && seekPositionAfterBuildingCues != C.POSITION_UNSET) {
-            seekPosition.position = seekPositionAfterBuildingCues;
-            seekPositionAfterBuildingCues = C.POSITION_UNSET;
-            return true;
+
+        if (formatId.endsWith(DRC_SUFFIX)) {
+            formatId = formatId.substring(0, formatId.length() - DRC_SUFFIX.length());
         }
-        return false;
-    }
 
-    private void commitSampleToOutput(Track track, long timeUs) {
-        track.output.sampleMetadata(timeUs, blockFlags, sampleBytesWritten, 0, track.cryptoData);
-        sampleRead = true;
-        resetSample();
+        return Helpers.parseInt(formatId, C.INDEX_UNSET);
     }
 
-    private static final class Track {
-        private static final int DISPLAY_UNIT_PIXELS = 0;
-        private static final int MAX_CHROMATICITY = 50000;  // Defined in CTA-861.3.
-        /**
-         * Default max content light level (CLL) that should be encoded into hdrStaticInfo.
-         */
-        private static final int DEFAULT_MAX_CLL = 1000;  // nits.
-
-        /**
-         * Default frame-average light level (FALL) that should be encoded into hdrStaticInfo.
-         */
-        private static final int DEFAULT_MAX_FALL = 200;  // nits.
-
-        // Common elements.
-        public String name;
-        public String codecId;
-        public int number;
-        public int type;
-        public int defaultSampleDurationNs;
-        public boolean hasContentEncryption;
-        public byte[] sampleStrippedBytes;
-        public TrackOutput.CryptoData cryptoData;
-        public byte[] codecPrivate;
-        public DrmInitData drmInitData;
-
-        // Video elements.
-        public int width = Format.NO_VALUE;
-        public int height = Format.NO_VALUE;
-        public int displayWidth = Format.NO_VALUE;
-        public int displayHeight = Format.NO_VALUE;
-        public int displayUnit = DISPLAY_UNIT_PIXELS;
-        @C.Projection public int projectionType = Format.NO_VALUE;
-        public float projectionPoseYaw = 0f;
-        public float projectionPosePitch = 0f;
-        public float projectionPoseRoll = 0f;
-        public byte[] projectionData = null;
-        @C.StereoMode
-        public int stereoMode = Format.NO_VALUE;
-        public boolean hasColorInfo = false;
-        @C.ColorSpace
-        public int colorSpace = Format.NO_VALUE;
-        @C.ColorTransfer
-        public int colorTransfer = Format.NO_VALUE;
-        @C.ColorRange
-        public int colorRange = Format.NO_VALUE;
-        public int maxContentLuminance = DEFAULT_MAX_CLL;
-        public int maxFrameAverageLuminance = DEFAULT_MAX_FALL;
-        public float primaryRChromaticityX = Format.NO_VALUE;
-        public float primaryRChromaticityY = Format.NO_VALUE;
-        public float primaryGChromaticityX = Format.NO_VALUE;
-        public float primaryGChromaticityY = Format.NO_VALUE;
-        public float primaryBChromaticityX = Format.NO_VALUE;
-        public float primaryBChromaticityY = Format.NO_VALUE;
-        public float whitePointChromaticityX = Format.NO_VALUE;
-        public float whitePointChromaticityY = Format.NO_VALUE;
-        public float maxMasteringLuminance = Format.NO_VALUE;
-        public float minMasteringLuminance = Format.NO_VALUE;
-
-        // Audio elements. Initially set to their default values.
-        public int channelCount = 1;
-        public int audioBitDepth = Format.NO_VALUE;
-        public int sampleRate = 8000;
-        public long codecDelayNs = 0;
-        public long seekPreRollNs = 0;
-
-        // Set when the output is initialized. nalUnitLengthFieldLength is only set for H264/H265.
-        public TrackOutput output;
-        public int nalUnitLengthFieldLength;
-
-        // TODO: not implemented
+    private static boolean isWebm(String mimeType) {
+        return mimeType != null && (mimeType.startsWith(MimeTypes.VIDEO_WEBM) || mimeType.startsWith(MimeTypes.AUDIO_WEBM)
+                || mimeType.startsWith(MimeTypes.APPLICATION_WEBM));
     }
 }
@@ -0,0 +1,236 @@
+package com.google.android.exoplayer2.source.sabr.parser;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.extractor.ExtractorInput;
+import com.google.android.exoplayer2.source.sabr.parser.parts.MediaSegmentDataSabrPart;
+import com.google.android.exoplayer2.source.sabr.parser.parts.SabrPart;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.FormatId;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Exposes the media payload of a single format as a continuous input.<br/>
+ * The data is read straight from the UMP input. The parts are pulled on demand, so the wrapped extractor
+ * demuxes the segments incrementally, as they arrive.<br/>
+ * Peeking is limited to the payload of the current UMP part.
+ */
+final class SabrExtractorInput implements ExtractorInput {
+    private final SabrStream sabrStream;
+    private final int itag;
+    private ExtractorInput input;
+    private boolean isTargetPart;
+    private long position;
+    private int peekPosition;
+
+    /**
+     * @param itag The format to extract or {@link C#INDEX_UNSET} to accept any format of the stream.
+     */
+    public SabrExtractorInput(@NonNull SabrStream sabrStream, int itag) {
+        this.sabrStream = sabrStream;
+        this.itag = itag;
+    }
+
+    public void setInput(@NonNull ExtractorInput input) {
+        this.input = input;
+    }
+
+    public void reset(long position) {
+        this.position = position;
+        peekPosition = 0;
+        isTargetPart = false;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException, InterruptedException {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (!fillPart()) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        int bytesRead = sabrStream.readMediaData(input, target, offset, length);
+
+        commitBytesRead(bytesRead);
+
+        return bytesRead;
+    }
+
+    @Override
+    public boolean readFully(byte[] target, int offset, int length, boolean allowEndOfInput) throws IOException, InterruptedException {
+        int bytesRead = 0;
+
+        while (bytesRead < length) {
+            int result = read(target, offset + bytesRead, length - bytesRead);
+
+            if (result == C.RESULT_END_OF_INPUT) {
+                if (allowEndOfInput && bytesRead == 0) {
+                    return false;
+                }
+                throw new EOFException();
+            }
+
+            bytesRead += result;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void readFully(byte[] target, int offset, int length) throws IOException, InterruptedException {
+        readFully(target, offset, length, false);
+    }
+
+    @Override
+    public int skip(int length) throws IOException, InterruptedException {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (!fillPart()) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        int bytesSkipped = sabrStream.skipMediaData(input, length);
+
+        commitBytesRead(bytesSkipped);
+
+        return bytesSkipped;
+    }
+
+    @Override
+    public boolean skipFully(int length, boolean allowEndOfInput) throws IOException, InterruptedException {
+        int bytesSkipped = 0;
+
+        while (bytesSkipped < length) {
+            int result = skip(length - bytesSkipped);
+
+            if (result == C.RESULT_END_OF_INPUT) {
+                if (allowEndOfInput && bytesSkipped == 0) {
+                    return false;
+                }
+                throw new EOFException();
+            }
+
+            bytesSkipped += result;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void skipFully(int length) throws IOException, InterruptedException {
+        skipFully(length, false);
+    }
+
+    @Override
+    public boolean peekFully(byte[] target, int offset, int length, boolean allowEndOfInput) throws IOException, InterruptedException {
+        if (!checkPeekRange(length, allowEndOfInput)) {
+            return false;
+        }
+
+        input.peekFully(target, offset, length);
+        peekPosition += length;
+
+        return true;
+    }
+
+    @Override
+    public void peekFully(byte[] target, int offset, int length) throws IOException, InterruptedException {
+        peekFully(target, offset, length, false);
+    }
+
+    @Override
+    public boolean advancePeekPosition(int length, boolean allowEndOfInput) throws IOException, InterruptedException {
+        if (!checkPeekRange(length, allowEndOfInput)) {
+            return false;
+        }
+
+        input.advancePeekPosition(length);
+        peekPosition += length;
+
+        return true;
+    }
+
+    @Override
+    public void advancePeekPosition(int length) throws IOException, InterruptedException {
+        advancePeekPosition(length, false);
+    }
+
+    @Override
+    public void resetPeekPosition() {
+        input.resetPeekPosition();
+        peekPosition = 0;
+    }
+
+    @Override
+    public long getPeekPosition() {
+        return position + peekPosition;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public long getLength() {
+        return C.LENGTH_UNSET;
+    }
+
+    @Override
+    public <E extends Throwable> void setRetryPosition(long position, E e) throws E {
+        // The server response can't be replayed from the middle
+        throw e;
+    }
+
+    /**
+     * Skips the parts until the media payload of the target format is found.
+     *
+     * @return false when the end of the response is reached.
+     */
+    private boolean fillPart() {
+        while (!isTargetPart || sabrStream.getMediaBytesRemaining() == 0) {
+            isTargetPart = false;
+            peekPosition = 0;
+
+            SabrPart sabrPart = sabrStream.parse(input);
+
+            if (sabrPart == null) {
+                return false;
+            }
+
+            if (sabrPart instanceof MediaSegmentDataSabrPart) {
+                isTargetPart = isTargetFormat(((MediaSegmentDataSabrPart) sabrPart).formatId);
+            }
+        }
+
+        return true;
+    }
+
+    private boolean checkPeekRange(int length, boolean allowEndOfInput) throws EOFException {
+        if (!fillPart() || peekPosition + length > sabrStream.getMediaBytesRemaining()) {
+            if (allowEndOfInput && peekPosition == 0) {
+                return false;
+            }
+            throw new EOFException();
+        }
+
+        return true;
+    }
+
+    private void commitBytesRead(int bytesRead) {
+        if (bytesRead != C.RESULT_END_OF_INPUT) {
+            position += bytesRead;
+            peekPosition = 0;
+        }
+    }
+
+    private boolean isTargetFormat(FormatId formatId) {
+        return itag == C.INDEX_UNSET || formatId == null || !formatId.hasItag() || formatId.getItag() == itag;
+    }
+}
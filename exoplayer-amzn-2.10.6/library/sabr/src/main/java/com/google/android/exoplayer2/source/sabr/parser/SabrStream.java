@@ -2,7 +2,9 @@ package com.google.android.exoplayer2.source.sabr.parser;
 
 import androidx.annotation.NonNull;
 
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.extractor.ExtractorInput;
+import com.google.android.exoplayer2.extractor.TrackOutput;
 import com.google.android.exoplayer2.source.sabr.parser.exceptions.MediaSegmentMismatchError;
 import com.google.android.exoplayer2.source.sabr.parser.exceptions.SabrStreamError;
 import com.google.android.exoplayer2.source.sabr.parser.models.AudioSelector;
@@ -44,7 +46,6 @@ import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.querystringparser.UrlQueryString;
 import com.liskovsoft.sharedutils.querystringparser.UrlQueryStringFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
@@ -87,6 +88,7 @@ public class SabrStream {
     private boolean receivedNewSegments;
     private String url;
     private List<? extends  SabrPart> multiResult = null;
+    private int mediaBytesRemaining;
 
     private static class NoSegmentsTracker { // TODO: move to the SABR request builder
         public int consecutiveRequests = 0;
@@ -146,6 +148,30 @@ public class SabrStream {
         sqMismatchForwardCount = 0;
     }
 
+    /**
+     * Minimal stream that is used to parse the server responses only (e.g. inside the extractor).
+     */
+    public SabrStream(
+            AudioSelector audioSelection,
+            VideoSelector videoSelection,
+            CaptionSelector captionSelection
+    ) {
+        this(
+                "",
+                "",
+                ClientInfo.getDefaultInstance(),
+                audioSelection,
+                videoSelection,
+                captionSelection,
+                SabrProcessor.NO_VALUE,
+                SabrProcessor.NO_VALUE,
+                SabrProcessor.NO_VALUE,
+                null,
+                false,
+                null
+        );
+    }
+
     public SabrPart parse(@NonNull ExtractorInput extractorInput) {
         SabrPart result = null;
 
@@ -156,7 +182,7 @@ public class SabrStream {
                 break;
             }
 
-            result = parsePart(part);
+            result = parsePart(part, extractorInput);
 
             if (result == null) {
                 multiResult = parseMultiPart(part);
@@ -166,12 +192,86 @@ public class SabrStream {
         return result != null ? result : multiResult != null && !multiResult.isEmpty() ? multiResult.remove(0) : null;
     }
 
-    private SabrPart parsePart(UMPPart part) {
+    /**
+     * Bytes of the current {@link MediaSegmentDataSabrPart} payload that are still waiting in the input.
+     */
+    public int getMediaBytesRemaining() {
+        return mediaBytesRemaining;
+    }
+
+    /**
+     * Streams the payload of the current {@link MediaSegmentDataSabrPart} straight into the output without intermediate copies.
+     * May consume only a part of the payload. The leftovers are skipped on the next {@link #parse} call.
+     *
+     * @return The number of bytes appended or {@link C#RESULT_END_OF_INPUT}.
+     */
+    public int readMediaData(@NonNull ExtractorInput extractorInput, @NonNull TrackOutput output) throws IOException, InterruptedException {
+        if (mediaBytesRemaining == 0) {
+            return 0;
+        }
+
+        int bytesAppended = output.sampleData(extractorInput, mediaBytesRemaining, true);
+
+        if (bytesAppended != C.RESULT_END_OF_INPUT) {
+            mediaBytesRemaining -= bytesAppended;
+        }
+
+        return bytesAppended;
+    }
+
+    /**
+     * Reads up to {@code length} bytes of the current {@link MediaSegmentDataSabrPart} payload.
+     *
+     * @return The number of bytes read or {@link C#RESULT_END_OF_INPUT}.
+     */
+    public int readMediaData(@NonNull ExtractorInput extractorInput, byte[] target, int offset, int length) throws IOException, InterruptedException {
+        if (mediaBytesRemaining == 0 || length == 0) {
+            return 0;
+        }
+
+        int bytesRead = extractorInput.read(target, offset, Math.min(length, mediaBytesRemaining));
+
+        if (bytesRead != C.RESULT_END_OF_INPUT) {
+            mediaBytesRemaining -= bytesRead;
+        }
+
+        return bytesRead;
+    }
+
+    /**
+     * Skips up to {@code length} bytes of the current {@link MediaSegmentDataSabrPart} payload.
+     *
+     * @return The number of bytes skipped or {@link C#RESULT_END_OF_INPUT}.
+     */
+    public int skipMediaData(@NonNull ExtractorInput extractorInput, int length) throws IOException, InterruptedException {
+        if (mediaBytesRemaining == 0 || length == 0) {
+            return 0;
+        }
+
+        int bytesSkipped = extractorInput.skip(Math.min(length, mediaBytesRemaining));
+
+        if (bytesSkipped != C.RESULT_END_OF_INPUT) {
+            mediaBytesRemaining -= bytesSkipped;
+        }
+
+        return bytesSkipped;
+    }
+
+    /**
+     * Drops the state that belongs to the previous response. Should be called before parsing a new one.
+     */
+    public void reset() {
+        mediaBytesRemaining = 0;
+        multiResult = null;
+        processor.resetPartialSegments();
+    }
+
+    private SabrPart parsePart(UMPPart part, ExtractorInput extractorInput) {
         switch (part.partId) {
             case UMPPartId.MEDIA_HEADER:
                 return processMediaHeader(part);
             case UMPPartId.MEDIA:
-                return processMedia(part);
+                return processMedia(part, extractorInput);
             case UMPPartId.MEDIA_END:
                 return processMediaEnd(part);
             case UMPPartId.STREAM_PROTECTION_STATUS:
@@ -221,7 +321,7 @@ public class SabrStream {
         MediaHeader mediaHeader;
 
         try {
-            mediaHeader = MediaHeader.parseFrom(part.data);
+            mediaHeader = MediaHeader.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -259,12 +359,14 @@ public class SabrStream {
         }
     }
 
-    private MediaSegmentDataSabrPart processMedia(UMPPart part) {
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(part.data)) {
-            int headerId = decoder.readVarInt(inputStream);
-            int contentLength = inputStream.available();
+    private MediaSegmentDataSabrPart processMedia(UMPPart part, ExtractorInput extractorInput) {
+        try {
+            // The payload isn't copied. It stays in the input until consumed by readMediaData or skipped.
+            int headerId = decoder.readVarInt(extractorInput);
+            int contentLength = part.size - decoder.getLastVarIntSize();
+            mediaBytesRemaining = contentLength;
 
-            ProcessMediaResult result = processor.processMedia(headerId, contentLength, inputStream);
+            ProcessMediaResult result = processor.processMedia(headerId, contentLength);
 
             return result.sabrPart;
         } catch (IOException | InterruptedException e) {
@@ -273,27 +375,23 @@ public class SabrStream {
     }
 
     private MediaSegmentEndSabrPart processMediaEnd(UMPPart part) {
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(part.data)) {
-            int headerId = decoder.readVarInt(inputStream);
-            Log.d(TAG, "Header ID: %s", headerId);
+        int headerId = decoder.readVarInt(part, 0);
+        Log.d(TAG, "Header ID: %s", headerId);
 
-            ProcessMediaEndResult result = processor.processMediaEnd(headerId);
-
-            if (result.isNewSegment) {
-                receivedNewSegments = true;
-            }
+        ProcessMediaEndResult result = processor.processMediaEnd(headerId);
 
-            return result.sabrPart;
-        } catch (IOException | InterruptedException e) {
-            throw new IllegalStateException(e);
+        if (result.isNewSegment) {
+            receivedNewSegments = true;
         }
+
+        return result.sabrPart;
     }
 
     private PoTokenStatusSabrPart processStreamProtectionStatus(UMPPart part) {
         StreamProtectionStatus sps;
 
         try {
-            sps = StreamProtectionStatus.parseFrom(part.data);
+            sps = StreamProtectionStatus.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -308,7 +406,7 @@ public class SabrStream {
         SabrRedirect sabrRedirect;
 
         try {
-            sabrRedirect = SabrRedirect.parseFrom(part.data);
+            sabrRedirect = SabrRedirect.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -327,7 +425,7 @@ public class SabrStream {
         FormatInitializationMetadata fmtInitMetadata;
 
         try {
-            fmtInitMetadata = FormatInitializationMetadata.parseFrom(part.data);
+            fmtInitMetadata = FormatInitializationMetadata.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -342,7 +440,7 @@ public class SabrStream {
         NextRequestPolicy nextRequestPolicy;
 
         try {
-            nextRequestPolicy = NextRequestPolicy.parseFrom(part.data);
+            nextRequestPolicy = NextRequestPolicy.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -355,7 +453,7 @@ public class SabrStream {
         SabrError sabrError;
 
         try {
-            sabrError = SabrError.parseFrom(part.data);
+            sabrError = SabrError.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -368,7 +466,7 @@ public class SabrStream {
         SabrContextUpdate sabrCtxUpdate;
 
         try {
-            sabrCtxUpdate = SabrContextUpdate.parseFrom(part.data);
+            sabrCtxUpdate = SabrContextUpdate.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -381,7 +479,7 @@ public class SabrStream {
         SabrContextSendingPolicy sabrCtxSendingPolicy;
 
         try {
-            sabrCtxSendingPolicy = SabrContextSendingPolicy.parseFrom(part.data);
+            sabrCtxSendingPolicy = SabrContextSendingPolicy.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -394,7 +492,7 @@ public class SabrStream {
         ReloadPlayerResponse reloadPlayerResponse;
 
         try {
-            reloadPlayerResponse = ReloadPlayerResponse.parseFrom(part.data);
+            reloadPlayerResponse = ReloadPlayerResponse.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -411,7 +509,7 @@ public class SabrStream {
         LiveMetadata liveMetadata;
 
         try {
-            liveMetadata = LiveMetadata.parseFrom(part.data);
+            liveMetadata = LiveMetadata.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -424,7 +522,7 @@ public class SabrStream {
         SabrSeek sabrSeek;
 
         try {
-            sabrSeek = SabrSeek.parseFrom(part.data);
+            sabrSeek = SabrSeek.parseFrom(part.toByteBuffer());
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException(e);
         }
@@ -445,23 +543,44 @@ public class SabrStream {
     private UMPPart nextKnownUMPPart(@NonNull ExtractorInput extractorInput) {
         UMPPart part;
 
+        skipMediaData(extractorInput);
+
         while (true) {
-            part = decoder.decode(extractorInput);
+            part = decoder.decodeHeader(extractorInput);
 
             if (part == null) {
                 break;
             }
 
             if (contains(KNOWN_PARTS, part.partId)) {
+                // Media payload is streamed directly to the output
+                if (part.partId != UMPPartId.MEDIA) {
+                    decoder.readPayload(extractorInput, part);
+                }
                 break;
             } else {
                 Log.d(TAG, "Unknown part encountered: %s", part.partId);
+                decoder.skipPayload(extractorInput, part);
             }
         }
 
         return part;
     }
 
+    private void skipMediaData(@NonNull ExtractorInput extractorInput) {
+        if (mediaBytesRemaining == 0) {
+            return;
+        }
+
+        try {
+            extractorInput.skipFully(mediaBytesRemaining);
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+
+        mediaBytesRemaining = 0;
+    }
+
     private String getUrl() {
         return this.url;
     }
@@ -3,13 +3,15 @@ package com.google.android.exoplayer2.source.sabr.parser.parts;
 import com.google.android.exoplayer2.source.sabr.parser.models.FormatSelector;
 import com.google.android.exoplayer2.source.sabr.protos.videostreaming.FormatId;
 
+/**
+ * The payload isn't copied into the part. It should be read with {@link com.google.android.exoplayer2.source.sabr.parser.SabrStream#readMediaData}.
+ */
 public class MediaSegmentDataSabrPart implements SabrPart {
     public final FormatSelector formatSelector;
     public final FormatId formatId;
     public final long sequenceNumber;
     public final boolean isInitSegment;
     public final int totalSegments;
-    public final byte[] data;
     public final int contentLength;
     public final int segmentStartBytes;
 
@@ -19,7 +21,6 @@ public class MediaSegmentDataSabrPart implements SabrPart {
             long sequenceNumber,
             boolean isInitSegment,
             int totalSegments,
-            byte[] data,
             int contentLength,
             int segmentStartBytes) {
         this.formatSelector = formatSelector;
@@ -27,7 +28,6 @@ public class MediaSegmentDataSabrPart implements SabrPart {
         this.sequenceNumber = sequenceNumber;
         this.isInitSegment = isInitSegment;
         this.totalSegments = totalSegments;
-        this.data = data;
         this.contentLength = contentLength;
         this.segmentStartBytes = segmentStartBytes;
     }
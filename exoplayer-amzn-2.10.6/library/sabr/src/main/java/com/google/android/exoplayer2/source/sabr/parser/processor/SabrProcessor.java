@@ -34,7 +34,6 @@ import com.google.android.exoplayer2.source.sabr.protos.videostreaming.TimeRange
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 
-import java.io.ByteArrayInputStream;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -195,7 +194,7 @@ public class SabrProcessor {
         // However, if retrying a request, we may get the same segment again
         if (!isInitSegment &&
                 Helpers.findFirst(initializedFormat.consumedRanges,
-                        cr -> cr.startSequenceNumber <= sequenceNumber && sequenceNumber <= cr.endSequenceNumber) == null) {
+                        cr -> cr.startSequenceNumber <= sequenceNumber && sequenceNumber <= cr.endSequenceNumber) != null) {
             Log.d(TAG, "%s segment %s already consumed, marking segment as consumed", initializedFormat.formatId, sequenceNumber);
             consumed = true;
         }
@@ -296,7 +295,7 @@ public class SabrProcessor {
         return result;
     }
 
-    public ProcessMediaResult processMedia(int headerId, int contentLength, ByteArrayInputStream data) {
+    public ProcessMediaResult processMedia(int headerId, int contentLength) {
         Segment segment = partialSegments.get(headerId);
         if (segment == null) {
             Log.d(TAG, "Header ID %s not found", headerId);
@@ -315,7 +314,6 @@ public class SabrProcessor {
                     segment.sequenceNumber,
                     segment.isInitSegment,
                     segment.initializedFormat.totalSegments,
-                    Utils.readAllBytes(data),
                     contentLength,
                     segmentStartBytes
             );
@@ -651,6 +649,13 @@ public class SabrProcessor {
         }
     }
 
+    /**
+     * Segments of the interrupted response that will never be finished.
+     */
+    public void resetPartialSegments() {
+        partialSegments.clear();
+    }
+
     public boolean isLive() {
         return liveMetadata != null || isLive;
     }
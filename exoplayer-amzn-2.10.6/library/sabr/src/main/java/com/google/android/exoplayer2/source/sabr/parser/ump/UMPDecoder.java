@@ -3,13 +3,41 @@ package com.google.android.exoplayer2.source.sabr.parser.ump;
 import androidx.annotation.NonNull;
 
 import com.google.android.exoplayer2.extractor.ExtractorInput;
-import com.liskovsoft.sharedutils.helpers.Helpers;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
+/**
+ * Streaming UMP decoder.<br/>
+ * Part headers are read through a reusable scratch buffer and part payloads are exposed as windows over
+ * a single pooled buffer, so no allocations happen per part once the pool has grown to the largest part size.<br/>
+ * The returned {@link UMPPart} is reused and stays valid only until the next call to the decoder.
+ */
 public class UMPDecoder {
+    private static final int MAX_VAR_INT_SIZE = 5;
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private final byte[] scratch = new byte[MAX_VAR_INT_SIZE];
+    private final UMPPart part = new UMPPart();
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int lastVarIntSize;
+
+    /**
+     * Reads the whole part (header and payload).
+     */
     public UMPPart decode(@NonNull ExtractorInput extractorInput) {
+        UMPPart part = decodeHeader(extractorInput);
+
+        if (part != null) {
+            readPayload(extractorInput, part);
+        }
+
+        return part;
+    }
+
+    /**
+     * Reads only the part header. The caller must either {@link #readPayload}, {@link #skipPayload}
+     * or consume {@link UMPPart#size} bytes from the input by itself before decoding the next part.
+     */
+    public UMPPart decodeHeader(@NonNull ExtractorInput extractorInput) {
         try {
             int partType = readVarInt(extractorInput);
             if (partType == -1) {
@@ -21,26 +49,88 @@ public class UMPDecoder {
                 throw new IllegalStateException("Unexpected EOF while reading part size");
             }
 
-            byte[] partData = new byte[partSize];
+            part.set(partType, partSize, null, 0);
 
-            return new UMPPart(partType, partSize, partData);
+            return part;
         } catch (IOException | InterruptedException e) {
             throw new IllegalStateException(e);
         }
     }
 
-    private int readVarInt(StreamWrapper input) throws IOException, InterruptedException {
+    /**
+     * Reads the payload into the pooled buffer. The buffer is reused by the subsequent parts.
+     */
+    public void readPayload(@NonNull ExtractorInput extractorInput, @NonNull UMPPart part) {
+        ensureCapacity(part.size);
+
+        try {
+            extractorInput.readFully(buffer, 0, part.size);
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+
+        part.set(part.partId, part.size, buffer, 0);
+    }
+
+    public void skipPayload(@NonNull ExtractorInput extractorInput, @NonNull UMPPart part) {
+        try {
+            extractorInput.skipFully(part.size);
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int readVarInt(ExtractorInput input) throws IOException, InterruptedException {
         // https://web.archive.org/web/20250430054327/https://github.com/gsuberland/UMP_Format/blob/main/UMP_Format.md
         // https://web.archive.org/web/20250429151021/https://github.com/davidzeng0/innertube/blob/main/googlevideo/ump.md
-        byte[] buffer = new byte[1];
-        boolean success = input.readFully(buffer, 0, 1, true);
+        boolean success = input.readFully(scratch, 0, 1, true);
         if (!success) {
             // Expected EOF
             return -1;
         }
 
-        int byteInt = buffer[0] & 0xFF; // convert to unsigned (0..255)
-        int size = varIntSize(byteInt);
+        int size = varIntSize(scratch[0] & 0xFF);
+
+        if (size > 1) {
+            success = input.readFully(scratch, 1, size - 1, true);
+            if (!success) {
+                return -1;
+            }
+        }
+
+        lastVarIntSize = size;
+
+        return decodeVarInt(scratch, 0, size);
+    }
+
+    /**
+     * Reads var int from the part's payload window.
+     */
+    public int readVarInt(@NonNull UMPPart part, int position) {
+        if (position >= part.size) {
+            return -1;
+        }
+
+        int size = varIntSize(part.data[part.offset + position] & 0xFF);
+
+        if (position + size > part.size) {
+            return -1;
+        }
+
+        lastVarIntSize = size;
+
+        return decodeVarInt(part.data, part.offset + position, size);
+    }
+
+    /**
+     * Number of bytes occupied by the last var int that has been read.
+     */
+    public int getLastVarIntSize() {
+        return lastVarIntSize;
+    }
+
+    private static int decodeVarInt(byte[] data, int offset, int size) {
+        int byteInt = data[offset] & 0xFF; // convert to unsigned (0..255)
         int result = 0;
         int shift = 0;
 
@@ -50,12 +140,8 @@ public class UMPDecoder {
             result |= byteInt & mask;
         }
 
-        for (int i : Helpers.range(1, size, 1)) {
-            success = input.readFully(buffer, 0, 1, true);
-            if (!success) {
-                return -1;
-            }
-            byteInt = buffer[0] & 0xFF; // convert to unsigned (0..255)
+        for (int i = 1; i < size; i++) {
+            byteInt = data[offset + i] & 0xFF;
             result |= byteInt << shift;
             shift += 8;
         }
@@ -63,23 +149,21 @@ public class UMPDecoder {
         return result;
     }
 
-    private int readVarInt(ExtractorInput input) throws IOException, InterruptedException {
-        return readVarInt(input::readFully);
+    private static int varIntSize(int byteInt) {
+        return byteInt < 128 ? 1 : byteInt < 192 ? 2 : byteInt < 224 ? 3 : byteInt < 240 ? 4 : 5;
     }
 
-    public int readVarInt(ByteArrayInputStream inputStream) throws IOException, InterruptedException {
-        return readVarInt((target, offset, length, allowEndOfInput) -> {
-            int numRead = inputStream.read(target, offset, length);
-            return numRead != -1;
-        });
-    }
+    private void ensureCapacity(int size) {
+        if (buffer.length >= size) {
+            return;
+        }
 
-    private int varIntSize(int byteInt) {
-        return byteInt < 128 ? 1 : byteInt < 192 ? 2 : byteInt < 224 ? 3 : byteInt < 240 ? 4 : 5;
-    }
+        int newLength = buffer.length;
+
+        while (newLength < size) {
+            newLength *= 2;
+        }
 
-    private interface StreamWrapper {
-        boolean readFully(byte[] target, int offset, int length, boolean allowEndOfInput)
-                throws IOException, InterruptedException;
+        buffer = new byte[newLength];
     }
 }
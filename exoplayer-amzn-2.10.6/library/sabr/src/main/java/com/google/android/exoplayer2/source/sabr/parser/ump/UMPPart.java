@@ -1,13 +1,35 @@
 package com.google.android.exoplayer2.source.sabr.parser.ump;
 
+import java.nio.ByteBuffer;
+
+/**
+ * Window over the decoder's pooled buffer. The data is only valid until the next decoder call.<br/>
+ * The data is null when the payload hasn't been read (e.g. media payload that is streamed directly to the output).
+ */
 public class UMPPart {
-    public final int partId;
-    public final int size;
-    public final byte[] data;
+    public int partId;
+    public int size;
+    public byte[] data;
+    public int offset;
+
+    UMPPart() {
+    }
 
     public UMPPart(int partId, int size, byte[] data) {
+        set(partId, size, data, 0);
+    }
+
+    void set(int partId, int size, byte[] data, int offset) {
         this.partId = partId;
         this.size = size;
         this.data = data;
+        this.offset = offset;
+    }
+
+    /**
+     * Wraps the payload without copying. Intended for the protobuf parsers.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(data, offset, size);
     }
 }
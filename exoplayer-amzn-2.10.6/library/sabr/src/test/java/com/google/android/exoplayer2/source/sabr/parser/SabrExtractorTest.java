@@ -0,0 +1,167 @@
+package com.google.android.exoplayer2.source.sabr.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.extractor.Extractor;
+import com.google.android.exoplayer2.extractor.PositionHolder;
+import com.google.android.exoplayer2.extractor.mp4.FragmentedMp4Extractor;
+import com.google.android.exoplayer2.source.sabr.parser.ump.UMPPartId;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.FormatId;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.FormatInitializationMetadata;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.MediaHeader;
+import com.google.android.exoplayer2.testutil.FakeExtractorInput;
+import com.google.android.exoplayer2.testutil.FakeExtractorOutput;
+import com.google.android.exoplayer2.testutil.TestUtil;
+import com.google.android.exoplayer2.util.MimeTypes;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Replays the UMP response built around a known fMP4 file through {@link SabrExtractor}.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class SabrExtractorTest {
+    private static final String SAMPLE_FILE = "mp4/sample_fragmented.mp4";
+    private static final int VIDEO_ITAG = 137;
+    private static final int AUDIO_ITAG = 140;
+    private static final int VIDEO_HEADER_ID = 0;
+    private static final int AUDIO_HEADER_ID = 1;
+    private static final int MEDIA_PART_SIZE = 997;
+
+    @Test
+    public void testOutputMatchesFragmentedMp4Extractor() throws Exception {
+        byte[] media = TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), SAMPLE_FILE);
+
+        FakeExtractorOutput expected = extractAll(new FragmentedMp4Extractor(), media);
+        FakeExtractorOutput actual = extractAll(new SabrExtractor(C.TRACK_TYPE_VIDEO, createVideoFormat()), buildUmpResponse(media));
+
+        assertThat(actual.numberOfTracks).isGreaterThan(0);
+        actual.assertEquals(expected);
+    }
+
+    private static FakeExtractorOutput extractAll(Extractor extractor, byte[] data) throws Exception {
+        FakeExtractorInput input = new FakeExtractorInput.Builder()
+                .setData(data)
+                .setSimulatePartialReads(true)
+                .build();
+        FakeExtractorOutput output = new FakeExtractorOutput();
+        PositionHolder seekPositionHolder = new PositionHolder();
+
+        extractor.init(output);
+
+        int readResult = Extractor.RESULT_CONTINUE;
+        while (readResult != Extractor.RESULT_END_OF_INPUT) {
+            readResult = extractor.read(input, seekPositionHolder);
+            assertThat(readResult).isNotEqualTo(Extractor.RESULT_SEEK);
+        }
+
+        return output;
+    }
+
+    /**
+     * Video payload split into small parts interleaved with the audio parts that should be discarded.
+     */
+    private static byte[] buildUmpResponse(byte[] media) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] audioJunk = TestUtil.buildTestData(MEDIA_PART_SIZE);
+        int audioParts = 0;
+
+        writePart(out, UMPPartId.FORMAT_INITIALIZATION_METADATA, createFormatMetadata(VIDEO_ITAG, "video/mp4").toByteArray());
+        writePart(out, UMPPartId.FORMAT_INITIALIZATION_METADATA, createFormatMetadata(AUDIO_ITAG, "audio/mp4").toByteArray());
+        writePart(out, UMPPartId.MEDIA_HEADER, createMediaHeader(VIDEO_HEADER_ID, VIDEO_ITAG, media.length).toByteArray());
+
+        for (int offset = 0; offset < media.length; offset += MEDIA_PART_SIZE) {
+            int length = Math.min(MEDIA_PART_SIZE, media.length - offset);
+            writeMediaPart(out, VIDEO_HEADER_ID, media, offset, length);
+
+            if (offset == 0) {
+                writePart(out, UMPPartId.MEDIA_HEADER,
+                        createMediaHeader(AUDIO_HEADER_ID, AUDIO_ITAG, audioJunk.length * 3).toByteArray());
+            }
+
+            if (audioParts < 3) {
+                writeMediaPart(out, AUDIO_HEADER_ID, audioJunk, 0, audioJunk.length);
+                if (++audioParts == 3) {
+                    writePart(out, UMPPartId.MEDIA_END, new byte[] {AUDIO_HEADER_ID});
+                }
+            }
+        }
+
+        writePart(out, UMPPartId.MEDIA_END, new byte[] {VIDEO_HEADER_ID});
+
+        return out.toByteArray();
+    }
+
+    private static Format createVideoFormat() {
+        return Format.createVideoContainerFormat(
+                String.valueOf(VIDEO_ITAG),
+                /* label= */ null,
+                MimeTypes.VIDEO_MP4,
+                MimeTypes.VIDEO_H264,
+                /* codecs= */ "",
+                /* metadata= */ null,
+                Format.NO_VALUE,
+                /* width= */ 1080,
+                /* height= */ 720,
+                Format.NO_VALUE,
+                /* initializationData= */ null,
+                /* selectionFlags= */ 0,
+                /* roleFlags= */ 0);
+    }
+
+    private static FormatInitializationMetadata createFormatMetadata(int itag, String mimeType) {
+        return FormatInitializationMetadata.newBuilder()
+                .setFormatId(FormatId.newBuilder().setItag(itag).build())
+                .setMimeType(mimeType)
+                .setTotalSegments(1)
+                .build();
+    }
+
+    private static MediaHeader createMediaHeader(int headerId, int itag, int contentLength) {
+        return MediaHeader.newBuilder()
+                .setHeaderId(headerId)
+                .setItag(itag)
+                .setFormatId(FormatId.newBuilder().setItag(itag).build())
+                .setSequenceNumber(1)
+                .setStartMs(0)
+                .setDurationMs(1_000)
+                .setContentLength(contentLength)
+                .build();
+    }
+
+    private static void writeMediaPart(ByteArrayOutputStream out, int headerId, byte[] data, int offset, int length) {
+        writeVarInt(out, UMPPartId.MEDIA);
+        writeVarInt(out, length + 1);
+        writeVarInt(out, headerId);
+        out.write(data, offset, length);
+    }
+
+    private static void writePart(ByteArrayOutputStream out, int partId, byte[] payload) {
+        writeVarInt(out, partId);
+        writeVarInt(out, payload.length);
+        out.write(payload, 0, payload.length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        if (value < 0x80) {
+            out.write(value);
+        } else if (value < 0x4000) {
+            out.write(0x80 | (value & 0x3F));
+            out.write(value >>> 6);
+        } else {
+            out.write(0xF0);
+            out.write(value & 0xFF);
+            out.write((value >>> 8) & 0xFF);
+            out.write((value >>> 16) & 0xFF);
+            out.write(value >>> 24);
+        }
+    }
+}
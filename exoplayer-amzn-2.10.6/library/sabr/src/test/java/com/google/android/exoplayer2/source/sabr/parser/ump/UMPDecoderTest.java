@@ -0,0 +1,281 @@
+package com.google.android.exoplayer2.source.sabr.parser.ump;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.extractor.ExtractorInput;
+import com.google.android.exoplayer2.testutil.FakeExtractorInput;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/** Unit tests for {@link UMPDecoder}. */
+@RunWith(AndroidJUnit4.class)
+public final class UMPDecoderTest {
+    private static final int SEGMENT_COUNT = 200;
+    private static final int MEDIA_PARTS_PER_SEGMENT = 3;
+    private static final int MEDIA_PART_SIZE = 8 * 1024;
+    private static final int RUN_COUNT = 10;
+
+    @Test
+    public void testDecodeVarInts() throws Exception {
+        int[] values = {0, 1, 127, 128, 16383, 100_000, Integer.MAX_VALUE};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int value : values) {
+            writeVarInt(out, value);
+        }
+
+        FakeExtractorInput input = newInput(out.toByteArray());
+        UMPDecoder decoder = new UMPDecoder();
+
+        for (int value : values) {
+            assertThat(decoder.readVarInt(input)).isEqualTo(value);
+        }
+        assertThat(decoder.readVarInt(input)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testDecodeReusesPooledBuffer() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writePart(out, UMPPartId.MEDIA_HEADER, new byte[] {1, 2, 3});
+        writePart(out, UMPPartId.MEDIA_END, new byte[] {4, 5});
+
+        FakeExtractorInput input = newInput(out.toByteArray());
+        UMPDecoder decoder = new UMPDecoder();
+
+        UMPPart first = decoder.decode(input);
+        assertThat(first.partId).isEqualTo(UMPPartId.MEDIA_HEADER);
+        assertThat(first.size).isEqualTo(3);
+        assertThat(copyOf(first)).isEqualTo(new byte[] {1, 2, 3});
+        byte[] pooledData = first.data;
+
+        UMPPart second = decoder.decode(input);
+        assertThat(second).isSameAs(first);
+        assertThat(second.data).isSameAs(pooledData);
+        assertThat(second.partId).isEqualTo(UMPPartId.MEDIA_END);
+        assertThat(copyOf(second)).isEqualTo(new byte[] {4, 5});
+
+        assertThat(decoder.decode(input)).isNull();
+    }
+
+    @Test
+    public void testDecodePartLargerThanPool() {
+        byte[] payload = new byte[100_000];
+        payload[payload.length - 1] = 42;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writePart(out, UMPPartId.MEDIA_HEADER, payload);
+
+        UMPPart part = new UMPDecoder().decode(newInput(out.toByteArray()));
+
+        assertThat(part.size).isEqualTo(payload.length);
+        assertThat(part.data[part.offset + part.size - 1]).isEqualTo(42);
+    }
+
+    @Test
+    public void testHeaderOnlyLeavesPayloadInInput() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writePart(out, UMPPartId.MEDIA, new byte[] {7, 8, 9, 10});
+        writePart(out, UMPPartId.SABR_ACK, new byte[] {11});
+        writePart(out, UMPPartId.MEDIA_END, new byte[] {7});
+
+        FakeExtractorInput input = newInput(out.toByteArray());
+        UMPDecoder decoder = new UMPDecoder();
+
+        UMPPart media = decoder.decodeHeader(input);
+        assertThat(media.partId).isEqualTo(UMPPartId.MEDIA);
+        assertThat(media.data).isNull();
+        assertThat(decoder.readVarInt(input)).isEqualTo(7);
+        assertThat(media.size - decoder.getLastVarIntSize()).isEqualTo(3);
+        input.skipFully(3);
+
+        UMPPart unknown = decoder.decodeHeader(input);
+        assertThat(unknown.partId).isEqualTo(UMPPartId.SABR_ACK);
+        decoder.skipPayload(input, unknown);
+
+        UMPPart mediaEnd = decoder.decode(input);
+        assertThat(mediaEnd.partId).isEqualTo(UMPPartId.MEDIA_END);
+        assertThat(decoder.readVarInt(mediaEnd, 0)).isEqualTo(7);
+        assertThat(decoder.readVarInt(mediaEnd, 1)).isEqualTo(-1);
+    }
+
+    /**
+     * The old decoder allocated an array for every part and read the var ints byte by byte.
+     */
+    @Test
+    public void testBenchmarkPooledBufferAgainstPerPartArrays() throws Exception {
+        byte[] data = createStream();
+
+        // Warm up
+        decodePooled(data);
+        decodePerPart(data);
+
+        long pooledNs = Long.MAX_VALUE;
+        long perPartNs = Long.MAX_VALUE;
+        long pooledChecksum = 0;
+        long perPartChecksum = 0;
+
+        for (int i = 0; i < RUN_COUNT; i++) {
+            long startNs = System.nanoTime();
+            pooledChecksum = decodePooled(data);
+            pooledNs = Math.min(pooledNs, System.nanoTime() - startNs);
+
+            startNs = System.nanoTime();
+            perPartChecksum = decodePerPart(data);
+            perPartNs = Math.min(perPartNs, System.nanoTime() - startNs);
+        }
+
+        assertThat(pooledChecksum).isEqualTo(perPartChecksum);
+        assertWithMessage(String.format("%s bytes. Pooled %s us, per part arrays %s us",
+                data.length, pooledNs / 1_000, perPartNs / 1_000))
+                .that(pooledNs).isLessThan(perPartNs * 5 / 4);
+    }
+
+    @Test
+    public void testPooledBufferGrowsToLargestPartOnly() {
+        FakeExtractorInput input = newInput(createStream());
+        UMPDecoder decoder = new UMPDecoder();
+        UMPPart part;
+        byte[] pooledData = null;
+        int partCount = 0;
+
+        while ((part = decoder.decode(input)) != null) {
+            pooledData = part.data;
+            partCount++;
+        }
+
+        assertThat(partCount).isEqualTo(SEGMENT_COUNT * (MEDIA_PARTS_PER_SEGMENT + 2));
+        // Instead of the array per part, about 5 MB in total
+        assertThat(pooledData.length).isLessThan(MEDIA_PART_SIZE * 2);
+    }
+
+    /**
+     * Sums the last byte of every part.
+     */
+    private static long decodePooled(byte[] data) {
+        FakeExtractorInput input = newInput(data);
+        UMPDecoder decoder = new UMPDecoder();
+        long checksum = 0;
+        UMPPart part;
+
+        while ((part = decoder.decode(input)) != null) {
+            checksum += part.partId + part.data[part.offset + part.size - 1];
+        }
+
+        return checksum;
+    }
+
+    /**
+     * Same as the old decoder did.
+     */
+    private static long decodePerPart(byte[] data) throws Exception {
+        FakeExtractorInput input = newInput(data);
+        long checksum = 0;
+
+        while (true) {
+            int partId = readVarIntPerByte(input);
+
+            if (partId == -1) {
+                break;
+            }
+
+            byte[] partData = new byte[readVarIntPerByte(input)];
+            input.readFully(partData, 0, partData.length);
+            checksum += partId + partData[partData.length - 1];
+        }
+
+        return checksum;
+    }
+
+    private static int readVarIntPerByte(ExtractorInput input) throws Exception {
+        byte[] buffer = new byte[1];
+
+        if (!input.readFully(buffer, 0, 1, true)) {
+            return -1;
+        }
+
+        int byteInt = buffer[0] & 0xFF;
+        int size = byteInt < 128 ? 1 : byteInt < 192 ? 2 : byteInt < 224 ? 3 : byteInt < 240 ? 4 : 5;
+        int result = 0;
+        int shift = 0;
+
+        if (size != 5) {
+            shift = 8 - size;
+            result |= byteInt & ((1 << shift) - 1);
+        }
+
+        for (int i = 1; i < size; i++) {
+            input.readFully(buffer, 0, 1, true);
+            result |= (buffer[0] & 0xFF) << shift;
+            shift += 8;
+        }
+
+        return result;
+    }
+
+    /**
+     * Media segments as the server sends them: header, a few media chunks, end.
+     */
+    private static byte[] createStream() {
+        Random random = new Random(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            byte[] header = new byte[60];
+            random.nextBytes(header);
+            writePart(out, UMPPartId.MEDIA_HEADER, header);
+
+            for (int j = 0; j < MEDIA_PARTS_PER_SEGMENT; j++) {
+                byte[] media = new byte[MEDIA_PART_SIZE];
+                random.nextBytes(media);
+                writePart(out, UMPPartId.MEDIA, media);
+            }
+
+            writePart(out, UMPPartId.MEDIA_END, new byte[] {(byte) i});
+        }
+
+        return out.toByteArray();
+    }
+
+    private static FakeExtractorInput newInput(byte[] data) {
+        return new FakeExtractorInput.Builder()
+                .setData(data)
+                .setSimulatePartialReads(true)
+                .build();
+    }
+
+    private static byte[] copyOf(UMPPart part) {
+        byte[] result = new byte[part.size];
+        System.arraycopy(part.data, part.offset, result, 0, part.size);
+        return result;
+    }
+
+    private static void writePart(ByteArrayOutputStream out, int partId, byte[] payload) {
+        writeVarInt(out, partId);
+        writeVarInt(out, payload.length);
+        out.write(payload, 0, payload.length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        if (value < 0x80) {
+            out.write(value);
+        } else if (value < 0x4000) {
+            out.write(0x80 | (value & 0x3F));
+            out.write(value >>> 6);
+        } else if (value < 0x200000) {
+            out.write(0xC0 | (value & 0x1F));
+            out.write((value >>> 5) & 0xFF);
+            out.write(value >>> 13);
+        } else {
+            out.write(0xF0);
+            out.write(value & 0xFF);
+            out.write((value >>> 8) & 0xFF);
+            out.write((value >>> 16) & 0xFF);
+            out.write(value >>> 24);
+        }
+    }
+}
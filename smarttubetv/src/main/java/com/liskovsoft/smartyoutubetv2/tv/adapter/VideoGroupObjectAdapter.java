@@ -10,8 +10,12 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class VideoGroupObjectAdapter extends ObjectAdapter {
     private static final String TAG = VideoGroupObjectAdapter.class.getSimpleName();
@@ -37,6 +41,10 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
     private final List<Video> mVideoItems = new ArrayList<>();
     private final List<VideoGroup> mVideoGroups = new ArrayList<>(); // keep groups from being garbage collected
     private static final int CHECK_MAX_SIZE = 200;
+    // Lookup indexes. Appends update them in place, any other structural change rebuilds them on the next lookup.
+    private final Map<Video, Integer> mPositions = new IdentityHashMap<>();
+    private final Map<String, List<Integer>> mVideoIdPositions = new HashMap<>();
+    private boolean mIndexDirty;
 
     public VideoGroupObjectAdapter(VideoGroup videoGroup, Presenter presenter) {
         super(presenter);
@@ -116,6 +124,8 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
             mVideoGroups.add(0, group);
         }
 
+        mIndexDirty = true;
+
         // Fix double item blinking by specifying exact range
         notifyItemRangeInserted(0, mVideoItems.size() - begin);
     }
@@ -135,6 +145,12 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
             mVideoGroups.add(group);
         }
 
+        if (!mIndexDirty) {
+            for (int i = begin; i < mVideoItems.size(); i++) {
+                addToIndex(mVideoItems.get(i), i);
+            }
+        }
+
         // Fix double item blinking by specifying exact range
         notifyItemRangeInserted(begin, mVideoItems.size() - begin);
     }
@@ -143,17 +159,15 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
      * Compare by reference. Because there may be multiple same videos.
      */
     public int indexOf(Video item) {
-        // Compare by reference. Because there may be multiple same videos.
-        int index = -1;
-
-        for (Video video : mVideoItems) {
-            index++;
-            if (video == item) {
-                return index;
-            }
+        if (item == null) {
+            return -1;
         }
 
-        return -1;
+        ensureIndex();
+
+        Integer index = mPositions.get(item);
+
+        return index != null ? index : -1;
     }
 
     /**
@@ -161,12 +175,19 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
      * UI may consists of multiple rows with same video or even multiple videos in the same row.
      */
     public int indexOfAlt(Video item) {
-        int index = -1;
+        if (item == null) {
+            return -1;
+        }
+
+        ensureIndex();
+
+        List<Integer> positions = mVideoIdPositions.get(item.videoId);
 
-        for (Video video : mVideoItems) {
-            index++;
-            if (video.equals(item)) {
-                return index;
+        if (positions != null) {
+            for (int position : positions) {
+                if (mVideoItems.get(position).equals(item)) {
+                    return position;
+                }
             }
         }
 
@@ -181,25 +202,53 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
         int itemCount = mVideoItems.size();
         mVideoItems.clear();
         mVideoGroups.clear();
+        mPositions.clear();
+        mVideoIdPositions.clear();
+        mIndexDirty = false;
         if (itemCount != 0) {
             // NOTE: Crashes RecycleView IndexOutOfBoundsException when doing add immediately after clear
             notifyItemRangeRemoved(0, itemCount);
         }
     }
 
+    /**
+     * Removes all occurrences of the group videos with a single pass over the items.
+     */
     public void remove(VideoGroup group) {
+        BitSet removed = new BitSet(mVideoItems.size());
+
         for (Video video : group.getVideos()) {
-            while (true) { // remove all occurrences of the same element (if present)
-                int index = mVideoItems.indexOf(video);
-                if (index != -1) {
-                    mVideoItems.remove(video);
-                    notifyItemRangeRemoved(index, 1);
+            // remove all occurrences of the same element (if present)
+            for (int position : findAll(video)) {
+                if (!removed.get(position)) {
+                    removed.set(position);
                     removeFromGroup(video);
-                } else {
-                    break;
                 }
             }
         }
+
+        if (removed.isEmpty()) {
+            return;
+        }
+
+        List<Video> result = new ArrayList<>(mVideoItems.size() - removed.cardinality());
+
+        for (int i = 0; i < mVideoItems.size(); i++) {
+            if (!removed.get(i)) {
+                result.add(mVideoItems.get(i));
+            }
+        }
+
+        mVideoItems.clear();
+        mVideoItems.addAll(result);
+        mIndexDirty = true;
+
+        // From the end, so the positions of the next ranges stay valid
+        for (int end = removed.length() - 1; end >= 0; end = removed.previousSetBit(end - 1)) {
+            int start = removed.previousClearBit(end) + 1;
+            notifyItemRangeRemoved(start, end - start + 1);
+            end = start;
+        }
     }
 
     public void removeAuthor(VideoGroup group) {
@@ -210,17 +259,25 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
         }
     }
 
+    /**
+     * Contiguous changes are reported as one range.
+     */
     public void sync(VideoGroup group) {
+        BitSet changed = new BitSet(mVideoItems.size());
+
         for (Video video : group.getVideos()) {
             // Search for multiple occurrences (e.g. History section)
-            for (int i = 0; i < mVideoItems.size(); i++) {
-                Video origin = mVideoItems.get(i);
-                if (origin.equals(video)) {
-                    origin.sync(video);
-                    notifyItemRangeChanged(i, 1);
-                }
+            for (int position : findAll(video)) {
+                mVideoItems.get(position).sync(video);
+                changed.set(position);
             }
         }
+
+        for (int start = changed.nextSetBit(0); start >= 0; start = changed.nextSetBit(start)) {
+            int end = changed.nextClearBit(start);
+            notifyItemRangeChanged(start, end - start);
+            start = end;
+        }
     }
 
     public boolean isEmpty() {
@@ -232,4 +289,59 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
             video.getGroup().remove(video);
         }
     }
+
+    /**
+     * All positions of the items that are equal to the video.
+     */
+    private List<Integer> findAll(Video video) {
+        List<Integer> result = new ArrayList<>();
+
+        if (video == null) {
+            return result;
+        }
+
+        ensureIndex();
+
+        List<Integer> positions = mVideoIdPositions.get(video.videoId);
+
+        if (positions != null) {
+            for (int position : positions) {
+                if (mVideoItems.get(position).equals(video)) {
+                    result.add(position);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void ensureIndex() {
+        if (!mIndexDirty) {
+            return;
+        }
+
+        mPositions.clear();
+        mVideoIdPositions.clear();
+
+        for (int i = 0; i < mVideoItems.size(); i++) {
+            addToIndex(mVideoItems.get(i), i);
+        }
+
+        mIndexDirty = false;
+    }
+
+    private void addToIndex(Video video, int position) {
+        if (!mPositions.containsKey(video)) {
+            mPositions.put(video, position); // the first occurrence
+        }
+
+        List<Integer> positions = mVideoIdPositions.get(video.videoId);
+
+        if (positions == null) {
+            positions = new ArrayList<>(1);
+            mVideoIdPositions.put(video.videoId, positions);
+        }
+
+        positions.add(position);
+    }
 }
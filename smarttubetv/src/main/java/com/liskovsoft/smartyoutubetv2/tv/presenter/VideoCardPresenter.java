@@ -34,7 +34,7 @@ import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
 import com.liskovsoft.smartyoutubetv2.tv.services.TMDBImageService;
 import com.liskovsoft.smartyoutubetv2.tv.services.TMDBImageCallback;
 import com.liskovsoft.smartyoutubetv2.tv.services.TMDBDetailedMovieInfo;
-import com.liskovsoft.smartyoutubetv2.tv.services.TMDBDataCache;
+import com.liskovsoft.smartyoutubetv2.tv.services.TMDBPosterIndex;
 import com.liskovsoft.smartyoutubetv2.tv.presenters.MovieDetailsVideoActionPresenter;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -229,31 +229,52 @@ public class VideoCardPresenter extends LongClickPresenter {
         // Optimized TMDB image loading with debouncing and caching
         String videoTitle = video.getTitle();
         String cacheKey = videoTitle.toLowerCase().trim();
-        
-        // CRITICAL: Check SQLite persistent cache FIRST (survives restarts)
-        String cachedPosterUrl = null;
-        String cachedBackdropUrl = null;
-        
-        if (video.videoId != null) {
-            TMDBDataCache persistentCache = TMDBDataCache.instance(context);
-            cachedPosterUrl = persistentCache.getPosterUrl(video.videoId);
-            cachedBackdropUrl = persistentCache.getBackdropUrl(video.videoId);
-            
-            // Also check in-memory cache as fallback
-            if (cachedBackdropUrl == null) {
-                cachedBackdropUrl = sBackdropCache.get(cacheKey);
+
+        // Async results of the previous bind should be ignored
+        cardView.setTag(R.id.card_video_id, video.videoId);
+
+        // CRITICAL: No disk access here. The index is prewarmed when the row arrives.
+        TMDBPosterIndex posterIndex = TMDBPosterIndex.instance(context);
+        TMDBPosterIndex.Entry entry = posterIndex.peek(video.videoId);
+
+        if (entry != null || video.videoId == null) {
+            bindPoster(context, cardView, video, cacheKey, entry);
+            return;
+        }
+
+        // Not in memory yet. Show the placeholder and swap in the poster when the lookup is done.
+        Glide.with(context)
+                .load(R.drawable.card_placeholder)
+                .into(cardView.getMainImageView());
+
+        posterIndex.resolve(video.videoId, result -> {
+            if (!Helpers.equals(video.videoId, cardView.getTag(R.id.card_video_id))) {
+                return; // The card shows another video now
             }
-        } else {
-            // Fallback to in-memory cache if no video ID
+
+            if (context instanceof Activity && ((Activity) context).isDestroyed()) {
+                return;
+            }
+
+            bindPoster(context, cardView, video, cacheKey, result);
+        });
+    }
+
+    private void bindPoster(Context context, ComplexImageCardView cardView, Video video, String cacheKey, @Nullable TMDBPosterIndex.Entry entry) {
+        String cachedPosterUrl = entry != null ? entry.posterUrl : null;
+        String cachedBackdropUrl = entry != null ? entry.backdropUrl : null;
+
+        // Also check in-memory cache as fallback
+        if (cachedBackdropUrl == null) {
             cachedBackdropUrl = sBackdropCache.get(cacheKey);
         }
-        
+
         // Check in-memory cache for fast lookup
         String cachedImageUrl = sRequestCache.get(cacheKey);
         if (cachedImageUrl != null && cachedPosterUrl == null) {
             cachedPosterUrl = cachedImageUrl;
         }
-        
+
         if (cachedPosterUrl != null) {
             // Use cached result immediately - FAST PATH
             if (cachedBackdropUrl != null) {
@@ -262,7 +283,13 @@ public class VideoCardPresenter extends LongClickPresenter {
             loadImageWithGlide(context, cardView, video, cachedPosterUrl);
             return;
         }
-        
+
+        fetchPoster(context, cardView, video, cacheKey);
+    }
+
+    private void fetchPoster(Context context, ComplexImageCardView cardView, Video video, String cacheKey) {
+        String videoTitle = video.getTitle();
+
         // Get or create request counter for this title
         AtomicInteger requestCounter = sRequestCounters.computeIfAbsent(cacheKey, k -> new AtomicInteger(0));
         int currentRequestId = requestCounter.incrementAndGet();
@@ -306,9 +333,7 @@ public class VideoCardPresenter extends LongClickPresenter {
                         sRequestCache.put(cacheKey, imageUrl);
                         
                         // CRITICAL: Persist to SQLite to survive app restarts
-                        if (video.videoId != null) {
-                            TMDBDataCache.instance(context).storePosterUrl(video.videoId, imageUrl);
-                        }
+                        TMDBPosterIndex.instance(context).putPoster(video.videoId, imageUrl);
                     }
                     
                     // Run on main thread for UI updates
@@ -328,9 +353,7 @@ public class VideoCardPresenter extends LongClickPresenter {
                         sBackdropCache.put(cacheKey, backdropUrl);
                         
                         // CRITICAL: Persist backdrop URL to SQLite to survive app restarts
-                        if (video.videoId != null) {
-                            TMDBDataCache.instance(context).storeBackdropUrl(video.videoId, backdropUrl);
-                        }
+                        TMDBPosterIndex.instance(context).putBackdrop(video.videoId, backdropUrl);
                     }
                 }
                 
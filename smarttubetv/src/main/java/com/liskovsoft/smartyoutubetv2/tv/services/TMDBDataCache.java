@@ -3,203 +3,227 @@ package com.liskovsoft.smartyoutubetv2.tv.services;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.database.Cursor;
 import android.util.Log;
+import android.util.LruCache;
+
+import com.liskovsoft.smartyoutubetv2.common.misc.InitScheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Persistent cache for TMDB movie data to reduce API calls and improve performance
+ * Persistent cache for TMDB movie data to reduce API calls and improve performance.
+ * One connection is opened for the app lifetime (WAL mode), recent rows are kept in memory.
  */
 public class TMDBDataCache {
     private static final String TAG = "TMDBDataCache";
     private static final String DATABASE_NAME = "tmdb_cache.db";
     private static final int DATABASE_VERSION = 2;
     private static TMDBDataCache sInstance;
-    
+
     private final Context mContext;
     private final DatabaseHelper mDbHelper;
-    
+
     // Cache expiry: 24 hours
     private static final long CACHE_EXPIRY_MS = TimeUnit.HOURS.toMillis(24);
-    
+
+    // Recent rows. Missing rows are cached too, so the same id doesn't hit the disk twice.
+    private static final int MEMORY_CACHE_SIZE = 500;
+    // SQLite limits the number of the query arguments to 999
+    private static final int MAX_QUERY_ARGS = 500;
+    private final LruCache<String, PosterRow> mPosterRows = new LruCache<>(MEMORY_CACHE_SIZE);
+    private final LruCache<String, GenreRow> mGenreRows = new LruCache<>(MEMORY_CACHE_SIZE);
+
+    private SQLiteDatabase mDb;
+    private SQLiteStatement mUpdatePoster;
+    private SQLiteStatement mInsertPoster;
+    private SQLiteStatement mUpdateBackdrop;
+    private SQLiteStatement mInsertBackdrop;
+    private SQLiteStatement mUpsertGenre;
+
+    public static final class PosterRow {
+        static final PosterRow MISSING = new PosterRow(null, null, 0);
+        public final String posterUrl;
+        public final String backdropUrl;
+        final long timestamp;
+
+        PosterRow(String posterUrl, String backdropUrl, long timestamp) {
+            this.posterUrl = posterUrl;
+            this.backdropUrl = backdropUrl;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class GenreRow {
+        static final GenreRow MISSING = new GenreRow(null, 0);
+        final String genre;
+        final long timestamp;
+
+        GenreRow(String genre, long timestamp) {
+            this.genre = genre;
+            this.timestamp = timestamp;
+        }
+    }
+
     private TMDBDataCache(Context context) {
         mContext = context.getApplicationContext();
         mDbHelper = new DatabaseHelper(mContext);
-        
-        // Clean up expired entries on initialization (runs once per app start)
-        clearExpiredEntries();
+
+        // Clean up expired entries on initialization (runs once per app start, after the first screen)
+        InitScheduler.instance().addIdle(TAG, true, this::clearExpiredEntries);
     }
-    
+
     public static synchronized TMDBDataCache instance(Context context) {
         if (sInstance == null) {
             sInstance = new TMDBDataCache(context);
         }
         return sInstance;
     }
-    
+
     /**
-     * Store poster URL for a video
+     * Store poster URL for a video. The backdrop of the existing row is kept.
      */
     public void storePosterUrl(String videoId, String posterUrl) {
-        SQLiteDatabase db = mDbHelper.getWritableDatabase();
-        try {
-            db.execSQL(
-                "INSERT OR REPLACE INTO poster_cache (video_id, poster_url, backdrop_url, timestamp) VALUES (?, ?, ?, ?)",
-                new Object[]{videoId, posterUrl, null, System.currentTimeMillis()}
-            );
-        } catch (Exception e) {
-            Log.e(TAG, "Error storing poster URL for " + videoId, e);
-        } finally {
-            db.close();
+        long timestamp = System.currentTimeMillis();
+        synchronized (this) {
+            try {
+                openDatabase();
+                upsert(mUpdatePoster, mInsertPoster, videoId, posterUrl, timestamp);
+            } catch (Exception e) {
+                Log.e(TAG, "Error storing poster URL for " + videoId, e);
+                return;
+            }
         }
+        PosterRow row = mPosterRows.get(videoId);
+        mPosterRows.put(videoId, new PosterRow(posterUrl, row != null ? row.backdropUrl : null, timestamp));
     }
-    
+
     /**
-     * Store backdrop URL for a video
+     * Store backdrop URL for a video. The poster of the existing row is kept.
      */
     public void storeBackdropUrl(String videoId, String backdropUrl) {
-        SQLiteDatabase db = mDbHelper.getWritableDatabase();
-        try {
-            // Check if record exists
-            Cursor cursor = db.rawQuery(
-                "SELECT video_id FROM poster_cache WHERE video_id = ?",
-                new String[]{videoId}
-            );
-            
-            if (cursor.moveToFirst()) {
-                // Update existing record
-                db.execSQL(
-                    "UPDATE poster_cache SET backdrop_url = ?, timestamp = ? WHERE video_id = ?",
-                    new Object[]{backdropUrl, System.currentTimeMillis(), videoId}
-                );
-            } else {
-                // Create new record with backdrop only
-                db.execSQL(
-                    "INSERT OR REPLACE INTO poster_cache (video_id, poster_url, backdrop_url, timestamp) VALUES (?, ?, ?, ?)",
-                    new Object[]{videoId, null, backdropUrl, System.currentTimeMillis()}
-                );
+        long timestamp = System.currentTimeMillis();
+        synchronized (this) {
+            try {
+                openDatabase();
+                upsert(mUpdateBackdrop, mInsertBackdrop, videoId, backdropUrl, timestamp);
+            } catch (Exception e) {
+                Log.e(TAG, "Error storing backdrop URL for " + videoId, e);
+                return;
             }
-            cursor.close();
-        } catch (Exception e) {
-            Log.e(TAG, "Error storing backdrop URL for " + videoId, e);
-        } finally {
-            db.close();
         }
+        PosterRow row = mPosterRows.get(videoId);
+        mPosterRows.put(videoId, new PosterRow(row != null ? row.posterUrl : null, backdropUrl, timestamp));
     }
-    
+
     /**
      * Get poster URL for a video (returns null if expired or not found)
      */
     public String getPosterUrl(String videoId) {
-        SQLiteDatabase db = mDbHelper.getReadableDatabase();
-        String posterUrl = null;
-        try (Cursor cursor = db.rawQuery(
-            "SELECT poster_url, timestamp FROM poster_cache WHERE video_id = ?",
-            new String[]{videoId}
-        )) {
-            if (cursor.moveToFirst()) {
-                long timestamp = cursor.getLong(1);
-                long age = System.currentTimeMillis() - timestamp;
-                
-                if (age < CACHE_EXPIRY_MS) {
-                    posterUrl = cursor.getString(0);
-                    Log.d(TAG, "Cache hit for " + videoId + " (age: " + (age / 1000) + "s)");
-                } else {
-                    Log.d(TAG, "Cache expired for " + videoId + " (age: " + (age / 1000) + "s)");
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting poster URL for " + videoId, e);
-        } finally {
-            db.close();
-        }
-        return posterUrl;
+        PosterRow row = getPosterRow(videoId);
+        return row != null ? row.posterUrl : null;
     }
-    
+
     /**
      * Get backdrop URL for a video (returns null if expired or not found)
      */
     public String getBackdropUrl(String videoId) {
-        SQLiteDatabase db = mDbHelper.getReadableDatabase();
-        String backdropUrl = null;
-        try (Cursor cursor = db.rawQuery(
-            "SELECT backdrop_url, timestamp FROM poster_cache WHERE video_id = ?",
-            new String[]{videoId}
-        )) {
-            if (cursor.moveToFirst()) {
-                long timestamp = cursor.getLong(1);
-                long age = System.currentTimeMillis() - timestamp;
-                
-                if (age < CACHE_EXPIRY_MS) {
-                    backdropUrl = cursor.getString(0);
-                    if (backdropUrl != null && !backdropUrl.isEmpty()) {
-                        Log.d(TAG, "Backdrop cache hit for " + videoId);
-                    }
+        PosterRow row = getPosterRow(videoId);
+        return row != null ? row.backdropUrl : null;
+    }
+
+    /**
+     * Get poster and backdrop URLs for the whole row of videos with one query per 500 ids.
+     * Missing and expired videos aren't present in the result.
+     */
+    public Map<String, PosterRow> getPosterRows(Collection<String> videoIds) {
+        Map<String, PosterRow> result = new HashMap<>();
+        List<String> missingIds = new ArrayList<>();
+
+        for (String videoId : videoIds) {
+            if (videoId == null) {
+                continue;
+            }
+            PosterRow row = mPosterRows.get(videoId);
+            if (row == null) {
+                missingIds.add(videoId);
+            } else if (isFresh(row.timestamp)) {
+                result.put(videoId, row);
+            }
+        }
+
+        for (int i = 0; i < missingIds.size(); i += MAX_QUERY_ARGS) {
+            List<String> chunk = missingIds.subList(i, Math.min(i + MAX_QUERY_ARGS, missingIds.size()));
+            Map<String, PosterRow> rows = queryPosterRows(chunk);
+
+            for (String videoId : chunk) {
+                PosterRow row = rows.get(videoId);
+                mPosterRows.put(videoId, row != null ? row : PosterRow.MISSING);
+                if (row != null && isFresh(row.timestamp)) {
+                    result.put(videoId, row);
                 }
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting backdrop URL for " + videoId, e);
-        } finally {
-            db.close();
         }
-        return backdropUrl;
+
+        return result;
     }
-    
+
     /**
      * Store genre for a video
      */
     public void storeGenre(String videoId, String genre) {
-        SQLiteDatabase db = mDbHelper.getWritableDatabase();
-        try {
-            db.execSQL(
-                "INSERT OR REPLACE INTO genre_cache (video_id, genre, timestamp) VALUES (?, ?, ?)",
-                new Object[]{videoId, genre, System.currentTimeMillis()}
-            );
-        } catch (Exception e) {
-            Log.e(TAG, "Error storing genre for " + videoId, e);
-        } finally {
-            db.close();
+        long timestamp = System.currentTimeMillis();
+        synchronized (this) {
+            try {
+                openDatabase();
+                mUpsertGenre.bindString(1, videoId);
+                mUpsertGenre.bindString(2, genre);
+                mUpsertGenre.bindLong(3, timestamp);
+                mUpsertGenre.executeInsert();
+            } catch (Exception e) {
+                Log.e(TAG, "Error storing genre for " + videoId, e);
+                return;
+            }
         }
+        mGenreRows.put(videoId, new GenreRow(genre, timestamp));
     }
-    
+
     /**
      * Get genre for a video
      */
     public String getGenre(String videoId) {
-        SQLiteDatabase db = mDbHelper.getReadableDatabase();
-        String genre = null;
-        try (Cursor cursor = db.rawQuery(
-            "SELECT genre, timestamp FROM genre_cache WHERE video_id = ?",
-            new String[]{videoId}
-        )) {
-            if (cursor.moveToFirst()) {
-                long timestamp = cursor.getLong(1);
-                long age = System.currentTimeMillis() - timestamp;
-                
-                if (age < CACHE_EXPIRY_MS) {
-                    genre = cursor.getString(0);
-                    Log.d(TAG, "Genre cache hit for " + videoId);
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting genre for " + videoId, e);
-        } finally {
-            db.close();
+        GenreRow row = mGenreRows.get(videoId);
+
+        if (row == null) {
+            row = queryGenreRow(videoId);
+            mGenreRows.put(videoId, row);
         }
-        return genre;
+
+        return isFresh(row.timestamp) ? row.genre : null;
     }
-    
+
     /**
      * Clear expired entries to free up space
      * Called automatically on app start to keep database clean
      */
     public void clearExpiredEntries() {
-        SQLiteDatabase db = mDbHelper.getWritableDatabase();
         try {
             long expireThreshold = System.currentTimeMillis() - CACHE_EXPIRY_MS;
-            int deleted = db.delete("poster_cache", "timestamp < ?", new String[]{String.valueOf(expireThreshold)});
-            int deleted2 = db.delete("genre_cache", "timestamp < ?", new String[]{String.valueOf(expireThreshold)});
-            
+            int deleted;
+            int deleted2;
+            synchronized (this) {
+                openDatabase();
+                deleted = mDb.delete("poster_cache", "timestamp < ?", new String[]{String.valueOf(expireThreshold)});
+                deleted2 = mDb.delete("genre_cache", "timestamp < ?", new String[]{String.valueOf(expireThreshold)});
+            }
+
             if (deleted > 0 || deleted2 > 0) {
                 Log.i(TAG, "Cleanup: Removed " + (deleted + deleted2) + " expired cache entries (older than 24h)");
             } else {
@@ -207,11 +231,115 @@ public class TMDBDataCache {
             }
         } catch (Exception e) {
             Log.e(TAG, "Error clearing expired entries", e);
-        } finally {
-            db.close();
         }
     }
-    
+
+    private PosterRow getPosterRow(String videoId) {
+        if (videoId == null) {
+            return null;
+        }
+
+        PosterRow row = mPosterRows.get(videoId);
+
+        if (row == null) {
+            Map<String, PosterRow> rows = queryPosterRows(Collections.singletonList(videoId));
+            row = rows.containsKey(videoId) ? rows.get(videoId) : PosterRow.MISSING;
+            mPosterRows.put(videoId, row);
+        }
+
+        return isFresh(row.timestamp) ? row : null;
+    }
+
+    private Map<String, PosterRow> queryPosterRows(List<String> videoIds) {
+        Map<String, PosterRow> result = new HashMap<>();
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < videoIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+
+        synchronized (this) {
+            try {
+                openDatabase();
+                try (Cursor cursor = mDb.rawQuery(
+                    "SELECT video_id, poster_url, backdrop_url, timestamp FROM poster_cache WHERE video_id IN (" + placeholders + ")",
+                    videoIds.toArray(new String[0])
+                )) {
+                    while (cursor.moveToNext()) {
+                        result.put(cursor.getString(0), new PosterRow(cursor.getString(1), cursor.getString(2), cursor.getLong(3)));
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error getting poster URLs", e);
+            }
+        }
+
+        return result;
+    }
+
+    private GenreRow queryGenreRow(String videoId) {
+        synchronized (this) {
+            try {
+                openDatabase();
+                try (Cursor cursor = mDb.rawQuery(
+                    "SELECT genre, timestamp FROM genre_cache WHERE video_id = ?",
+                    new String[]{videoId}
+                )) {
+                    if (cursor.moveToFirst()) {
+                        return new GenreRow(cursor.getString(0), cursor.getLong(1));
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error getting genre for " + videoId, e);
+            }
+        }
+
+        return GenreRow.MISSING;
+    }
+
+    /**
+     * UPDATE first, INSERT when there's no row. Native UPSERT needs SQLite 3.24 (Android 11).
+     */
+    private static void upsert(SQLiteStatement update, SQLiteStatement insert, String videoId, String value, long timestamp) {
+        bindNullable(update, 1, value);
+        update.bindLong(2, timestamp);
+        update.bindString(3, videoId);
+
+        if (update.executeUpdateDelete() == 0) {
+            insert.bindString(1, videoId);
+            bindNullable(insert, 2, value);
+            insert.bindLong(3, timestamp);
+            insert.executeInsert();
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static boolean isFresh(long timestamp) {
+        return System.currentTimeMillis() - timestamp < CACHE_EXPIRY_MS;
+    }
+
+    /**
+     * The connection is never closed. It's shared by all threads and lives as long as the app.
+     */
+    private void openDatabase() {
+        if (mDb != null) {
+            return;
+        }
+
+        mDb = mDbHelper.getWritableDatabase();
+        mUpdatePoster = mDb.compileStatement("UPDATE poster_cache SET poster_url = ?, timestamp = ? WHERE video_id = ?");
+        mInsertPoster = mDb.compileStatement("INSERT INTO poster_cache (video_id, poster_url, timestamp) VALUES (?, ?, ?)");
+        mUpdateBackdrop = mDb.compileStatement("UPDATE poster_cache SET backdrop_url = ?, timestamp = ? WHERE video_id = ?");
+        mInsertBackdrop = mDb.compileStatement("INSERT INTO poster_cache (video_id, backdrop_url, timestamp) VALUES (?, ?, ?)");
+        mUpsertGenre = mDb.compileStatement("INSERT OR REPLACE INTO genre_cache (video_id, genre, timestamp) VALUES (?, ?, ?)");
+    }
+
     /**
      * Database helper class
      */
@@ -219,7 +347,13 @@ public class TMDBDataCache {
         DatabaseHelper(Context context) {
             super(context, DATABASE_NAME, null, DATABASE_VERSION);
         }
-        
+
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+            // Readers don't wait for the writer
+            db.enableWriteAheadLogging();
+        }
+
         @Override
         public void onCreate(SQLiteDatabase db) {
             // Create poster cache table
@@ -231,7 +365,7 @@ public class TMDBDataCache {
                 "timestamp INTEGER NOT NULL" +
                 ")"
             );
-            
+
             // Create genre cache table
             db.execSQL(
                 "CREATE TABLE IF NOT EXISTS genre_cache (" +
@@ -240,12 +374,12 @@ public class TMDBDataCache {
                 "timestamp INTEGER NOT NULL" +
                 ")"
             );
-            
+
             // Create indices for faster lookups
             db.execSQL("CREATE INDEX IF NOT EXISTS idx_poster_timestamp ON poster_cache(timestamp)");
             db.execSQL("CREATE INDEX IF NOT EXISTS idx_genre_timestamp ON genre_cache(timestamp)");
         }
-        
+
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
             if (oldVersion < 2) {
@@ -4,7 +4,11 @@ import android.util.Log;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -20,12 +24,32 @@ public class TMDBImageService {
     private static final String TMDB_IMAGE_BASE_URL = "https://image.tmdb.org/t/p/w500";
     private static final String TMDB_BACKDROP_BASE_URL = "https://image.tmdb.org/t/p/w1280";
     
+    // Shared by all the presenters: one connection pool, one small worker pool, one rate limit
+    private static OkHttpClient sClient;
+    private static OkHttpClient sFallbackClient;
+    private static final ExecutorService sExecutor = Executors.newFixedThreadPool(3);
+    // TMDB allows ~50 requests per second. Stay well below it.
+    private static final TokenBucket sRateLimiter = new TokenBucket(10, 20);
+    // Requests for the same movie that are running right now
+    private static final Map<String, CoalescedCallback> sInFlight = new HashMap<>();
+    
     private final OkHttpClient client;
     private final Gson gson;
     private final Random random;
     private final ExecutorService executor;
     
     public TMDBImageService() {
+        this.client = getClient();
+        this.gson = new Gson();
+        this.random = new Random();
+        this.executor = sExecutor;
+    }
+    
+    private static synchronized OkHttpClient getClient() {
+        if (sClient != null) {
+            return sClient;
+        }
+        
         // ARMv7: Configure OkHttp with SSL bypass for TMDB API
         OkHttpClient.Builder builder = new OkHttpClient.Builder()
                 .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
@@ -65,10 +89,30 @@ public class TMDBImageService {
             Log.w(TAG, "Failed to configure SSL bypass, using default: " + e.getMessage());
         }
         
-        this.client = builder.build();
-        this.gson = new Gson();
-        this.random = new Random();
-        this.executor = Executors.newFixedThreadPool(1); // ARMv7: Reduce to single thread to prevent memory pressure
+        sClient = builder.build();
+        return sClient;
+    }
+    
+    private static synchronized OkHttpClient getFallbackClient() {
+        if (sFallbackClient == null) {
+            // Same SSL setup and connection pool, shorter timeouts
+            sFallbackClient = getClient().newBuilder()
+                    .connectTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
+                    .readTimeout(15, java.util.concurrent.TimeUnit.SECONDS)
+                    .retryOnConnectionFailure(false)
+                    .build();
+        }
+        return sFallbackClient;
+    }
+    
+    private static Response execute(OkHttpClient client, Request request) throws IOException {
+        try {
+            sRateLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+        }
+        return client.newCall(request).execute();
     }
     
     public void getRandomMoviePoster(TMDBImageCallback callback) {
@@ -80,7 +124,7 @@ public class TMDBImageService {
                         .url(url)
                         .build();
                 
-                try (Response response = client.newCall(request).execute()) {
+                try (Response response = execute(client, request)) {
                     if (response.isSuccessful() && response.body() != null) {
                         String json = response.body().string();
                         TMDBResponse tmdbResponse = gson.fromJson(json, TMDBResponse.class);
@@ -105,89 +149,115 @@ public class TMDBImageService {
     
     public void getMoviePosterByTitle(String title, String description, TMDBImageCallback callback) {
         executor.execute(() -> {
-            try {
-                // First, check for TMDB movie ID in description
-                String tmdbMovieId = extractTMDBMovieId(description);
-                
-                // If not found in description, check in title
-                if (tmdbMovieId == null || tmdbMovieId.isEmpty()) {
-                    tmdbMovieId = extractTMDBMovieId(title);
-                }
-                
-                if (tmdbMovieId != null && !tmdbMovieId.isEmpty()) {
-                    Log.i(TAG, "Found TMDB ID: " + tmdbMovieId);
-                    getMoviePosterById(tmdbMovieId, callback);
-                    return;
-                }
-
-                // Clean up the title for better matching
-                String cleanTitle = cleanMovieTitle(title);
-                if (cleanTitle.isEmpty()) {
-                    callback.onImageUrlReceived(null);
-                    return;
-                }
+            // First, check for TMDB movie ID in description
+            String tmdbMovieId = extractTMDBMovieId(description);
+            
+            // If not found in description, check in title
+            if (tmdbMovieId == null || tmdbMovieId.isEmpty()) {
+                tmdbMovieId = extractTMDBMovieId(title);
+            }
+            
+            if (tmdbMovieId != null && !tmdbMovieId.isEmpty()) {
+                Log.i(TAG, "Found TMDB ID: " + tmdbMovieId);
+                String movieId = tmdbMovieId;
+                runCoalesced("id:" + movieId, callback, coalesced -> getMoviePosterById(movieId, coalesced));
+                return;
+            }
 
-                // Reduced delay for faster response when navigating quickly
-                Thread.sleep(20);
+            // Clean up the title for better matching
+            String cleanTitle = cleanMovieTitle(title);
+            if (cleanTitle.isEmpty()) {
+                callback.onImageUrlReceived(null);
+                return;
+            }
 
-                // Search for movie by title (fallback)
-                String encodedTitle = java.net.URLEncoder.encode(cleanTitle, "UTF-8");
-                String url = TMDB_BASE_URL + "/search/movie?api_key=" + TMDB_API_KEY + "&query=" + encodedTitle + "&include_adult=false";
-                Request request = new Request.Builder()
-                        .url(url)
-                        .build();
+            runCoalesced("title:" + cleanTitle.toLowerCase(), callback, coalesced -> searchMoviePoster(title, cleanTitle, coalesced));
+        });
+    }
+    
+    /**
+     * Same movie might be requested by many cards at once (e.g. the same trailer in different rows).
+     * Only the first request goes to the server, the rest wait for its results.
+     */
+    private static void runCoalesced(String key, TMDBImageCallback callback, CoalescedTask task) {
+        CoalescedCallback coalesced;
+        
+        synchronized (sInFlight) {
+            coalesced = sInFlight.get(key);
+            if (coalesced != null) {
+                coalesced.add(callback);
+                return;
+            }
+            coalesced = new CoalescedCallback();
+            coalesced.add(callback);
+            sInFlight.put(key, coalesced);
+        }
+        
+        try {
+            task.run(coalesced);
+        } finally {
+            synchronized (sInFlight) {
+                sInFlight.remove(key);
+            }
+        }
+    }
+    
+    private void searchMoviePoster(String title, String cleanTitle, TMDBImageCallback callback) {
+        try {
+            // Search for movie by title (fallback)
+            String encodedTitle = java.net.URLEncoder.encode(cleanTitle, "UTF-8");
+            String url = TMDB_BASE_URL + "/search/movie?api_key=" + TMDB_API_KEY + "&query=" + encodedTitle + "&include_adult=false";
+            Request request = new Request.Builder()
+                    .url(url)
+                    .build();
 
-                try (Response response = client.newCall(request).execute()) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        String json = response.body().string();
-                        TMDBResponse tmdbResponse = gson.fromJson(json, TMDBResponse.class);
-                        
-                        if (tmdbResponse.results != null && !tmdbResponse.results.isEmpty()) {
-                            // Try to find the best match
-                            TMDBMovie bestMatch = findBestMatch(cleanTitle, tmdbResponse.results);
-                            if (bestMatch != null && bestMatch.posterPath != null && !bestMatch.posterPath.isEmpty()) {
-                                String posterUrl = TMDB_IMAGE_BASE_URL + bestMatch.posterPath;
-                                callback.onImageUrlReceived(posterUrl);
-                                
-                                // Send backdrop URL if available
-                                if (bestMatch.backdropPath != null && !bestMatch.backdropPath.isEmpty()) {
-                                    String backdropUrl = TMDB_BACKDROP_BASE_URL + bestMatch.backdropPath;
-                                    callback.onBackdropUrlReceived(backdropUrl);
-                                }
-                                
-                                // Also provide movie details
-                                String rating = String.format("%.1f", bestMatch.voteAverage);
-                                String releaseDate = bestMatch.releaseDate != null ? bestMatch.releaseDate.substring(0, 4) : "Unknown";
-                                callback.onMovieDetailsReceived(
-                                    bestMatch.title,
-                                    bestMatch.overview != null ? bestMatch.overview : "No overview available",
-                                    posterUrl,
-                                    rating,
-                                    releaseDate
-                                );
-                                
-                                // Fetch detailed movie information (including certification)
-                                getDetailedMovieInfo(bestMatch.id, callback);
-                                return;
+            try (Response response = execute(client, request)) {
+                if (response.isSuccessful() && response.body() != null) {
+                    String json = response.body().string();
+                    TMDBResponse tmdbResponse = gson.fromJson(json, TMDBResponse.class);
+                    
+                    if (tmdbResponse.results != null && !tmdbResponse.results.isEmpty()) {
+                        // Try to find the best match
+                        TMDBMovie bestMatch = findBestMatch(cleanTitle, tmdbResponse.results);
+                        if (bestMatch != null && bestMatch.posterPath != null && !bestMatch.posterPath.isEmpty()) {
+                            String posterUrl = TMDB_IMAGE_BASE_URL + bestMatch.posterPath;
+                            callback.onImageUrlReceived(posterUrl);
+                            
+                            // Send backdrop URL if available
+                            if (bestMatch.backdropPath != null && !bestMatch.backdropPath.isEmpty()) {
+                                String backdropUrl = TMDB_BACKDROP_BASE_URL + bestMatch.backdropPath;
+                                callback.onBackdropUrlReceived(backdropUrl);
                             }
+                            
+                            // Also provide movie details
+                            String rating = String.format("%.1f", bestMatch.voteAverage);
+                            String releaseDate = bestMatch.releaseDate != null ? bestMatch.releaseDate.substring(0, 4) : "Unknown";
+                            callback.onMovieDetailsReceived(
+                                bestMatch.title,
+                                bestMatch.overview != null ? bestMatch.overview : "No overview available",
+                                posterUrl,
+                                rating,
+                                releaseDate
+                            );
+                            
+                            // Fetch detailed movie information (including certification)
+                            getDetailedMovieInfo(bestMatch.id, callback);
+                            return;
                         }
                     }
                 }
-            } catch (IOException e) {
-                Log.e(TAG, "Error searching TMDB for: " + title, e);
-                // ARMv7: Try fallback approach for SSL issues
-                tryFallbackSearch(cleanMovieTitle(title), callback);
-                return;
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Thread interrupted", e);
-                Thread.currentThread().interrupt();
-            } catch (Exception e) {
-                Log.e(TAG, "Unexpected error searching TMDB for: " + title, e);
             }
+        } catch (IOException e) {
+            Log.e(TAG, "Error searching TMDB for: " + title, e);
+            // ARMv7: Try fallback approach for SSL issues
+            tryFallbackSearch(cleanTitle, callback);
+            return;
+        } catch (Exception e) {
+            Log.e(TAG, "Unexpected error searching TMDB for: " + title, e);
+        }
 
-            // If we get here, something went wrong
-            callback.onImageUrlReceived(null);
-        });
+        // If we get here, something went wrong
+        callback.onImageUrlReceived(null);
     }
     
     
@@ -199,7 +269,7 @@ public class TMDBImageService {
                     .url(url)
                     .build();
 
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = execute(client, request)) {
                 if (response.isSuccessful() && response.body() != null) {
                     String json = response.body().string();
                     TMDBReleaseDatesResponse releaseDatesResponse = gson.fromJson(json, TMDBReleaseDatesResponse.class);
@@ -247,36 +317,6 @@ public class TMDBImageService {
         try {
             Log.i(TAG, "Trying fallback search for: " + cleanTitle);
             
-            // Create a simpler client with SSL bypass
-            OkHttpClient.Builder fallbackBuilder = new OkHttpClient.Builder()
-                    .connectTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                    .readTimeout(15, java.util.concurrent.TimeUnit.SECONDS)
-                    .retryOnConnectionFailure(false);
-            
-            // Apply same SSL bypass for fallback
-            try {
-                javax.net.ssl.TrustManager[] trustAllCerts = new javax.net.ssl.TrustManager[] {
-                    new javax.net.ssl.X509TrustManager() {
-                        @Override
-                        public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) {}
-                        @Override
-                        public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) {}
-                        @Override
-                        public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                            return new java.security.cert.X509Certificate[0];
-                        }
-                    }
-                };
-                javax.net.ssl.SSLContext sslContext = javax.net.ssl.SSLContext.getInstance("TLS");
-                sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-                fallbackBuilder.sslSocketFactory(sslContext.getSocketFactory(), (javax.net.ssl.X509TrustManager) trustAllCerts[0]);
-                fallbackBuilder.hostnameVerifier((hostname, session) -> true);
-            } catch (Exception e) {
-                Log.w(TAG, "Failed to configure fallback SSL bypass: " + e.getMessage());
-            }
-            
-            OkHttpClient fallbackClient = fallbackBuilder.build();
-            
             // Try a simpler search with basic parameters
             String encodedTitle = java.net.URLEncoder.encode(cleanTitle, "UTF-8");
             String url = TMDB_BASE_URL + "/search/movie?api_key=" + TMDB_API_KEY + "&query=" + encodedTitle;
@@ -285,7 +325,7 @@ public class TMDBImageService {
                     .addHeader("User-Agent", "SmartTube/1.0")
                     .build();
 
-            try (Response response = fallbackClient.newCall(request).execute()) {
+            try (Response response = execute(getFallbackClient(), request)) {
                 if (response.isSuccessful() && response.body() != null) {
                     String json = response.body().string();
                     TMDBResponse tmdbResponse = gson.fromJson(json, TMDBResponse.class);
@@ -312,16 +352,13 @@ public class TMDBImageService {
     public void getDetailedMovieInfo(int movieId, TMDBImageCallback callback) {
         executor.execute(() -> {
             try {
-                // ARMv7: Add longer delay to prevent memory pressure
-                Thread.sleep(500);
-                
                 // Get detailed movie information including credits
                 String url = TMDB_BASE_URL + "/movie/" + movieId + "?api_key=" + TMDB_API_KEY + "&append_to_response=credits";
                 Request request = new Request.Builder()
                         .url(url)
                         .build();
                 
-                try (Response response = client.newCall(request).execute()) {
+                try (Response response = execute(client, request)) {
                     if (response.isSuccessful() && response.body() != null) {
                         String json = response.body().string();
                         
@@ -346,18 +383,12 @@ public class TMDBImageService {
                             }
                             
                             callback.onDetailedMovieInfoReceived(detailedInfo);
-                            
-                            // ARMv7: Force garbage collection after processing
-                            System.gc();
                             return;
                         }
                     }
                 }
             } catch (IOException e) {
                 Log.e(TAG, "Error fetching detailed movie info for ID: " + movieId, e);
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Thread interrupted", e);
-                Thread.currentThread().interrupt();
             } catch (Exception e) {
                 Log.e(TAG, "Unexpected error fetching detailed movie info for ID: " + movieId, e);
             }
@@ -522,7 +553,7 @@ public class TMDBImageService {
                     .url(url)
                     .build();
 
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = execute(client, request)) {
                 if (response.isSuccessful() && response.body() != null) {
                     String json = response.body().string();
                     TMDBMovieDetails movie = gson.fromJson(json, TMDBMovieDetails.class);
@@ -613,6 +644,57 @@ public class TMDBImageService {
         return (double) matches / Math.max(words1.length, words2.length);
     }
     
+    private interface CoalescedTask {
+        void run(TMDBImageCallback callback);
+    }
+    
+    private interface CallbackEvent {
+        void deliver(TMDBImageCallback callback);
+    }
+    
+    /**
+     * Forwards the results of one request to all the callers that asked for the same movie.
+     * Callers that join late get the results received so far replayed.
+     */
+    private static class CoalescedCallback implements TMDBImageCallback {
+        private final List<TMDBImageCallback> callbacks = new ArrayList<>();
+        private final List<CallbackEvent> events = new ArrayList<>();
+        
+        synchronized void add(TMDBImageCallback callback) {
+            for (CallbackEvent event : events) {
+                event.deliver(callback);
+            }
+            callbacks.add(callback);
+        }
+        
+        private synchronized void dispatch(CallbackEvent event) {
+            events.add(event);
+            for (TMDBImageCallback callback : callbacks) {
+                event.deliver(callback);
+            }
+        }
+        
+        @Override
+        public void onImageUrlReceived(String imageUrl) {
+            dispatch(callback -> callback.onImageUrlReceived(imageUrl));
+        }
+        
+        @Override
+        public void onBackdropUrlReceived(String backdropUrl) {
+            dispatch(callback -> callback.onBackdropUrlReceived(backdropUrl));
+        }
+        
+        @Override
+        public void onMovieDetailsReceived(String title, String overview, String poster, String rating, String releaseDate) {
+            dispatch(callback -> callback.onMovieDetailsReceived(title, overview, poster, rating, releaseDate));
+        }
+        
+        @Override
+        public void onDetailedMovieInfoReceived(TMDBDetailedMovieInfo movieInfo) {
+            dispatch(callback -> callback.onDetailedMovieInfoReceived(movieInfo));
+        }
+    }
+    
     private static class TMDBResponse {
         @SerializedName("results")
         List<TMDBMovie> results;
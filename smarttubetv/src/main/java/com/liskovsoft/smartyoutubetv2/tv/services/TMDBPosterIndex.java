@@ -0,0 +1,144 @@
+package com.liskovsoft.smartyoutubetv2.tv.services;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Memory-resident videoId -> poster/backdrop index for the cards.
+ * Rows are prewarmed from the database when they arrive, so binding a card never touches the disk.
+ * Database access runs on a single background thread, results are delivered on the main thread.
+ */
+public class TMDBPosterIndex {
+    private static final int MAX_ENTRIES = 2000;
+    private static TMDBPosterIndex sInstance;
+
+    private final TMDBDataCache mDataCache;
+    private final LruCache<String, Entry> mEntries = new LruCache<>(MAX_ENTRIES);
+    // Single thread keeps the order: lookups queued after the prewarm of the same row find it in memory
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    public static class Entry {
+        static final Entry MISSING = new Entry(null, null);
+        public final String posterUrl;
+        public final String backdropUrl;
+
+        Entry(String posterUrl, String backdropUrl) {
+            this.posterUrl = posterUrl;
+            this.backdropUrl = backdropUrl;
+        }
+    }
+
+    public interface Callback {
+        void onEntry(Entry entry);
+    }
+
+    private TMDBPosterIndex(Context context) {
+        mDataCache = TMDBDataCache.instance(context);
+    }
+
+    public static synchronized TMDBPosterIndex instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new TMDBPosterIndex(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Memory only, safe for the main thread. Returns null when the video hasn't been looked up yet.
+     */
+    public Entry peek(String videoId) {
+        return videoId != null ? mEntries.get(videoId) : null;
+    }
+
+    /**
+     * Loads the whole row with one query.
+     */
+    public void prewarm(VideoGroup group) {
+        if (group == null || group.isEmpty()) {
+            return;
+        }
+
+        List<String> videoIds = new ArrayList<>();
+
+        for (Video video : group.getVideos()) {
+            if (video.videoId != null && mEntries.get(video.videoId) == null) {
+                videoIds.add(video.videoId);
+            }
+        }
+
+        if (videoIds.isEmpty()) {
+            return;
+        }
+
+        mExecutor.execute(() -> load(videoIds));
+    }
+
+    /**
+     * Calls back on the main thread. Missing videos get an entry without poster.
+     */
+    public void resolve(String videoId, Callback callback) {
+        Entry entry = peek(videoId);
+
+        if (entry != null || videoId == null) {
+            callback.onEntry(entry != null ? entry : Entry.MISSING);
+            return;
+        }
+
+        mExecutor.execute(() -> {
+            Entry result = mEntries.get(videoId);
+
+            if (result == null) {
+                load(Collections.singletonList(videoId));
+                result = mEntries.get(videoId);
+            }
+
+            Entry finalResult = result != null ? result : Entry.MISSING;
+            mHandler.post(() -> callback.onEntry(finalResult));
+        });
+    }
+
+    public void putPoster(String videoId, String posterUrl) {
+        if (videoId == null || posterUrl == null) {
+            return;
+        }
+
+        Entry entry = mEntries.get(videoId);
+        mEntries.put(videoId, new Entry(posterUrl, entry != null ? entry.backdropUrl : null));
+        mExecutor.execute(() -> mDataCache.storePosterUrl(videoId, posterUrl));
+    }
+
+    public void putBackdrop(String videoId, String backdropUrl) {
+        if (videoId == null || backdropUrl == null) {
+            return;
+        }
+
+        Entry entry = mEntries.get(videoId);
+        mEntries.put(videoId, new Entry(entry != null ? entry.posterUrl : null, backdropUrl));
+        mExecutor.execute(() -> mDataCache.storeBackdropUrl(videoId, backdropUrl));
+    }
+
+    private void load(List<String> videoIds) {
+        Map<String, TMDBDataCache.PosterRow> rows = mDataCache.getPosterRows(videoIds);
+
+        for (String videoId : videoIds) {
+            // Don't overwrite the fresh results of the network requests
+            if (mEntries.get(videoId) != null) {
+                continue;
+            }
+
+            TMDBDataCache.PosterRow row = rows.get(videoId);
+            mEntries.put(videoId, row != null ? new Entry(row.posterUrl, row.backdropUrl) : Entry.MISSING);
+        }
+    }
+}
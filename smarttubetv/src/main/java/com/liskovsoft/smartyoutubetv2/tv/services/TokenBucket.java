@@ -0,0 +1,43 @@
+package com.liskovsoft.smartyoutubetv2.tv.services;
+
+import android.os.SystemClock;
+
+/**
+ * Limits the rate of the TMDB API calls.
+ * Short bursts pass at once, longer ones are spread by the refill rate.
+ */
+final class TokenBucket {
+    private final int mCapacity;
+    private final double mTokensPerMs;
+    private double mTokens;
+    private long mLastRefillMs;
+
+    TokenBucket(int capacity, int tokensPerSecond) {
+        mCapacity = capacity;
+        mTokensPerMs = tokensPerSecond / 1_000d;
+        mTokens = capacity;
+        mLastRefillMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Blocks the calling thread until a token is available.
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (true) {
+            refill();
+
+            if (mTokens >= 1) {
+                mTokens -= 1;
+                return;
+            }
+
+            wait((long) Math.ceil((1 - mTokens) / mTokensPerMs));
+        }
+    }
+
+    private void refill() {
+        long nowMs = SystemClock.elapsedRealtime();
+        mTokens = Math.min(mCapacity, mTokens + (nowMs - mLastRefillMs) * mTokensPerMs);
+        mLastRefillMs = nowMs;
+    }
+}
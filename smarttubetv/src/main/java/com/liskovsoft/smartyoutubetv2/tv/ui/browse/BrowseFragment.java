@@ -36,6 +36,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.views.ViewManager;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.smartyoutubetv2.tv.R;
 import com.liskovsoft.smartyoutubetv2.tv.presenter.IconHeaderItemPresenter;
+import com.liskovsoft.smartyoutubetv2.tv.services.TMDBPosterIndex;
 import com.liskovsoft.smartyoutubetv2.tv.ui.browse.dialog.ErrorDialogFragment;
 import com.liskovsoft.smartyoutubetv2.tv.ui.mod.leanback.headers.ExtendedHeadersSupportFragment;
 import com.liskovsoft.smartyoutubetv2.tv.ui.mod.leanback.misc.ProgressBarManager;
@@ -331,6 +332,11 @@ public class BrowseFragment extends BrowseSupportFragment implements BrowseView
     public void updateSection(VideoGroup group) {
         restoreMainFragment();
 
+        // Posters of the row are read from the database while the cards are being created
+        if (getContext() != null) {
+            TMDBPosterIndex.instance(getContext()).prewarm(group);
+        }
+
         mSectionFragmentFactory.updateCurrentFragment(group);
 
         fixInvisibleSearchOrb();
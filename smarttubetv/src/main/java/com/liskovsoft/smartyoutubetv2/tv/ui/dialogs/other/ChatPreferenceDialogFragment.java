@@ -9,6 +9,7 @@ import android.widget.TextView;
 import androidx.annotation.Nullable;
 import androidx.preference.DialogPreference;
 import com.bumptech.glide.Glide;
+import com.liskovsoft.mediaserviceinterfaces.data.ChatItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.ChatReceiver;
 import com.liskovsoft.smartyoutubetv2.tv.R;
 import com.liskovsoft.smartyoutubetv2.tv.ui.mod.leanback.preference.LeanbackPreferenceDialogFragment;
@@ -17,6 +18,9 @@ import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
 import com.stfalcon.chatkit.messages.MessagesList;
 import com.stfalcon.chatkit.messages.MessagesListAdapter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ChatPreferenceDialogFragment extends LeanbackPreferenceDialogFragment {
     private static final String SENDER_ID = ChatPreferenceDialogFragment.class.getSimpleName();
     private boolean mIsTransparent;
@@ -67,7 +71,13 @@ public class ChatPreferenceDialogFragment extends LeanbackPreferenceDialogFragme
         messagesList.setAdapter(adapter);
 
         if (mChatReceiver != null) {
-            mChatReceiver.setCallback(chatItem -> adapter.addToStart(ChatItemMessage.from(chatItem), true));
+            mChatReceiver.setCallback(chatItems -> {
+                List<ChatItemMessage> messages = new ArrayList<>();
+                for (ChatItem chatItem : chatItems) {
+                    messages.add(ChatItemMessage.from(chatItem));
+                }
+                adapter.addToStart(messages, true);
+            });
         }
 
         if (mIsTransparent) {
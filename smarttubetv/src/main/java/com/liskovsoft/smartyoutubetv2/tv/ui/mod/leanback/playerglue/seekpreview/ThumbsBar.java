@@ -303,8 +303,12 @@ public class ThumbsBar extends LinearLayout {
      * Set thumb bitmap for a given index of child.
      */
     public void setThumbBitmap(int index, Bitmap bitmap) {
-        mBitmaps.put(index, bitmap);
         ImageView imageView = (ImageView) getChildAt(index);
+        // MOD: tiles are cached, the same bitmap comes again and again while seeking
+        if (bitmap != null && mBitmaps.get(index) == bitmap && imageView.getVisibility() == View.VISIBLE) {
+            return;
+        }
+        mBitmaps.put(index, bitmap);
         imageView.setImageBitmap(bitmap);
         // MOD: exclude impact to final size of invisible images
         imageView.setVisibility(bitmap != null ? View.VISIBLE : View.GONE);
@@ -447,6 +447,7 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         mPlayer = mPlayerInitializer.createPlayer(getContext(), renderersFactory, trackSelector);
 
         mExoPlayerController.setPlayer(mPlayer);
+        mExoPlayerController.setLoadControl(mPlayerInitializer.getLoadControl());
     }
 
     private void createPlayerGlue() {
@@ -475,7 +476,7 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
     }
 
     private void createDebugManager() {
-        mDebugInfoManager = new DebugInfoManager(getActivity(), mPlayer, R.id.debug_view_group);
+        mDebugInfoManager = new DebugInfoManager(getActivity(), mPlayer, mPlayerInitializer.getLoadControl(), R.id.debug_view_group);
     }
 
     private void initializeGlobalClock() {
@@ -858,6 +859,11 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         mExoPlayerController.openMerged(dashManifest, hlsPlaylistUrl);
     }
 
+    @Override
+    public void prefetch(MediaItemFormatInfo formatInfo) {
+        mExoPlayerController.prefetch(formatInfo);
+    }
+
     @Override
     public long getPositionMs() {
         return mExoPlayerController.getPositionMs();
@@ -2,42 +2,34 @@ package com.liskovsoft.smartyoutubetv2.tv.ui.playback.previewtimebar;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.drawable.Drawable;
-import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
-import androidx.collection.ArraySet;
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.CustomTarget;
-import com.bumptech.glide.request.target.Target;
-import com.bumptech.glide.request.transition.Transition;
-import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
-import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
+import android.os.SystemClock;
+import androidx.leanback.R;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemStoryboard;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemStoryboard.Size;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
-import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
-import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
-import io.reactivex.Observable;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoBundleLoader;
 import io.reactivex.disposables.Disposable;
 
-import java.util.Set;
-
 public class StoryboardManager {
     private static final String TAG = StoryboardManager.class.getSimpleName();
     private static final long FRAME_DURATION_MS = 10_000;
-    private static final int MAX_PRELOADED_IMAGES = 3;
+    private static final int MAX_PRELOADED_IMAGES = 5;
+    private static final int MAX_PARALLEL_LOADS = 3;
+    private static final float PRELOAD_AHEAD_SEC = 1f;
+    private static final long VELOCITY_RESET_MS = 2_000;
     private static final int DIRECTION_RIGHT = 0;
     private static final int DIRECTION_LEFT = 1;
-    private final MediaItemService mMediaItemService;
     private final Context mContext;
     private long mLengthMs;
     private MediaItemStoryboard mStoryboard;
     private Disposable mFormatAction;
     private long[] mSeekPositions;
     private int mCurrentImgNum = -1;
-    private final Set<Integer> mCachedImageNums = new ArraySet<>();
+    private long mCurrentImgTimeMs;
+    private float mGroupsPerSecond;
+    private final StoryboardTileCache mTileCache;
     private int mSeekDirection = DIRECTION_RIGHT;
 
     public interface Callback {
@@ -46,15 +38,17 @@ public class StoryboardManager {
 
     public StoryboardManager(Context context) {
         mContext = context;
-        ServiceManager service = YouTubeServiceManager.instance();
-        mMediaItemService = service.getMediaItemService();
+        mTileCache = new StoryboardTileCache(context,
+                context.getResources().getDimensionPixelSize(R.dimen.lb_playback_transport_hero_thumbs_width));
     }
 
     public void init(Video video, long lengthMs) {
         mLengthMs = lengthMs;
         mSeekPositions = null;
         mStoryboard = null;
-        mCachedImageNums.clear();
+        mCurrentImgNum = -1;
+        mGroupsPerSecond = 0;
+        mTileCache.clear();
 
         RxHelper.disposeActions(mFormatAction);
 
@@ -62,15 +56,8 @@ public class StoryboardManager {
             return;
         }
 
-        Observable<MediaItemStoryboard> storyboardObserve;
-
-        if (video.mediaItem != null) {
-            storyboardObserve = mMediaItemService.getStoryboardObserve(video.mediaItem);
-        } else {
-            storyboardObserve = mMediaItemService.getStoryboardObserve(video.videoId);
-        }
-
-        mFormatAction = storyboardObserve
+        // Most likely already loaded along with the format info
+        mFormatAction = VideoBundleLoader.instance(mContext).getStoryboardObserve(video)
                 .subscribe(
                         storyboard -> {
                             mStoryboard = storyboard;
@@ -129,71 +116,78 @@ public class StoryboardManager {
         loadPreview(mSeekPositions[index], callback);
     }
 
+    /**
+     * Drop the requests of the previous seek.
+     */
+    public void reset() {
+        mTileCache.clearCallbacks();
+    }
+
     private void loadPreview(long currentPosition, Callback callback) {
         if (mStoryboard == null || mStoryboard.getGroupDurationMS() == 0) {
             return;
         }
 
-        int groupNum = (int) currentPosition / mStoryboard.getGroupDurationMS();
-        long realPosMS = currentPosition % mStoryboard.getGroupDurationMS();
         Size size = mStoryboard.getGroupSize();
-        GlideThumbnailTransformation transformation =
-                new GlideThumbnailTransformation(realPosMS, size.getWidth(), size.getHeight(), size.getRowCount(), size.getColCount(), size.getDurationEachMS());
+
+        if (size.getDurationEachMS() == 0) {
+            return;
+        }
+
+        int groupNum = (int) (currentPosition / mStoryboard.getGroupDurationMS());
+        long realPosMS = currentPosition % mStoryboard.getGroupDurationMS();
+        int tileIndex = (int) (realPosMS / size.getDurationEachMS());
 
         //Log.d(TAG, "Loading preview. Position: %s, groupNum: %s, groupDurationMS: %s, groupSize", currentPosition, groupNum, mStoryboard.getGroupDurationMS(), size);
 
-        Glide.with(mContext)
-                .asBitmap()
-                .load(mStoryboard.getGroupUrl(groupNum))
-                .apply(ViewUtil.glideOptions())
-                .override(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL)
-                .transform(transformation)
-                .into(new CustomTarget<Bitmap>() {
-                    @Override
-                    public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
-                        //Log.d(TAG, "onPreviewLoaded: image hashCode: %s", resource.hashCode());
-                        callback.onBitmapLoaded(resource);
-                    }
-
-                    @Override
-                    public void onLoadCleared(@Nullable Drawable placeholder) {
-                        // NOP
-                    }
-                });
+        mTileCache.getTile(mStoryboard.getGroupUrl(groupNum), groupNum, size, tileIndex, callback);
 
         if (mCurrentImgNum != groupNum) {
+            updateSeekVelocity(groupNum);
             mSeekDirection = mCurrentImgNum < groupNum ? DIRECTION_RIGHT : DIRECTION_LEFT;
-            mCachedImageNums.add(groupNum);
             mCurrentImgNum = groupNum;
 
-            preloadNextImage();
+            preloadNextImages();
         }
     }
 
-    private void preloadNextImage() {
-        if (mStoryboard == null) {
-            return;
-        }
+    private void updateSeekVelocity(int groupNum) {
+        long nowMs = SystemClock.uptimeMillis();
+        long elapsedMs = nowMs - mCurrentImgTimeMs;
 
-        for (int i = 1; i <= MAX_PRELOADED_IMAGES; i++) {
-            int imgNum = mSeekDirection == DIRECTION_RIGHT ? mCurrentImgNum + i : mCurrentImgNum - i; // get next image
-            preloadImage(imgNum);
+        if (mCurrentImgNum != -1 && elapsedMs > 0 && elapsedMs < VELOCITY_RESET_MS) {
+            mGroupsPerSecond = Math.abs(groupNum - mCurrentImgNum) * 1_000f / elapsedMs;
+        } else {
+            mGroupsPerSecond = 0;
         }
+
+        mCurrentImgTimeMs = nowMs;
     }
 
-    private void preloadImage(int imgNum) {
-        if (mCachedImageNums.contains(imgNum) || imgNum < 0) {
+    /**
+     * Faster scrubbing reaches more sheets until they're decoded.
+     */
+    private void preloadNextImages() {
+        if (mStoryboard == null) {
             return;
         }
 
-        Log.d(TAG, "Oops, image #" + imgNum + " didn't cached yet");
+        int count = Math.min(MAX_PRELOADED_IMAGES, 1 + Math.round(mGroupsPerSecond * PRELOAD_AHEAD_SEC));
+        int lastImgNum = (int) ((mLengthMs - 1) / mStoryboard.getGroupDurationMS());
+        Size size = mStoryboard.getGroupSize();
+        // Seeking right enters the next sheet at the first tile, seeking left at the last one
+        int tileIndex = mSeekDirection == DIRECTION_RIGHT ? 0 : Math.max(size.getColCount() * size.getRowCount() - 1, 0);
 
-        mCachedImageNums.add(imgNum);
+        for (int i = 1; i <= count; i++) {
+            int imgNum = mSeekDirection == DIRECTION_RIGHT ? mCurrentImgNum + i : mCurrentImgNum - i; // get next image
 
-        String link = mStoryboard.getGroupUrl(imgNum);
+            if (imgNum < 0 || imgNum > lastImgNum || mTileCache.getLoadingCount() >= MAX_PARALLEL_LOADS) {
+                break;
+            }
 
-        Glide.with(mContext)
-                .load(link)
-                .preload();
+            if (!mTileCache.isCached(imgNum, tileIndex)) {
+                mTileCache.loadGroup(mStoryboard.getGroupUrl(imgNum), imgNum, size);
+            }
+        }
     }
 }
@@ -27,6 +27,11 @@ public class StoryboardSeekDataProvider extends PlaybackSeekDataProvider {
         mStoryboardManager.getBitmap(index, bitmap -> callback.onThumbnailLoaded(bitmap, index));
     }
 
+    @Override
+    public void reset() {
+        mStoryboardManager.reset();
+    }
+
     public static void setSeekProvider(PlaybackTransportControlGlue<?> glue) {
         if (glue.isPrepared()) {
             glue.setSeekProvider(new StoryboardSeekDataProvider(glue.getContext()));
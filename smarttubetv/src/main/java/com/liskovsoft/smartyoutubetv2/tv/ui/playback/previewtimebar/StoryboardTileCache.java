@@ -0,0 +1,252 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.playback.previewtimebar;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+import android.util.SparseArray;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.target.Target;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemStoryboard.Size;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+import com.liskovsoft.smartyoutubetv2.tv.ui.playback.previewtimebar.StoryboardManager.Callback;
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Storyboard tiles of the current video.<br/>
+ * Each sprite sheet is decoded once on a background thread, downsampled to the preview size, and sliced into tiles.
+ * The tiles are kept in an LRU bounded by the bitmap memory, so scrubbing doesn't decode anything.
+ */
+final class StoryboardTileCache {
+    private static final String TAG = StoryboardTileCache.class.getSimpleName();
+    private static final int MAX_MEMORY_BYTES = 32 * 1024 * 1024;
+    private static final int MAX_MEMORY_BYTES_LOW_RAM = 8 * 1024 * 1024;
+    private final Context mContext;
+    private final int mMaxTileWidth;
+    private final LruCache<Long, Bitmap> mTiles;
+    private final SparseArray<Disposable> mLoadingGroups = new SparseArray<>();
+    private final SparseArray<List<PendingTile>> mPendingTiles = new SparseArray<>();
+
+    private static final class PendingTile {
+        final int tileIndex;
+        final Callback callback;
+
+        PendingTile(int tileIndex, Callback callback) {
+            this.tileIndex = tileIndex;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * @param maxTileWidth tiles wider than this are downsampled
+     */
+    StoryboardTileCache(Context context, int maxTileWidth) {
+        mContext = context.getApplicationContext();
+        mMaxTileWidth = maxTileWidth;
+        mTiles = new LruCache<Long, Bitmap>(Utils.isEnoughRam() ? MAX_MEMORY_BYTES : MAX_MEMORY_BYTES_LOW_RAM) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Calls back at once when the tile is cached, otherwise when its sprite sheet is decoded.
+     */
+    void getTile(String url, int groupNum, Size size, int tileIndex, Callback callback) {
+        Bitmap tile = mTiles.get(createKey(groupNum, tileIndex));
+
+        if (tile != null) {
+            callback.onBitmapLoaded(tile);
+            return;
+        }
+
+        List<PendingTile> pendingTiles = mPendingTiles.get(groupNum);
+
+        if (pendingTiles == null) {
+            pendingTiles = new ArrayList<>();
+            mPendingTiles.put(groupNum, pendingTiles);
+        }
+
+        pendingTiles.add(new PendingTile(tileIndex, callback));
+
+        loadGroup(url, groupNum, size);
+    }
+
+    /**
+     * Tiles of the sheet are evicted one by one. Check the tile that will be shown.
+     */
+    boolean isCached(int groupNum, int tileIndex) {
+        return mTiles.get(createKey(groupNum, tileIndex)) != null;
+    }
+
+    boolean isLoading(int groupNum) {
+        return mLoadingGroups.get(groupNum) != null;
+    }
+
+    int getLoadingCount() {
+        return mLoadingGroups.size();
+    }
+
+    void loadGroup(String url, int groupNum, Size size) {
+        if (url == null || isLoading(groupNum)) {
+            return;
+        }
+
+        Disposable action = Observable.fromCallable(() -> decodeGroup(url, size))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        tiles -> onGroupLoaded(groupNum, tiles),
+                        error -> {
+                            Log.e(TAG, "Can't load storyboard #%s: %s", groupNum, error.getMessage());
+                            mLoadingGroups.remove(groupNum);
+                            mPendingTiles.remove(groupNum);
+                        }
+                );
+
+        mLoadingGroups.put(groupNum, action);
+    }
+
+    /**
+     * Forget the requested tiles but keep loading the sheets, they will be needed soon.
+     */
+    void clearCallbacks() {
+        mPendingTiles.clear();
+    }
+
+    void clear() {
+        for (int i = 0; i < mLoadingGroups.size(); i++) {
+            RxHelper.disposeActions(mLoadingGroups.valueAt(i));
+        }
+
+        mLoadingGroups.clear();
+        mPendingTiles.clear();
+        mTiles.evictAll();
+    }
+
+    private void onGroupLoaded(int groupNum, List<Bitmap> tiles) {
+        mLoadingGroups.remove(groupNum);
+
+        for (int i = 0; i < tiles.size(); i++) {
+            if (tiles.get(i) != null) {
+                mTiles.put(createKey(groupNum, i), tiles.get(i));
+            }
+        }
+
+        List<PendingTile> pendingTiles = mPendingTiles.get(groupNum);
+        mPendingTiles.remove(groupNum);
+
+        if (pendingTiles == null) {
+            return;
+        }
+
+        for (PendingTile pendingTile : pendingTiles) {
+            if (pendingTile.tileIndex < tiles.size() && tiles.get(pendingTile.tileIndex) != null) {
+                pendingTile.callback.onBitmapLoaded(tiles.get(pendingTile.tileIndex));
+            }
+        }
+    }
+
+    /**
+     * Runs on a background thread. Tiles are in row-major order, missing ones are null.
+     */
+    private List<Bitmap> decodeGroup(String url, Size size) throws Exception {
+        int sampleSize = getSampleSize(size.getWidth());
+
+        FutureTarget<Bitmap> target = Glide.with(mContext)
+                .asBitmap()
+                .load(url)
+                .diskCacheStrategy(DiskCacheStrategy.DATA) // decoded tiles are cached here, keep only the source
+                .skipMemoryCache(true)
+                .format(DecodeFormat.PREFER_RGB_565)
+                .downsample(new SampleSizeStrategy(sampleSize))
+                .submit(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL);
+
+        try {
+            Bitmap sheet = target.get();
+
+            int colCount = Math.max(size.getColCount(), 1);
+            int rowCount = Math.max(size.getRowCount(), 1);
+            int tileWidth = size.getWidth() > 0 ? Math.min(size.getWidth() / sampleSize, sheet.getWidth()) : sheet.getWidth() / colCount;
+            int tileHeight = size.getHeight() > 0 ? Math.min(size.getHeight() / sampleSize, sheet.getHeight()) : sheet.getHeight() / rowCount;
+
+            List<Bitmap> tiles = new ArrayList<>();
+
+            if (tileWidth <= 0 || tileHeight <= 0) {
+                return tiles;
+            }
+
+            // The last sheet of the video might be incomplete
+            int rows = Math.min(rowCount, sheet.getHeight() / tileHeight);
+            int cols = Math.min(colCount, sheet.getWidth() / tileWidth);
+
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < colCount; col++) {
+                    tiles.add(col < cols ? slice(sheet, col * tileWidth, row * tileHeight, tileWidth, tileHeight) : null);
+                }
+            }
+
+            return tiles;
+        } finally {
+            // The sheet goes back to the Glide pool
+            Glide.with(mContext).clear(target);
+        }
+    }
+
+    private static Bitmap slice(Bitmap sheet, int x, int y, int width, int height) {
+        if (x == 0 && y == 0 && width == sheet.getWidth() && height == sheet.getHeight()) {
+            // createBitmap returns the same instance in this case
+            return sheet.copy(sheet.getConfig(), false);
+        }
+
+        return Bitmap.createBitmap(sheet, x, y, width, height);
+    }
+
+    private int getSampleSize(int tileWidth) {
+        int sampleSize = 1;
+
+        while (mMaxTileWidth > 0 && tileWidth / (sampleSize * 2) >= mMaxTileWidth) {
+            sampleSize *= 2;
+        }
+
+        return sampleSize;
+    }
+
+    private static long createKey(int groupNum, int tileIndex) {
+        return ((long) groupNum << 32) | tileIndex;
+    }
+
+    /**
+     * Decodes with the exact power of two sample size, so the tile size is known in advance.
+     */
+    private static final class SampleSizeStrategy extends DownsampleStrategy {
+        private final int mSampleSize;
+
+        SampleSizeStrategy(int sampleSize) {
+            mSampleSize = sampleSize;
+        }
+
+        @Override
+        public float getScaleFactor(int sourceWidth, int sourceHeight, int requestedWidth, int requestedHeight) {
+            return 1f / mSampleSize;
+        }
+
+        @Override
+        public SampleSizeRounding getSampleSizeRounding(int sourceWidth, int sourceHeight, int requestedWidth, int requestedHeight) {
+            return SampleSizeRounding.MEMORY;
+        }
+    }
+}
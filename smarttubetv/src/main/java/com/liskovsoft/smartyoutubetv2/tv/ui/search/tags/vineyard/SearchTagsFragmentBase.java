@@ -203,7 +203,9 @@ public abstract class SearchTagsFragmentBase extends SearchSupportFragment
         }
 
         String query = adapter.getAdapterOptions().get(PaginationAdapter.KEY_TAG);
+        // Called again when the server suggestions are merged with the local ones
         mSearchTagsProvider.search(query, results -> {
+            adapter.clear();
             adapter.addAllItems(results);
             attachAdapter(0, adapter);
             // Same suggestions in the keyboard
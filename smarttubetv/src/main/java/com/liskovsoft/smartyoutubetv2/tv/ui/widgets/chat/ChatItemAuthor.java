@@ -1,5 +1,6 @@
 package com.liskovsoft.smartyoutubetv2.tv.ui.widgets.chat;
 
+import androidx.annotation.Nullable;
 import com.liskovsoft.mediaserviceinterfaces.data.ChatItem;
 import com.liskovsoft.mediaserviceinterfaces.data.CommentItem;
 import com.stfalcon.chatkit.commons.models.IUser;
@@ -10,7 +11,11 @@ public class ChatItemAuthor implements IUser {
     private String mAvatar;
 
     public static ChatItemAuthor from(ChatItem chatItem) {
-        ChatItemAuthor author = new ChatItemAuthor();
+        return from(chatItem, null);
+    }
+
+    public static ChatItemAuthor from(ChatItem chatItem, @Nullable ChatItemAuthor recycled) {
+        ChatItemAuthor author = recycled != null ? recycled : new ChatItemAuthor();
         author.mAvatar = chatItem.getAuthorPhoto();
         author.mName = chatItem.getAuthorName();
         author.mId = chatItem.getAuthorName();
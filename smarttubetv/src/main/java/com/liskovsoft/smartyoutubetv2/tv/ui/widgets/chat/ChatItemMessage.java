@@ -3,6 +3,8 @@ package com.liskovsoft.smartyoutubetv2.tv.ui.widgets.chat;
 import android.content.Context;
 import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
+
 import com.liskovsoft.mediaserviceinterfaces.data.ChatItem;
 import com.liskovsoft.mediaserviceinterfaces.data.CommentItem;
 import com.liskovsoft.sharedutils.helpers.Helpers;
@@ -27,13 +29,26 @@ public class ChatItemMessage implements IMessage {
     private CommentItem mCommentItem;
 
     public static ChatItemMessage from(ChatItem chatItem) {
-        ChatItemMessage message = new ChatItemMessage();
+        return from(chatItem, null);
+    }
+
+    /**
+     * Reuses the message that isn't displayed anymore, so busy chats don't produce garbage.
+     */
+    public static ChatItemMessage from(ChatItem chatItem, @Nullable ChatItemMessage recycled) {
+        ChatItemMessage message = recycled != null ? recycled : new ChatItemMessage();
         message.mId = chatItem.getId();
+        message.mText = null;
         if (chatItem.getMessage() != null && !chatItem.getMessage().trim().isEmpty()) {
             message.mText = TextUtils.concat(Utils.bold(chatItem.getAuthorName()), ": ", chatItem.getMessage());
         }
-        message.mAuthor = ChatItemAuthor.from(chatItem);
-        message.mCreatedAt = new Date();
+        message.mAuthor = ChatItemAuthor.from(chatItem, message.mAuthor);
+        if (message.mCreatedAt != null) {
+            message.mCreatedAt.setTime(System.currentTimeMillis());
+        } else {
+            message.mCreatedAt = new Date();
+        }
+        message.mCommentItem = null;
 
         return message;
     }
@@ -8,15 +8,26 @@ import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import androidx.annotation.Nullable;
 import com.bumptech.glide.Glide;
+import com.liskovsoft.mediaserviceinterfaces.data.ChatItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.ChatReceiver;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
+import com.stfalcon.chatkit.commons.models.IMessage;
 import com.stfalcon.chatkit.messages.MessagesListAdapter;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
 public class LiveChatView extends com.stfalcon.chatkit.messages.MessagesList {
     private static final String SENDER_ID = LiveChatView.class.getSimpleName();
+    private static final int MAX_ITEMS = 20;
     private ChatReceiver mChatReceiver;
     private MessagesListAdapter<ChatItemMessage> mAdapter;
+    // Mirrors the adapter content. Messages that fall out of the chat are reused.
+    private final ArrayDeque<ChatItemMessage> mShownMessages = new ArrayDeque<>();
+    private final ArrayDeque<ChatItemMessage> mRecycledMessages = new ArrayDeque<>();
+    private final List<ChatItemMessage> mBatch = new ArrayList<>();
 
     public LiveChatView(Context context) {
         super(context);
@@ -44,6 +55,8 @@ public class LiveChatView extends com.stfalcon.chatkit.messages.MessagesList {
 
         if (mAdapter != null) {
             mAdapter.clear();
+            mRecycledMessages.addAll(mShownMessages);
+            mShownMessages.clear();
         }
 
         mChatReceiver = chatReceiver;
@@ -64,11 +77,33 @@ public class LiveChatView extends com.stfalcon.chatkit.messages.MessagesList {
                             .apply(ViewUtil.glideOptions())
                             .circleCrop() // resize image
                             .into(imageView));
-            mAdapter.setMaxItemsCount(20);
+            mAdapter.setMaxItemsCount(MAX_ITEMS);
             setAdapter(mAdapter);
         }
 
-        mChatReceiver.setCallback(chatItem -> mAdapter.addToStart(ChatItemMessage.from(chatItem), true));
+        mChatReceiver.setCallback(this::addChatItems);
+    }
+
+    private void addChatItems(List<ChatItem> chatItems) {
+        // Older items won't be visible anyway
+        for (int i = Math.max(0, chatItems.size() - MAX_ITEMS); i < chatItems.size(); i++) {
+            ChatItemMessage message = ChatItemMessage.from(chatItems.get(i), mRecycledMessages.poll());
+
+            // Same check as in the adapter
+            if (IMessage.checkMessage(message)) {
+                mBatch.add(message);
+                mShownMessages.add(message);
+            } else {
+                mRecycledMessages.add(message);
+            }
+        }
+
+        mAdapter.addToStart(mBatch, true);
+        mBatch.clear();
+
+        while (mShownMessages.size() > MAX_ITEMS) {
+            mRecycledMessages.add(mShownMessages.poll());
+        }
     }
 
     private void alignChat() {
@@ -16,6 +16,7 @@ import com.bumptech.glide.Glide;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.smartyoutubetv2.tv.R;
+import com.liskovsoft.smartyoutubetv2.tv.ui.widgets.embedplayer.EmbedPlayerPool;
 import com.liskovsoft.smartyoutubetv2.tv.ui.widgets.embedplayer.EmbedPlayerView;
 import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
 
@@ -170,7 +171,7 @@ public class ComplexImageView extends RelativeLayout {
         }
 
         if (mPreviewPlayer == null) {
-            mPreviewPlayer = new EmbedPlayerView(getContext());
+            mPreviewPlayer = EmbedPlayerPool.acquire(getContext());
             mPreviewPlayer.setQuality(Math.min(mPreviewWidth, mPreviewHeight) < 300 ? EmbedPlayerView.QUALITY_LOW : EmbedPlayerView.QUALITY_NORMAL);
             mPreviewPlayer.setUseController(false);
             mPreviewPlayer.setMute(mMute);
@@ -205,14 +206,14 @@ public class ComplexImageView extends RelativeLayout {
             if (mPreviewPlayer != null) {
                 mPreviewContainer.setVisibility(View.GONE);
                 if (stopImmediately) {
-                    mPreviewPlayer.finish();
                     mPreviewContainer.removeView(mPreviewPlayer);
+                    EmbedPlayerPool.release(mPreviewPlayer);
                 } else {
                     EmbedPlayerView epv = mPreviewPlayer;
                     epv.setMute(true);
                     Utils.postDelayed(() -> {
-                        epv.finish();
                         mPreviewContainer.removeView(epv);
+                        EmbedPlayerPool.release(epv);
                     }, 500);
                 }
                 mPreviewPlayer = null;
@@ -0,0 +1,84 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.widgets.embedplayer;
+
+import android.content.Context;
+
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Card previews take the players from here instead of creating new ones on every focus change.<br/>
+ * Idle players are released after a while or when their activity is destroyed. Should be used on the main thread.
+ */
+public class EmbedPlayerPool {
+    private static final int MAX_IDLE_PLAYERS = 2;
+    private static final int MAX_IDLE_PLAYERS_LOW_RAM = 1;
+    private static final long IDLE_TIMEOUT_MS = 30_000;
+    private static final ArrayDeque<EmbedPlayerView> sIdlePlayers = new ArrayDeque<>();
+    private static final Runnable sReleaseAll = EmbedPlayerPool::releaseAll;
+
+    private EmbedPlayerPool() {
+    }
+
+    public static EmbedPlayerView acquire(Context context) {
+        while (!sIdlePlayers.isEmpty()) {
+            EmbedPlayerView player = sIdlePlayers.pollLast();
+
+            if (player.getContext() == context) {
+                return player;
+            }
+
+            // Other activity
+            player.finish();
+        }
+
+        return new EmbedPlayerView(context);
+    }
+
+    /**
+     * The player should be removed from its parent.
+     */
+    public static void release(EmbedPlayerView player) {
+        if (player == null || sIdlePlayers.contains(player)) {
+            return;
+        }
+
+        int maxIdlePlayers = Utils.isEnoughRam() ? MAX_IDLE_PLAYERS : MAX_IDLE_PLAYERS_LOW_RAM;
+
+        if (player.getParent() == null && sIdlePlayers.size() < maxIdlePlayers && player.recycle()) {
+            sIdlePlayers.add(player);
+            Utils.postDelayed(sReleaseAll, IDLE_TIMEOUT_MS);
+        } else {
+            player.finish();
+        }
+    }
+
+    /**
+     * The players hold the activity. Should be called when the activity is destroyed.
+     */
+    public static void releaseAll(Context context) {
+        Iterator<EmbedPlayerView> iterator = sIdlePlayers.iterator();
+
+        while (iterator.hasNext()) {
+            EmbedPlayerView player = iterator.next();
+
+            if (player.getContext() == context) {
+                iterator.remove();
+                player.finish();
+            }
+        }
+
+        if (sIdlePlayers.isEmpty()) {
+            Utils.removeCallbacks(sReleaseAll);
+        }
+    }
+
+    public static void releaseAll() {
+        Utils.removeCallbacks(sReleaseAll);
+
+        while (!sIdlePlayers.isEmpty()) {
+            sIdlePlayers.poll().finish();
+        }
+    }
+}
@@ -47,6 +47,7 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
     private final Runnable mStopPlayback = this::finish;
     private int mQuality;
     private float mPercentWatched;
+    private boolean mIsRecycled;
 
     public EmbedPlayerView(Context context) {
         super(context);
@@ -290,6 +291,11 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
         mExoPlayerController.openMerged(dashManifest, hlsPlaylistUrl);
     }
 
+    @Override
+    public void prefetch(MediaItemFormatInfo formatInfo) {
+        mExoPlayerController.prefetch(formatInfo);
+    }
+
     @Override
     public long getPositionMs() {
         return mExoPlayerController.getPositionMs();
@@ -370,7 +376,7 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
 
     @Override
     public boolean isEngineInitialized() {
-        return mPlayer != null;
+        return mPlayer != null && !mIsRecycled;
     }
 
     @Override
@@ -527,9 +533,15 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
             return;
         }
 
-        mPlayerInitializer = new ExoPlayerInitializer(getContext());
-        mPlaybackPresenter.setView(this);
-        mExoPlayerController = new ExoPlayerController(getContext(), mPlaybackPresenter);
+        if (mIsRecycled) {
+            // Player objects are kept
+            mPlaybackPresenter.setView(this);
+        } else {
+            mPlayerInitializer = new ExoPlayerInitializer(getContext());
+            mPlaybackPresenter.setView(this);
+            mExoPlayerController = new ExoPlayerController(getContext(), mPlaybackPresenter);
+        }
+
         mExoPlayerController.setOnVideoLoaded(this::onVideoLoaded);
         mPlaybackPresenter.onViewInitialized(); // init all controllers
 
@@ -542,16 +554,24 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
             return;
         }
 
-        // Use default or pass your bandwidthMeter here: bandwidthMeter = new DefaultBandwidthMeter.Builder(getContext()).build()
-        DefaultTrackSelector trackSelector = new RestoreTrackSelector(new AdaptiveTrackSelection.Factory());
-        mExoPlayerController.setTrackSelector(trackSelector);
-
-        DefaultRenderersFactory renderersFactory = new CustomOverridesRenderersFactory(getContext());
-        mPlayer = mPlayerInitializer.createPlayer(getContext(), renderersFactory, trackSelector);
-        mPlayer.setPlayWhenReady(true);
-        //mPlayer.setRepeatMode(Player.REPEAT_MODE_ONE);
+        if (mIsRecycled) {
+            // Player of the previous video is reused
+            mIsRecycled = false;
+            mPlayer.setPlayWhenReady(true);
+        } else {
+            // Use default or pass your bandwidthMeter here: bandwidthMeter = new DefaultBandwidthMeter.Builder(getContext()).build()
+            DefaultTrackSelector trackSelector = new RestoreTrackSelector(new AdaptiveTrackSelection.Factory());
+            mExoPlayerController.setTrackSelector(trackSelector);
+
+            DefaultRenderersFactory renderersFactory = new CustomOverridesRenderersFactory(getContext());
+            mPlayer = mPlayerInitializer.createPlayer(getContext(), renderersFactory, trackSelector);
+            mPlayer.setPlayWhenReady(true);
+            //mPlayer.setRepeatMode(Player.REPEAT_MODE_ONE);
+
+            mExoPlayerController.setPlayer(mPlayer);
+            mExoPlayerController.setLoadControl(mPlayerInitializer.getLoadControl());
+        }
 
-        mExoPlayerController.setPlayer(mPlayer);
         //mExoPlayerController.setVideo(mVideo);
         mExoPlayerController.selectFormat(mQuality == QUALITY_LOW ? FormatItem.VIDEO_SUB_SD_AVC_30 : FormatItem.VIDEO_SD_AVC_30);
         // Don't use subs! Not efficient. High cpu load. Cause input lags.
@@ -565,21 +585,40 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
         mPlaybackPresenter.onEngineInitialized(); // start playback
     }
 
+    /**
+     * Stops the playback but keeps the player objects for the next video.<br/>
+     * Returns false if there is nothing to keep.
+     */
+    public boolean recycle() {
+        if (!isEngineInitialized()) {
+            return false;
+        }
+
+        Utils.removeCallbacks(mShowView);
+        Utils.removeCallbacks(mStopPlayback);
+        // Don't replace main player!
+        if (mPlaybackPresenter.getView() == null || mPlaybackPresenter.getView() == this) {
+            mPlaybackPresenter.onEngineReleased();
+        }
+        mExoPlayerController.setOnVideoLoaded(null);
+        // Drops the buffers and the decoders
+        mPlayer.stop(true);
+        mIsRecycled = true;
+        setPlayer(null);
+        hideView();
+        syncPositionIfNeeded();
+
+        return true;
+    }
+
     private void destroyPlayerObjects() {
-        if (isEngineInitialized()) {
-            Utils.removeCallbacks(mShowView);
-            Utils.removeCallbacks(mStopPlayback);
-            // Don't replace main player!
-            if (mPlaybackPresenter.getView() == null || mPlaybackPresenter.getView() == this) {
-                mPlaybackPresenter.onEngineReleased();
-            }
-            mExoPlayerController.setOnVideoLoaded(null);
+        recycle();
+
+        if (mIsRecycled) {
             // Fix access calls when player isn't initialized
             mExoPlayerController.release();
             mPlayer = null;
-            setPlayer(null);
-            hideView();
-            syncPositionIfNeeded();
+            mIsRecycled = false;
         }
     }
 
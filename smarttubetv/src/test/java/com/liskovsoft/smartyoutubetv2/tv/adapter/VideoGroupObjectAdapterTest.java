@@ -0,0 +1,278 @@
+package com.liskovsoft.smartyoutubetv2.tv.adapter;
+
+import android.app.Application;
+import android.view.ViewGroup;
+import androidx.leanback.widget.ObjectAdapter;
+import androidx.leanback.widget.Presenter;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class VideoGroupObjectAdapterTest {
+    private static final int SYNC_SIZE = 100;
+    private VideoGroupObjectAdapter mAdapter;
+    private final List<String> mNotifications = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mAdapter = createAdapter();
+        mAdapter.registerObserver(new ObjectAdapter.DataObserver() {
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                mNotifications.add("changed " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mNotifications.add("removed " + positionStart + " " + itemCount);
+            }
+        });
+    }
+
+    @Test
+    public void testIndexFollowsStructuralChanges() {
+        mAdapter.add(createGroup(0, 10));
+        assertIndexConsistent();
+
+        VideoGroup prepended = createGroup(10, 3);
+        prepended.setAction(VideoGroup.ACTION_PREPEND);
+        mAdapter.add(prepended);
+        assertIndexConsistent();
+
+        // Same video in the different rows
+        mAdapter.add(createGroup(5, 3));
+        assertIndexConsistent();
+
+        mAdapter.remove(createGroup(6, 1));
+        assertIndexConsistent();
+
+        mAdapter.add(createGroup(20, 2));
+        assertIndexConsistent();
+
+        mAdapter.clear();
+        mAdapter.add(createGroup(0, 5));
+        assertIndexConsistent();
+    }
+
+    @Test
+    public void testRemoveCoalescesRanges() {
+        mAdapter.add(createGroup(0, 10));
+
+        mAdapter.remove(createGroupOf(1, 2, 3, 6, 7, 9));
+
+        // From the end, so the positions of the next ranges stay valid
+        assertEquals(Arrays.asList("removed 9 1", "removed 6 2", "removed 1 3"), mNotifications);
+        assertEquals(Arrays.asList("video0", "video4", "video5", "video8"), getVideoIds());
+        assertIndexConsistent();
+    }
+
+    @Test
+    public void testSyncCoalescesRanges() {
+        mAdapter.add(createGroup(0, 10));
+        // Same video in the other row
+        mAdapter.add(createGroup(8, 1));
+
+        VideoGroup changes = createGroupOf(2, 3, 4, 8);
+
+        for (Video video : changes.getVideos()) {
+            video.percentWatched = 50;
+        }
+
+        mAdapter.sync(changes);
+
+        assertEquals(Arrays.asList("changed 2 3", "changed 8 1", "changed 10 1"), mNotifications);
+
+        for (int i = 0; i < mAdapter.size(); i++) {
+            Video video = (Video) mAdapter.get(i);
+            boolean isChanged = Arrays.asList("video2", "video3", "video4", "video8").contains(video.videoId);
+            assertEquals(video.videoId, isChanged ? 50 : -1, video.percentWatched, 0);
+        }
+    }
+
+    /**
+     * The old adapter scanned the items on every lookup and notified every synced item.
+     */
+    @Test
+    public void testBenchmarkLookupsAgainstLinearScan() {
+        // Warm up
+        runIndexed(createVideos(0, 100), 10);
+        runLinear(createVideos(0, 100), 10);
+
+        for (int size : new int[] {100, 1_000, 10_000}) {
+            int repeats = Math.max(1, 10_000 / size);
+
+            long startNs = System.nanoTime();
+            int indexedNotifications = runIndexed(createVideos(0, size), repeats);
+            long indexedNs = System.nanoTime() - startNs;
+
+            startNs = System.nanoTime();
+            int linearNotifications = runLinear(createVideos(0, size), repeats);
+            long linearNs = System.nanoTime() - startNs;
+
+            String result = String.format("%s items. Indexed %s us, linear %s us, notifications %s vs %s",
+                    size, indexedNs / 1_000 / repeats, linearNs / 1_000 / repeats, indexedNotifications, linearNotifications);
+            // Top items of the row are synced at once
+            assertEquals(result, repeats, indexedNotifications);
+            assertEquals(result, repeats * SYNC_SIZE, linearNotifications);
+            assertTrue(result, indexedNs < linearNs * 5 / 4);
+        }
+    }
+
+    /**
+     * Adds the row, looks up every item and syncs the top items.
+     */
+    private static int runIndexed(List<Video> videos, int repeats) {
+        int[] notifications = new int[1];
+
+        for (int i = 0; i < repeats; i++) {
+            VideoGroupObjectAdapter adapter = createAdapter();
+            adapter.registerObserver(new ObjectAdapter.DataObserver() {
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount) {
+                    notifications[0]++;
+                }
+            });
+            adapter.add(VideoGroup.from(new ArrayList<>(videos)));
+
+            for (int j = 0; j < videos.size(); j++) {
+                assertEquals(j, adapter.indexOf(videos.get(j)));
+            }
+
+            adapter.sync(VideoGroup.from(createVideos(0, SYNC_SIZE)));
+        }
+
+        return notifications[0];
+    }
+
+    /**
+     * Same as the old adapter did.
+     */
+    private static int runLinear(List<Video> videos, int repeats) {
+        int notifications = 0;
+
+        for (int i = 0; i < repeats; i++) {
+            List<Video> items = new ArrayList<>(videos);
+
+            for (int j = 0; j < videos.size(); j++) {
+                Video item = videos.get(j);
+                int index = -1;
+
+                for (int k = 0; k < items.size(); k++) {
+                    if (items.get(k) == item) {
+                        index = k;
+                        break;
+                    }
+                }
+
+                assertEquals(j, index);
+            }
+
+            for (Video video : createVideos(0, SYNC_SIZE)) {
+                for (int k = 0; k < items.size(); k++) {
+                    Video origin = items.get(k);
+
+                    if (origin.equals(video)) {
+                        origin.sync(video);
+                        notifications++;
+                    }
+                }
+            }
+        }
+
+        return notifications;
+    }
+
+    /**
+     * Compares the index lookups with the linear search.
+     */
+    private void assertIndexConsistent() {
+        List<Video> items = mAdapter.getAll();
+
+        for (Video item : items) {
+            int identityIndex = -1;
+
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i) == item) {
+                    identityIndex = i;
+                    break;
+                }
+            }
+
+            assertEquals(item.videoId, identityIndex, mAdapter.indexOf(item));
+            assertEquals(item.videoId, items.indexOf(item), mAdapter.indexOfAlt(createVideo(item.videoId)));
+        }
+
+        assertEquals(-1, mAdapter.indexOf(createVideo("video0")));
+        assertEquals(-1, mAdapter.indexOfAlt(createVideo("missing")));
+    }
+
+    private List<String> getVideoIds() {
+        List<String> result = new ArrayList<>();
+
+        for (Video video : mAdapter.getAll()) {
+            result.add(video.videoId);
+        }
+
+        return result;
+    }
+
+    private static VideoGroup createGroup(int start, int count) {
+        return VideoGroup.from(createVideos(start, count));
+    }
+
+    private static VideoGroup createGroupOf(int... nums) {
+        List<Video> videos = new ArrayList<>();
+
+        for (int num : nums) {
+            videos.add(createVideo("video" + num));
+        }
+
+        return VideoGroup.from(videos);
+    }
+
+    private static List<Video> createVideos(int start, int count) {
+        List<Video> result = new ArrayList<>();
+
+        for (int i = start; i < start + count; i++) {
+            result.add(createVideo("video" + i));
+        }
+
+        return result;
+    }
+
+    private static Video createVideo(String videoId) {
+        Video video = new Video();
+        video.videoId = videoId;
+        return video;
+    }
+
+    private static VideoGroupObjectAdapter createAdapter() {
+        return new VideoGroupObjectAdapter(new Presenter() {
+            @Override
+            public ViewHolder onCreateViewHolder(ViewGroup parent) {
+                return null;
+            }
+
+            @Override
+            public void onBindViewHolder(ViewHolder viewHolder, Object item) {
+            }
+
+            @Override
+            public void onUnbindViewHolder(ViewHolder viewHolder) {
+            }
+        });
+    }
+}
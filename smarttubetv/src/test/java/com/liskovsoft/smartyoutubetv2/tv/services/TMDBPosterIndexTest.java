@@ -0,0 +1,148 @@
+package com.liskovsoft.smartyoutubetv2.tv.services;
+
+import android.app.Application;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import com.liskovsoft.smartyoutubetv2.tv.services.TMDBPosterIndex.Entry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class TMDBPosterIndexTest {
+    private static final long TIMEOUT_MS = 5_000;
+    private TMDBDataCache mDataCache;
+    private TMDBPosterIndex mIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        resetInstances();
+        mDataCache = TMDBDataCache.instance(RuntimeEnvironment.application);
+        mDataCache.storePosterUrl("video1", "poster1");
+        mDataCache.storeBackdropUrl("video1", "backdrop1");
+        mDataCache.storePosterUrl("video2", "poster2");
+        mIndex = TMDBPosterIndex.instance(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        resetInstances();
+    }
+
+    @Test
+    public void testPeekDoesNotTouchDatabase() {
+        assertNull(mIndex.peek("video1"));
+        assertNull(mIndex.peek(null));
+    }
+
+    @Test
+    public void testPrewarmLoadsWholeRow() {
+        mIndex.prewarm(createGroup("video1", "video2", "video3"));
+        // The lookups run in order on the same thread. The prewarm is done before this one.
+        awaitResolve("video4");
+
+        Entry entry = mIndex.peek("video1");
+        assertNotNull(entry);
+        assertEquals("poster1", entry.posterUrl);
+        assertEquals("backdrop1", entry.backdropUrl);
+
+        assertEquals("poster2", mIndex.peek("video2").posterUrl);
+        assertNull(mIndex.peek("video2").backdropUrl);
+
+        // Missing videos aren't queried again
+        assertSame(Entry.MISSING, mIndex.peek("video3"));
+    }
+
+    @Test
+    public void testResolveCallsBackOnMainThread() {
+        Entry entry = awaitResolve("video1");
+
+        assertEquals("poster1", entry.posterUrl);
+        assertSame(entry, mIndex.peek("video1"));
+        assertSame(Entry.MISSING, awaitResolve("video3"));
+    }
+
+    @Test
+    public void testResolveOfKnownVideoIsSynchronous() {
+        mIndex.putPoster("video3", "poster3");
+
+        List<Entry> result = new ArrayList<>();
+        mIndex.resolve("video3", result::add);
+        mIndex.resolve(null, result::add);
+
+        assertEquals(2, result.size());
+        assertEquals("poster3", result.get(0).posterUrl);
+        assertSame(Entry.MISSING, result.get(1));
+    }
+
+    @Test
+    public void testPutIsStoredToDatabase() throws Exception {
+        mIndex.putPoster("video3", "poster3");
+        mIndex.putBackdrop("video3", "backdrop3");
+        // Wait for the store
+        awaitResolve("video4");
+
+        assertEquals("poster3", mDataCache.getPosterUrl("video3"));
+        assertEquals("backdrop3", mDataCache.getBackdropUrl("video3"));
+
+        // The restarted app reads it from the disk
+        resetInstances();
+        mIndex = TMDBPosterIndex.instance(RuntimeEnvironment.application);
+        assertNull(mIndex.peek("video3"));
+        assertEquals("backdrop3", awaitResolve("video3").backdropUrl);
+    }
+
+    private Entry awaitResolve(String videoId) {
+        Entry[] result = new Entry[1];
+        mIndex.resolve(videoId, entry -> result[0] = entry);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+
+        while (result[0] == null && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper();
+            Thread.yield();
+        }
+
+        assertNotNull("No callback for " + videoId, result[0]);
+
+        return result[0];
+    }
+
+    private static VideoGroup createGroup(String... videoIds) {
+        List<Video> videos = new ArrayList<>();
+
+        for (String videoId : Arrays.asList(videoIds)) {
+            Video video = new Video();
+            video.videoId = videoId;
+            videos.add(video);
+        }
+
+        return VideoGroup.from(videos);
+    }
+
+    /**
+     * Singletons survive between the tests. Every test gets the new app.
+     */
+    private static void resetInstances() throws Exception {
+        for (Class<?> clazz : new Class[] {TMDBPosterIndex.class, TMDBDataCache.class}) {
+            Field field = clazz.getDeclaredField("sInstance");
+            field.setAccessible(true);
+            field.set(null, null);
+        }
+    }
+}